@@ -0,0 +1,97 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db;
+
+import br.com.jhondbs.core.db.capsule.BulkLoader;
+import br.com.jhondbs.core.db.interfaces.Entity;
+import br.com.jhondbs.core.db.session.UnitOfWork;
+import java.util.Collection;
+import java.util.stream.Stream;
+
+/**
+ * ENGLISH<br>
+ * Operations on many entities at once.<br><br>
+ * PORTUGUÊS<br>
+ * Operações sobre várias entidades de uma vez.
+ * @author jhones
+ */
+public final class DB {
+
+    private DB() {
+    }
+    
+    /**
+     * ENGLISH<br>
+     * Saves all the entities, grouping them in transactions of up to
+     * UnitOfWork.CHUNK entities each, instead of one transaction per entity.
+     * Each transaction is atomic; if one fails, the previous ones stay saved.<br><br>
+     * PORTUGUÊS<br>
+     * Salva todas as entidades, agrupando-as em transações de até
+     * UnitOfWork.CHUNK entidades cada, em vez de uma transação por entidade.
+     * Cada transação é atômica; se uma falhar, as anteriores continuam gravadas.
+     * @param entities Entities to be saved.<br>
+     * Entidades a serem salvas.
+     * @throws Exception 
+     */
+    public static void saveAll(Collection<? extends Entity> entities) throws Exception {
+        try (UnitOfWork unit = new UnitOfWork()) {
+            unit.addAll(entities);
+            unit.commit();
+        }
+    }
+    
+    /**
+     * ENGLISH<br>
+     * Imports the entities in bulk, for initial loads: records go straight to
+     * the storage in sorted batches, unique values are checked per batch and
+     * the indexes of the loaded classes are rebuilt once at the end. It must
+     * not run alongside other writes to the same entities.<br><br>
+     * PORTUGUÊS<br>
+     * Importa as entidades em massa, para cargas iniciais: os registros vão
+     * direto para o armazenamento em lotes ordenados, os valores únicos são
+     * verificados por lote e os índices das classes carregadas são remontados
+     * uma única vez ao final. Não deve rodar junto com outras gravações das
+     * mesmas entidades.
+     * @param entities Entities to be imported.<br>
+     * Entidades a serem importadas.
+     * @return Summary of the load, with the throughput in records per second.<br>
+     * Resumo da carga, com a vazão em registros por segundo.
+     * @throws Exception 
+     */
+    public static BulkLoader.Report bulkImport(Stream<? extends Entity> entities) throws Exception {
+        return BulkLoader.load(entities);
+    }
+    
+    /**
+     * ENGLISH<br>
+     * Opens a unit of work to save entities in batches.<br><br>
+     * PORTUGUÊS<br>
+     * Abre uma unidade de trabalho para salvar entidades em lotes.
+     * @return 
+     */
+    public static UnitOfWork unitOfWork() {
+        return new UnitOfWork();
+    }
+    
+}
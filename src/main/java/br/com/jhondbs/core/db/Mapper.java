@@ -25,14 +25,10 @@ package br.com.jhondbs.core.db;
 
 import br.com.jhondbs.core.db.capsule.Ref;
 import br.com.jhondbs.core.db.interfaces.Entity;
-import br.com.jhondbs.core.tools.FieldsManager;
+import br.com.jhondbs.core.tools.EntityMetadata;
 import java.lang.reflect.Field;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.WeakHashMap;
 
 /**
@@ -41,36 +37,8 @@ import java.util.WeakHashMap;
  */
 public class Mapper {
     
-    private static WeakHashMap<Entity, List<Ref>> map = new WeakHashMap<>();
     public static WeakHashMap<Object, Map<Field, Ref>> coldMap = new WeakHashMap<Object, Map<Field, Ref>>();
     
-    public static void add(Entity entity, String str) {
-        if(!str.isBlank()) {
-            add(entity, Arrays.asList(str.split("::"))
-                    .stream()
-                    .filter(s -> !s.isBlank())
-                    .toList());
-        }
-    }
-    
-    public static void add(Entity entity, List<String> refs) {
-        List<Ref> list = new ArrayList<>();
-        for(String str : refs) {
-            list.add(new Ref(str));
-        }
-        map.put(entity, list);
-    }
-    
-    public static void add(Entity entity, Set<Ref> refs) {
-        List<Ref> list = new ArrayList<>();
-        list.addAll(refs);
-        map.put(entity, list);
-    }
-    
-    public static List<Ref> get(Entity entity) {
-        return map.getOrDefault(entity, new ArrayList<>());
-    }
-    
     public static void addCold(Object object, Field field, Ref ref) {
         coldMap.putIfAbsent(object, new HashMap<>());
         coldMap.get(object).putIfAbsent(field, ref);
@@ -82,10 +50,7 @@ public class Mapper {
     }
     
     public static Ref getCold(Object object, String field) {
-        Field get = FieldsManager.getAllFields(object)
-                .stream().filter(f -> f.getName().equals(field))
-                .findFirst()
-                .get();
+        Field get = EntityMetadata.of(object).get(field).field;
         Map<Field, Ref> m = coldMap.getOrDefault(object, new HashMap<>());
         return m.getOrDefault(get, null);
     }
@@ -23,25 +23,28 @@
  */
 package br.com.jhondbs.core.db.capsule;
 
+import br.com.jhondbs.core.db.index.IndexManager;
+import br.com.jhondbs.core.db.index.ReferenceGraph;
+import br.com.jhondbs.core.db.session.EntityCache;
+import br.com.jhondbs.core.db.storage.StorageManager;
+import br.com.jhondbs.core.db.storage.VersionStore;
+import br.com.jhondbs.core.db.storage.WriteAheadLog;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Properties;
 
 /**
  * Aplica as alterações de arquivos durante os commits.
- * Após todas as alterações serem gravadas na pasta temporária essa classe entra
- * em ação, movendo todos os arquivos de entidade não marcados para exclusão, para
- * a pasta de produção do banco de dados.
+ * Após todas as alterações serem gravadas na área de preparação (StagingArea)
+ * essa classe entra em ação, movendo todos os registros de entidade não marcados
+ * para exclusão para o motor de armazenamento de produção (StorageManager), e
+ * removendo deste os marcados. Com o log de escrita antecipada ativo, todas as alterações vão
+ * primeiro para um único registro do log. Antes de gravar, os valores de campos
+ * únicos são verificados e reservados pelo FieldSecurity, e depois de gravadas
+ * as entidades alteradas são invalidadas no cache com o número do commit.
  * Após mover todos os arquivos de entidades, ele moverá os arquivos anexados e
  * as imagens.
  * @author jhones
@@ -55,30 +58,22 @@ public final class Applier {
      * @throws Exception 
      */
     public static void turnEntitiesOn(Bottle newState, Bottle oldState) throws Exception {
-        Path tempDB = Paths.get(newState.TEMP_DB);
-        Path DB = Paths.get(Bottle.ROOT_DB);
-        // Walk through the file tree starting from the source directory
-        Files.walkFileTree(tempDB, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                Path targetPath = DB.resolve(tempDB.relativize(dir));
-                if (!Files.exists(targetPath)) {
-                    Files.createDirectories(targetPath);
-                }
-                return FileVisitResult.CONTINUE;
+        List<WriteAheadLog.Change> changes = StagingArea.of(newState.TEMP_DB).changes();
+        FieldSecurity.Reservation reservation = FieldSecurity.reserve(changes);
+        try {
+            WriteAheadLog wal = StorageManager.wal();
+            if(wal != null) {
+                wal.commit(changes);
+            } else {
+                VersionStore.apply(StorageManager.get(), changes);
+                ReferenceGraph.sync();
+                IndexManager.sync();
+                VersionStore.saveSequence();
             }
-
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                Properties prop = new Properties();
-                prop.load(new FileInputStream(file.toFile()));
-                if(!Assist.isMarkedToExclude(prop)) {
-                    Path targetPath = DB.resolve(tempDB.relativize(file));
-                    Files.copy(file, targetPath, StandardCopyOption.REPLACE_EXISTING);
-                }
-                return FileVisitResult.CONTINUE;
-            }
-        });
+        } finally {
+            reservation.close();
+        }
+        EntityCache.get().invalidate(changes, VersionStore.lastCommitted());
         turnFilesOn(newState, oldState);
         turnImagesOn(newState, oldState);
     }
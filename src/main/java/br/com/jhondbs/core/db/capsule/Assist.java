@@ -25,32 +25,25 @@ package br.com.jhondbs.core.db.capsule;
 
 import br.com.jhondbs.core.db.errors.EntityIdBadImplementationException;
 import br.com.jhondbs.core.db.errors.ObjectNotDesserializebleException;
-import br.com.jhondbs.core.db.interfaces.Cold;
+import br.com.jhondbs.core.db.index.ReferenceGraph;
 import br.com.jhondbs.core.db.interfaces.Entity;
 import br.com.jhondbs.core.tools.ClassDictionary;
-import br.com.jhondbs.core.tools.FieldsManager;
-import java.io.File;
-import java.io.FileInputStream;
+import br.com.jhondbs.core.tools.EntityMetadata;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URISyntaxException;
 import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * Mantém funções auxiliares utilizadas no encapsulamento e desencapsulamento de
@@ -61,6 +54,10 @@ public final class Assist {
     
     private static final Logger LOGGER = Logger.getLogger(Assist.class.getName());
     
+    private static final Pattern UUID_PATTERN = Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+    
+    private static final Pattern UUID_SEARCH = Pattern.compile("\\b" + UUID_PATTERN.pattern() + "\\b");
+    
     /**
      * Faz uma varredura nas capsulas buscando referências a entidades.
      * @param capsules
@@ -73,41 +70,27 @@ public final class Assist {
         if (capsules == null || capsules.trim().isEmpty()) {
             return list;
         }
-        Reader reader = new Reader();
-        List<String> caps = reader.splitCapsules(capsules);
-        Pattern pattern = Pattern.compile("\\{(\\d+):([0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12})\\}");
-        for (String cap : caps) {
-            Matcher matcher = pattern.matcher(cap);
-            while (matcher.find()) {
-                try {
-                    int index = Integer.parseInt(matcher.group(1));
-                    String uuid = matcher.group(2);
-                    Class<?> clazz = ClassDictionary.fromIndex(index);
-                    if (clazz != null && Entity.class.isAssignableFrom(clazz)) {
-                        list.add(new Ref(uuid, index));
-                    } else {
-                        int in = cap.indexOf(uuid);
-                        int count = 2;
-                        while(cap.charAt(in) != '{' && cap.charAt(in) > 0 && count > 0) {
-                            in--;
-                            count--;
-                        }
-                        try {
-                            String fieldName = cap.substring(in, cap.indexOf(":", in));
-                            List<Field> allFields = FieldsManager.getAllFields(entity);
-                            Field field = allFields.stream()
-                                    .filter(f -> f.getName().equals(fieldName))
-                                    .findFirst()
-                                    .get();
-                            if(field.isAnnotationPresent(Cold.class)) {
-                                list.add(new Ref(uuid, index));
-                            }
-                        } catch (Exception e) {
-                        }
-                    }
-                } catch (NumberFormatException e) {
-                    LOGGER.log(Level.WARNING, "Formato inválido de índice em cápsula: {0}", matcher.group(0));
+        EntityMetadata metadata = EntityMetadata.of(entity);
+        CapsuleTokenizer tokenizer = new CapsuleTokenizer(capsules);
+        EntityMetadata.Accessor field = null;
+        int event;
+        while ((event = tokenizer.next()) != CapsuleTokenizer.EOF) {
+            if (event == CapsuleTokenizer.START) {
+                if (tokenizer.depth() == 1) {
+                    field = metadata.get(tokenizer.key());
                 }
+                continue;
+            }
+            if (!tokenizer.isLeaf() || tokenizer.contentLength() != 36) continue;
+            int index = tokenizer.keyAsInt();
+            if (index < 0) continue;
+            String uuid = tokenizer.content();
+            if (!UUID_PATTERN.matcher(uuid).matches()) continue;
+            Class<?> clazz = ClassDictionary.fromIndex(index);
+            if (clazz != null && Entity.class.isAssignableFrom(clazz)) {
+                list.add(new Ref(uuid, index));
+            } else if (tokenizer.depth() == 2 && field != null && field.cold) {
+                list.add(new Ref(uuid, index));
             }
         }
         return list;
@@ -119,10 +102,7 @@ public final class Assist {
      * @return 
      */
     public static int findUUID(String input) {
-        // Expressão regular para UUID
-        String uuidRegex = "\\b[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}\\b";
-        Pattern pattern = Pattern.compile(uuidRegex);
-        Matcher matcher = pattern.matcher(input);
+        Matcher matcher = UUID_SEARCH.matcher(input);
         
         // Se encontrar, retorna a posição inicial
         if (matcher.find()) {
@@ -142,16 +122,15 @@ public final class Assist {
      * @throws Exception 
      */
     public static void removeExistence(Ref toRemove, Ref toBeCleaned, String temp_db) throws Exception {
-        File file = new File(getPathFromRef(toBeCleaned, temp_db));
-        if (!file.exists()) throw new FileNotFoundException("Arquivo temporário não encontrado durante a execução de limpeza da entidade: " + file);
-        Properties props = new Properties();
-        props.load(new FileInputStream(file));
+        StagingArea area = StagingArea.of(temp_db);
+        if (!area.contains(toBeCleaned)) throw new FileNotFoundException("Registro temporário não encontrado durante a execução de limpeza da entidade: " + toBeCleaned);
+        Properties props = area.read(toBeCleaned);
         if(!isMarkedToExclude(props)) {
             String refPattern = String.format("\\{%d:%s\\}", toRemove.getValue(), Pattern.quote(toRemove.getKey()));
             String strFields = props.get("fields").toString();
             strFields = strFields.replaceAll(refPattern, "");
             props.put("fields", strFields);
-            props.store(new FileOutputStream(file), "JhonDBS Entity");
+            area.write(toBeCleaned, props);
             removeFromReference(toRemove, toBeCleaned, temp_db);
         }
     }
@@ -165,37 +144,25 @@ public final class Assist {
     public static Properties removeFromReference(List<Ref> toRemove, Ref toBeCleaned, String temp_db) throws Exception {
         if (toRemove == null || toBeCleaned == null) throw new IllegalArgumentException("Referências 'toRemove' e 'getRemoved' não podem ser nulas");
         
-        String path = getPathFromRef(toBeCleaned, temp_db);
-        File file = new File(path);
-        if (!file.exists()) throw new FileNotFoundException("Arquivo temporário não encontrado durante a execução de limpeza da entidade: " + path);
-        Properties props = new Properties();
-        props.load(new FileInputStream(file));
+        StagingArea area = StagingArea.of(temp_db);
+        if (!area.contains(toBeCleaned)) throw new FileNotFoundException("Registro temporário não encontrado durante a execução de limpeza da entidade: " + toBeCleaned);
+        Properties props = area.read(toBeCleaned);
         if(!isMarkedToExclude(props)) {
-            String refsStr = props.get("refs").toString();
-            if(!refsStr.isBlank()) {
-                String updatedRefs = Arrays.stream(refsStr.split("::"))
-                        .filter(ref -> !ref.isBlank())
-                        .filter(ref -> {
-                            Ref r = new Ref(ref);
-                            return !toRemove.contains(r);
-                        })
-                        .collect(Collectors.joining("::"));
-                props.put("refs", updatedRefs);
-                props.store(new FileOutputStream(file), "JhonDBS Entity");
+            Set<Ref> refs = ReferenceGraph.pending(toBeCleaned, props);
+            if(!refs.isEmpty()) {
+                refs.removeAll(toRemove);
+                ReferenceGraph.unstage(toRemove, props);
+                area.write(toBeCleaned, props);
 
                 if(isCascate(props)) {
-                    int refsSize = Arrays.asList(updatedRefs.split("::"))
-                            .stream()
-                            .filter(ref -> !ref.isBlank())
-                            .toArray().length;
-                    if(refsSize == 0) {
+                    if(refs.isEmpty()) {
                         Bottle bd = new Bottle.BottleBuilder()
                                 .entityClass(toBeCleaned.recoverClass())
                                 .id(toBeCleaned.getKey())
                                 .tempDB(temp_db)
                                 .build();
                         bd.delete(true);
-                        props.load(new FileInputStream(file));
+                        props = area.read(toBeCleaned);
                     }
                 }
             }
@@ -204,32 +171,15 @@ public final class Assist {
     }
     
     /**
-     * Envia uma entidade para a pasta temporária para que se inicialize os trabalhos.
+     * Envia uma entidade para a área de preparação da pasta temporária para
+     * que se inicialize os trabalhos.
      * @param reference
      * @param temp
      * @throws FileNotFoundException
      * @throws IOException 
      */
     public static void sendToTemp(Ref reference, String temp) throws FileNotFoundException, IOException {
-        Class clazz = ClassDictionary.fromIndex(reference.getValue());
-        String path = temp+clazz.getName().replace(".class", "").replace(".", "/")+"/"+reference.getKey();
-        File tempFile = new File(path);
-        
-        if(!tempFile.exists()) {
-            tempFile.getParentFile().mkdirs();
-            String dbPath = "./db/"+clazz.getName().replace(".class", "").replace(".", "/")+"/"+reference.getKey();
-            File root = new File(dbPath);
-            
-            if(!root.exists()) {
-                root = new File(dbPath+Transaction.BACKUP_SUFFIX);
-            }
-            
-            if(root.exists()) {
-                Properties p = new Properties();
-                p.load(new FileInputStream(root));
-                p.store(new FileOutputStream(tempFile), "JhonDBS Entity");
-            }
-        }
+        StagingArea.of(temp).stage(reference);
     }
     
     /**
@@ -23,8 +23,8 @@
  */
 package br.com.jhondbs.core.db.capsule;
 
+import br.com.jhondbs.core.db.storage.StorageManager;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
@@ -129,23 +129,18 @@ public final class Backuper {
         }
     }
     
-    private static void renameBackup(Ref ref) throws FileNotFoundException {
-        String path = Assist.getRootPath(ref);
-        File file = new File(path);
-        if(file.exists()) {
-            File newPath = new File(path+Transaction.BACKUP_SUFFIX);
-            file.renameTo(newPath);
+    /**
+     * Com o log de escrita antecipada ativo a produção só é alterada depois
+     * do commit estar no log, então não há o que preservar.
+     */
+    private static void renameBackup(Ref ref) throws IOException {
+        if(StorageManager.wal() == null) {
+            StorageManager.get().backup(ref);
         }
     }
     
     private static void renameProduction(Ref ref) throws IOException {
-        String path = Assist.getRootPath(ref);
-        File file = new File(path);
-        String pathBack = Assist.getRootPath(ref)+Transaction.BACKUP_SUFFIX;
-        File fileBak = new File(pathBack);
-        if(fileBak.exists()) {
-            Files.move(fileBak.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        }
+        StorageManager.get().restore(ref);
     }
     
     /**
@@ -0,0 +1,184 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.capsule;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Codec binário dos registros de entidade.
+ * <pre>
+ * registro := MAGIC VERSION varint(n) entrada*n
+ * entrada  := texto(chave) TEXTO texto(valor)
+ * texto    := varint(tamanho) bytes UTF-8
+ * </pre>
+ * Os valores são gravados com prefixo de tamanho, evitando o escape e a
+ * varredura de linhas do Properties. O Loader lê os campos com o
+ * CapsuleTokenizer, então as cápsulas continuam como texto.
+ * @author jhones
+ */
+public final class BinaryCodec implements RecordCodec {
+    
+    private static final byte[] MAGIC = {0x00, 'J', 'D', 'B'};
+    private static final byte VERSION = 2;
+    
+    private static final byte VALUE_TEXT = 0;
+    
+    BinaryCodec() {
+    }
+    
+    @Override
+    public void encode(Properties record, OutputStream out) throws IOException {
+        Output o = new Output(256);
+        o.write(MAGIC);
+        o.write(VERSION);
+        o.writeVarint(record.size());
+        for(Map.Entry<Object, Object> entry : record.entrySet()) {
+            o.writeString(String.valueOf(entry.getKey()));
+            o.write(VALUE_TEXT);
+            o.writeString(String.valueOf(entry.getValue()));
+        }
+        out.write(o.buf, 0, o.size);
+    }
+    
+    @Override
+    public Properties decode(ByteBuffer buffer) throws IOException {
+        if(!hasMagic(buffer)) throw new StreamCorruptedException("Registro sem o cabeçalho binário do JhonDBS.");
+        buffer.position(buffer.position() + MAGIC.length);
+        byte version = buffer.get();
+        if(version != VERSION) throw new StreamCorruptedException("Versão de registro não suportada: " + version);
+        Properties props = new Properties();
+        int entries = readVarint(buffer);
+        for(int i = 0; i < entries; i++) {
+            String key = readString(buffer);
+            byte type = buffer.get();
+            if(type != VALUE_TEXT) throw new StreamCorruptedException("Tipo de valor desconhecido: " + type);
+            props.put(key, readString(buffer));
+        }
+        return props;
+    }
+    
+    @Override
+    public boolean accepts(ByteBuffer buffer) {
+        return hasMagic(buffer);
+    }
+    
+    /**
+     * Verifica se o buffer começa com o cabeçalho do formato binário.
+     * @param buffer
+     * @return 
+     */
+    static boolean hasMagic(ByteBuffer buffer) {
+        if(buffer.remaining() < MAGIC.length) return false;
+        int p = buffer.position();
+        for(int i = 0; i < MAGIC.length; i++) {
+            if(buffer.get(p + i) != MAGIC[i]) return false;
+        }
+        return true;
+    }
+    
+    /*
+    Leitura.
+    */
+    
+    static int readVarint(ByteBuffer buffer) throws IOException {
+        int value = 0;
+        for(int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0) return value;
+        }
+        throw new StreamCorruptedException("Varint mal formado.");
+    }
+    
+    static String readString(ByteBuffer buffer) throws IOException {
+        int len = readVarint(buffer);
+        String s;
+        if(buffer.hasArray()) {
+            s = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), len, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + len);
+        } else {
+            byte[] bytes = new byte[len];
+            buffer.get(bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return s;
+    }
+    
+    /**
+     * Buffer de escrita que cresce conforme a necessidade.
+     */
+    static final class Output {
+        byte[] buf;
+        int size;
+        
+        Output(int capacity) {
+            buf = new byte[capacity];
+        }
+        
+        void write(int b) {
+            ensure(1);
+            buf[size++] = (byte) b;
+        }
+        
+        void write(byte[] bytes) {
+            write(bytes, 0, bytes.length);
+        }
+        
+        void write(byte[] bytes, int off, int len) {
+            ensure(len);
+            System.arraycopy(bytes, off, buf, size, len);
+            size += len;
+        }
+        
+        void writeVarint(int value) {
+            ensure(5);
+            while((value & ~0x7F) != 0) {
+                buf[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[size++] = (byte) value;
+        }
+        
+        void writeString(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            write(bytes);
+        }
+        
+        private void ensure(int extra) {
+            if(size + extra > buf.length) {
+                byte[] n = new byte[Math.max(buf.length * 2, size + extra)];
+                System.arraycopy(buf, 0, n, 0, size);
+                buf = n;
+            }
+        }
+    }
+    
+}
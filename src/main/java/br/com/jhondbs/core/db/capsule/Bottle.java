@@ -23,19 +23,18 @@
  */
 package br.com.jhondbs.core.db.capsule;
 
-import br.com.jhondbs.core.db.Mapper;
 import br.com.jhondbs.core.db.errors.EntityIdBadImplementationException;
+import br.com.jhondbs.core.db.index.ReferenceGraph;
 import br.com.jhondbs.core.db.interfaces.Entity;
+import br.com.jhondbs.core.db.storage.StorageManager;
+import br.com.jhondbs.core.db.storage.VersionStore;
 import br.com.jhondbs.core.tools.ClassDictionary;
-import br.com.jhondbs.core.tools.FieldsManager;
 import br.com.jhondbs.core.tools.Reflection;
+import br.com.jhondbs.core.tools.EntityMetadata;
 import java.awt.Image;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.lang.reflect.Field;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -67,6 +66,14 @@ public final class Bottle {
     public Properties props = new Properties();
     public boolean cascate = false;
     
+    /*
+    Estado gravado da entidade, lido na montagem da garrafa, usado para saber
+    se o registro novo difere do que já está no banco.
+    */
+    private String storedFields;
+    private Set<Ref> storedRefs;
+    private boolean storedCascate;
+    
     private Bottle() {
     }
     
@@ -85,29 +92,18 @@ public final class Bottle {
     }
     
     /**
-     * Lê as referências do estado antigo da entidade.
+     * Lê o estado antigo da entidade e as suas referências no grafo.
      */
     public void loadRefs() throws Exception {
-        String path = Assist.getRootPath(this);
-        File file = new File(path);
-        if(file.exists()) {
-            Properties currentProps = new Properties();
-            currentProps.load(new FileInputStream(new File(path)));
+        Ref ref = new Ref(entity);
+        if(StorageManager.get().exists(ref)) {
+            Properties currentProps = VersionStore.read(ref);
             this.props = currentProps;
-            String refs = currentProps.getProperty("refs").toString();
-            loadRefs(refs);
-        }
-    }
-    
-    public void loadRefs(String refs) {
-        if(!refs.isBlank()) {
-            this.referencias.addAll(Arrays.asList(refs.split("::"))
-                    .stream()
-                    .filter(str -> !str.isBlank())
-                    .map(str -> new Ref(str))
-                    .toList());
+            this.referencias.addAll(ReferenceGraph.sources(ref));
+            this.storedFields = currentProps.getProperty("fields");
+            this.storedRefs = new HashSet<>(referencias);
+            this.storedCascate = Assist.isCascate(currentProps);
         }
-        Mapper.add(entity, referencias);
     }
     
     /**
@@ -122,22 +118,14 @@ public final class Bottle {
     
     /**
      * Transforma todos os campos serializados em Properties que representa a
-     * entidade encapsulada.
+     * entidade encapsulada. As referências não vão inteiras para o registro:
+     * entram apenas as arestas incluídas e retiradas em relação às referências
+     * lidas junto com a entidade.
      * @return 
      */
-    public Properties build() {
-        StringBuilder fields = new StringBuilder();
-        for(String s : bottledFields) {
-            fields.append(s).append("\n");
-        }
-        
-        StringBuilder refs = new StringBuilder();
-        for(Ref s : referencias) {
-            refs.append(s.toString()).append("::");
-        }
-        
-        props.put("fields", fields.toString());
-        props.put("refs", refs.toString());
+    public Properties build() throws IllegalArgumentException, IllegalAccessException, EntityIdBadImplementationException {
+        ReferenceGraph.stage(new Ref(entity), storedRefs, referencias, props);
+        props.put("fields", fieldsText());
         props.put("stamp", String.valueOf(System.nanoTime()));
         if(this.cascate) {
             props.put("cascate", "true");
@@ -145,14 +133,39 @@ public final class Bottle {
         return props;
     }
     
+    private String fieldsText() {
+        StringBuilder fields = new StringBuilder();
+        for(String s : bottledFields) {
+            fields.append(s).append("\n");
+        }
+        return fields.toString();
+    }
+    
+    /**
+     * Informa se o registro que a garrafa vai gravar difere do registro já
+     * gravado da entidade, comparando os campos encapsulados, as referências
+     * e a marcação de cascata com o estado lido na montagem da garrafa.
+     * Entidades novas e entidades com arquivos anexados, cujo conteúdo não
+     * aparece nos campos, são sempre consideradas alteradas.
+     * Deve ser chamado depois de engarrafar.
+     * @return 
+     */
+    public boolean isDirty() {
+        if(storedFields == null || !files.isEmpty()) return true;
+        if(cascate && !storedCascate) return true;
+        return !referencias.equals(storedRefs) || !fieldsText().equals(storedFields);
+    }
+    
     /**
      * Realiza as verificações de unicidade e consistência de valores e depois grava
      * todas as entidades no banco de dados.
+     * @return Número do commit, ou zero se nenhuma entidade mudou.
      * @throws Exception 
      */
-    public void flush() throws Exception {
+    public long flush() throws Exception {
         Transaction tx2 = new Transaction(this);
         tx2.commit();
+        return tx2.getVersion();
     }
     
     /**
@@ -186,12 +199,13 @@ public final class Bottle {
      */
     public void engarrafar() throws Exception {
         bottledFields.clear();
-        List<Field> fields = FieldsManager.getAllSerializebleFields(this.entity.getClass());
-        for(Field field : fields) {
-            field.setAccessible(true);
+        for(EntityCodec.FieldCodec codec : EntityCodec.of(this.entity.getClass()).fields()) {
+            EntityMetadata.Accessor field = codec.accessor;
             Object valor = field.get(this.entity);
-            if(valor != null) {
-                if(ClassDictionary.getIndex(valor.getClass()) != -1 || Reflection.isArrayMap(field.getType()) || Reflection.isArrayMap(valor)) {
+            if(valor != null && codec.isCompiled()) {
+                this.bottledFields.add(codec.write(valor));
+            } else if(valor != null) {
+                if(ClassDictionary.getIndex(valor.getClass()) != -1 || Reflection.isArrayMap(field.type) || Reflection.isArrayMap(valor)) {
                     boolean condicional = true;
                     if(valor instanceof File f) {
                         if(!f.exists()) {
@@ -209,7 +223,7 @@ public final class Bottle {
     
     private void load(Class clazz, String id) throws Exception {
         Loader load = new Loader(this);
-        this.entity = load.load(clazz, id, null);
+        this.entity = load.load(clazz, id);
     }
     
     /**
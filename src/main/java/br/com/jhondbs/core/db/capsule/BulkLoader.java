@@ -0,0 +1,256 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.capsule;
+
+import br.com.jhondbs.core.db.errors.DuplicatedUniqueFieldException;
+import br.com.jhondbs.core.db.index.FieldIndex;
+import br.com.jhondbs.core.db.index.IndexKeys;
+import br.com.jhondbs.core.db.index.IndexManager;
+import br.com.jhondbs.core.db.index.ReferenceGraph;
+import br.com.jhondbs.core.db.interfaces.Entity;
+import br.com.jhondbs.core.db.session.EntityCache;
+import br.com.jhondbs.core.db.storage.StorageManager;
+import br.com.jhondbs.core.db.storage.VersionStore;
+import br.com.jhondbs.core.db.storage.WriteAheadLog;
+import br.com.jhondbs.core.tools.EntityMetadata;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Carga em massa de entidades, para importações iniciais.
+ * As entidades são encapsuladas em lotes e os registros de cada lote vão
+ * direto para o armazenamento, ordenados por classe e id, sem pasta
+ * temporária, backup, travas, log de escrita antecipada nem limpeza de
+ * referências antigas. A unicidade é verificada por lote, contra os valores
+ * já vistos na carga e os índices de unicidade como estavam antes dela, e os
+ * índices das classes carregadas são remontados ao final numa só leitura
+ * (IndexManager.rebuild), em vez de atualizados a cada lote.
+ * A carga supõe que ninguém mais grava as mesmas entidades enquanto ela
+ * roda. Os lotes não são atômicos: um lote recusado na verificação de
+ * unicidade não grava nada, mas uma falha de escrita pode deixar parte dele
+ * gravada. Em qualquer falha a carga é interrompida, os lotes anteriores
+ * continuam gravados e os índices são remontados com o que foi gravado.
+ * @author jhones
+ */
+public final class BulkLoader {
+    
+    private static final Logger LOGGER = Logger.getLogger(BulkLoader.class.getName());
+    
+    /**
+     * Número padrão de entidades raiz por lote.
+     */
+    public static int CHUNK = 5000;
+    
+    private static final Comparator<WriteAheadLog.Change> ORDER = Comparator
+            .comparing((WriteAheadLog.Change change) -> change.ref.getValue())
+            .thenComparing(change -> change.ref.getKey());
+
+    private BulkLoader() {
+    }
+    
+    /**
+     * Grava todas as entidades em lotes de CHUNK raízes.
+     * @param entities
+     * @return Resumo da carga.
+     * @throws Exception 
+     */
+    public static Report load(Stream<? extends Entity> entities) throws Exception {
+        return load(entities, CHUNK);
+    }
+    
+    /**
+     * Grava todas as entidades em lotes.
+     * @param entities
+     * @param chunk Número de entidades raiz por lote.
+     * @return Resumo da carga.
+     * @throws Exception 
+     */
+    public static Report load(Stream<? extends Entity> entities, int chunk) throws Exception {
+        if(chunk < 1) {
+            throw new IllegalArgumentException("O tamanho do lote deve ser positivo: " + chunk);
+        }
+        long start = System.nanoTime();
+        WriteAheadLog wal = StorageManager.wal();
+        if(wal != null) {
+            // Nada do log pode ser reaplicado por cima dos registros da carga.
+            wal.checkpoint();
+        }
+        Map<String, String> seen = new HashMap<>();
+        Set<Class> classes = new HashSet<>();
+        long roots = 0;
+        long records = 0;
+        List<Entity> pending = new ArrayList<>(Math.min(chunk, 1 << 16));
+        try {
+            Iterator<? extends Entity> iterator = entities.iterator();
+            while(iterator.hasNext()) {
+                pending.add(iterator.next());
+                if(pending.size() >= chunk || !iterator.hasNext()) {
+                    records += write(pending, seen, classes);
+                    roots += pending.size();
+                    pending.clear();
+                }
+            }
+        } finally {
+            for(Class clazz : classes) {
+                IndexManager.rebuild(clazz);
+            }
+            ReferenceGraph.sync();
+            IndexManager.sync();
+            VersionStore.saveSequence();
+        }
+        Report report = new Report(roots, records, System.nanoTime() - start);
+        LOGGER.log(Level.INFO, "Carga em massa: {0}", report);
+        return report;
+    }
+    
+    /**
+     * Encapsula e grava um lote.
+     * @return Número de registros gravados.
+     */
+    private static int write(List<Entity> entities, Map<String, String> seen, Set<Class> classes) throws Exception {
+        Map<String, Bottle> bottles = new HashMap<>();
+        List<Bottle> roots = new ArrayList<>(entities.size());
+        Bottle first = null;
+        for(Entity entity : entities) {
+            if(bottles.containsKey(entity.getId())) continue;
+            Bottle.BottleBuilder builder = new Bottle.BottleBuilder().entity(entity).bottles(bottles);
+            if(first != null) {
+                builder.tempDB(first.TEMP_DB).modoOperacional(first.modoOperacional);
+            }
+            Bottle bottle = builder.build();
+            if(first == null) first = bottle;
+            roots.add(bottle);
+        }
+        for(Bottle root : roots) {
+            root.engarrafar();
+        }
+        List<WriteAheadLog.Change> changes = new ArrayList<>(bottles.size());
+        for(Bottle bottle : bottles.values()) {
+            if(bottle.isDirty()) {
+                changes.add(new WriteAheadLog.Change(new Ref(bottle.entity), bottle.build()));
+            }
+        }
+        if(changes.isEmpty()) return 0;
+        changes.sort(ORDER);
+        verify(changes, seen);
+        for(WriteAheadLog.Change change : changes) {
+            classes.add(change.ref.recoverClass());
+        }
+        VersionStore.load(StorageManager.get(), changes);
+        EntityCache.get().invalidate(changes, VersionStore.lastCommitted());
+        Applier.turnFilesOn(first, null);
+        Applier.turnImagesOn(first, null);
+        return changes.size();
+    }
+    
+    /**
+     * Verifica os campos únicos de um lote contra os valores já vistos na
+     * carga e contra os índices de unicidade, e registra os valores do lote.
+     */
+    private static void verify(List<WriteAheadLog.Change> changes, Map<String, String> seen) throws DuplicatedUniqueFieldException {
+        Map<String, String> batch = new HashMap<>();
+        for(WriteAheadLog.Change change : changes) {
+            Class clazz = change.ref.recoverClass();
+            List<EntityMetadata.Accessor> uniques = EntityMetadata.of(clazz).uniques();
+            if(uniques.isEmpty()) continue;
+            Map<String, FieldIndex> indexes = IndexManager.uniques(clazz);
+            Map<String, String> fields = IndexManager.fieldsOf(change.record);
+            String id = change.ref.getKey();
+            for(EntityMetadata.Accessor field : uniques) {
+                String value = IndexKeys.exact(fields.get(field.name));
+                if(value == null) continue;
+                String name = clazz.getName() + "." + field.name;
+                String slot = name + "\n" + value;
+                String other = batch.putIfAbsent(slot, id);
+                if(other == null) other = seen.get(slot);
+                if(other != null && !other.equals(id)) {
+                    throw duplicated(name, value, id, other);
+                }
+                FieldIndex index = indexes.get(field.name);
+                if(index == null) continue;
+                for(String owner : index.equal(value)) {
+                    if(!owner.equals(id)) {
+                        throw duplicated(name, value, id, owner);
+                    }
+                }
+            }
+        }
+        seen.putAll(batch);
+    }
+    
+    private static DuplicatedUniqueFieldException duplicated(String field, String value, String id, String owner) {
+        return new DuplicatedUniqueFieldException("Campo unico duplicado:\n"
+                + "-> " + field + "\n"
+                + "-> id: " + id + " igual id: " + owner + "\n"
+                + "-> " + value);
+    }
+    
+    /**
+     * Resumo de uma carga em massa.
+     */
+    public static final class Report {
+        /**
+         * Entidades raiz recebidas.
+         */
+        public final long roots;
+        /**
+         * Registros gravados, contando as subentidades.
+         */
+        public final long records;
+        /**
+         * Duração da carga, com a remontagem dos índices.
+         */
+        public final long nanos;
+
+        private Report(long roots, long records, long nanos) {
+            this.roots = roots;
+            this.records = records;
+            this.nanos = nanos;
+        }
+        
+        /**
+         * Vazão da carga em registros gravados por segundo.
+         * @return 
+         */
+        public double recordsPerSecond() {
+            return nanos == 0 ? 0 : records * 1e9 / nanos;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%d registros (%d raízes) em %d ms, %.0f registros/s",
+                    records, roots, nanos / 1_000_000, recordsPerSecond());
+        }
+    }
+    
+}
@@ -0,0 +1,292 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.capsule;
+
+import java.util.Arrays;
+
+/**
+ * Leitor sequencial de cápsulas no formato {chave:conteúdo}, com cápsulas
+ * aninhadas no conteúdo.
+ * Percorre o texto uma única vez, devolvendo a cada chamada de next() um
+ * evento: START ao abrir uma cápsula e END ao fechá-la, e EOF no fim do
+ * texto. A chave e o conteúdo do evento atual são só posições no texto e
+ * só viram String quando pedidos, e as cápsulas que não interessam são
+ * puladas sem gerar nada.
+ * A chave é o que vem entre a abertura e o primeiro ':' antes de outra
+ * chave; sem ':' a chave é vazia e todo o interior é conteúdo.
+ * @author jhones
+ */
+public final class CapsuleTokenizer {
+    
+    public static final int EOF = 0;
+    public static final int START = 1;
+    public static final int END = 2;
+    
+    private final CharSequence text;
+    private final int limit;
+    private int pos;
+    
+    /*
+    Pilha das cápsulas abertas: posição de abertura, início e fim da chave,
+    início do conteúdo e se já teve cápsulas filhas.
+    */
+    private int[] opens = new int[8];
+    private int[] keyStarts = new int[8];
+    private int[] keyEnds = new int[8];
+    private int[] valueStarts = new int[8];
+    private boolean[] parents = new boolean[8];
+    private int depth;
+    
+    // Cápsula do último evento.
+    private int event = EOF;
+    private int eventDepth;
+    private int open;
+    private int keyStart;
+    private int keyEnd;
+    private int valueStart;
+    private int close = -1;
+    private boolean parent;
+
+    public CapsuleTokenizer(CharSequence text) {
+        this(text, 0, text == null ? 0 : text.length());
+    }
+    
+    public CapsuleTokenizer(CharSequence text, int from, int to) {
+        this.text = text == null ? "" : text;
+        this.pos = from;
+        this.limit = to;
+    }
+    
+    /**
+     * Avança até o próximo evento. Os caracteres de conteúdo e os que ficam
+     * fora das cápsulas são pulados.
+     * @return START, END ou EOF.
+     * @throws IllegalArgumentException Se as cápsulas estiverem desbalanceadas.
+     */
+    public int next() {
+        while(pos < limit) {
+            char c = text.charAt(pos);
+            if(c == '{') {
+                return start();
+            } else if(c == '}') {
+                return end();
+            }
+            pos++;
+        }
+        if(depth > 0) {
+            throw new IllegalArgumentException("Cápsula sem fechamento na posição " + opens[depth - 1]);
+        }
+        event = EOF;
+        eventDepth = 0;
+        return EOF;
+    }
+    
+    private int start() {
+        if(depth > 0) parents[depth - 1] = true;
+        if(depth == opens.length) {
+            int size = depth * 2;
+            opens = Arrays.copyOf(opens, size);
+            keyStarts = Arrays.copyOf(keyStarts, size);
+            keyEnds = Arrays.copyOf(keyEnds, size);
+            valueStarts = Arrays.copyOf(valueStarts, size);
+            parents = Arrays.copyOf(parents, size);
+        }
+        open = pos;
+        keyStart = pos + 1;
+        int i = keyStart;
+        while(i < limit) {
+            char k = text.charAt(i);
+            if(k == ':' || k == '{' || k == '}') break;
+            i++;
+        }
+        if(i < limit && text.charAt(i) == ':') {
+            keyEnd = i;
+            valueStart = i + 1;
+        } else {
+            keyEnd = keyStart;
+            valueStart = keyStart;
+        }
+        close = -1;
+        parent = false;
+        opens[depth] = open;
+        keyStarts[depth] = keyStart;
+        keyEnds[depth] = keyEnd;
+        valueStarts[depth] = valueStart;
+        parents[depth] = false;
+        depth++;
+        pos = valueStart;
+        event = START;
+        eventDepth = depth;
+        return START;
+    }
+    
+    private int end() {
+        if(depth == 0) {
+            throw new IllegalArgumentException("Fechamento sem cápsula aberta na posição " + pos);
+        }
+        eventDepth = depth;
+        depth--;
+        open = opens[depth];
+        keyStart = keyStarts[depth];
+        keyEnd = keyEnds[depth];
+        valueStart = valueStarts[depth];
+        parent = parents[depth];
+        close = pos;
+        pos++;
+        event = END;
+        return END;
+    }
+    
+    /**
+     * Último evento devolvido por next().
+     * @return 
+     */
+    public int event() {
+        return event;
+    }
+    
+    /**
+     * Profundidade da cápsula do evento atual, contando a própria cápsula:
+     * 1 para as cápsulas do nível mais externo.
+     * @return 
+     */
+    public int depth() {
+        return eventDepth;
+    }
+    
+    /**
+     * Consome o restante da cápsula do evento atual, até o seu fechamento.
+     * Num END não faz nada.
+     */
+    public void skip() {
+        if(event != START) return;
+        int level = eventDepth;
+        while(next() != EOF) {
+            if(event == END && eventDepth == level) return;
+        }
+    }
+    
+    /**
+     * Consome o texto até o fechamento da cápsula aberta na profundidade
+     * informada, que pode ser uma cápsula externa à do evento atual.
+     * @param level 
+     */
+    public void exit(int level) {
+        if(event == END && eventDepth == level) return;
+        if(level > depth) return;
+        while(next() != EOF) {
+            if(event == END && eventDepth == level) return;
+        }
+    }
+    
+    /**
+     * Chave da cápsula do evento atual.
+     * @return 
+     */
+    public String key() {
+        return text.subSequence(keyStart, keyEnd).toString();
+    }
+    
+    /**
+     * Compara a chave da cápsula do evento atual sem criar uma String.
+     * @param key
+     * @return 
+     */
+    public boolean keyEquals(String key) {
+        int length = keyEnd - keyStart;
+        if(length != key.length()) return false;
+        for(int i = 0; i < length; i++) {
+            if(text.charAt(keyStart + i) != key.charAt(i)) return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Chave da cápsula do evento atual como número, como nos índices de
+     * classe.
+     * @return Número ou -1 se a chave não for numérica.
+     */
+    public int keyAsInt() {
+        if(keyEnd == keyStart || keyEnd - keyStart > 9) return -1;
+        int value = 0;
+        for(int i = keyStart; i < keyEnd; i++) {
+            char c = text.charAt(i);
+            if(c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+    
+    /**
+     * Indica se a cápsula do evento atual tem o conteúdo vazio ou só com
+     * espaços, sem consumir nada.
+     * @return 
+     */
+    public boolean isEmpty() {
+        int end = close >= 0 ? close : limit;
+        for(int i = valueStart; i < end; i++) {
+            char c = text.charAt(i);
+            if(c == '}') return true;
+            if(!Character.isWhitespace(c)) return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Indica, num END, se a cápsula não tinha cápsulas filhas.
+     * @return 
+     */
+    public boolean isLeaf() {
+        return event == END && !parent;
+    }
+    
+    /**
+     * Tamanho do conteúdo da cápsula, num END.
+     * @return 
+     */
+    public int contentLength() {
+        return close < 0 ? -1 : close - valueStart;
+    }
+    
+    /**
+     * Conteúdo da cápsula do evento atual, entre a chave e o fechamento.
+     * Num START consome a cápsula até o fechamento.
+     * @return 
+     */
+    public String content() {
+        skip();
+        return text.subSequence(valueStart, close).toString();
+    }
+    
+    /**
+     * Cápsula inteira do evento atual, incluindo a abertura e o fechamento.
+     * Num START consome a cápsula até o fechamento.
+     * @return 
+     */
+    public String capsule() {
+        skip();
+        return text.subSequence(open, close + 1).toString();
+    }
+    
+}
@@ -23,16 +23,13 @@
  */
 package br.com.jhondbs.core.db.capsule;
 
-import static br.com.jhondbs.core.db.capsule.Assist.getPathFromRef;
-import br.com.jhondbs.core.db.interfaces.Cascate;
-import br.com.jhondbs.core.tools.FieldsManager;
-import java.io.File;
-import java.io.FileInputStream;
-import java.util.Arrays;
+import br.com.jhondbs.core.db.index.ReferenceGraph;
+import br.com.jhondbs.core.tools.EntityMetadata;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.stream.Collectors;
 
 /**
  * Classe ainda em análise, preciso decidir sobre um caso específico onde uma
@@ -59,9 +56,8 @@ public final class CascateAnalyzer {
      * @throws Exception 
      */
     public static void analyze(Ref beCleaned, String temp_db) throws Exception {
-        Properties props = new Properties();
-        props.load(new FileInputStream(new File(getPathFromRef(beCleaned, temp_db))));
-        List<Ref> refs = getRefs(props);
+        Properties props = StagingArea.of(temp_db).read(beCleaned);
+        List<Ref> refs = getRefs(beCleaned, props);
         Map<String, String> cascateFields = getCascateFields(beCleaned, props);
         for(Ref ref : refs) {
             // Verifica se a referência está nos campos de cascata.
@@ -75,13 +71,15 @@ public final class CascateAnalyzer {
         }
     }
     
-    public static List<Ref> getRefs(Properties properties) {
-        return Arrays.asList(properties.getProperty("refs")
-                .split("::"))
-                .stream()
-                .filter(ref -> !ref.isBlank())
-                .map(ref -> new Ref(ref))
-                .toList();
+    /**
+     * Referências que a entidade terá depois que o seu registro em trânsito
+     * for aplicado.
+     * @param ref
+     * @param properties
+     * @return 
+     */
+    public static List<Ref> getRefs(Ref ref, Properties properties) {
+        return new ArrayList<>(ReferenceGraph.pending(ref, properties));
     }
     
     public static boolean testCascate(Ref ref, Map<String, String> cascateFields) {
@@ -90,25 +88,19 @@ public final class CascateAnalyzer {
     }
     
     public static Map<String, String> getCascateFields(Ref ente, Properties properties) {
-        List<String> cascateFieldsNames = FieldsManager.getAllSerializebleFields(ente.recoverClass())
-                .stream()
-                .filter(field -> field.isAnnotationPresent(Cascate.class))
-                .toList()
-                .stream().map(field -> field.getName())
-                .toList();
-        
-        return Reader
-                .splitCapsules(properties.getProperty("fields")).stream()
-                .map(Reader::splitCapsuleAsKeyValueMap)
-                .flatMap(map -> map.entrySet().stream())
-                .collect(Collectors.toMap(
-                    Map.Entry::getKey,
-                    Map.Entry::getValue,
-                    (v1, v2) -> v1 // Em caso de chaves duplicadas
-                ))
-                .entrySet().stream()
-                .filter(entry -> cascateFieldsNames.contains(entry.getKey()))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        EntityMetadata metadata = EntityMetadata.of(ente.recoverClass());
+        Map<String, String> fields = new HashMap<>();
+        if(metadata.cascates().isEmpty()) return fields;
+        CapsuleTokenizer tokenizer = new CapsuleTokenizer(properties.getProperty("fields"));
+        while(tokenizer.next() == CapsuleTokenizer.START) {
+            EntityMetadata.Accessor field = metadata.get(tokenizer.key());
+            if(field != null && field.cascate && field.serializable && !fields.containsKey(field.name)) {
+                fields.put(field.name, tokenizer.content());
+            } else {
+                tokenizer.skip();
+            }
+        }
+        return fields;
     }
     
 }
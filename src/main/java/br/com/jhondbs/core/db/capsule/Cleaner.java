@@ -23,10 +23,10 @@
  */
 package br.com.jhondbs.core.db.capsule;
 
+import br.com.jhondbs.core.db.storage.StorageManager;
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Properties;
 
 /**
  * Responsável por fazer a limpeza das pastas e arquivos desnecessários após
@@ -52,27 +52,25 @@ public final class Cleaner {
             }
         }
         for(Bottle bottle : map.values()) {
-            String path = Assist.getRootPath(new Ref(bottle.entity));
-            File file = new File(path+Transaction.BACKUP_SUFFIX);
-            if(file.exists()) {
-                file.delete();
-            }
+            StorageManager.get().discardBackup(new Ref(bottle.entity));
         }
         cleanFilesDB(map);
         cleanImagesDB(map);
-        cleanTemp(newState.TEMP_DB);
+        StagingArea.discard(newState.TEMP_DB);
     }
     
     private static void cleanFilesDB(Map<String, Bottle> map) throws Exception {
         for(Bottle bottle : map.values()) {
             try {
                 
-                Properties props = Reader.read(bottle.entity.getClass(), bottle.entity.getId(), bottle.TEMP_DB);
+                Ref ref = new Ref(bottle.entity);
+                StagingArea area = StagingArea.of(bottle.TEMP_DB);
+                if(!area.contains(ref)) continue;
                 File entityFilesFolder = new File(bottle.ROOT_DB+"/files/"+bottle.entity.getId());
 
                 if(entityFilesFolder.exists()) {
                     File[] entityFiles = entityFilesFolder.listFiles();
-                    if(Assist.isMarkedToExclude(props)) {
+                    if(area.isExcluded(ref)) {
                         for(File exclude : entityFiles) {
                             exclude.delete();
                         }
@@ -100,12 +98,14 @@ public final class Cleaner {
     private static void cleanImagesDB(Map<String, Bottle> map) throws Exception {
         for(Bottle bottle : map.values()) {
             try {
-                Properties props = Reader.read(bottle.entity.getClass(), bottle.entity.getId(), bottle.TEMP_DB);
+                Ref ref = new Ref(bottle.entity);
+                StagingArea area = StagingArea.of(bottle.TEMP_DB);
+                if(!area.contains(ref)) continue;
                 File entityImagesFolder = new File(bottle.ROOT_DB+"/imgs/"+bottle.entity.getId());
 
                 if(entityImagesFolder.exists()) {
                     File[] entityImages = entityImagesFolder.listFiles();
-                    if(Assist.isMarkedToExclude(props)) {
+                    if(area.isExcluded(ref)) {
                         for(File exclude : entityImages) {
                             exclude.delete();
                         }
@@ -130,23 +130,4 @@ public final class Cleaner {
         }
     }
     
-    /**
-     * Chamada recursiva para excluir um diretório.
-     * @param tempFolder 
-     */
-    public static void cleanTemp(String tempFolder) {
-        File file = new File(tempFolder);
-        if(file.exists()) {
-            if(file.isFile()) {
-                file.delete();
-            } else {
-                File[] list = file.listFiles();
-                for(File subFile : list) {
-                    cleanTemp(subFile.toString());
-                }
-                file.delete();
-            }
-        }
-    }
-    
 }
@@ -23,12 +23,12 @@
  */
 package br.com.jhondbs.core.db.capsule;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.util.Arrays;
+import br.com.jhondbs.core.db.index.ReferenceGraph;
+import br.com.jhondbs.core.db.storage.StorageManager;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Properties;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -46,11 +46,6 @@ public final class Deleter {
      */
     public static final ConcurrentHashMap<String, Deleter> ACTIVE_TRANSACTIONS = new ConcurrentHashMap<>();
 
-    /**
-     * Lista de IDS que estão bloqueados para operações;
-     */
-    private final BlockingIdList blockeds = new BlockingIdList();
-    
     private static final Logger LOGGER = Logger.getLogger(Deleter.class.getName());
     public static final String BACKUP_SUFFIX = ".bak";
 
@@ -60,6 +55,8 @@ public final class Deleter {
     private Bottle newState;
     private Bottle oldState;
     
+    private List<String> ids = new ArrayList<>();
+    
     public Deleter(Bottle bottle) throws Exception {
         bottle.defineTemp();
         this.transactionId = UUID.randomUUID().toString();
@@ -98,9 +95,8 @@ public final class Deleter {
     private void loadOldState() throws Exception {
         oldState = new Bottle.BottleBuilder().emptyBuild();
         for(Bottle bottle : newState.bottles.values()) {
-            String rootPath = Assist.getRootPath(new Ref(bottle.entity));
-            File file = new File(rootPath);
-            if(file.exists()) {
+            Ref rootRef = new Ref(bottle.entity);
+            if(StorageManager.get().exists(rootRef)) {
                 Bottle build = new Bottle.BottleBuilder()
                         .bottles(oldState.bottles)
                         .entityClass(newState.entity.getClass())
@@ -108,14 +104,10 @@ public final class Deleter {
                         .tempDB(newState.TEMP_DB)
                         .modoOperacional(Bottle.ROOT_STAGE)
                         .build();
+            } else {
+                throw new FileNotFoundException("Entidade não encontrada: " + rootRef);
             }
-            Properties prop = new Properties();
-            prop.load(new FileInputStream(file));
-            String refsStr = prop.getProperty("refs");
-            List<Ref> refs = Arrays.stream(refsStr.split("::"))
-                    .filter(ref -> !ref.isBlank())
-                    .map(str -> new Ref(str)).toList();
-            for(Ref ref : refs) {
+            for(Ref ref : ReferenceGraph.sources(rootRef)) {
                 if(!oldState.bottles.containsKey(ref.getKey())) {
                     Bottle build = new Bottle.BottleBuilder()
                             .bottles(oldState.bottles)
@@ -130,11 +122,14 @@ public final class Deleter {
     }
     
     private void fillLock() throws Exception {
-        blockeds.addAll((String[]) listIds().toArray(new String[0]));
+        List<String> list = new ArrayList<>(listIds());
+        LockTable.get().lockAll(list, LockTable.EXCLUSIVE);
+        ids = list;
     }
     
     private void freeLock() throws Exception {
-        blockeds.removeAll((String[]) listIds().toArray(new String[0]));
+        LockTable.get().unlockAll(ids, LockTable.EXCLUSIVE);
+        ids = new ArrayList<>();
     }
     
     private Set<String> listIds() throws Exception {
@@ -150,9 +145,7 @@ public final class Deleter {
             }
         }
         for(Bottle bottle : newState.bottles.values()) {
-            String rPath = Assist.getRootPath(new Ref(bottle.entity));
-            File file = new File(rPath);
-            if(file.exists()) {
+            if(StorageManager.get().exists(new Ref(bottle.entity))) {
                 Bottle sub = new Bottle.BottleBuilder()
                         .entityClass(bottle.entity.getClass())
                         .id(bottle.entity.getId())
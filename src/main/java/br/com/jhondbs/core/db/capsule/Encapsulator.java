@@ -27,9 +27,9 @@ import br.com.jhondbs.core.db.errors.EntityIdBadImplementationException;
 import br.com.jhondbs.core.db.interfaces.Cascate;
 import br.com.jhondbs.core.db.interfaces.Entity;
 import br.com.jhondbs.core.tools.ClassDictionary;
-import br.com.jhondbs.core.tools.FieldsManager;
 import br.com.jhondbs.core.tools.Reflection;
 import br.com.jhondbs.core.tools.StringTools;
+import br.com.jhondbs.core.tools.EntityMetadata;
 import java.awt.Image;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -46,10 +46,17 @@ import java.util.Set;
 public final class Encapsulator {
     
     public static String encapsularField(Field field, Object object, Bottle bottle) throws Exception {
-        field.setAccessible(true);
+        return encapsularField(field.getName(), field.isAnnotationPresent(Cascate.class), object, bottle);
+    }
+    
+    public static String encapsularField(EntityMetadata.Accessor field, Object object, Bottle bottle) throws Exception {
+        return encapsularField(field.name, field.cascate, object, bottle);
+    }
+    
+    private static String encapsularField(String name, boolean cascate, Object object, Bottle bottle) throws Exception {
         StringBuilder sb = new StringBuilder();
-        sb.append("{").append(field.getName()).append(":");
-        sb.append(encapsularObjeto(object, field.isAnnotationPresent(Cascate.class), bottle));
+        sb.append("{").append(name).append(":");
+        sb.append(encapsularObjeto(object, cascate, bottle));
         sb.append("}");
         return sb.toString();
     }
@@ -64,8 +71,12 @@ public final class Encapsulator {
                 return encapsuleArray(objeto, cascate, bottle);
             } else if(Reflection.isInstance(objeto.getClass(), Entity.class)) {
                 Entity ente = (Entity) objeto;
-                if(!bottle.bottles.containsKey(ente.getId())) {
+                Bottle existing = bottle.bottles.get(ente.getId());
+                if(existing == null) {
                     Assist.createBottle(ente, bottle.bottles, bottle.modoOperacional, bottle.TEMP_DB, bottle.entity, cascate);
+                } else {
+                    // Entidade já engarrafada por outro caminho ou como outra raiz do commit.
+                    existing.putRef(bottle.entity);
                 }
                 bottle.putRef(ente);
                 return encapsuleId(ente);
@@ -92,12 +103,12 @@ public final class Encapsulator {
                 sb.append(String.valueOf(ClassDictionary.getIndex(objeto.getClass())));
                 sb.append(":");
                         
-                List<Field> fields = FieldsManager.getAllSerializebleFields(objeto.getClass());
-                for(Field field : fields) {
-                    field.setAccessible(true);
-                    Object get = field.get(objeto);
-                    if(get != null) {
-                        sb.append(encapsularField(field, get, bottle));
+                for(EntityCodec.FieldCodec field : EntityCodec.of(objeto.getClass()).fields()) {
+                    Object get = field.accessor.get(objeto);
+                    if(get != null && field.isCompiled()) {
+                        sb.append(field.write(get));
+                    } else if(get != null) {
+                        sb.append(encapsularField(field.accessor, get, bottle));
                     }
                 }
                 sb.append("}");
@@ -124,7 +135,7 @@ public final class Encapsulator {
         sb.append("{")
                 .append(String.valueOf(ClassDictionary.getIndex(object.getClass())))
                 .append(":")
-                .append(object.toString())
+                .append(ScalarCodec.encode(object))
                 .append("}");
         return sb.toString();
     }
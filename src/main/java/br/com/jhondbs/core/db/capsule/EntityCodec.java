@@ -0,0 +1,179 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.capsule;
+
+import br.com.jhondbs.core.tools.ClassDictionary;
+import br.com.jhondbs.core.tools.EntityMetadata;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Period;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Serializador compilado de uma classe, montado uma única vez no primeiro uso.
+ * Para cada campo serializável cujo tipo declarado já define a cápsula gravada
+ * (texto, primitivos e seus wrappers, BigInteger, BigDecimal e as datas do
+ * java.time), o tipo é resolvido na montagem: a escrita é só o prefixo pronto
+ * do campo mais o valor, e a leitura usa direto o decodificador do tipo no
+ * ScalarCodec, ambas
+ * pelo acessor do campo, sem reflexão nem a sequência de testes de tipo do
+ * Encapsulator e do Loader para cada valor.
+ * Os demais campos (entidades, listas, mapas, Date, Calendar, enums, arquivos,
+ * imagens e objetos complexos), e as cápsulas gravadas com uma classe
+ * diferente da esperada, continuam no caminho por reflexão.
+ * @author jhones
+ */
+public final class EntityCodec {
+    
+    /**
+     * Liga o uso dos serializadores compilados. Desligado, tudo passa pelo
+     * caminho por reflexão.
+     */
+    public static boolean ENABLED = true;
+    
+    private static final ClassValue<EntityCodec> CODECS = new ClassValue<>() {
+        @Override
+        protected EntityCodec computeValue(Class<?> type) {
+            return new EntityCodec(type);
+        }
+    };
+    
+    /**
+     * Tipos em que a classe declarada no campo é sempre a classe do valor.
+     */
+    private static final Set<Class<?>> FINAL_TYPES = Set.of(
+            String.class, Integer.class, Long.class, Double.class, Float.class,
+            Boolean.class, Short.class, Byte.class, Character.class,
+            BigDecimal.class, BigInteger.class,
+            LocalDate.class, LocalTime.class, LocalDateTime.class,
+            ZonedDateTime.class, Instant.class, Period.class
+    );
+    
+    private final List<FieldCodec> fields;
+    private final Map<String, FieldCodec> byName;
+
+    private EntityCodec(Class<?> type) {
+        List<EntityMetadata.Accessor> serializable = EntityMetadata.of(type).serializable();
+        FieldCodec[] array = new FieldCodec[serializable.size()];
+        Map<String, FieldCodec> names = new HashMap<>();
+        for(int i = 0; i < array.length; i++) {
+            array[i] = new FieldCodec(serializable.get(i));
+            names.putIfAbsent(array[i].accessor.name, array[i]);
+        }
+        this.fields = List.of(array);
+        this.byName = names;
+    }
+    
+    /**
+     * Serializador da classe informada.
+     * @param type
+     * @return 
+     */
+    public static EntityCodec of(Class<?> type) {
+        return CODECS.get(type);
+    }
+    
+    /**
+     * Campos serializáveis, na ordem de EntityMetadata.serializable().
+     * @return 
+     */
+    public List<FieldCodec> fields() {
+        return fields;
+    }
+    
+    /**
+     * Lê a cápsula do valor de um campo direto para o objeto, se o campo for
+     * compilado e a cápsula estiver gravada com a classe esperada. Nesse caso
+     * a cápsula é consumida até o fechamento.
+     * @param target Objeto que recebe o valor.
+     * @param name Nome do campo.
+     * @param tokenizer Leitor na abertura da cápsula do valor.
+     * @return Falso se a leitura deve seguir pelo caminho por reflexão.
+     * @throws Exception 
+     */
+    public boolean read(Object target, String name, CapsuleTokenizer tokenizer) throws Exception {
+        if(!ENABLED) return false;
+        FieldCodec field = byName.get(name);
+        return field != null && field.read(target, tokenizer);
+    }
+    
+    /**
+     * Serializador de um campo.
+     */
+    public static final class FieldCodec {
+        public final EntityMetadata.Accessor accessor;
+        private final ScalarCodec.Decoder decoder;
+        private final String key;
+        private final String prefix;
+
+        private FieldCodec(EntityMetadata.Accessor accessor) {
+            this.accessor = accessor;
+            Class<?> boxed = ScalarCodec.boxed(accessor.type);
+            ScalarCodec.Decoder d = FINAL_TYPES.contains(boxed) ? ScalarCodec.of(boxed) : null;
+            int index = d == null ? -1 : ClassDictionary.getIndex(boxed);
+            this.decoder = index == -1 ? null : d;
+            this.key = String.valueOf(index);
+            this.prefix = "{" + accessor.name + ":{" + index + ":";
+        }
+        
+        /**
+         * Indica se o campo é lido e gravado pelo serializador compilado.
+         * @return 
+         */
+        public boolean isCompiled() {
+            return ENABLED && decoder != null;
+        }
+        
+        /**
+         * Cápsula do campo com o valor informado, igual à que o Encapsulator
+         * geraria. Só para campos compilados.
+         * @param value Valor não nulo do campo.
+         * @return 
+         */
+        public String write(Object value) {
+            String text = ScalarCodec.encode(value);
+            return new StringBuilder(prefix.length() + text.length() + 2)
+                    .append(prefix).append(text).append("}}").toString();
+        }
+        
+        private boolean read(Object target, CapsuleTokenizer tokenizer) throws Exception {
+            if(decoder == null || !tokenizer.keyEquals(key)) return false;
+            if(tokenizer.isEmpty()) {
+                tokenizer.skip();
+            } else {
+                accessor.set(target, decoder.decode(tokenizer.content()));
+            }
+            return true;
+        }
+    }
+    
+}
@@ -23,7 +23,7 @@
  */
 package br.com.jhondbs.core.db.capsule;
 
-import br.com.jhondbs.core.db.session.SessionManager;
+import br.com.jhondbs.core.db.session.EntityCache;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -51,7 +51,7 @@ public final class Ereaser {
         Assist.markExclude(start.props);
         Writer.write(start);
         
-        SessionManager.remove(toRemove.getKey());
+        EntityCache.get().remove(toRemove);
         
         for(String id : map.keySet()) {
             if(!id.equals(start.entity.getId())) {
@@ -24,13 +24,14 @@
 package br.com.jhondbs.core.db.capsule;
 
 import br.com.jhondbs.core.db.errors.DuplicatedUniqueFieldException;
-import br.com.jhondbs.core.db.errors.EntityIdBadImplementationException;
-import br.com.jhondbs.core.db.interfaces.Entity;
-import br.com.jhondbs.core.tools.FieldsManager;
-import br.com.jhondbs.core.tools.Reflection;
-import java.io.File;
-import java.io.IOException;
-import java.lang.reflect.Field;
+import br.com.jhondbs.core.db.index.FieldIndex;
+import br.com.jhondbs.core.db.index.IndexKeys;
+import br.com.jhondbs.core.db.index.IndexManager;
+import br.com.jhondbs.core.db.storage.WriteAheadLog;
+import br.com.jhondbs.core.tools.EntityMetadata;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -38,82 +39,127 @@ import java.util.Map;
  * Responsável por verificar a unicidade de campos anotados como @Unique.
  * Uma entidade só poderá ser gravada no banco de dados se passar nos testes de
  * unidade desta classe.
+ * A verificação é feita no índice de unicidade de cada campo (IndexManager.uniques),
+ * sem ler os registros das outras entidades. Os valores aprovados ficam
+ * reservados até o commit terminar, para que duas transações concorrentes não
+ * passem no teste com o mesmo valor antes de qualquer uma delas chegar ao índice.
  * @author jhones
  */
 public final class FieldSecurity {
     
     /**
-     * Verifica se uma entidade passa no teste de unicidade de campos no contexto
-     * da bottle que está contida (Se modo root ou temp).
-     * @param bottle
-     * @return
-     * @throws EntityIdBadImplementationException
-     * @throws DuplicatedUniqueFieldException
-     * @throws IllegalAccessException
-     * @throws IllegalArgumentException
-     * @throws IOException 
+     * Valores reservados por transações em andamento: classe.campo + valor -> id.
      */
-    public static boolean testUnicity(Bottle bottle) throws Exception {
-        for (Bottle bot : bottle.bottles.values()) {
-            if (!testeDeUnicidade(bottle)) return false;
+    private static final Map<String, String> RESERVED = new HashMap<>();
+
+    private FieldSecurity() {
+    }
+    
+    /**
+     * Verifica a unicidade dos campos de todos os registros que serão gravados
+     * em um commit e reserva os seus valores.
+     * Um valor já gravado por outra entidade só é aceito se essa entidade
+     * também estiver no commit deixando o valor (alterada ou excluída).
+     * @param changes Alterações do commit, com os registros já encapsulados.
+     * @return Reserva que deve ser liberada ao final do commit.
+     * @throws DuplicatedUniqueFieldException Se algum valor já estiver em uso.
+     */
+    public static Reservation reserve(List<WriteAheadLog.Change> changes) throws DuplicatedUniqueFieldException {
+        List<Claim> claims = new ArrayList<>();
+        // Valor final de cada campo único das entidades do commit: classe.campo -> id -> valor.
+        Map<String, Map<String, String>> next = new HashMap<>();
+        for(WriteAheadLog.Change change : changes) {
+            Class clazz = change.ref.recoverClass();
+            if(clazz == null || EntityMetadata.of(clazz).uniques().isEmpty()) continue;
+            Map<String, FieldIndex> uniques = IndexManager.uniques(clazz);
+            if(uniques.isEmpty()) continue;
+            Map<String, String> fields = change.record == null ? Collections.emptyMap() : IndexManager.fieldsOf(change.record);
+            for(FieldIndex index : uniques.values()) {
+                String field = clazz.getName() + "." + index.getField();
+                String value = IndexKeys.exact(fields.get(index.getField()));
+                next.computeIfAbsent(field, k -> new HashMap<>()).put(change.ref.getKey(), value);
+                if(value != null) {
+                    claims.add(new Claim(index, field, value, change.ref.getKey()));
+                }
+            }
+        }
+        if(claims.isEmpty()) return new Reservation(claims);
+        
+        Map<String, String> slots = new HashMap<>();
+        for(Claim claim : claims) {
+            String other = slots.putIfAbsent(claim.slot(), claim.id);
+            if(other != null && !other.equals(claim.id)) {
+                throw duplicated(claim, other);
+            }
+        }
+        synchronized (RESERVED) {
+            for(Claim claim : claims) {
+                String holder = RESERVED.get(claim.slot());
+                if(holder != null && !holder.equals(claim.id)) {
+                    throw duplicated(claim, holder);
+                }
+                Map<String, String> leaving = next.get(claim.field);
+                for(String owner : claim.index.equal(claim.value)) {
+                    if(owner.equals(claim.id)) continue;
+                    if(leaving.containsKey(owner) && !claim.value.equals(leaving.get(owner))) continue;
+                    throw duplicated(claim, owner);
+                }
+            }
+            RESERVED.putAll(slots);
         }
-        return true;
+        return new Reservation(claims);
+    }
+    
+    private static DuplicatedUniqueFieldException duplicated(Claim claim, String owner) {
+        return new DuplicatedUniqueFieldException("Campo unico duplicado:\n"
+                + "-> " + claim.field + "\n"
+                + "-> id: " + claim.id + " igual id: " + owner + "\n"
+                + "-> " + claim.value);
     }
     
-    private static boolean testeDeUnicidade(Bottle bottle) throws Exception {
-        if(bottle == null) throw new NullPointerException("Bottle nula para teste de unicidade de campos.");
-        if(bottle.entity == null) throw new NullPointerException("Entidade nula para o teste de unidade de campos.");
-        List<Field> unicos = FieldsManager.getAllFieldsUniques(bottle.entity);
-        if (unicos.isEmpty()) {
-            return true;
+    private static final class Claim {
+        final FieldIndex index;
+        final String field;
+        final String value;
+        final String id;
+
+        Claim(FieldIndex index, String field, String value, String id) {
+            this.index = index;
+            this.field = field;
+            this.value = value;
+            this.id = id;
         }
         
-        String path = Assist.getPath(bottle);
-        String[] ids = new File(path).getParentFile().list();
+        String slot() {
+            return field + "\n" + value;
+        }
+    }
+    
+    /**
+     * Valores reservados por um commit. Devem ser liberados depois que o
+     * commit chegar aos índices ou for desfeito.
+     */
+    public static final class Reservation implements AutoCloseable {
+        
+        private final List<Claim> claims;
+
+        private Reservation(List<Claim> claims) {
+            this.claims = claims;
+        }
         
-        if (ids != null && ids.length > 0) {
-            for (String id : ids) {
-                if (!id.equals(bottle.entity.getId())) {
-                    // Mapa de valores únicos do objeto no banco de dados.
-                    Map<String, String> paraComparar = Reader.readUniqueFieldsAsMap(bottle.entity.getClass(), id, bottle.TEMP_DB);
-                    
-                    //Itera sobre os campos únicos do objeto principal
-                    for (Field unico : unicos) {
-                        
-                        // Verifica se o objeto lido tem algum campo único com o mesmo nome de variável.
-                        if (paraComparar.containsKey(unico.getName())) {
-                            
-                            // Valor do objeto principal
-                            Object get = unico.get(bottle.entity);
-                            if (get != null) {
-                                
-                                // Verifica se o objeto é uma entidade
-                                if (Reflection.isInstance(get.getClass(), Entity.class)) {
-                                    Entity ente = (Entity) get;
-                                    if (paraComparar.get(unico.getName()).contains(ente.getId())) {
-                                        throw new DuplicatedUniqueFieldException("Campo unico duplicado:\n"
-                                                + "-> " + bottle.entity + " id: " + bottle.entity.getId() + "\n"
-                                                + "-> " + unico.getName() + "\n"
-                                                + "-> " + ente.getId() + " igual " + paraComparar.get(unico.getName()));
-                                    }
-                                } 
-                                // Caso não seja uma entidade
-                                else {
-                                    String valorLimpo = Reader.getValueFromCapsule(paraComparar.get(unico.getName()));
-                                    if (get.toString().equals(valorLimpo)) {
-                                        throw new DuplicatedUniqueFieldException("Campo unico duplicado:\n"
-                                                + "-> " + bottle.entity + " id: " + bottle.entity.getId() + "\n"
-                                                + "-> " + unico.getName() + "\n"
-                                                + "-> " + get.toString() + " igual " + valorLimpo);
-                                    }
-                                }
-                            }
-                        }
-                    }
+        /**
+         * Libera os valores reservados.
+         */
+        @Override
+        public void close() {
+            if(claims.isEmpty()) return;
+            synchronized (RESERVED) {
+                for(Claim claim : claims) {
+                    RESERVED.remove(claim.slot(), claim.id);
                 }
             }
         }
-        return true;
+        
     }
     
 }
@@ -23,38 +23,30 @@
  */
 package br.com.jhondbs.core.db.capsule;
 
-import br.com.jhondbs.core.db.Mapper;
 import br.com.jhondbs.core.db.errors.EntityIdBadImplementationException;
 import br.com.jhondbs.core.db.errors.ObjectNotDesserializebleException;
+import br.com.jhondbs.core.db.index.ReferenceGraph;
 import br.com.jhondbs.core.db.interfaces.Compatibility;
 import br.com.jhondbs.core.db.interfaces.Entity;
-import br.com.jhondbs.core.db.session.SessionCache;
-import br.com.jhondbs.core.db.session.SessionManager;
+import br.com.jhondbs.core.db.session.EntityCache;
+import br.com.jhondbs.core.db.storage.VersionStore;
 import br.com.jhondbs.core.tools.ClassDictionary;
+import br.com.jhondbs.core.tools.EntityMetadata;
 import br.com.jhondbs.core.tools.FieldsManager;
 import br.com.jhondbs.core.tools.Reflection;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.text.SimpleDateFormat;
 import java.time.Period;
 import java.time.temporal.Temporal;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
-import java.util.Set;
 import javax.imageio.ImageIO;
 
 /**
@@ -64,148 +56,112 @@ import javax.imageio.ImageIO;
  */
 public final class Loader {
     
-    private final BlockingIdList blockeds = new BlockingIdList();
-    
-    private List<String> blocked_ids = new ArrayList<>();
     private Bottle rootBottle;
 
     public Loader(Bottle bottle) {
         this.rootBottle = bottle;
     }
     
-    public Entity load(Class clazz, String id, SessionCache session) throws Exception {
+    public Entity load(Class clazz, String id) throws Exception {
+        // As leituras não bloqueiam: a entidade e as suas referências são lidas
+        // no mesmo snapshot, sem enxergar commits aplicados pela metade.
+        VersionStore.Snapshot snapshot = VersionStore.snapshot();
         try {
-            this.blocked_ids.add(id);
-            if(!blocked_ids.contains(id)) blockeds.add(id);
-            
-            SessionCache contains = SessionManager.contains(id);
-            if(contains != null) {
-                return contains.get(id);
+            Ref ref = new Ref(clazz, id);
+            Entity cached = EntityCache.get().peek(ref);
+            if(cached != null) {
+                return cached;
             }
             
-            
             Entity entity = (Entity) Reflection.getNewInstance(clazz, Thread.currentThread().getContextClassLoader());
             setId(entity, id);
             rootBottle.entity = entity;
             
-            if(session != null) {
-                session.addEntity(rootBottle);
-            } else {
-                SessionManager.add(rootBottle);
-            }
+            Properties props = Reader.read(clazz, id, rootBottle.modoOperacional == Bottle.ROOT_STAGE ? null : rootBottle.TEMP_DB);
             
-            Map<String, Field> mapFields = new HashMap<>();
-            FieldsManager.getAllFields(clazz).forEach(f -> mapFields.putIfAbsent(f.getName(), f));
-
-            Properties props = new Properties();
-            String path = Assist.getPath(new Ref(clazz, id), rootBottle);
-            File file = new File(path);
-            if (!file.exists()) {
-                throw new FileNotFoundException("Entidade não encontrada: " + path + " | No carregamento da entidade: "+entity+" -> "+id);
-            }
-            props.load(new FileInputStream(file));
-            
-            Mapper.add(entity, props.getProperty("refs"));
+            EntityCache.get().put(rootBottle, props);
             
             if(props.containsKey("cascate")) {
                 rootBottle.cascate = true;
             }
 
-            fillRefs(props);
-            fillFields(entity, props.getProperty("fields"), session);
+            rootBottle.referencias = ReferenceGraph.pending(ref, props);
+            fillFields(entity, props.getProperty("fields"));
             
             entity.compatible();
             
             return entity;
         } finally {
-            blockeds.removeAll(blocked_ids.toArray(new String[0]));
+            snapshot.close();
         }
     }
     
     private void setId(Entity entity, String id) throws Exception {
-        List<Field> ids = FieldsManager.getAllFields(entity).parallelStream()
-                .filter(field -> (field.getType().getName().contains("String")))
-                .filter(field -> (field.getName().toUpperCase().contains("ID")))
-                .toList();
-        if(!ids.isEmpty()){
-            Field selected = null;
-            List<Field> toList = ids.stream().filter(field -> (field.getName().equalsIgnoreCase("enteid")))
-                    .toList();
-            if(toList.size() == 1){
-                selected = toList.get(0);
-            } else {
-                toList = ids.stream().filter(field -> (field.getName().equalsIgnoreCase("id")))
-                    .toList();
-                if(toList.size() == 1){
-                    selected = toList.get(0);
-                } else {
-                    selected = ids.get(0);
-                }
-            }
-            if(selected != null){
-                FieldsManager.setValue(selected.getName(), entity, id);
-            }
-        } else {
-            throw new EntityIdBadImplementationException("The entity does not have a String type variable for the ID.");
-        }
-    }
-    
-    private void fillFields(Object object, String capsules, SessionCache session) throws Exception {
-        List<Field> fields = FieldsManager.getAllFields(object);
-        List<String> fieldsNames = fields.stream().map(field -> field.getName())
-                .toList();
-        Map<String, String> map = Reader.splitFieldsAsMap(capsules);
-        
-        for(String field : map.keySet()) {
-            if(fieldsNames.contains(field)) {
-                inject(object, field, map.get(field), session);
-            }
-        }
-        
+        EntityMetadata.of(entity).id().set(entity, id);
     }
     
-    private void fillRefs(Properties properties) {
-        String refsStr = properties.getProperty("refs");
-        Set<Ref> refs = new HashSet<>();
-        refs.addAll(Arrays.asList(refsStr.split("::"))
-                .stream().filter(ref -> !ref.isBlank())
-                .map(str -> new Ref(str))
-                .toList());
-        rootBottle.referencias = refs;
+    private void fillFields(Object object, String capsules) throws Exception {
+        fillFields(object, new CapsuleTokenizer(capsules));
     }
     
-    private void inject(Object object, String field, String capsule, SessionCache session) throws Exception {
-        String indice_classe = Reader.getKeyFromCapsule(capsule);
-        String conteudo = Reader.getValueFromCapsule(capsule);
-        Object valor = recover(indice_classe, conteudo, session);
-        if(valor != null) {
-            FieldsManager.setValue(field, object, valor);
+    /**
+     * Preenche os campos do objeto com as cápsulas de campo {nome:{...}} que
+     * vêm a seguir no leitor, até o fechamento da cápsula atual ou o fim do
+     * texto.
+     */
+    private void fillFields(Object object, CapsuleTokenizer tokenizer) throws Exception {
+        EntityMetadata metadata = EntityMetadata.of(object);
+        EntityCodec codec = EntityCodec.of(object.getClass());
+        while(tokenizer.next() == CapsuleTokenizer.START) {
+            int level = tokenizer.depth();
+            String field = tokenizer.key();
+            if(metadata.has(field) && tokenizer.next() == CapsuleTokenizer.START
+                    && !codec.read(object, field, tokenizer)) {
+                Object valor = recover(tokenizer);
+                if(valor != null) {
+                    FieldsManager.setValue(field, object, valor);
+                }
+            }
+            tokenizer.exit(level);
         }
     }
     
-    private Object recover(String indice, String conteudo, SessionCache session) throws Exception {
-        if(conteudo == null || conteudo.isBlank()) return null;
+    /**
+     * Recupera o valor da cápsula em que o leitor está (num START), consumindo
+     * a cápsula até o fechamento.
+     */
+    private Object recover(CapsuleTokenizer tokenizer) throws Exception {
+        if(tokenizer.isEmpty()) {
+            tokenizer.skip();
+            return null;
+        }
+        int index = tokenizer.keyAsInt();
+        ScalarCodec.Decoder decoder = ScalarCodec.ofIndex(index);
+        if(decoder != null) {
+            return decoder.decode(tokenizer.content());
+        }
         ClassLoader loader = Thread.currentThread().getContextClassLoader();
         Class classe_do_objeto = null;
-        classe_do_objeto = switch (indice) {
-            case "list" -> List.class;
-            case "map" -> Map.class;
-            case "img" -> Image.class;
-            case "file" -> File.class;
-            default -> ClassDictionary.fromIndex(Integer.parseInt(indice));
-        };
+        if(tokenizer.keyEquals("list")) {
+            classe_do_objeto = List.class;
+        } else if(tokenizer.keyEquals("map")) {
+            classe_do_objeto = Map.class;
+        } else if(tokenizer.keyEquals("img")) {
+            classe_do_objeto = Image.class;
+        } else if(tokenizer.keyEquals("file")) {
+            classe_do_objeto = File.class;
+        } else {
+            classe_do_objeto = index >= 0 ? ClassDictionary.fromIndex(index) : ClassDictionary.fromIndex(Integer.parseInt(tokenizer.key()));
+        }
         
         if (Reflection.isPrimitive(classe_do_objeto) || Reflection.isNumerical(classe_do_objeto)) {
-            return Reader.parsePrimitiveFromString(conteudo, classe_do_objeto, loader);
+            return Reader.parsePrimitiveFromString(tokenizer.content(), classe_do_objeto, loader);
         } else if (Reflection.isDate(classe_do_objeto)) {
+            String conteudo = tokenizer.content();
             if (Reflection.isInstance(classe_do_objeto, Date.class)) {
-                SimpleDateFormat formatter = new SimpleDateFormat("EEE MMM dd HH:mm:ss z yyyy", Locale.ENGLISH);
-                Class<?> formatterClass = Class.forName(formatter.getClass().getName(), true, loader);
-                Constructor<?> constructor = formatterClass.getConstructor(String.class, Locale.class);
-                SimpleDateFormat form = (SimpleDateFormat) constructor.newInstance("EEE MMM dd HH:mm:ss z yyyy", Locale.ENGLISH);
-                return form.parse(conteudo);
+                return ScalarCodec.parseDate(conteudo);
             } else if (Reflection.isInstance(classe_do_objeto, Calendar.class)) {
-                return Reader.parseCalendarFromString(conteudo, loader);
+                return ScalarCodec.parseCalendar(conteudo);
             } else if (Reflection.isInstance(classe_do_objeto, Temporal.class)) {
                 return Reader.parseDateTimeFromString(conteudo, classe_do_objeto, loader);
             } else if (Reflection.isInstance(classe_do_objeto, Period.class)) {
@@ -214,7 +170,7 @@ public final class Loader {
                 throw new ObjectNotDesserializebleException("Objeto de data não reconhecido.");
             }
         } else if (Reflection.isInstance(classe_do_objeto, Entity.class)) {
-            String id = conteudo;
+            String id = tokenizer.content();
             if(rootBottle.bottles.containsKey(id)) {
                 return rootBottle.bottles.get(id).entity;
             } else {
@@ -227,15 +183,11 @@ public final class Loader {
                             .tempDB(rootBottle.TEMP_DB)
                             .build();
                 } else {
-                    SessionCache contains = SessionManager.contains(id);
-                    if(contains != null) {
-                        Bottle bottle1 = contains.getBottle(id);
-                        bottle1.merge(rootBottle);
-                        bottle1.modoOperacional = Bottle.ROOT_STAGE;
-                        
-                        session.absorb(contains);
-                        
-                        return bottle1.entity;
+                    Bottle cached = EntityCache.get().getBottle(new Ref(classe_do_objeto, id));
+                    if(cached != null) {
+                        cached.merge(rootBottle);
+                        cached.modoOperacional = Bottle.ROOT_STAGE;
+                        return cached.entity;
                     }
                     
                     bottle = new Bottle.BottleBuilder()
@@ -250,22 +202,22 @@ public final class Loader {
             }
         } else if(Reflection.isArrayMap(classe_do_objeto)) {
             if (Reflection.isInstance(classe_do_objeto, List.class) || classe_do_objeto.isAssignableFrom(List.class)) {
-                return parseListFromString(conteudo, loader, session);
+                return readList(tokenizer);
             } else if (Reflection.isInstance(classe_do_objeto, Map.class) || classe_do_objeto.isAssignableFrom(Map.class)) {
-                return parseMapFromString(conteudo, loader, session);
+                return readMap(tokenizer);
             } else {
                 throw new Exception("Tipo de array não suportado: "+classe_do_objeto);
             }
         } else if(Reflection.isInstance(classe_do_objeto, Image.class) || classe_do_objeto.isAssignableFrom(Image.class)) {
-            return getImg(conteudo, loader);
+            return getImg(tokenizer.content(), loader);
         } else if(Reflection.isInstance(classe_do_objeto, File.class) || classe_do_objeto.isAssignableFrom(File.class)) {
-            return getFile(conteudo);
+            return getFile(tokenizer.content());
         } else if (classe_do_objeto.isEnum()) {
             Class<?> forName = Class.forName(classe_do_objeto.getName(), true, loader);
-            return Enum.valueOf((Class<Enum>) forName, conteudo);
+            return Enum.valueOf((Class<Enum>) forName, tokenizer.content());
         } else {
             Object ins = Reflection.getNewInstance(classe_do_objeto);
-            fillFields(ins, conteudo, session);
+            fillFields(ins, tokenizer);
             
             if (ins instanceof Compatibility com) {
                 com.compatible();
@@ -275,31 +227,41 @@ public final class Loader {
         }
     }
     
-    public List parseListFromString(String str, ClassLoader loader, SessionCache session) throws Exception {
+    public List parseListFromString(String str, ClassLoader loader) throws Exception {
+        return readList(new CapsuleTokenizer(str));
+    }
+    
+    public Map parseMapFromString(String str, ClassLoader loader) throws Exception {
+        return readMap(new CapsuleTokenizer(str));
+    }
+    
+    /**
+     * Lê os itens que vêm a seguir no leitor, até o fechamento da cápsula
+     * atual ou o fim do texto. Cápsulas vazias são ignoradas.
+     */
+    private List readList(CapsuleTokenizer tokenizer) throws Exception {
         List list = new ArrayList();
-        List<String> objetos = Reader.splitCapsules(str);
-        for(String objeto : objetos) {
-            if(!objeto.equals("{}")) {
-                list.add(recover(Reader.getKeyFromCapsule(objeto), Reader.getValueFromCapsule(objeto), session));
+        while(tokenizer.next() == CapsuleTokenizer.START) {
+            if(tokenizer.keyEquals("") && tokenizer.isEmpty()) {
+                tokenizer.skip();
+            } else {
+                list.add(recover(tokenizer));
             }
         }
         return list;
     }
     
-    public Map parseMapFromString(String str, ClassLoader loader, SessionCache session) throws Exception {
+    /**
+     * Lê os pares de chave e valor que vêm a seguir no leitor, até o
+     * fechamento da cápsula atual ou o fim do texto.
+     */
+    private Map readMap(CapsuleTokenizer tokenizer) throws Exception {
         Map<Object, Object> map = new HashMap<>();
-        List<String> objetos = Reader.splitCapsules(str);
-        if (objetos == null || objetos.isEmpty()) {
-            return map;
-        }
-        if(objetos.size() >= 2) {
-            for (int i = 0; i < objetos.size() - 1; i += 2) {
-                String CapsulaChave = objetos.get(i);
-                String CapsulaValor = objetos.get(i+1);
-                Object objeto_chave = recover(Reader.getKeyFromCapsule(CapsulaChave), Reader.getValueFromCapsule(CapsulaChave), session);
-                Object objeto_valor = recover(Reader.getKeyFromCapsule(CapsulaValor), Reader.getValueFromCapsule(CapsulaValor), session);
-                map.put(objeto_chave, objeto_valor);
-            }
+        while(tokenizer.next() == CapsuleTokenizer.START) {
+            Object objeto_chave = recover(tokenizer);
+            if(tokenizer.next() != CapsuleTokenizer.START) break;
+            Object objeto_valor = recover(tokenizer);
+            map.put(objeto_chave, objeto_valor);
         }
         return map;
     }
@@ -0,0 +1,316 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.capsule;
+
+import br.com.jhondbs.core.db.errors.LockTimeoutException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tabela de bloqueios por ID de entidade.
+ * Cada ID bloqueado tem um registro próprio no mapa, com o dono exclusivo e os
+ * donos compartilhados; IDs livres não ocupam espaço. As alterações de um
+ * registro são feitas sob a trava da sua faixa (hash do ID), e ao liberar um ID
+ * só são acordadas as threads que esperam por IDs da mesma faixa.
+ * Leituras usam o modo compartilhado e não bloqueiam outras leituras; gravações
+ * usam o modo exclusivo. Os bloqueios são reentrantes por thread, e a thread que
+ * tem o bloqueio exclusivo também pode ler.
+ * Vários IDs são sempre obtidos em ordem crescente, evitando deadlocks entre
+ * transações, e a espera tem tempo limite.
+ * @author jhones
+ */
+public final class LockTable {
+    
+    public static final int SHARED = 0;
+    public static final int EXCLUSIVE = 1;
+    
+    /**
+     * Número de faixas da tabela.
+     */
+    private static final int STRIPES = 64;
+    
+    /**
+     * Tempo limite padrão de espera por um bloqueio, em milissegundos.
+     */
+    public static long TIMEOUT = 30000;
+    
+    private static final LockTable INSTANCE = new LockTable(STRIPES);
+    
+    private final ConcurrentHashMap<String, Holders> table = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+    private final Condition[] released;
+    private final int mask;
+    
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    private LockTable(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        this.released = new Condition[size];
+        for(int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+            this.released[i] = this.stripes[i].newCondition();
+        }
+        this.mask = size - 1;
+    }
+    
+    public static LockTable get() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Donos atuais do bloqueio de um ID. Só é alterado sob a trava da faixa.
+     */
+    private static final class Holders {
+        Thread owner;
+        int exclusive;
+        final Map<Thread, Integer> shared = new HashMap<>(2);
+        int waiters;
+        
+        boolean canAcquire(Thread thread, int mode) {
+            if(owner != null && owner != thread) return false;
+            if(mode == SHARED) return true;
+            for(Thread holder : shared.keySet()) {
+                if(holder != thread) return false;
+            }
+            return true;
+        }
+        
+        boolean isFree() {
+            return owner == null && shared.isEmpty();
+        }
+    }
+    
+    private int stripe(String id) {
+        int h = id.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+    
+    /**
+     * Obtém o bloqueio de um ID, esperando no máximo o tempo informado.
+     * @param id
+     * @param mode SHARED ou EXCLUSIVE.
+     * @param timeout
+     * @param unit
+     * @return Verdadeiro se obteve o bloqueio.
+     * @throws InterruptedException 
+     */
+    public boolean tryLock(String id, int mode, long timeout, TimeUnit unit) throws InterruptedException {
+        Thread me = Thread.currentThread();
+        int stripe = stripe(id);
+        ReentrantLock lock = stripes[stripe];
+        lock.lock();
+        try {
+            Holders holders = table.computeIfAbsent(id, k -> new Holders());
+            if(!holders.canAcquire(me, mode)) {
+                contended.increment();
+                long start = System.nanoTime();
+                long nanos = unit.toNanos(timeout);
+                boolean granted = false;
+                holders.waiters++;
+                try {
+                    while(!holders.canAcquire(me, mode)) {
+                        if(nanos <= 0) {
+                            timeouts.increment();
+                            return false;
+                        }
+                        nanos = released[stripe].awaitNanos(nanos);
+                    }
+                    granted = true;
+                } finally {
+                    holders.waiters--;
+                    waitNanos.add(System.nanoTime() - start);
+                    if(!granted && holders.isFree() && holders.waiters == 0) {
+                        table.remove(id, holders);
+                    }
+                }
+            }
+            if(mode == EXCLUSIVE) {
+                holders.owner = me;
+                holders.exclusive++;
+            } else {
+                holders.shared.merge(me, 1, Integer::sum);
+            }
+            acquisitions.increment();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Obtém o bloqueio de um ID com o tempo limite padrão.
+     * @param id
+     * @param mode SHARED ou EXCLUSIVE.
+     * @throws LockTimeoutException
+     * @throws InterruptedException 
+     */
+    public void lock(String id, int mode) throws LockTimeoutException, InterruptedException {
+        if(!tryLock(id, mode, TIMEOUT, TimeUnit.MILLISECONDS)) {
+            throw new LockTimeoutException("Tempo esgotado esperando o bloqueio de " + id);
+        }
+    }
+    
+    /**
+     * Libera um bloqueio obtido pela thread atual.
+     * @param id
+     * @param mode Mesmo modo usado na obtenção.
+     */
+    public void unlock(String id, int mode) {
+        Thread me = Thread.currentThread();
+        int stripe = stripe(id);
+        ReentrantLock lock = stripes[stripe];
+        lock.lock();
+        try {
+            Holders holders = table.get(id);
+            if(holders == null) throw new IllegalMonitorStateException("ID não bloqueado: " + id);
+            if(mode == EXCLUSIVE) {
+                if(holders.owner != me) throw new IllegalMonitorStateException("ID não bloqueado por esta thread: " + id);
+                if(--holders.exclusive == 0) holders.owner = null;
+            } else {
+                Integer count = holders.shared.get(me);
+                if(count == null) throw new IllegalMonitorStateException("ID não bloqueado por esta thread: " + id);
+                if(count == 1) {
+                    holders.shared.remove(me);
+                } else {
+                    holders.shared.put(me, count - 1);
+                }
+            }
+            if(holders.waiters > 0) {
+                released[stripe].signalAll();
+            } else if(holders.isFree()) {
+                table.remove(id, holders);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Obtém os bloqueios de vários IDs em ordem crescente. Se algum não for
+     * obtido dentro do tempo limite padrão, os já obtidos são liberados.
+     * @param ids
+     * @param mode SHARED ou EXCLUSIVE.
+     * @throws LockTimeoutException
+     * @throws InterruptedException 
+     */
+    public void lockAll(Collection<String> ids, int mode) throws LockTimeoutException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT);
+        List<String> acquired = new ArrayList<>();
+        boolean done = false;
+        try {
+            for(String id : new TreeSet<>(ids)) {
+                if(!tryLock(id, mode, deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    throw new LockTimeoutException("Tempo esgotado esperando o bloqueio de " + id);
+                }
+                acquired.add(id);
+            }
+            done = true;
+        } finally {
+            if(!done) {
+                for(int i = acquired.size() - 1; i >= 0; i--) {
+                    unlock(acquired.get(i), mode);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Libera os bloqueios de vários IDs obtidos com lockAll.
+     * @param ids
+     * @param mode 
+     */
+    public void unlockAll(Collection<String> ids, int mode) {
+        for(String id : new TreeSet<>(ids).descendingSet()) {
+            unlock(id, mode);
+        }
+    }
+    
+    /**
+     * Verifica se um ID está bloqueado por alguma thread.
+     * @param id
+     * @return 
+     */
+    public boolean isLocked(String id) {
+        return table.containsKey(id);
+    }
+    
+    /**
+     * Número de IDs bloqueados ou com threads esperando.
+     * @return 
+     */
+    public int size() {
+        return table.size();
+    }
+    
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+    
+    public long getContended() {
+        return contended.sum();
+    }
+    
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+    
+    /**
+     * Tempo total gasto esperando bloqueios, em nanossegundos.
+     * @return 
+     */
+    public long getWaitTime() {
+        return waitNanos.sum();
+    }
+    
+    /**
+     * Proporção de pedidos de bloqueio que precisaram esperar.
+     * @return 
+     */
+    public double getContentionRate() {
+        long c = contended.sum();
+        long total = acquisitions.sum() + timeouts.sum();
+        return total == 0 ? 0 : (double) c / total;
+    }
+    
+    public void resetMetrics() {
+        acquisitions.reset();
+        contended.reset();
+        timeouts.reset();
+        waitNanos.reset();
+    }
+    
+}
@@ -0,0 +1,132 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.capsule;
+
+import br.com.jhondbs.core.db.storage.VersionStore;
+import br.com.jhondbs.core.tools.EntityMetadata;
+import br.com.jhondbs.core.tools.Reflection;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Leitura de apenas alguns campos de uma entidade direto do registro gravado,
+ * sem instanciar a entidade nem carregar as suas sub-entidades, imagens e
+ * arquivos. Serve para testar filtros e montar projeções antes de decidir se
+ * a entidade precisa ser carregada inteira.
+ * Só campos de valores simples (texto, primitivos e seus wrappers, números
+ * grandes, datas e enums) podem ser projetados; supports indica se todos os
+ * campos pedidos são desse tipo. Campos sem valor no registro ficam com o
+ * valor que a entidade recebe no construtor, como acontece no Loader.
+ * @author jhones
+ */
+public final class Projector {
+    
+    /**
+     * Instância criada pelo construtor padrão, de onde vêm os valores dos
+     * campos ausentes no registro. Nulo se a classe não puder ser instanciada.
+     */
+    private static final ClassValue<Object> DEFAULTS = new ClassValue<>() {
+        @Override
+        protected Object computeValue(Class<?> type) {
+            try {
+                return Reflection.getNewInstance(type, Thread.currentThread().getContextClassLoader());
+            } catch (Exception ex) {
+                return null;
+            }
+        }
+    };
+
+    private Projector() {
+    }
+    
+    /**
+     * Verifica se todos os campos são serializados como valores simples e
+     * podem ser lidos direto do registro.
+     * @param clazz Classe da entidade.
+     * @param fields Nomes dos campos.
+     * @return 
+     */
+    public static boolean supports(Class<?> clazz, Collection<String> fields) {
+        EntityMetadata metadata = EntityMetadata.of(clazz);
+        for(String name : fields) {
+            EntityMetadata.Accessor accessor = metadata.get(name);
+            if(accessor == null || !accessor.serializable) return false;
+            if(!accessor.type.isEnum() && ScalarCodec.of(accessor.type) == null) return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Lê os campos da entidade no snapshot da thread atual.
+     * @param clazz Classe da entidade.
+     * @param id ID da entidade.
+     * @param fields Campos pedidos, todos aceitos por supports.
+     * @return Mapa nome do campo -> valor.
+     * @throws java.io.FileNotFoundException Caso a entidade não exista no snapshot.
+     * @throws Exception 
+     */
+    public static Map<String, Object> read(Class<?> clazz, String id, Collection<String> fields) throws Exception {
+        Properties record = VersionStore.read(new Ref(clazz, id));
+        EntityMetadata metadata = EntityMetadata.of(clazz);
+        Map<String, Object> values = new HashMap<>();
+        Set<String> missing = new HashSet<>(fields);
+        CapsuleTokenizer tokenizer = new CapsuleTokenizer(record.getProperty("fields"));
+        while(!missing.isEmpty() && tokenizer.next() == CapsuleTokenizer.START) {
+            int level = tokenizer.depth();
+            String field = tokenizer.key();
+            if(missing.contains(field) && tokenizer.next() == CapsuleTokenizer.START) {
+                Object value = decode(metadata.get(field), tokenizer);
+                if(value != null) {
+                    values.put(field, value);
+                    missing.remove(field);
+                }
+            }
+            tokenizer.exit(level);
+        }
+        if(!missing.isEmpty()) {
+            Object defaults = DEFAULTS.get(clazz);
+            for(String field : missing) {
+                values.put(field, defaults == null ? null : metadata.get(field).get(defaults));
+            }
+        }
+        return values;
+    }
+    
+    private static Object decode(EntityMetadata.Accessor accessor, CapsuleTokenizer tokenizer) throws Exception {
+        if(tokenizer.isEmpty()) return null;
+        if(accessor.type.isEnum()) {
+            @SuppressWarnings("unchecked")
+            Object constant = Enum.valueOf((Class<Enum>) accessor.type, tokenizer.content());
+            return constant;
+        }
+        ScalarCodec.Decoder decoder = ScalarCodec.ofIndex(tokenizer.keyAsInt());
+        if(decoder == null) decoder = ScalarCodec.of(accessor.type);
+        return decoder.decode(tokenizer.content());
+    }
+    
+}
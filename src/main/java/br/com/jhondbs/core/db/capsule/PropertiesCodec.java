@@ -0,0 +1,74 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.capsule;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Properties;
+
+/**
+ * Codec legado, grava o registro como um arquivo texto do java.util.Properties.
+ * Mantido para leitura transparente dos bancos antigos e para quem preferir
+ * arquivos legíveis.
+ * @author jhones
+ */
+public final class PropertiesCodec implements RecordCodec {
+    
+    PropertiesCodec() {
+    }
+
+    @Override
+    public void encode(Properties record, OutputStream out) throws IOException {
+        record.store(out, "JhonDBS Entity");
+    }
+
+    @Override
+    public Properties decode(ByteBuffer buffer) throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = toStream(buffer)) {
+            props.load(in);
+        }
+        return props;
+    }
+
+    @Override
+    public boolean accepts(ByteBuffer buffer) {
+        return !BinaryCodec.hasMagic(buffer);
+    }
+    
+    private static InputStream toStream(ByteBuffer buffer) {
+        if(buffer.hasArray()) {
+            InputStream in = new ByteArrayInputStream(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return in;
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new ByteArrayInputStream(bytes);
+    }
+    
+}
@@ -24,24 +24,28 @@
 package br.com.jhondbs.core.db.capsule;
 
 import br.com.jhondbs.core.db.interfaces.Entity;
+import br.com.jhondbs.core.db.storage.StorageManager;
+import br.com.jhondbs.core.db.storage.VersionStore;
 import br.com.jhondbs.core.tools.ClassDictionary;
 import br.com.jhondbs.core.tools.FieldsManager;
 import br.com.jhondbs.core.tools.Reflection;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.time.Period;
+import java.time.temporal.Temporal;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.Stack;
+import java.util.TimeZone;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -51,12 +55,26 @@ import java.util.regex.Pattern;
  */
 public final class Reader {
     
+    /*
+    Campos do formato do Calendar.toString(), usado nos registros antigos.
+    */
+    private static final Pattern YEAR = Pattern.compile("YEAR=(\\d+)");
+    private static final Pattern MONTH = Pattern.compile("MONTH=(\\d+)");
+    private static final Pattern DAY_OF_MONTH = Pattern.compile("DAY_OF_MONTH=(\\d+)");
+    private static final Pattern HOUR_OF_DAY = Pattern.compile("HOUR_OF_DAY=(\\d+)");
+    private static final Pattern MINUTE = Pattern.compile("MINUTE=(\\d+)");
+    private static final Pattern SECOND = Pattern.compile("SECOND=(\\d+)");
+    private static final Pattern MILLISECOND = Pattern.compile("MILLISECOND=(\\d+)");
+    private static final Pattern ZONE = Pattern.compile("id=\"([^\"]+)\"");
+    
+    private static final Pattern UUID_PATTERN = Pattern.compile("\\b[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}\\b");
+    
     public Reader() {
     }
     
     /**
-     * Carrega o arquivo properties de uma entidade que pode estar no banco de dados
-     * ou em uma pasta temporária.
+     * Carrega o registro de uma entidade que pode estar no banco de dados
+     * ou em uma pasta temporária, em qualquer um dos formatos suportados.
      * @param clazz Classe da entidade.
      * @param id ID da entidade.
      * @param temp Opcional, se for nulo ou branco carregará do Banco de Dados.
@@ -65,14 +83,15 @@ public final class Reader {
      * @throws Exception 
      */
     public static Properties read(Class clazz, String id, String temp) throws Exception {
-        Properties props = new Properties();
-        String path = Assist.getPath(new Ref(clazz, id), temp);
-        File file = new File(path);
-        if (!file.exists()) {
-            throw new FileNotFoundException("Entidade não encontrada: " + path + " | No carregamento da entidade: "+clazz+" -> "+id);
+        if(temp == null || temp.isBlank()) {
+            return VersionStore.read(new Ref(clazz, id));
         }
-        props.load(new FileInputStream(file));
-        return props;
+        Ref ref = new Ref(clazz, id);
+        StagingArea area = StagingArea.find(temp);
+        if (area == null || !area.contains(ref)) {
+            throw new FileNotFoundException("Entidade não encontrada: " + Assist.getPath(ref, temp) + " | No carregamento da entidade: "+clazz+" -> "+id);
+        }
+        return area.read(ref);
     }
     
     /**
@@ -99,174 +118,116 @@ public final class Reader {
      */
     public static Map<String, String> splitFieldsAsMap(String str) {
         Map<String, String> mapa_campos = new HashMap<>();
-        List<String> campos = splitCapsules(str);
-        for(String s : campos) {
-            mapa_campos.put(getKeyFromCapsule(s), getValueFromCapsule(s));
+        CapsuleTokenizer tokenizer = new CapsuleTokenizer(str);
+        while(tokenizer.next() == CapsuleTokenizer.START) {
+            String key = tokenizer.key();
+            mapa_campos.put(key, tokenizer.content());
         }
         return mapa_campos;
     }
     
     public static String getKeyFromCapsule(String str) {
-        Map<String, String> map = splitCapsuleAsKeyValueMap(str);
-        if(!map.isEmpty()) {
-            return map.keySet().stream().findFirst().get();
-        }
-        return "";
+        int colon = str.indexOf(':');
+        if(colon < 0 || !str.startsWith("{")) return "";
+        return str.substring(1, colon);
     }
     
     public static String getValueFromCapsule(String str) {
-        Map<String, String> map = splitCapsuleAsKeyValueMap(str);
-        if(!map.isEmpty()) {
-            return map.values().stream().findFirst().get();
-        }
-        return "";
+        int colon = str.indexOf(':');
+        if(colon < 0 || !str.startsWith("{")) return "";
+        return str.substring(colon + 1, str.length() - 1);
     }
     
     /**
      * Recebe uma String de várias capsulas aninhadas e as separa em uma lista.
      * @param str
-     * @return 
+     * @return Lista das cápsulas do nível mais externo, ou nulo se estiverem
+     * desbalanceadas.
      */
     public static List<String> splitCapsules(String str) {
         List<String> list = new ArrayList<>();
         if (str == null || str.equals("{}")) {
             return list;
         }
-        Stack<Integer> stack = new Stack<>();
-        int start = -1;
-
-        for (int i = 0; i < str.length(); i++) {
-            char c = str.charAt(i);
-            if (c == '{') {
-                if (stack.isEmpty()) {
-                    start = i;
-                }
-                stack.push(i);
-            } else if (c == '}') {
-                if (stack.isEmpty()) {
-                    return null; // Desbalanceado
-                }
-                stack.pop();
-                if (stack.isEmpty() && start != -1) {
-                    list.add(str.substring(start, i + 1));
-                    start = -1;
-                }
+        try {
+            CapsuleTokenizer tokenizer = new CapsuleTokenizer(str);
+            while(tokenizer.next() == CapsuleTokenizer.START) {
+                list.add(tokenizer.capsule());
             }
-        }
-        if (!stack.isEmpty()) {
+        } catch (IllegalArgumentException e) {
             return null; // Desbalanceado
         }
         return list;
     }
     
-    public static Calendar parseCalendarFromString(String calendarString, ClassLoader loader) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException, ClassNotFoundException, InstantiationException {
-        Pattern patternYear = Pattern.compile("YEAR=(\\d+)");
-        Pattern patternMonth = Pattern.compile("MONTH=(\\d+)");
-        Pattern patternDayOfMonth = Pattern.compile("DAY_OF_MONTH=(\\d+)");
-        Pattern patternHour = Pattern.compile("HOUR_OF_DAY=(\\d+)");
-        Pattern patternMinute = Pattern.compile("MINUTE=(\\d+)");
-        Pattern patternSecond = Pattern.compile("SECOND=(\\d+)");
-        Pattern patternMillisecond = Pattern.compile("MILLISECOND=(\\d+)");
-        Pattern patternZone = Pattern.compile("id=\"([^\"]+)\"");
-        int year = extractValue(patternYear, calendarString, loader);
-        int month = extractValue(patternMonth, calendarString, loader);
-        int dayOfMonth = extractValue(patternDayOfMonth, calendarString, loader);
-        int hour = extractValue(patternHour, calendarString, loader);
-        int minute = extractValue(patternMinute, calendarString, loader);
-        int second = extractValue(patternSecond, calendarString, loader);
-        int millisecond = extractValue(patternMillisecond, calendarString, loader);
-        String timeZoneID = extractString(patternZone, calendarString, loader);
-        Class<?> calendarClass = Class.forName("java.util.GregorianCalendar", true, loader);
-        Class<?> timeZoneClass = Class.forName("java.util.TimeZone", true, loader);
-        Calendar calendar = (Calendar) calendarClass.getDeclaredConstructor().newInstance();
-        calendar.set(Calendar.YEAR, year);
-        calendar.set(Calendar.MONTH, month);
-        calendar.set(Calendar.DAY_OF_MONTH, dayOfMonth);
-        calendar.set(Calendar.HOUR_OF_DAY, hour);
-        calendar.set(Calendar.MINUTE, minute);
-        calendar.set(Calendar.SECOND, second);
-        calendar.set(Calendar.MILLISECOND, millisecond);
-        Object timeZone = timeZoneClass.getMethod("getTimeZone", String.class).invoke(null, timeZoneID);
-        calendar.setTimeZone((java.util.TimeZone) timeZone);
+    public static Calendar parseCalendarFromString(String calendarString, ClassLoader loader) {
+        return parseCalendarFromString(calendarString);
+    }
+    
+    /**
+     * Lê um Calendar no formato do Calendar.toString().
+     * @param calendarString
+     * @return 
+     */
+    public static Calendar parseCalendarFromString(String calendarString) {
+        Calendar calendar = new GregorianCalendar();
+        calendar.set(Calendar.YEAR, extractValue(YEAR, calendarString));
+        calendar.set(Calendar.MONTH, extractValue(MONTH, calendarString));
+        calendar.set(Calendar.DAY_OF_MONTH, extractValue(DAY_OF_MONTH, calendarString));
+        calendar.set(Calendar.HOUR_OF_DAY, extractValue(HOUR_OF_DAY, calendarString));
+        calendar.set(Calendar.MINUTE, extractValue(MINUTE, calendarString));
+        calendar.set(Calendar.SECOND, extractValue(SECOND, calendarString));
+        calendar.set(Calendar.MILLISECOND, extractValue(MILLISECOND, calendarString));
+        calendar.setTimeZone(TimeZone.getTimeZone(extractString(ZONE, calendarString)));
         return calendar;
     }
 
-    public static Object parseDateTimeFromString(String dateTimeString, Class<?> type, ClassLoader loader) throws ClassNotFoundException, NoSuchMethodException, IllegalAccessException, InvocationTargetException {
-        switch (type.getName()) {
-            case "java.time.LocalDate" -> {
-                Class<?> localDateClass = Class.forName("java.time.LocalDate", true, loader);
-                return localDateClass.getMethod("parse", CharSequence.class).invoke(null, dateTimeString);
-            }
-            case "java.time.LocalTime" -> {
-                Class<?> localTimeClass = Class.forName("java.time.LocalTime", true, loader);
-                return localTimeClass.getMethod("parse", CharSequence.class).invoke(null, dateTimeString);
-            }
-            case "java.time.LocalDateTime" -> {
-                Class<?> localDateTimeClass = Class.forName("java.time.LocalDateTime", true, loader);
-                return localDateTimeClass.getMethod("parse", CharSequence.class).invoke(null, dateTimeString);
-            }
-            case "java.time.ZonedDateTime" -> {
-                Class<?> zonedDateTimeClass = Class.forName("java.time.ZonedDateTime", true, loader);
-                return zonedDateTimeClass.getMethod("parse", CharSequence.class).invoke(null, dateTimeString);
-            }
-            case "java.time.Instant" -> {
-                Class<?> instantClass = Class.forName("java.time.Instant", true, loader);
-                return instantClass.getMethod("parse", CharSequence.class).invoke(null, dateTimeString);
-            }
-            default -> {
+    public static Object parseDateTimeFromString(String dateTimeString, Class<?> type, ClassLoader loader) {
+        if(Temporal.class.isAssignableFrom(type)) {
+            ScalarCodec.Decoder decoder = ScalarCodec.of(type);
+            if(decoder != null) {
+                try {
+                    return decoder.decode(dateTimeString);
+                } catch (Exception ex) {
+                    throw new IllegalArgumentException("Formato de data/tempo desconhecido: " + dateTimeString, ex);
+                }
             }
         }
         throw new IllegalArgumentException("Formato de data/tempo desconhecido: " + dateTimeString);
     }
 
-    public static Period parsePeriodFromString(String periodString, ClassLoader loader) throws ClassNotFoundException, NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+    public static Period parsePeriodFromString(String periodString, ClassLoader loader) {
         try {
-            Class<?> periodClass = Class.forName("java.time.Period", true, loader);
-            Object period = periodClass.getMethod("parse", CharSequence.class).invoke(null, periodString);
-            return (Period) period;
+            return Period.parse(periodString);
         } catch (DateTimeParseException e) {
             throw new IllegalArgumentException("Formato de período desconhecido: " + periodString, e);
         }
     }
 
-    public static Object parsePrimitiveFromString(String input, Class<?> type, ClassLoader loader) throws ClassNotFoundException, NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException {
+    public static Object parsePrimitiveFromString(String input, Class<?> type, ClassLoader loader) {
         if (type == String.class) {
             return input; // A string já é o valor
         }
-        Class<?> charClass = Class.forName("java.lang.Character", true, loader);
-        Class<?> shortClass = Class.forName("java.lang.Short", true, loader);
-        Class<?> intClass = Class.forName("java.lang.Integer", true, loader);
-        Class<?> longClass = Class.forName("java.lang.Long", true, loader);
-        Class<?> floatClass = Class.forName("java.lang.Float", true, loader);
-        Class<?> doubleClass = Class.forName("java.lang.Double", true, loader);
-        Class<?> booleanClass = Class.forName("java.lang.Boolean", true, loader);
-        Class<?> byteClass = Class.forName("java.lang.Byte", true, loader);
-        Class<?> bigDecimalClass = Class.forName("java.math.BigDecimal", true, loader);
-        Class<?> bigIntegerClass = Class.forName("java.math.BigInteger", true, loader);
-        if (type == char.class || type == charClass) {
-            if (input.length() == 1) {
-                return input.charAt(0); // Converte a string para char se tiver um único caractere
-            } else {
-                throw new IllegalArgumentException("Formato inválido para char: " + input);
-            }
-        } else if (type == short.class || type == shortClass) {
-            return shortClass.getMethod("valueOf", String.class).invoke(null, input);
-        } else if (type == int.class || type == intClass) {
-            return intClass.getMethod("valueOf", String.class).invoke(null, input);
-        } else if (type == long.class || type == longClass) {
-            return longClass.getMethod("valueOf", String.class).invoke(null, input);
-        } else if (type == float.class || type == floatClass) {
-            return floatClass.getMethod("valueOf", String.class).invoke(null, input);
-        } else if (type == double.class || type == doubleClass) {
-            return doubleClass.getMethod("valueOf", String.class).invoke(null, input);
-        } else if (type == boolean.class || type == booleanClass) {
-            return booleanClass.getMethod("valueOf", String.class).invoke(null, input);
-        } else if (type == byte.class || type == byteClass) {
-            return byteClass.getMethod("valueOf", String.class).invoke(null, input);
-        } else if (type == bigDecimalClass) {
-            return bigDecimalClass.getConstructor(String.class).newInstance(input);
-        } else if (type == bigIntegerClass) {
-            return bigIntegerClass.getConstructor(String.class).newInstance(input);
+        if (type == char.class || type == Character.class) {
+            return ScalarCodec.parseChar(input);
+        } else if (type == short.class || type == Short.class) {
+            return Short.valueOf(input);
+        } else if (type == int.class || type == Integer.class) {
+            return Integer.valueOf(input);
+        } else if (type == long.class || type == Long.class) {
+            return Long.valueOf(input);
+        } else if (type == float.class || type == Float.class) {
+            return Float.valueOf(input);
+        } else if (type == double.class || type == Double.class) {
+            return Double.valueOf(input);
+        } else if (type == boolean.class || type == Boolean.class) {
+            return Boolean.valueOf(input);
+        } else if (type == byte.class || type == Byte.class) {
+            return Byte.valueOf(input);
+        } else if (type == BigDecimal.class) {
+            return new BigDecimal(input);
+        } else if (type == BigInteger.class) {
+            return new BigInteger(input);
         } else {
             throw new IllegalArgumentException("Tipo não suportado: " + type.getSimpleName());
         }
@@ -293,33 +254,40 @@ public final class Reader {
     }
     
     public static int extractValue(Pattern pattern, String text, ClassLoader loader) {
+        return extractValue(pattern, text);
+    }
+    
+    public static int extractValue(Pattern pattern, String text) {
         Matcher matcher = pattern.matcher(text);
         if (matcher.find()) {
             try {
-                Class<?> integerClass = Class.forName("java.lang.Integer", true, loader);
-                return (int) integerClass.getMethod("parseInt", String.class).invoke(null, matcher.group(1));
-            } catch (Exception e) {
+                return Integer.parseInt(matcher.group(1));
+            } catch (NumberFormatException e) {
                 throw new RuntimeException("Erro ao tentar parsear o valor: " + matcher.group(1), e);
             }
         }
         return 0; // valor padrão se o campo não for encontrado
     }
     
-    public static String extractString(Pattern pattern, String text, ClassLoader loader) throws ClassNotFoundException, NoSuchMethodException, IllegalAccessException, InvocationTargetException {
-        Class<?> matcherClass = Class.forName("java.util.regex.Matcher", true, loader);
+    public static String extractString(Pattern pattern, String text, ClassLoader loader) {
+        return extractString(pattern, text);
+    }
+    
+    public static String extractString(Pattern pattern, String text) {
         Matcher matcher = pattern.matcher(text);
-        if ((boolean) matcherClass.getMethod("find").invoke(matcher)) {
-            return (String) matcherClass.getMethod("group", int.class).invoke(matcher, 1);
+        if (matcher.find()) {
+            return matcher.group(1);
         }
         return "GMT"; // valor padrão se o campo não for encontrado
     }
     
     public static List<String> listAllIds(Class entityClass, String prefix) {
+        if(prefix == null || prefix.equals(Bottle.ROOT_DB)) {
+            return StorageManager.get().listIds(entityClass);
+        }
         String path = entityClass.getName().replace(".class", "").replace(".", "/");
         if(!prefix.endsWith("/")) prefix = prefix+"/";
-        if(prefix != null) {
-            path = prefix+path;
-        }
+        path = prefix+path;
         File file = new File(path);
         if(file.exists()) {
             return Arrays.asList(file.list());
@@ -388,12 +356,7 @@ public final class Reader {
     
     public List<String> extractUUIDs(String input) {
         List<String> uuids = new ArrayList<>();
-        // Expressão regular para UUIDs (versão simplificada)
-        String uuidPattern = "\\b[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}\\b";
-        
-        // Compilando o padrão
-        Pattern pattern = Pattern.compile(uuidPattern);
-        Matcher matcher = pattern.matcher(input);
+        Matcher matcher = UUID_PATTERN.matcher(input);
         
         // Percorrendo e capturando os UUIDs
         while (matcher.find()) {
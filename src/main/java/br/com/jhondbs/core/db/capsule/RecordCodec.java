@@ -0,0 +1,74 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.capsule;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Properties;
+
+/**
+ * Define o formato em disco de um registro de entidade.
+ * O registro continua sendo representado em memória como um Properties com as
+ * chaves "fields", "refs", "stamp", "cascate" e "exclude"; o codec decide apenas
+ * como esses valores são gravados e lidos dos arquivos.
+ * @author jhones
+ */
+public interface RecordCodec {
+    
+    /**
+     * Formato legado, arquivo texto do java.util.Properties.
+     */
+    public static final RecordCodec PROPERTIES = new PropertiesCodec();
+    
+    /**
+     * Formato binário compacto com prefixo de tamanho.
+     */
+    public static final RecordCodec BINARY = new BinaryCodec();
+    
+    /**
+     * Grava o registro no fluxo de saída.
+     * @param record Registro da entidade.
+     * @param out Fluxo de destino.
+     * @throws IOException 
+     */
+    void encode(Properties record, OutputStream out) throws IOException;
+    
+    /**
+     * Lê um registro a partir do buffer, consumindo-o até o final.
+     * @param buffer Conteúdo completo do registro.
+     * @return Registro da entidade.
+     * @throws IOException 
+     */
+    Properties decode(ByteBuffer buffer) throws IOException;
+    
+    /**
+     * Verifica se o conteúdo do buffer foi gravado por este codec.
+     * A posição do buffer não é alterada.
+     * @param buffer
+     * @return 
+     */
+    boolean accepts(ByteBuffer buffer);
+    
+}
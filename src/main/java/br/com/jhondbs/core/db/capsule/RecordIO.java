@@ -0,0 +1,169 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.capsule;
+
+import br.com.jhondbs.core.db.storage.MappedRegions;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Ponto único de leitura e gravação dos arquivos de registro de entidades.
+ * A gravação usa sempre o codec ativo e a leitura identifica o formato pelo
+ * cabeçalho do arquivo, de forma que bancos antigos em Properties continuam
+ * sendo lidos normalmente e passam para o novo formato na próxima gravação.
+ * @author jhones
+ */
+public final class RecordIO {
+    
+    private static final Logger LOGGER = Logger.getLogger(RecordIO.class.getName());
+    
+    /**
+     * Codec utilizado nas novas gravações.
+     */
+    public static volatile RecordCodec CODEC = RecordCodec.BINARY;
+    
+    private RecordIO() {
+    }
+    
+    /**
+     * Lê um arquivo de registro em qualquer um dos formatos suportados.
+     * @param file
+     * @return
+     * @throws IOException 
+     */
+    public static Properties read(File file) throws IOException {
+        return decode(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+    }
+    
+    /**
+     * Decodifica um registro identificando o seu formato pelo cabeçalho.
+     * @param buffer
+     * @return
+     * @throws IOException 
+     */
+    public static Properties decode(ByteBuffer buffer) throws IOException {
+        if(RecordCodec.BINARY.accepts(buffer)) {
+            return RecordCodec.BINARY.decode(buffer);
+        }
+        return RecordCodec.PROPERTIES.decode(buffer);
+    }
+    
+    /**
+     * Grava o registro no arquivo utilizando o codec ativo.
+     * @param record
+     * @param file
+     * @throws IOException 
+     */
+    public static void write(Properties record, File file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            CODEC.encode(record, out);
+        }
+    }
+    
+    /**
+     * Codifica o registro em memória utilizando o codec ativo.
+     * @param record
+     * @return
+     * @throws IOException 
+     */
+    public static byte[] encode(Properties record) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        CODEC.encode(record, out);
+        return out.toByteArray();
+    }
+    
+    /**
+     * Verifica se o arquivo ainda está no formato legado do Properties.
+     * @param file
+     * @return
+     * @throws IOException 
+     */
+    public static boolean isLegacy(File file) throws IOException {
+        return !RecordCodec.BINARY.accepts(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+    }
+    
+    /**
+     * Converte todos os registros do banco de dados para o codec ativo.
+     * Pastas de imagens, arquivos anexados, segmentos e índices, backups e os
+     * arquivos da raiz do banco, como a sequência de commits, o log e o
+     * dicionário de classes, são ignorados: registros só existem dentro das
+     * pastas das classes.
+     * @return Número de registros convertidos.
+     * @throws IOException 
+     */
+    public static int migrate() throws IOException {
+        Path root = Paths.get(Bottle.ROOT_DB);
+        if(!Files.isDirectory(root)) return 0;
+        Path imgs = root.resolve("imgs");
+        Path files = root.resolve("files");
+        Path segments = root.resolve("segments");
+        Path indexes = root.resolve("indexes");
+        int[] count = {0};
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return dir.equals(imgs) || dir.equals(files) || dir.equals(segments) || dir.equals(indexes) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+                String name = path.getFileName().toString();
+                if(root.equals(path.getParent()) || name.endsWith(Transaction.BACKUP_SUFFIX) || name.contains(".")) {
+                    return FileVisitResult.CONTINUE;
+                }
+                try {
+                    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+                    if(!CODEC.accepts(buffer)) {
+                        Properties record = decode(buffer);
+                        File tmp = new File(path.toString() + ".mig");
+                        write(record, tmp);
+                        Files.move(tmp.toPath(), path, StandardCopyOption.REPLACE_EXISTING);
+                        count[0]++;
+                    }
+                } catch (IOException ex) {
+                    LOGGER.log(Level.WARNING, "Falha ao migrar o registro: " + path, ex);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        MappedRegions.get().invalidateAll(root);
+        return count[0];
+    }
+    
+}
@@ -0,0 +1,225 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.capsule;
+
+import br.com.jhondbs.core.tools.ClassDictionary;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Period;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Codificação dos valores simples gravados no conteúdo das cápsulas: texto,
+ * primitivos e seus wrappers, BigInteger, BigDecimal e datas.
+ * Cada tipo tem o seu decodificador, com chamadas diretas como
+ * Integer.valueOf e LocalDate.parse, sem reflexão. Os decodificadores também
+ * ficam numa tabela pelo índice da classe no ClassDictionary, para o Loader
+ * ir direto da chave da cápsula ao decodificador.
+ * Date e Calendar são gravados pelo instante em milissegundos (o Calendar
+ * seguido de '|' e do fuso), e os tipos do java.time no formato ISO do
+ * toString(). Os formatos antigos de Date e Calendar, o do toString(),
+ * continuam sendo lidos.
+ * @author jhones
+ */
+public final class ScalarCodec {
+    
+    /**
+     * Decodificador do conteúdo de uma cápsula.
+     */
+    @FunctionalInterface
+    public interface Decoder {
+        Object decode(String content) throws Exception;
+    }
+    
+    private static final Map<Class<?>, Decoder> DECODERS = new IdentityHashMap<>();
+    
+    /**
+     * Formato do Date.toString(), usado nos registros antigos.
+     */
+    private static final DateTimeFormatter LEGACY_DATE = DateTimeFormatter.ofPattern("EEE MMM dd HH:mm:ss zzz yyyy", Locale.ENGLISH);
+    
+    private static final ThreadLocal<SimpleDateFormat> LEGACY_DATE_FALLBACK =
+            ThreadLocal.withInitial(() -> new SimpleDateFormat("EEE MMM dd HH:mm:ss z yyyy", Locale.ENGLISH));
+    
+    private static volatile Decoder[] byIndex;
+    
+    static {
+        DECODERS.put(String.class, content -> content);
+        DECODERS.put(Integer.class, Integer::valueOf);
+        DECODERS.put(Long.class, Long::valueOf);
+        DECODERS.put(Double.class, Double::valueOf);
+        DECODERS.put(Float.class, Float::valueOf);
+        DECODERS.put(Boolean.class, Boolean::valueOf);
+        DECODERS.put(Short.class, Short::valueOf);
+        DECODERS.put(Byte.class, Byte::valueOf);
+        DECODERS.put(Character.class, ScalarCodec::parseChar);
+        DECODERS.put(BigDecimal.class, BigDecimal::new);
+        DECODERS.put(BigInteger.class, BigInteger::new);
+        DECODERS.put(Date.class, ScalarCodec::parseDate);
+        DECODERS.put(Calendar.class, ScalarCodec::parseCalendar);
+        DECODERS.put(GregorianCalendar.class, ScalarCodec::parseCalendar);
+        DECODERS.put(LocalDate.class, LocalDate::parse);
+        DECODERS.put(LocalTime.class, LocalTime::parse);
+        DECODERS.put(LocalDateTime.class, LocalDateTime::parse);
+        DECODERS.put(ZonedDateTime.class, ZonedDateTime::parse);
+        DECODERS.put(Instant.class, Instant::parse);
+        DECODERS.put(Period.class, Period::parse);
+    }
+
+    private ScalarCodec() {
+    }
+    
+    /**
+     * Decodificador do tipo informado. Tipos primitivos usam o do wrapper.
+     * @param type
+     * @return Decodificador ou nulo se o tipo não for um valor simples.
+     */
+    public static Decoder of(Class<?> type) {
+        return type == null ? null : DECODERS.get(boxed(type));
+    }
+    
+    /**
+     * Decodificador da classe com o índice informado no ClassDictionary.
+     * @param index
+     * @return Decodificador ou nulo se a classe não for um valor simples.
+     */
+    public static Decoder ofIndex(int index) {
+        if(index < 0) return null;
+        Decoder[] table = byIndex;
+        if(table == null) {
+            table = buildTable();
+        }
+        if(index < table.length) return table[index];
+        return of(ClassDictionary.fromIndex(index));
+    }
+    
+    private static synchronized Decoder[] buildTable() {
+        if(byIndex != null) return byIndex;
+        int size = ClassDictionary.get().size();
+        Decoder[] table = new Decoder[size];
+        for(int i = 0; i < size; i++) {
+            table[i] = of(ClassDictionary.fromIndex(i));
+        }
+        byIndex = table;
+        return table;
+    }
+    
+    /**
+     * Conteúdo gravado para um valor simples.
+     * @param value
+     * @return 
+     */
+    public static String encode(Object value) {
+        if(value instanceof Date date) {
+            return String.valueOf(date.getTime());
+        } else if(value instanceof Calendar calendar) {
+            return calendar.getTimeInMillis() + "|" + calendar.getTimeZone().getID();
+        }
+        return value.toString();
+    }
+    
+    public static Character parseChar(String content) {
+        if(content.length() != 1) {
+            throw new IllegalArgumentException("Formato inválido para char: " + content);
+        }
+        return content.charAt(0);
+    }
+    
+    /**
+     * Lê um Date gravado em milissegundos ou no formato do Date.toString().
+     * @param content
+     * @return
+     * @throws ParseException 
+     */
+    public static Date parseDate(String content) throws ParseException {
+        if(isEpoch(content, content.length())) {
+            return new Date(Long.parseLong(content));
+        }
+        try {
+            return Date.from(ZonedDateTime.parse(content, LEGACY_DATE).toInstant());
+        } catch (DateTimeParseException ex) {
+            return LEGACY_DATE_FALLBACK.get().parse(content);
+        }
+    }
+    
+    /**
+     * Lê um Calendar gravado em milissegundos e fuso ou no formato do
+     * Calendar.toString().
+     * @param content
+     * @return 
+     */
+    public static Calendar parseCalendar(String content) {
+        int bar = content.indexOf('|');
+        if(bar > 0 && isEpoch(content, bar)) {
+            Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone(content.substring(bar + 1)));
+            calendar.setTimeInMillis(Long.parseLong(content, 0, bar, 10));
+            return calendar;
+        }
+        return Reader.parseCalendarFromString(content);
+    }
+    
+    private static boolean isEpoch(String content, int end) {
+        if(end == 0) return false;
+        int i = content.charAt(0) == '-' ? 1 : 0;
+        if(i == end) return false;
+        for(; i < end; i++) {
+            char c = content.charAt(i);
+            if(c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Classe encaixotada de um tipo primitivo; os demais tipos voltam como
+     * vieram.
+     */
+    static Class<?> boxed(Class<?> type) {
+        if(!type.isPrimitive()) return type;
+        if(type == int.class) return Integer.class;
+        if(type == long.class) return Long.class;
+        if(type == double.class) return Double.class;
+        if(type == float.class) return Float.class;
+        if(type == boolean.class) return Boolean.class;
+        if(type == short.class) return Short.class;
+        if(type == byte.class) return Byte.class;
+        if(type == char.class) return Character.class;
+        return type;
+    }
+    
+}
@@ -0,0 +1,248 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.capsule;
+
+import br.com.jhondbs.core.db.storage.StorageManager;
+import br.com.jhondbs.core.db.storage.WriteAheadLog;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Área de preparação de uma transação: guarda os registros pendentes das
+ * entidades (cópias do estado gravado e registros novos) até o commit, no
+ * lugar da antiga árvore de arquivos em ./temp/.
+ * Os registros ficam em memória até MEMORY_LIMIT bytes estimados; passando
+ * disso, os seguintes vão para um único arquivo de rascunho, apenas de
+ * acréscimo, ao lado da pasta temporária. A marcação de exclusão de cada
+ * registro fica nos metadados da entrada, então a aplicação e a limpeza não
+ * precisam ler o registro de novo para saber se ele é uma exclusão.
+ * Cada área é identificada pela pasta temporária da garrafa (TEMP_DB) e é
+ * descartada, junto com o rascunho, ao final do commit.
+ * @author jhones
+ */
+public final class StagingArea {
+    
+    private static final Logger LOGGER = Logger.getLogger(StagingArea.class.getName());
+    
+    /**
+     * Memória estimada, em bytes, que os registros de uma área podem ocupar
+     * antes de irem para o arquivo de rascunho.
+     */
+    public static long MEMORY_LIMIT = 32L * 1024 * 1024;
+    
+    private static final ConcurrentHashMap<String, StagingArea> AREAS = new ConcurrentHashMap<>();
+    
+    private final File file;
+    private final Map<Ref, Entry> entries = new LinkedHashMap<>();
+    private long memory;
+    private RandomAccessFile scratch;
+    
+    private static final class Entry {
+        Properties record;
+        long offset;
+        int length;
+        long weight;
+        boolean exclude;
+    }
+
+    private StagingArea(String temp) {
+        String base = temp.endsWith("/") ? temp.substring(0, temp.length() - 1) : temp;
+        this.file = new File(base + ".stage");
+    }
+    
+    /**
+     * Área de uma pasta temporária, criada no primeiro uso.
+     * @param temp
+     * @return 
+     */
+    public static StagingArea of(String temp) {
+        return AREAS.computeIfAbsent(temp, StagingArea::new);
+    }
+    
+    /**
+     * Área já existente de uma pasta temporária.
+     * @param temp
+     * @return A área, ou null se nada foi preparado nessa pasta.
+     */
+    public static StagingArea find(String temp) {
+        return AREAS.get(temp);
+    }
+    
+    /**
+     * Descarta a área de uma pasta temporária e o seu rascunho.
+     * @param temp 
+     */
+    public static void discard(String temp) {
+        StagingArea area = AREAS.remove(temp);
+        if(area != null) {
+            area.close();
+        }
+    }
+    
+    /**
+     * Copia para a área o registro gravado da entidade, se ela existir e
+     * ainda não estiver na área.
+     * @param ref
+     * @throws IOException 
+     */
+    public synchronized void stage(Ref ref) throws IOException {
+        if(entries.containsKey(ref) || !StorageManager.get().exists(ref)) return;
+        try {
+            write(ref, StorageManager.get().read(ref));
+        } catch (FileNotFoundException ex) {
+        }
+    }
+    
+    public synchronized boolean contains(Ref ref) {
+        return entries.containsKey(ref);
+    }
+    
+    /**
+     * Informa se o registro da entidade na área está marcado para exclusão.
+     * @param ref
+     * @return 
+     */
+    public synchronized boolean isExcluded(Ref ref) {
+        Entry entry = entries.get(ref);
+        return entry != null && entry.exclude;
+    }
+    
+    /**
+     * Lê uma cópia do registro da entidade na área.
+     * @param ref
+     * @return
+     * @throws IOException Se a entidade não estiver na área.
+     */
+    public synchronized Properties read(Ref ref) throws IOException {
+        Entry entry = entries.get(ref);
+        if(entry == null) {
+            throw new FileNotFoundException("Entidade não encontrada na área de preparação: " + ref);
+        }
+        return load(entry);
+    }
+    
+    /**
+     * Grava na área uma cópia do registro da entidade, substituindo o anterior.
+     * @param ref
+     * @param record
+     * @throws IOException 
+     */
+    public synchronized void write(Ref ref, Properties record) throws IOException {
+        Entry entry = entries.get(ref);
+        if(entry == null) {
+            entry = new Entry();
+            entries.put(ref, entry);
+        } else {
+            memory -= entry.weight;
+        }
+        entry.exclude = Assist.isMarkedToExclude(record);
+        long weight = weigh(record);
+        if(memory + weight <= MEMORY_LIMIT) {
+            entry.record = (Properties) record.clone();
+            entry.weight = weight;
+            memory += weight;
+        } else {
+            byte[] bytes = RecordIO.encode(record);
+            RandomAccessFile out = scratch();
+            entry.record = null;
+            entry.weight = 0;
+            entry.offset = out.length();
+            entry.length = bytes.length;
+            out.seek(entry.offset);
+            out.write(bytes);
+        }
+    }
+    
+    /**
+     * Alterações do commit, na ordem em que as entidades entraram na área.
+     * Registros marcados para exclusão viram alterações sem registro.
+     * @return
+     * @throws IOException 
+     */
+    public synchronized List<WriteAheadLog.Change> changes() throws IOException {
+        List<WriteAheadLog.Change> changes = new ArrayList<>(entries.size());
+        for(Map.Entry<Ref, Entry> entry : entries.entrySet()) {
+            Entry value = entry.getValue();
+            changes.add(new WriteAheadLog.Change(entry.getKey(), value.exclude ? null : load(value)));
+        }
+        return changes;
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    private Properties load(Entry entry) throws IOException {
+        if(entry.record != null) {
+            return (Properties) entry.record.clone();
+        }
+        byte[] bytes = new byte[entry.length];
+        scratch.seek(entry.offset);
+        scratch.readFully(bytes);
+        return RecordIO.decode(ByteBuffer.wrap(bytes));
+    }
+    
+    private RandomAccessFile scratch() throws IOException {
+        if(scratch == null) {
+            file.getParentFile().mkdirs();
+            scratch = new RandomAccessFile(file, "rw");
+            scratch.setLength(0);
+        }
+        return scratch;
+    }
+    
+    private static long weigh(Properties record) {
+        long weight = 64;
+        for(Map.Entry<Object, Object> entry : record.entrySet()) {
+            weight += 2L * (entry.getKey().toString().length() + entry.getValue().toString().length()) + 32;
+        }
+        return weight;
+    }
+    
+    private synchronized void close() {
+        entries.clear();
+        memory = 0;
+        if(scratch != null) {
+            try {
+                scratch.close();
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Falha ao fechar o rascunho " + file, ex);
+            }
+            scratch = null;
+            file.delete();
+        }
+    }
+    
+}
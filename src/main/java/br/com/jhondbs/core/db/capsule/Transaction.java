@@ -23,7 +23,8 @@
  */
 package br.com.jhondbs.core.db.capsule;
 
-import java.io.File;
+import br.com.jhondbs.core.db.storage.StorageManager;
+import br.com.jhondbs.core.db.storage.VersionStore;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -44,25 +45,36 @@ public final class Transaction {
      */
     public static final ConcurrentHashMap<String, Transaction> ACTIVE_TRANSACTIONS = new ConcurrentHashMap<>();
 
-    /**
-     * Lista de IDS que estão bloqueados para operações;
-     */
-    private final BlockingIdList blockeds = new BlockingIdList();
-    
     private static final Logger LOGGER = Logger.getLogger(Transaction.class.getName());
     public static final String BACKUP_SUFFIX = ".bak";
 
     private final String transactionId;
     private boolean committed = false;
     private boolean rolledBack = false;
+    private long version = 0;
     private Bottle newState;
     private Bottle oldState;
+    private final List<Bottle> roots;
     
     private List<String> ids = new ArrayList<>();
     
     public Transaction(Bottle bottle) throws Exception {
+        this(bottle, List.of(bottle));
+    }
+    
+    /**
+     * Transação de várias entidades raiz gravadas juntas, com uma só trava,
+     * um só registro no log e uma só aplicação.
+     * @param bottle Garrafa cujo mapa de garrafas e pasta temporária são
+     * compartilhados por todas as raízes.
+     * @param roots Garrafas das entidades raiz, montadas sobre o mapa de
+     * garrafas de bottle.
+     * @throws Exception 
+     */
+    public Transaction(Bottle bottle, List<Bottle> roots) throws Exception {
         this.transactionId = UUID.randomUUID().toString();
         this.newState = bottle;
+        this.roots = roots;
     }
     
     private void begin() {
@@ -73,48 +85,80 @@ public final class Transaction {
     public boolean commit() throws Exception {
         if(committed) return true;
         begin();
+        boolean locked = false;
         try {
+            for(Bottle root : roots) {
+                root.engarrafar();
+            }
+            if(newState.bottles.values().stream().noneMatch(Bottle::isDirty)) {
+                return true;
+            }
+            // Entidades cujo registro não mudou ficam fora do commit: não são
+            // travadas, copiadas, regravadas nem reindexadas.
+            newState.bottles.values().removeIf(bottle -> !bottle.isDirty());
             loadOldState();
-            newState.engarrafar();
             fillLock();
+            locked = true;
             Backuper.doBackup(newState, oldState);
             Flusher.flush(newState, oldState);
             Applier.turnEntitiesOn(newState, oldState);
+            version = VersionStore.lastCommitted();
             return true;
         } catch (Exception e) {
-            Backuper.rollBack(newState, oldState);
+            // Sem a trava os backups das entidades podem ser de outro commit.
+            if(locked) {
+                Backuper.rollBack(newState, oldState);
+            }
             rolledBack = true;
             throw e;
         } finally {
             committed = true;
             freeLock();
-            Cleaner.cleanDB(newState, oldState);
+            if(locked) {
+                Cleaner.cleanDB(newState, oldState);
+            } else {
+                StagingArea.discard(newState.TEMP_DB);
+            }
             ACTIVE_TRANSACTIONS.remove(transactionId);
             LOGGER.log(Level.INFO, "Transaction committed: {0}", transactionId);
         }
     }
     
+    /**
+     * Número do commit gravado pela transação, ou zero se nada foi gravado,
+     * seja porque nenhuma entidade mudou ou porque o commit falhou.
+     * @return 
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    /**
+     * Monta o estado gravado de cada entidade alterada que já existe, seja ela
+     * raiz ou não. As entidades sem alteração já saíram de newState.
+     */
     private void loadOldState() throws Exception {
         oldState = new Bottle.BottleBuilder().emptyBuild();
         for(Bottle bottle : newState.bottles.values()) {
-            String rootPath = Assist.getRootPath(new Ref(bottle.entity));
-            File file = new File(rootPath);
-            if(file.exists()) {
+            Ref ref = new Ref(bottle.entity);
+            if(!oldState.bottles.containsKey(ref.getKey()) && StorageManager.get().exists(ref)) {
                 new Bottle.BottleBuilder()
                         .bottles(oldState.bottles)
-                        .entity(this.newState.entity)
+                        .entity(bottle.entity)
                         .build();
             }
         }
     }
     
     private void fillLock() throws Exception {
-        ids.addAll(listIds());
-        blockeds.addAll((String[]) ids.toArray(new String[0]));
+        List<String> list = new ArrayList<>(listIds());
+        LockTable.get().lockAll(list, LockTable.EXCLUSIVE);
+        ids = list;
     }
     
     private void freeLock() throws Exception {
-        blockeds.removeAll((String[]) ids.toArray(new String[0]));
+        LockTable.get().unlockAll(ids, LockTable.EXCLUSIVE);
+        ids = new ArrayList<>();
     }
     
     private Set<String> listIds() throws Exception {
@@ -128,9 +172,7 @@ public final class Transaction {
             }
         }
         for(Bottle bottle : newState.bottles.values()) {
-            String rPath = Assist.getRootPath(new Ref(bottle.entity));
-            File file = new File(rPath);
-            if(file.exists()) {
+            if(StorageManager.get().exists(new Ref(bottle.entity))) {
                 Bottle sub = new Bottle.BottleBuilder()
                         .entityClass(bottle.entity.getClass())
                         .id(bottle.entity.getId())
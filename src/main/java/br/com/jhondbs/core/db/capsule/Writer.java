@@ -24,17 +24,12 @@
 package br.com.jhondbs.core.db.capsule;
 
 import br.com.jhondbs.core.db.errors.EntityIdBadImplementationException;
-import java.io.BufferedOutputStream;
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.Properties;
 
 /**
- * Usado específicamente para gravar o arquivo properties de uma entidade no
- * banco de dados.
- * Sempre irá gravar na pasta temporária. Um arquivo NUNCA deve ser gravado
- * diretamente na pasta de produção.
+ * Usado específicamente para gravar o registro de uma entidade no banco de
+ * dados. Sempre irá gravar na área de preparação da transação (StagingArea).
+ * Um registro NUNCA deve ser gravado diretamente na produção.
  * @author jhones
  */
 public final class Writer {
@@ -43,13 +38,7 @@ public final class Writer {
     }
     
     public static boolean write(Bottle bottle) throws IOException, IllegalAccessException, EntityIdBadImplementationException {
-        String path = Assist.getTempPath(new Ref(bottle.entity), bottle.TEMP_DB);
-        File file = new File(path);
-        file.getParentFile().mkdirs(); // Garantir diretórios
-        Properties build = bottle.build();
-        try (BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(file))) {
-            build.store(bos, "JhonDBS Entity");
-        }
+        StagingArea.of(bottle.TEMP_DB).write(new Ref(bottle.entity), bottle.build());
         return true;
     }
     
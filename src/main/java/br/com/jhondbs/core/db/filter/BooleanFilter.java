@@ -23,7 +23,12 @@
  */
 package br.com.jhondbs.core.db.filter;
 
+import br.com.jhondbs.core.db.index.FieldIndex;
+import br.com.jhondbs.core.db.index.IndexManager;
+import br.com.jhondbs.core.db.index.Statistics;
 import br.com.jhondbs.core.tools.FieldsManager;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import br.com.jhondbs.core.db.interfaces.Entity;
@@ -73,6 +78,27 @@ public class BooleanFilter implements FilterCondition{
         return false;
     }
     
+    @Override
+    public Set<String> fields() {
+        return Set.of(field);
+    }
+    
+    @Override
+    public boolean filterValues(Map<String, Object> values) {
+        return (boolean) values.get(field) == value;
+    }
+    
+    @Override
+    public double selectivity(Class clazz) {
+        return Statistics.equalSelectivity(clazz, field);
+    }
+    
+    @Override
+    public Set<String> lookup(Class clazz) {
+        FieldIndex index = IndexManager.get(clazz, field);
+        return index == null ? null : index.equal(value);
+    }
+    
     /**
      * the name of the field defined at creation.
      * @return 
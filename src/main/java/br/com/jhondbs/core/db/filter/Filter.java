@@ -24,16 +24,21 @@
 package br.com.jhondbs.core.db.filter;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import br.com.jhondbs.core.db.interfaces.Entity;
 
 /**
  * A class that can store filtering settings and be saved for future repetitive uses.
+ * A filter is also a condition, so filters can be nested to combine AND and OR.<br>
  * Uma classe que pode armazenar configurações de filtragem e ser salva para
- * futuros usos repetitivos.
+ * futuros usos repetitivos. Um filtro também é uma condição, então filtros
+ * podem ser aninhados para combinar E e OU.
  * @author jhonesconrado
  */
-public class Filter implements Entity{
+public class Filter implements Entity, FilterCondition{
     
     private long id = -1l;
     
@@ -118,6 +123,7 @@ public class Filter implements Entity{
      * Entity a ser filtrada.
      * @return 
      */
+    @Override
     public boolean filter(Entity entity){
         boolean approved = false;
         for(FilterCondition f : filters){
@@ -136,6 +142,55 @@ public class Filter implements Entity{
         return approved;
     }
     
+    /**
+     * ENGLISH<br>
+     * Names of the fields read by all the conditions, or null when some
+     * condition needs the whole entity.<br><br>
+     * PORTUGUÊS<br>
+     * Nomes dos campos lidos por todas as condições, ou nulo quando alguma
+     * condição precisa da entidade inteira.
+     * @return Field names or null.<br>
+     * Nomes dos campos ou nulo.
+     */
+    @Override
+    public Set<String> fields(){
+        Set<String> fields = new HashSet<>();
+        for(FilterCondition f : filters){
+            Set<String> used = f.fields();
+            if(used == null) return null;
+            fields.addAll(used);
+        }
+        return fields;
+    }
+    
+    /**
+     * Receives the values of the fields returned by fields() and checks if they
+     * pass the validation test.<br>
+     * Recebe os valores dos campos devolvidos por fields() e verifica se passam
+     * no teste de validação.
+     * @param values Field name -> value.<br>
+     * Nome do campo -> valor.
+     * @return 
+     */
+    @Override
+    public boolean filterValues(Map<String, Object> values){
+        boolean approved = false;
+        for(FilterCondition f : filters){
+            if(all){
+                approved = true;
+                if(!f.filterValues(values)){
+                    return false;
+                }
+            } else {
+                approved = false;
+                if(f.filterValues(values)){
+                    return true;
+                }
+            }
+        }
+        return approved;
+    }
+    
 //    @Override
 //    public long getEnteId() {
 //        return id;
@@ -146,6 +201,63 @@ public class Filter implements Entity{
 //        this.id = id;
 //    }
     
+    /**
+     * ENGLISH<br>
+     * Combines the index lookups of the conditions. With "all" the candidates
+     * are the intersection of the indexed conditions; otherwise every condition
+     * must be indexed and the candidates are the union.<br><br>
+     * PORTUGUÊS<br>
+     * Combina as buscas em índice das condições. Com "all" os candidatos são a
+     * interseção das condições indexadas; caso contrário todas as condições
+     * precisam estar indexadas e os candidatos são a união.
+     * @param clazz Entity class being searched.<br>
+     * Classe da entidade pesquisada.
+     * @return Candidate ids or null when no index can be used.<br>
+     * IDs candidatos ou nulo quando nenhum índice pode ser usado.
+     */
+    @Override
+    public Set<String> lookup(Class clazz){
+        Set<String> candidates = null;
+        for(FilterCondition f : filters){
+            Set<String> ids = f.lookup(clazz);
+            if(all){
+                if(ids == null) continue;
+                if(candidates == null){
+                    candidates = new HashSet<>(ids);
+                } else {
+                    candidates.retainAll(ids);
+                }
+            } else {
+                if(ids == null) return null;
+                if(candidates == null) candidates = new HashSet<>();
+                candidates.addAll(ids);
+            }
+        }
+        return candidates;
+    }
+    
+    /**
+     * ENGLISH<br>
+     * Estimated fraction of the entities that pass the filter, combining the
+     * conditions as independent tests.<br><br>
+     * PORTUGUÊS<br>
+     * Fração estimada das entidades que passam no filtro, combinando as
+     * condições como testes independentes.
+     * @param clazz Entity class being searched.<br>
+     * Classe da entidade pesquisada.
+     * @return 
+     */
+    @Override
+    public double selectivity(Class clazz){
+        if(filters.isEmpty()) return 0;
+        double result = all ? 1 : 0;
+        for(FilterCondition f : filters){
+            double s = f.selectivity(clazz);
+            result = all ? result * s : 1 - (1 - result) * (1 - s);
+        }
+        return result;
+    }
+    
     /**
      * Returns the number of tests in the filter.<br>
      * Retorna o número de testes no filtro.
@@ -23,7 +23,10 @@
  */
 package br.com.jhondbs.core.db.filter;
 
+import br.com.jhondbs.core.db.index.Statistics;
 import br.com.jhondbs.core.db.interfaces.Entity;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Filters an entity to see if it passes any fetch tests.<br>
@@ -34,4 +37,69 @@ public interface FilterCondition {
     
     boolean filter(Entity e);
     
+    /**
+     * ENGLISH<br>
+     * Returns the ids that may pass the test, using the indexes of the class,
+     * or null when the condition cannot be answered by an index. The result may
+     * contain extra ids but never miss one; the full test is still applied.<br><br>
+     * PORTUGUÊS<br>
+     * Retorna os ids que podem passar no teste, usando os índices da classe, ou
+     * nulo quando a condição não puder ser respondida por um índice. O resultado
+     * pode conter ids a mais, mas nunca a menos; o teste completo ainda é aplicado.
+     * @param clazz Entity class being searched.<br>
+     * Classe da entidade pesquisada.
+     * @return 
+     */
+    default Set<String> lookup(Class clazz) {
+        return null;
+    }
+    
+    /**
+     * ENGLISH<br>
+     * Names of the fields the test reads, or null when it needs the whole
+     * entity. When every field can be read straight from the stored record,
+     * the test runs on those values with filterValues and only the entities
+     * that pass are loaded.<br><br>
+     * PORTUGUÊS<br>
+     * Nomes dos campos que o teste lê, ou nulo quando ele precisa da entidade
+     * inteira. Quando todos os campos podem ser lidos direto do registro
+     * gravado, o teste é feito sobre esses valores com filterValues e só as
+     * entidades aprovadas são carregadas.
+     * @return Field names or null.<br>
+     * Nomes dos campos ou nulo.
+     */
+    default Set<String> fields() {
+        return null;
+    }
+    
+    /**
+     * ENGLISH<br>
+     * Applies the test to the values of the fields returned by fields().<br><br>
+     * PORTUGUÊS<br>
+     * Aplica o teste aos valores dos campos devolvidos por fields().
+     * @param values Field name -> value.<br>
+     * Nome do campo -> valor.
+     * @return True if the values passed the test.<br>
+     * Verdadeiro caso os valores tenham passado no teste.
+     */
+    default boolean filterValues(Map<String, Object> values) {
+        throw new UnsupportedOperationException(getClass().getName() + " needs the whole entity.");
+    }
+    
+    /**
+     * ENGLISH<br>
+     * Estimated fraction of the entities of the class that pass the test, used
+     * by the query planner to pick indexes and order the tests.<br><br>
+     * PORTUGUÊS<br>
+     * Fração estimada das entidades da classe que passam no teste, usada pelo
+     * planejador de consultas para escolher índices e ordenar os testes.
+     * @param clazz Entity class being searched.<br>
+     * Classe da entidade pesquisada.
+     * @return Value between 0 and 1.<br>
+     * Valor entre 0 e 1.
+     */
+    default double selectivity(Class clazz) {
+        return Statistics.DEFAULT_SELECTIVITY;
+    }
+    
 }
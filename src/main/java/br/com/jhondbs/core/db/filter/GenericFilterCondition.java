@@ -23,8 +23,14 @@
  */
 package br.com.jhondbs.core.db.filter;
 
+import br.com.jhondbs.core.db.index.FieldIndex;
+import br.com.jhondbs.core.db.index.IndexManager;
+import br.com.jhondbs.core.db.index.Statistics;
 import br.com.jhondbs.core.db.interfaces.Entity;
 import br.com.jhondbs.core.tools.FieldsManager;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -48,16 +54,45 @@ public class GenericFilterCondition implements FilterCondition {
     @Override
     public boolean filter(Entity e) {
         try {
-            String val = FieldsManager.getValueFrom(fieldName, e).toString();
-            if(ignoreCase) {
-                return value.trim().toUpperCase().equals(val.trim().toUpperCase());
-            } else {
-                return value.equals(val);
-            }
+            return accept(FieldsManager.getValueFrom(fieldName, e).toString());
         } catch (IllegalArgumentException | IllegalAccessException | NoSuchFieldException ex) {
             Logger.getLogger(GenericFilterCondition.class.getName()).log(Level.SEVERE, null, ex);
         }
         return false;
     }
     
+    @Override
+    public Set<String> fields() {
+        return Set.of(fieldName);
+    }
+    
+    @Override
+    public boolean filterValues(Map<String, Object> values) {
+        return accept(values.get(fieldName).toString());
+    }
+    
+    private boolean accept(String val) {
+        if(ignoreCase) {
+            return value.trim().toUpperCase().equals(val.trim().toUpperCase());
+        } else {
+            return value.equals(val);
+        }
+    }
+    
+    @Override
+    public double selectivity(Class clazz) {
+        return Statistics.equalSelectivity(clazz, fieldName);
+    }
+    
+    @Override
+    public Set<String> lookup(Class clazz) {
+        FieldIndex index = IndexManager.get(clazz, fieldName);
+        if(index == null) return null;
+        if(ignoreCase) {
+            String expected = value.trim().toUpperCase();
+            return index.matching(key -> key instanceof BigDecimal || key.toString().trim().toUpperCase().equals(expected));
+        }
+        return index.matching(key -> key instanceof BigDecimal || key.toString().equals(value));
+    }
+    
 }
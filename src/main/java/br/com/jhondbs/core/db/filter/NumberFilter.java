@@ -25,7 +25,17 @@ package br.com.jhondbs.core.db.filter;
 
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import br.com.jhondbs.core.db.index.FieldIndex;
+import br.com.jhondbs.core.db.index.IndexManager;
+import br.com.jhondbs.core.db.index.Statistics;
 import br.com.jhondbs.core.db.interfaces.Entity;
+import br.com.jhondbs.core.tools.Reflection;
+import br.com.jhondbs.core.tools.EntityMetadata;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * ENGLISH<br>
@@ -113,11 +123,22 @@ public class NumberFilter implements FilterCondition{
      */
     public static final int ENTRE = 3;
     
+    /**
+     * Formas de leitura do campo: inteiro primitivo, decimal primitivo ou
+     * objeto testado pelo seu tipo.
+     */
+    private static final int INTEGRAL = 0;
+    private static final int DECIMAL = 1;
+    private static final int OBJECT = 2;
+    
     private final String field;
     private final int method;
     private final double init;
     private final double end;
     
+    private transient volatile Resolved resolved;
+    private transient volatile Bounds bounds;
+    
     /**
      * Creates a numeric filter that will check a given field of an entity.<br>
      * Cria um filtro numérico que verificará um determinado campo de uma entidade.
@@ -176,50 +197,85 @@ public class NumberFilter implements FilterCondition{
      */
     @Override
     public boolean filter(Entity entity) {
+        Resolved resolved = resolve(entity.getClass());
         try {
-            
-            double value = 0d;
-            Object from = entity.getValueFrom(field);
-            
-            try {
-                value = (Short) from;
-                return test(value);
-            } catch (Exception ex) {
-                try {
-                    value = (Integer) from;
-                    return test(value);
-                } catch (Exception ex2) {
-                    try {
-                        value = (Long) from;
-                        return test(value);
-                    } catch (Exception ex3) {
-                        try {
-                            value = (Float) from;
-                            return test(value);
-                        } catch (Exception ex4) {
-                            try {
-                                value = (Double) from;
-                                return test(value);
-                            } catch (Exception ex5) {
-                                try {
-                                    String val = (String) from;
-                                    value = Double.parseDouble((String) val);
-                                    return test(value);
-                                } catch (NumberFormatException ex6) {
-                                    System.out.println("Erro parsing number field.");
-                                }
-                            }
-                        }
-                    }
-                }
+            if(resolved.accessor == null) {
+                throw new NoSuchFieldException(field);
+            }
+            switch (resolved.kind) {
+                case INTEGRAL:
+                    return test(resolved.accessor.getLong(entity));
+                case DECIMAL:
+                    return test(resolved.accessor.getDouble(entity));
+                default:
+                    return accept(resolved.accessor.get(entity));
             }
-            
         } catch (IllegalArgumentException | IllegalAccessException | NoSuchFieldException ex) {
             Logger.getLogger(NumberFilter.class.getName()).log(Level.SEVERE, null, ex);
         }
         return false;
     }
     
+    @Override
+    public Set<String> fields() {
+        return Set.of(field);
+    }
+    
+    @Override
+    public boolean filterValues(Map<String, Object> values) {
+        return accept(values.get(field));
+    }
+    
+    /**
+     * Campo e forma de leitura resolvidos para a classe das entidades
+     * filtradas. A resolução é refeita apenas quando a classe muda.
+     */
+    private Resolved resolve(Class<?> clazz) {
+        Resolved current = resolved;
+        if(current == null || current.owner != clazz) {
+            EntityMetadata.Accessor accessor = EntityMetadata.of(clazz).get(field);
+            int kind = OBJECT;
+            if(accessor != null) {
+                Class<?> type = accessor.type;
+                if(type == int.class || type == long.class || type == short.class || type == byte.class) {
+                    kind = INTEGRAL;
+                } else if(type == double.class || type == float.class) {
+                    kind = DECIMAL;
+                }
+            }
+            current = new Resolved(clazz, accessor, kind);
+            resolved = current;
+        }
+        return current;
+    }
+    
+    /**
+     * Testa o valor do campo pelo seu tipo: inteiros e números exatos sem
+     * passar por double, os demais números em double e textos com um número.
+     */
+    private boolean accept(Object from) {
+        if(from instanceof Integer || from instanceof Long || from instanceof Short || from instanceof Byte) {
+            return test(((Number) from).longValue());
+        }
+        if(from instanceof Double || from instanceof Float) {
+            return test(((Number) from).doubleValue());
+        }
+        if(from instanceof BigDecimal decimal) {
+            return test(decimal);
+        }
+        if(from instanceof BigInteger integer) {
+            return test(new BigDecimal(integer));
+        }
+        if(from instanceof String text) {
+            try {
+                return test(Double.parseDouble(text));
+            } catch (NumberFormatException ex) {
+                System.out.println("Erro parsing number field.");
+            }
+        }
+        return false;
+    }
+    
     /**
      * Do numerical verification.<br>
      * Faz a verificação numérica.
@@ -245,6 +301,210 @@ public class NumberFilter implements FilterCondition{
             }
     }
     
+    /**
+     * Verificação exata de um inteiro, pelo intervalo de inteiros que passa no
+     * teste.
+     */
+    private boolean test(long value){
+        Bounds b = bounds();
+        if(!b.exact) return test((double) value);
+        return value >= b.low && value <= b.high;
+    }
+    
+    /**
+     * Verificação exata de um número decimal.
+     */
+    private boolean test(BigDecimal value){
+        Bounds b = bounds();
+        if(!b.exact) return test(value.doubleValue());
+        switch (this.method) {
+                case ENTRE:
+                    return value.compareTo(b.init) >= 0 && value.compareTo(b.end) <= 0;
+                case MENOR:
+                    return value.compareTo(b.init) < 0;
+                case MAIOR:
+                    return value.compareTo(b.init) > 0;
+                case IGUAL:
+                    return value.compareTo(b.init) == 0;
+                default:
+                    return false;
+            }
+    }
+    
+    /**
+     * ENGLISH<br>
+     * Tests a column of values at once, marking in result the ones that pass.
+     * The loop has no calls or branches per method, so the JIT can vectorize it.<br><br>
+     * PORTUGUÊS<br>
+     * Testa uma coluna de valores de uma só vez, marcando em result os que
+     * passam. O laço não tem chamadas nem desvios por método, de modo que o JIT
+     * pode vetorizá-lo.
+     * @param column Values.<br>
+     * Valores.
+     * @param length Number of values.<br>
+     * Quantidade de valores.
+     * @param result Mark of each value.<br>
+     * Marcação de cada valor.
+     * @return Number of values that passed.<br>
+     * Quantidade de valores aprovados.
+     */
+    public int filter(double[] column, int length, boolean[] result){
+        double low;
+        double high;
+        switch (this.method) {
+            case ENTRE:
+                low = init;
+                high = end;
+                break;
+            case MENOR:
+                low = Double.NEGATIVE_INFINITY;
+                high = Math.nextDown(init);
+                break;
+            case MAIOR:
+                low = Math.nextUp(init);
+                high = Double.POSITIVE_INFINITY;
+                break;
+            case IGUAL:
+                low = init;
+                high = init;
+                break;
+            default:
+                low = 1;
+                high = 0;
+        }
+        int count = 0;
+        for(int i = 0; i < length; i++) {
+            boolean hit = column[i] >= low & column[i] <= high;
+            result[i] = hit;
+            count += hit ? 1 : 0;
+        }
+        return count;
+    }
+    
+    /**
+     * ENGLISH<br>
+     * Tests a column of integers at once, marking in result the ones that pass.<br><br>
+     * PORTUGUÊS<br>
+     * Testa uma coluna de inteiros de uma só vez, marcando em result os que
+     * passam.
+     * @param column Values.<br>
+     * Valores.
+     * @param length Number of values.<br>
+     * Quantidade de valores.
+     * @param result Mark of each value.<br>
+     * Marcação de cada valor.
+     * @return Number of values that passed.<br>
+     * Quantidade de valores aprovados.
+     */
+    public int filter(long[] column, int length, boolean[] result){
+        Bounds b = bounds();
+        if(!b.exact) {
+            int count = 0;
+            for(int i = 0; i < length; i++) {
+                result[i] = test((double) column[i]);
+                count += result[i] ? 1 : 0;
+            }
+            return count;
+        }
+        long low = b.low;
+        long high = b.high;
+        int count = 0;
+        for(int i = 0; i < length; i++) {
+            boolean hit = column[i] >= low & column[i] <= high;
+            result[i] = hit;
+            count += hit ? 1 : 0;
+        }
+        return count;
+    }
+    
+    /**
+     * Limites exatos do filtro, calculados uma única vez a partir dos
+     * parâmetros.
+     */
+    private Bounds bounds() {
+        Bounds current = bounds;
+        if(current == null) {
+            current = new Bounds(method, init, end);
+            bounds = current;
+        }
+        return current;
+    }
+    
+    /**
+     * Forma de leitura do campo numa classe.
+     */
+    private static final class Resolved {
+        final Class<?> owner;
+        final EntityMetadata.Accessor accessor;
+        final int kind;
+
+        Resolved(Class<?> owner, EntityMetadata.Accessor accessor, int kind) {
+            this.owner = owner;
+            this.accessor = accessor;
+            this.kind = kind;
+        }
+    }
+    
+    /**
+     * Parâmetros do filtro como BigDecimal e o intervalo de inteiros
+     * [low, high] que passa no teste. Parâmetros infinitos ou NaN não têm
+     * forma exata e usam a comparação em double.
+     */
+    private static final class Bounds {
+        final boolean exact;
+        final BigDecimal init;
+        final BigDecimal end;
+        final long low;
+        final long high;
+
+        Bounds(int method, double init, double end) {
+            this.exact = Double.isFinite(init) && Double.isFinite(end);
+            if(!exact) {
+                this.init = null;
+                this.end = null;
+                this.low = 1;
+                this.high = 0;
+                return;
+            }
+            this.init = BigDecimal.valueOf(init);
+            this.end = BigDecimal.valueOf(end);
+            BigDecimal low;
+            BigDecimal high;
+            switch (method) {
+                case ENTRE:
+                    low = this.init.setScale(0, RoundingMode.CEILING);
+                    high = this.end.setScale(0, RoundingMode.FLOOR);
+                    break;
+                case MENOR:
+                    low = null;
+                    high = this.init.setScale(0, RoundingMode.CEILING).subtract(BigDecimal.ONE);
+                    break;
+                case MAIOR:
+                    low = this.init.setScale(0, RoundingMode.FLOOR).add(BigDecimal.ONE);
+                    high = null;
+                    break;
+                case IGUAL:
+                    boolean integral = this.init.stripTrailingZeros().scale() <= 0;
+                    low = integral ? this.init : BigDecimal.ONE;
+                    high = integral ? this.init : BigDecimal.ZERO;
+                    break;
+                default:
+                    low = BigDecimal.ONE;
+                    high = BigDecimal.ZERO;
+            }
+            if((low != null && low.compareTo(MAX) > 0) || (high != null && high.compareTo(MIN) < 0)) {
+                this.low = 1;
+                this.high = 0;
+            } else {
+                this.low = low == null || low.compareTo(MIN) < 0 ? Long.MIN_VALUE : low.longValueExact();
+                this.high = high == null || high.compareTo(MAX) > 0 ? Long.MAX_VALUE : high.longValueExact();
+            }
+        }
+        
+        private static final BigDecimal MIN = BigDecimal.valueOf(Long.MIN_VALUE);
+        private static final BigDecimal MAX = BigDecimal.valueOf(Long.MAX_VALUE);
+    }
+    
     /**
      * Returns the number of the method that the filter was created.<br>
      * Retorna o número do método que o filtro foi criado.
@@ -278,6 +538,46 @@ public class NumberFilter implements FilterCondition{
         return end;
     }
     
+    @Override
+    public double selectivity(Class clazz) {
+        return method == IGUAL ? Statistics.equalSelectivity(clazz, field) : Statistics.RANGE_SELECTIVITY;
+    }
+    
+    /**
+     * Usa o índice do campo apenas quando ele é numérico, já que campos de
+     * texto também são aceitos pelo filtro e ficam com chaves de texto.
+     */
+    @Override
+    public Set<String> lookup(Class clazz) {
+        FieldIndex index = IndexManager.get(clazz, field);
+        if(index == null) return null;
+        EntityMetadata.Accessor accessor = EntityMetadata.of(clazz).get(field);
+        Class type = accessor == null ? null : accessor.type;
+        if(type == null || !(Reflection.isNumerical(type) || (type.isPrimitive() && type != boolean.class && type != char.class))) {
+            return null;
+        }
+        if(!index.isSorted() && this.method != IGUAL) {
+            // Sem índice ordenado, todas as chaves distintas são testadas de
+            // uma vez sobre a coluna do índice.
+            FieldIndex.Column column = index.column();
+            boolean[] selected = new boolean[column.length];
+            filter(column.values, column.length, selected);
+            return index.ids(column.keys, selected, column.length);
+        }
+        switch (this.method) {
+            case ENTRE:
+                return index.range(init, true, end, true);
+            case MENOR:
+                return index.range(null, false, init, false);
+            case MAIOR:
+                return index.range(init, false, null, false);
+            case IGUAL:
+                return index.equal(init);
+            default:
+                return null;
+        }
+    }
+    
     /**
      * Name of the field to be checked.<br>
      * Nome do campo que será verificado.
@@ -23,7 +23,13 @@
  */
 package br.com.jhondbs.core.db.filter;
 
+import br.com.jhondbs.core.db.index.FieldIndex;
+import br.com.jhondbs.core.db.index.IndexManager;
+import br.com.jhondbs.core.db.index.Statistics;
+import br.com.jhondbs.core.db.index.TextIndex;
 import br.com.jhondbs.core.tools.FieldsManager;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import br.com.jhondbs.core.db.interfaces.Entity;
@@ -39,11 +45,13 @@ public class StringFilter implements FilterCondition{
     public static final int POSSUI = 1;
     public static final int COMECA = 2;
     public static final int TERMINA = 3;
+    public static final int PALAVRA = 4;
     
     public static final int EQUALS = 0;
     public static final int CONTAINS = 1;
     public static final int STARTS = 2;
     public static final int ENDS = 3;
+    public static final int WORD = 4;
     
     private final int method;
     private final String field;
@@ -85,7 +93,7 @@ public class StringFilter implements FilterCondition{
         this.method = 0;
         this.field = field;
         if(ignore_case){
-            this.parameter = value.toUpperCase();
+            this.parameter = TextIndex.fold(value);
         } else {
             this.parameter = value;
         }
@@ -94,15 +102,15 @@ public class StringFilter implements FilterCondition{
     
     /**
      * Creates a filter that will check if the entity's field has a value that
-     * matches the filter's creation parameter. It can be HAS, STARTS or ENDS.
+     * matches the filter's creation parameter. It can be HAS, STARTS, ENDS or WORD.
      * <br><br>
      * Cria um filtro que verificará se o campo da entidade tem um valor que
-     * coincida com o parâmetro da criação do filtro.Podendo ser POSSUI, COMEÇA
-     * ou TERMINA.
+     * coincida com o parâmetro da criação do filtro.Podendo ser POSSUI, COMEÇA,
+     * TERMINA ou PALAVRA.
      * @param method Used for filtering, it can be a search of the types
-     * Starts with, Ends with or Contains.<br><br>
+     * Starts with, Ends with, Contains or Has the word.<br><br>
      * Usado pra a filtragem, podendo ser uma busca dos tipos
-     * Começa com, Termina com ou Contém.
+     * Começa com, Termina com, Contém ou Tem a palavra.
      * @param field Name of the variable to be checked.<br>
      * Nome da variável que será verificada.
      * @param value Value that will be searched in the variable.<br>
@@ -117,15 +125,15 @@ public class StringFilter implements FilterCondition{
     
     /**
      * Creates a filter that will check if the entity's field has a value that
-     * matches the filter's creation parameter. It can be HAS, STARTS or ENDS.
+     * matches the filter's creation parameter. It can be HAS, STARTS, ENDS or WORD.
      * <br><br>
      * Cria um filtro que verificará se o campo da entidade tem um valor que
-     * coincida com o parâmetro da criação do filtro.Podendo ser POSSUI, COMEÇA
-     * ou TERMINA.
+     * coincida com o parâmetro da criação do filtro.Podendo ser POSSUI, COMEÇA,
+     * TERMINA ou PALAVRA.
      * @param method Used for filtering, it can be a search of the types
-     * Starts with, Ends with or Contains.<br><br>
+     * Starts with, Ends with, Contains or Has the word.<br><br>
      * Usado pra a filtragem, podendo ser uma busca dos tipos
-     * Começa com, Termina com ou Contém.
+     * Começa com, Termina com, Contém ou Tem a palavra.
      * @param field Name of the variable to be checked.<br>
      * Nome da variável que será verificada.
      * @param value Value that will be searched in the variable.<br>
@@ -137,7 +145,7 @@ public class StringFilter implements FilterCondition{
         this.method = method;
         this.field = field;
         if(ignore_case){
-            this.parameter = value.toUpperCase();
+            this.parameter = TextIndex.fold(value);
         } else {
             this.parameter = value;
         }
@@ -159,31 +167,93 @@ public class StringFilter implements FilterCondition{
     @Override
     public boolean filter(Entity entity) {
         try {
-            String value = (String) FieldsManager.getValueFrom(field, entity);
-            if(value != null){
-                if(this.ignore_case){
-                    value = value.toUpperCase();
-                }
-                switch (method) {
-                    case IGUAL:
-                        return value.equals(parameter);
-                    case POSSUI:
-                        return value.contains(parameter);
-                    case COMECA:
-                        return value.startsWith(parameter);
-                    case TERMINA:
-                        return value.endsWith(parameter);
-                    default:
-                        break;
-                }
-            }
-            
+            return accept((String) FieldsManager.getValueFrom(field, entity));
         } catch (IllegalArgumentException | IllegalAccessException | NoSuchFieldException  ex) {
             Logger.getLogger(StringFilter.class.getName()).log(Level.SEVERE, null, ex);
         }
         return false;
     }
     
+    @Override
+    public Set<String> fields() {
+        return Set.of(field);
+    }
+    
+    @Override
+    public boolean filterValues(Map<String, Object> values) {
+        return accept((String) values.get(field));
+    }
+    
+    private boolean accept(String value) {
+        if(value != null){
+            if(this.ignore_case){
+                value = TextIndex.fold(value);
+            }
+            switch (method) {
+                case IGUAL:
+                    return value.equals(parameter);
+                case POSSUI:
+                    return value.contains(parameter);
+                case COMECA:
+                    return value.startsWith(parameter);
+                case TERMINA:
+                    return value.endsWith(parameter);
+                case PALAVRA:
+                    return TextIndex.words(value).contains(parameter);
+                default:
+                    break;
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public double selectivity(Class clazz) {
+        return method == IGUAL ? Statistics.equalSelectivity(clazz, field) : Statistics.TEXT_SELECTIVITY;
+    }
+    
+    @Override
+    public Set<String> lookup(Class clazz) {
+        FieldIndex index = IndexManager.get(clazz, field);
+        TextIndex text = IndexManager.text(clazz, field);
+        // A igualdade exata fica com o índice comum, que não traz ids a mais.
+        if(text != null && (index == null || ignore_case || method != IGUAL)) {
+            switch (method) {
+                case IGUAL:
+                    return text.equal(parameter);
+                case POSSUI:
+                    return text.contains(parameter);
+                case COMECA:
+                    return text.startsWith(parameter);
+                case TERMINA:
+                    return text.endsWith(parameter);
+                case PALAVRA:
+                    return text.word(parameter);
+                default:
+                    return null;
+            }
+        }
+        if(index == null) return null;
+        switch (method) {
+            case IGUAL:
+                return ignore_case ? index.matching(key -> text(key).equals(parameter)) : index.equal(parameter);
+            case POSSUI:
+                return index.matching(key -> text(key).contains(parameter));
+            case COMECA:
+                return ignore_case ? index.matching(key -> text(key).startsWith(parameter)) : index.startsWith(parameter);
+            case TERMINA:
+                return index.matching(key -> text(key).endsWith(parameter));
+            case PALAVRA:
+                return index.matching(key -> TextIndex.words(text(key)).contains(parameter));
+            default:
+                return null;
+        }
+    }
+    
+    private String text(Comparable key) {
+        return ignore_case ? TextIndex.fold(key.toString()) : key.toString();
+    }
+    
     /**
      * Returns the number of the method that the filter was created.<br>
      * Retorna o número do método que o filtro foi criado.
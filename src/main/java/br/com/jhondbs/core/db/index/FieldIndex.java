@@ -0,0 +1,468 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Índice persistente de um campo de uma classe de entidade.
+ * Mantém o mapa de valor para ids (hash, para igualdade), opcionalmente o mesmo
+ * mapa ordenado (para intervalos) e o mapa reverso de id para valor, usado
+ * para retirar o valor antigo quando a entidade muda.
+ * Em disco é um diário de apenas acréscimo com as inclusões e remoções,
+ * reescrito em forma compacta quando o número de entradas mortas fica grande.
+ * O diário só é forçado no disco em sync (ver IndexManager.sync); a
+ * compactação força o arquivo novo antes de substituir o antigo.
+ * @author jhones
+ */
+public final class FieldIndex {
+    
+    private static final Logger LOGGER = Logger.getLogger(FieldIndex.class.getName());
+    
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final byte TEXT = 0;
+    private static final byte DECIMAL = 1;
+    
+    /**
+     * O diário é compactado quando tem mais que este fator vezes o número de
+     * entradas vivas.
+     */
+    public static int COMPACTION_FACTOR = 4;
+    
+    private final String field;
+    private final boolean sorted;
+    private final File file;
+    
+    private final ConcurrentHashMap<String, Comparable> values = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Comparable, Set<String>> hash = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Comparable, Set<String>> ordered;
+    
+    private final Listener listener;
+    
+    private DataOutputStream journal;
+    private FileOutputStream journalFile;
+    private long entries;
+    private volatile Column column;
+
+    FieldIndex(String field, boolean sorted, File file) {
+        this(field, sorted, file, null);
+    }
+    
+    FieldIndex(String field, boolean sorted, File file, Listener listener) {
+        this.field = field;
+        this.sorted = sorted;
+        this.file = file;
+        this.ordered = sorted ? new ConcurrentSkipListMap<>(IndexKeys.COMPARATOR) : null;
+        this.listener = listener;
+    }
+    
+    /**
+     * Recebe cada troca de valor do índice, na carga do diário, na montagem e
+     * nas atualizações, sempre com a trava do índice. Usado por estruturas
+     * derivadas dos valores, como o TextIndex.
+     */
+    interface Listener {
+        void changed(String id, Comparable old, Comparable key);
+    }
+    
+    public String getField() {
+        return field;
+    }
+    
+    public boolean isSorted() {
+        return sorted;
+    }
+    
+    /**
+     * Verifica se o diário já existe em disco.
+     */
+    boolean exists() {
+        return file.exists();
+    }
+    
+    /**
+     * Carrega o diário do disco. Um final incompleto é descartado na
+     * compactação que vem em seguida.
+     */
+    synchronized void load() throws IOException {
+        boolean broken = false;
+        if(file.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                while(true) {
+                    byte op;
+                    try {
+                        op = in.readByte();
+                    } catch (EOFException ex) {
+                        break;
+                    }
+                    String id = readText(in);
+                    if(op == PUT) {
+                        index(id, readKey(in));
+                    } else {
+                        index(id, null);
+                    }
+                    entries++;
+                }
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Diário de índice incompleto: " + file, ex);
+                broken = true;
+            }
+        }
+        if(broken || entries > (long) COMPACTION_FACTOR * values.size() + 1024) {
+            compact();
+        } else {
+            openJournal();
+        }
+    }
+    
+    /**
+     * Monta o índice a partir dos valores atuais de todas as entidades e grava
+     * o diário de uma só vez.
+     */
+    synchronized void build(Map<String, Comparable> initial) throws IOException {
+        initial.forEach(this::index);
+        compact();
+    }
+    
+    /**
+     * Atualiza o valor de uma entidade no índice.
+     * @param id
+     * @param key Nova chave, ou nulo para retirar a entidade do índice.
+     * @return Verdadeiro se o índice mudou.
+     * @throws IOException 
+     */
+    synchronized boolean put(String id, Comparable key) throws IOException {
+        Comparable old = values.get(id);
+        if(Objects.equals(old, key)) return false;
+        index(id, key);
+        journal.writeByte(key == null ? REMOVE : PUT);
+        writeText(journal, id);
+        if(key != null) writeKey(journal, key);
+        entries++;
+        return true;
+    }
+    
+    /**
+     * Grava no disco as alterações pendentes e compacta o diário se preciso.
+     * @throws IOException 
+     */
+    synchronized void flush() throws IOException {
+        journal.flush();
+        if(entries > (long) COMPACTION_FACTOR * values.size() + 1024) {
+            compact();
+        }
+    }
+    
+    /**
+     * Força o diário no disco.
+     * @throws IOException 
+     */
+    synchronized void sync() throws IOException {
+        if(journal == null) return;
+        journal.flush();
+        journalFile.getChannel().force(false);
+    }
+    
+    synchronized void close() throws IOException {
+        if(journal != null) {
+            journal.close();
+            journal = null;
+            journalFile = null;
+        }
+    }
+    
+    private void index(String id, Comparable key) {
+        column = null;
+        Comparable old = key == null ? values.remove(id) : values.put(id, key);
+        if(old != null) {
+            unlink(hash, old, id);
+            if(sorted) unlink(ordered, old, id);
+        }
+        if(key != null) {
+            hash.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+            if(sorted) ordered.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        if(listener != null) listener.changed(id, old, key);
+    }
+    
+    private static void unlink(Map<Comparable, Set<String>> map, Comparable key, String id) {
+        map.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+    
+    /**
+     * Reescreve o diário apenas com as entradas vivas.
+     */
+    private void compact() throws IOException {
+        close();
+        file.getParentFile().mkdirs();
+        File tmp = new File(file.getPath() + ".tmp");
+        FileOutputStream stream = new FileOutputStream(tmp);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            for(Map.Entry<String, Comparable> entry : values.entrySet()) {
+                out.writeByte(PUT);
+                writeText(out, entry.getKey());
+                writeKey(out, entry.getValue());
+            }
+            // O diário novo precisa estar no disco antes de substituir o antigo.
+            out.flush();
+            stream.getChannel().force(false);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        entries = values.size();
+        openJournal();
+    }
+    
+    private void openJournal() throws IOException {
+        file.getParentFile().mkdirs();
+        journalFile = new FileOutputStream(file, true);
+        journal = new DataOutputStream(new BufferedOutputStream(journalFile));
+    }
+    
+    /*
+    Consultas.
+    */
+    
+    /**
+     * Ids cujo campo é igual ao valor.
+     * @param value
+     * @return 
+     */
+    public Set<String> equal(Object value) {
+        Comparable key = IndexKeys.of(value);
+        if(key == null) return new HashSet<>();
+        return copy(hash.get(key));
+    }
+    
+    /**
+     * Ids cujo valor passa no teste. Percorre apenas os valores distintos.
+     * @param test
+     * @return 
+     */
+    public Set<String> matching(Predicate<Comparable> test) {
+        Set<String> result = new HashSet<>();
+        for(Map.Entry<Comparable, Set<String>> entry : hash.entrySet()) {
+            if(test.test(entry.getKey())) {
+                result.addAll(entry.getValue());
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Ids cujo campo está entre os limites. Um limite nulo deixa o intervalo
+     * aberto daquele lado. Sem índice ordenado, percorre os valores distintos.
+     * @param from
+     * @param fromInclusive
+     * @param to
+     * @param toInclusive
+     * @return 
+     */
+    public Set<String> range(Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+        Comparable low = IndexKeys.of(from);
+        Comparable high = IndexKeys.of(to);
+        if(!sorted) {
+            return matching(key -> (low == null || compare(key, low, fromInclusive) >= 0)
+                    && (high == null || compare(high, key, toInclusive) >= 0));
+        }
+        NavigableMap<Comparable, Set<String>> sub = ordered;
+        if(low != null) sub = sub.tailMap(low, fromInclusive);
+        if(high != null) sub = sub.headMap(high, toInclusive);
+        Set<String> result = new HashSet<>();
+        sub.values().forEach(result::addAll);
+        return result;
+    }
+    
+    private static int compare(Comparable a, Comparable b, boolean inclusive) {
+        int c = IndexKeys.COMPARATOR.compare(a, b);
+        return c == 0 && !inclusive ? -1 : c;
+    }
+    
+    /**
+     * Ids cujo texto começa com o prefixo. Usa o índice ordenado se existir.
+     * @param prefix
+     * @return 
+     */
+    public Set<String> startsWith(String prefix) {
+        if(!sorted) {
+            return matching(key -> key.toString().startsWith(prefix));
+        }
+        Set<String> result = new HashSet<>();
+        for(Map.Entry<Comparable, Set<String>> entry : ordered.tailMap(prefix, true).entrySet()) {
+            if(!(entry.getKey() instanceof String text) || !text.startsWith(prefix)) break;
+            result.addAll(entry.getValue());
+        }
+        return result;
+    }
+    
+    /**
+     * Valor indexado de uma entidade.
+     * @param id
+     * @return 
+     */
+    public Comparable valueOf(String id) {
+        return values.get(id);
+    }
+    
+    /**
+     * Número de entidades no índice.
+     * @return 
+     */
+    public int size() {
+        return values.size();
+    }
+    
+    /**
+     * Número de valores distintos no índice.
+     * @return 
+     */
+    public int distinct() {
+        return hash.size();
+    }
+    
+    /**
+     * Chaves numéricas distintas do índice, com os seus valores em double
+     * lado a lado num vetor, para filtros que testam todas as chaves de uma
+     * vez. Montada no primeiro uso depois de cada alteração do índice.
+     */
+    public static final class Column {
+        public final Comparable[] keys;
+        public final double[] values;
+        public final int length;
+
+        private Column(Comparable[] keys, double[] values, int length) {
+            this.keys = keys;
+            this.values = values;
+            this.length = length;
+        }
+    }
+    
+    /**
+     * Coluna das chaves numéricas do índice. Chaves de texto ficam de fora.
+     * @return 
+     */
+    public Column column() {
+        Column current = column;
+        if(current != null) return current;
+        // As alterações do índice também acontecem com a trava do índice.
+        synchronized (this) {
+            if(column == null) {
+                Comparable[] keys = new Comparable[hash.size()];
+                double[] numbers = new double[keys.length];
+                int length = 0;
+                for(Comparable key : hash.keySet()) {
+                    if(key instanceof BigDecimal decimal) {
+                        keys[length] = key;
+                        numbers[length++] = decimal.doubleValue();
+                    }
+                }
+                column = new Column(keys, numbers, length);
+            }
+            return column;
+        }
+    }
+    
+    /**
+     * Ids das chaves marcadas.
+     * @param keys Chaves do índice.
+     * @param selected Marcação de cada chave.
+     * @param length Quantidade de chaves.
+     * @return 
+     */
+    public Set<String> ids(Comparable[] keys, boolean[] selected, int length) {
+        Set<String> result = new HashSet<>();
+        for(int i = 0; i < length; i++) {
+            if(selected[i]) {
+                Set<String> ids = hash.get(keys[i]);
+                if(ids != null) result.addAll(ids);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Ids de todas as entidades no índice.
+     * @return 
+     */
+    public Set<String> ids() {
+        return new HashSet<>(values.keySet());
+    }
+    
+    private static Set<String> copy(Set<String> ids) {
+        return ids == null ? new HashSet<>() : new HashSet<>(ids);
+    }
+    
+    /*
+    Serialização.
+    */
+    
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static String readText(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static void writeKey(DataOutputStream out, Comparable key) throws IOException {
+        out.writeByte(key instanceof BigDecimal ? DECIMAL : TEXT);
+        writeText(out, key.toString());
+    }
+    
+    private static Comparable readKey(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        String text = readText(in);
+        return type == DECIMAL ? new BigDecimal(text) : text;
+    }
+    
+}
@@ -0,0 +1,130 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.index;
+
+import br.com.jhondbs.core.db.capsule.Reader;
+import br.com.jhondbs.core.db.interfaces.Entity;
+import br.com.jhondbs.core.tools.ClassDictionary;
+import br.com.jhondbs.core.tools.Reflection;
+import java.math.BigDecimal;
+import java.util.Comparator;
+
+/**
+ * Converte valores de campos em chaves de índice.
+ * A mesma chave precisa sair tanto do valor em memória, usado nas consultas,
+ * quanto da cápsula gravada no registro, usada na manutenção dos índices.
+ * Números viram o BigDecimal do seu valor em double, a mesma precisão usada
+ * pelo NumberFilter, para que 20, 20L e 20.0 caiam na mesma chave e a ordem
+ * das chaves seja a mesma das comparações do filtro; entidades viram o seu id;
+ * todo o resto vira texto.
+ * @author jhones
+ */
+public final class IndexKeys {
+    
+    /**
+     * Ordena números antes de textos quando um campo mistura os dois.
+     */
+    public static final Comparator<Comparable> COMPARATOR = (a, b) -> {
+        if(a.getClass() == b.getClass()) {
+            return a.compareTo(b);
+        }
+        return a instanceof BigDecimal ? -1 : 1;
+    };
+
+    private IndexKeys() {
+    }
+    
+    /**
+     * Chave de um valor em memória.
+     * @param value
+     * @return Chave ou nulo para valores nulos.
+     */
+    public static Comparable of(Object value) {
+        if(value == null) return null;
+        if(value instanceof Number number) {
+            BigDecimal decimal = decimal(number.doubleValue());
+            return decimal != null ? decimal : number.toString();
+        }
+        if(value instanceof Entity entity) {
+            try {
+                return entity.getId();
+            } catch (Exception ex) {
+                return null;
+            }
+        }
+        return value.toString();
+    }
+    
+    /**
+     * Chave a partir do conteúdo de uma cápsula de campo, no formato
+     * {índice da classe:valor}.
+     * @param capsule
+     * @return Chave ou nulo para campos vazios.
+     */
+    public static Comparable ofCapsule(String capsule) {
+        if(capsule == null || capsule.isEmpty() || capsule.equals("{}")) return null;
+        if(!capsule.startsWith("{") || capsule.indexOf(':') < 0) return null;
+        String value = Reader.getValueFromCapsule(capsule);
+        try {
+            Class clazz = ClassDictionary.fromIndex(Integer.parseInt(Reader.getKeyFromCapsule(capsule)));
+            if(clazz != null && Reflection.isNumerical(clazz)) {
+                double number = clazz == Float.class ? Float.parseFloat(value) : Double.parseDouble(value);
+                BigDecimal decimal = decimal(number);
+                if(decimal != null) return decimal;
+            }
+        } catch (NumberFormatException ex) {
+        }
+        return value;
+    }
+    
+    /**
+     * Chave exata de uma cápsula de campo, usada pelos índices de unicidade:
+     * o próprio texto da cápsula, com o índice da classe, sem conversões.
+     * @param capsule
+     * @return Chave ou nulo para campos vazios.
+     */
+    public static String exact(String capsule) {
+        if(capsule == null) return null;
+        String key = capsule.strip();
+        return key.isEmpty() || key.equals("{}") ? null : key;
+    }
+    
+    /**
+     * Informa se a chave de um valor em memória desse tipo é sempre igual à
+     * chave da sua cápsula gravada, permitindo buscas por igualdade direto no
+     * índice. Datas e objetos serializados têm formato próprio na cápsula.
+     * @param type Tipo declarado do campo.
+     * @return Verdadeiro para textos, booleanos e números.
+     */
+    public static boolean isExact(Class type) {
+        if(type.isPrimitive()) return type != char.class;
+        return type == String.class || type == Boolean.class || Reflection.isNumerical(type);
+    }
+    
+    private static BigDecimal decimal(double number) {
+        if(Double.isNaN(number) || Double.isInfinite(number)) return null;
+        return BigDecimal.valueOf(number).stripTrailingZeros();
+    }
+    
+}
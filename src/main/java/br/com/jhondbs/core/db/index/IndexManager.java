@@ -0,0 +1,396 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.index;
+
+import br.com.jhondbs.core.db.capsule.Bottle;
+import br.com.jhondbs.core.db.capsule.Reader;
+import br.com.jhondbs.core.db.capsule.Ref;
+import br.com.jhondbs.core.db.interfaces.Indexed;
+import br.com.jhondbs.core.db.storage.Storage;
+import br.com.jhondbs.core.db.storage.StorageManager;
+import br.com.jhondbs.core.db.storage.WriteAheadLog;
+import br.com.jhondbs.core.tools.ClassDictionary;
+import br.com.jhondbs.core.tools.EntityMetadata;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Mantém os índices dos campos anotados com @Indexed e @Unique.
+ * Os índices ficam em ./db/indexes/nome.da.Classe/campo.idx e são atualizados
+ * a partir dos registros aplicados em cada commit, tanto de gravação quanto de
+ * exclusão. Um índice que ainda não existe em disco é montado na primeira vez
+ * que a classe é usada, lendo todos os registros do armazenamento.
+ * Os índices de campos únicos (campo.unique.idx) usam como chave o texto exato
+ * da cápsula gravada e são mantidos mesmo com ENABLED desligado, já que a
+ * verificação de unicidade depende deles.
+ * Os campos @TextIndexed ganham um TextIndex (campo.text.idx), mantido da
+ * mesma forma, para as buscas de texto do StringFilter.
+ * @author jhones
+ */
+public final class IndexManager {
+    
+    private static final Logger LOGGER = Logger.getLogger(IndexManager.class.getName());
+    
+    /**
+     * Liga a manutenção e o uso dos índices de consulta (@Indexed).
+     */
+    public static boolean ENABLED = true;
+    
+    public static final String INDEX_FOLDER = "indexes/";
+    
+    private static final ConcurrentHashMap<Class, Map<String, FieldIndex>> INDEXES = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Class, Map<String, FieldIndex>> UNIQUES = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Class, Map<String, TextIndex>> TEXTS = new ConcurrentHashMap<>();
+
+    private IndexManager() {
+    }
+    
+    /**
+     * Retorna o índice de um campo ou nulo se o campo não for indexado.
+     * @param clazz
+     * @param field
+     * @return 
+     */
+    public static FieldIndex get(Class clazz, String field) {
+        if(!ENABLED || clazz == null) return null;
+        return of(clazz).get(field);
+    }
+    
+    /**
+     * Retorna todos os índices de uma classe, por nome de campo.
+     * @param clazz
+     * @return 
+     */
+    public static Map<String, FieldIndex> of(Class clazz) {
+        return open(INDEXES, clazz, c -> open(c, false));
+    }
+    
+    /**
+     * Retorna os índices dos campos únicos de uma classe, por nome de campo.
+     * As chaves são o texto exato da cápsula do campo (ver IndexKeys.exact).
+     * @param clazz
+     * @return 
+     */
+    public static Map<String, FieldIndex> uniques(Class clazz) {
+        return open(UNIQUES, clazz, c -> open(c, true));
+    }
+    
+    /**
+     * Retorna o índice de texto de um campo ou nulo se o campo não for
+     * anotado com @TextIndexed.
+     * @param clazz
+     * @param field
+     * @return 
+     */
+    public static TextIndex text(Class clazz, String field) {
+        if(!ENABLED || clazz == null) return null;
+        return texts(clazz).get(field);
+    }
+    
+    /**
+     * Retorna todos os índices de texto de uma classe, por nome de campo.
+     * @param clazz
+     * @return 
+     */
+    public static Map<String, TextIndex> texts(Class clazz) {
+        return open(TEXTS, clazz, IndexManager::openTexts);
+    }
+    
+    private static <T> Map<String, T> open(Map<Class, Map<String, T>> cache, Class clazz, Function<Class, Map<String, T>> opener) {
+        Map<String, T> indexes = cache.get(clazz);
+        if(indexes == null) {
+            synchronized (INDEXES) {
+                indexes = cache.get(clazz);
+                if(indexes == null) {
+                    indexes = opener.apply(clazz);
+                    cache.put(clazz, indexes);
+                }
+            }
+        }
+        return indexes;
+    }
+    
+    private static Map<String, FieldIndex> open(Class clazz, boolean unique) {
+        Map<String, FieldIndex> indexes = create(clazz, unique);
+        Map<String, FieldIndex> fresh = new HashMap<>();
+        for(FieldIndex index : List.copyOf(indexes.values())) {
+            try {
+                if(index.exists()) {
+                    index.load();
+                } else {
+                    fresh.put(index.getField(), index);
+                }
+            } catch (IOException ex) {
+                indexes.remove(index.getField());
+                LOGGER.log(Level.SEVERE, "Falha ao abrir o índice " + clazz.getName() + "." + index.getField(), ex);
+            }
+        }
+        if(!fresh.isEmpty()) {
+            build(clazz, List.of(new Fresh(fresh, unique ? IndexKeys::exact : IndexKeys::ofCapsule)));
+        }
+        return Collections.unmodifiableMap(indexes);
+    }
+    
+    private static Map<String, TextIndex> openTexts(Class clazz) {
+        Map<String, TextIndex> indexes = createTexts(clazz);
+        Map<String, FieldIndex> fresh = new HashMap<>();
+        for(TextIndex index : List.copyOf(indexes.values())) {
+            try {
+                if(index.store().exists()) {
+                    index.store().load();
+                } else {
+                    fresh.put(index.getField(), index.store());
+                }
+            } catch (IOException ex) {
+                indexes.remove(index.getField());
+                LOGGER.log(Level.SEVERE, "Falha ao abrir o índice de texto " + clazz.getName() + "." + index.getField(), ex);
+            }
+        }
+        if(!fresh.isEmpty()) {
+            build(clazz, List.of(new Fresh(fresh, TextIndex::key)));
+        }
+        return Collections.unmodifiableMap(indexes);
+    }
+    
+    /**
+     * Índices de consulta ou únicos de uma classe, ainda sem carregar.
+     */
+    private static Map<String, FieldIndex> create(Class clazz, boolean unique) {
+        EntityMetadata metadata = EntityMetadata.of(clazz);
+        List<EntityMetadata.Accessor> fields = unique ? metadata.uniques() : metadata.indexed();
+        Map<String, FieldIndex> indexes = new HashMap<>();
+        for(EntityMetadata.Accessor field : fields) {
+            boolean sorted = !unique && field.getAnnotation(Indexed.class).sorted();
+            String suffix = unique ? ".unique" : sorted ? ".sorted" : "";
+            indexes.put(field.name, new FieldIndex(field.name, sorted, new File(folder(clazz), field.name + suffix + ".idx")));
+        }
+        return indexes;
+    }
+    
+    /**
+     * Índices de texto de uma classe, ainda sem carregar.
+     */
+    private static Map<String, TextIndex> createTexts(Class clazz) {
+        Map<String, TextIndex> indexes = new HashMap<>();
+        for(EntityMetadata.Accessor field : EntityMetadata.of(clazz).texts()) {
+            indexes.put(field.name, new TextIndex(field.name, new File(folder(clazz), field.name + ".text.idx")));
+        }
+        return indexes;
+    }
+    
+    private static File folder(Class clazz) {
+        return new File(Bottle.ROOT_DB + INDEX_FOLDER + clazz.getName());
+    }
+    
+    /**
+     * Índices a montar de um mesmo tipo, por campo, com a função que tira a
+     * chave da cápsula do campo.
+     */
+    private static final class Fresh {
+        final Map<String, FieldIndex> indexes;
+        final Function<String, Comparable> keys;
+        final Map<String, Map<String, Comparable>> initial = new HashMap<>();
+
+        Fresh(Map<String, FieldIndex> indexes, Function<String, Comparable> keys) {
+            this.indexes = indexes;
+            this.keys = keys;
+            indexes.keySet().forEach(field -> initial.put(field, new HashMap<>()));
+        }
+    }
+    
+    /**
+     * Monta índices novos lendo todos os registros da classe uma única vez,
+     * qualquer que seja o número de índices.
+     */
+    private static void build(Class clazz, List<Fresh> groups) {
+        Storage storage = StorageManager.get();
+        int index = ClassDictionary.getIndex(clazz);
+        for(String id : storage.listIds(clazz)) {
+            try {
+                Map<String, String> fields = Reader.splitFieldsAsMap(storage.read(new Ref(id, index)).getProperty("fields"));
+                for(Fresh group : groups) {
+                    for(String field : group.indexes.keySet()) {
+                        Comparable key = group.keys.apply(fields.get(field));
+                        if(key != null) group.initial.get(field).put(id, key);
+                    }
+                }
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Registro ignorado na montagem dos índices: " + clazz.getName() + " -> " + id, ex);
+            }
+        }
+        for(Fresh group : groups) {
+            for(Map.Entry<String, FieldIndex> entry : group.indexes.entrySet()) {
+                try {
+                    entry.getValue().build(group.initial.get(entry.getKey()));
+                } catch (IOException ex) {
+                    LOGGER.log(Level.SEVERE, "Falha ao gravar o índice " + clazz.getName() + "." + entry.getKey(), ex);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Remonta do zero todos os índices de uma classe, de consulta, únicos e
+     * de texto, numa só leitura dos registros. Usado depois de cargas em
+     * massa, que gravam os registros sem manter os índices.
+     * @param clazz 
+     */
+    public static void rebuild(Class clazz) {
+        synchronized (INDEXES) {
+            close(INDEXES.remove(clazz));
+            close(UNIQUES.remove(clazz));
+            Map<String, TextIndex> old = TEXTS.remove(clazz);
+            if(old != null) {
+                old.values().forEach(text -> close(text.store()));
+            }
+            File[] files = folder(clazz).listFiles((dir, name) -> name.endsWith(".idx"));
+            if(files != null) {
+                for(File file : files) {
+                    file.delete();
+                }
+            }
+            Map<String, FieldIndex> indexes = create(clazz, false);
+            Map<String, FieldIndex> uniques = create(clazz, true);
+            Map<String, TextIndex> texts = createTexts(clazz);
+            Map<String, FieldIndex> stores = new HashMap<>();
+            texts.forEach((field, text) -> stores.put(field, text.store()));
+            build(clazz, List.of(new Fresh(indexes, IndexKeys::ofCapsule),
+                    new Fresh(uniques, IndexKeys::exact),
+                    new Fresh(stores, TextIndex::key)));
+            INDEXES.put(clazz, Collections.unmodifiableMap(indexes));
+            UNIQUES.put(clazz, Collections.unmodifiableMap(uniques));
+            TEXTS.put(clazz, Collections.unmodifiableMap(texts));
+        }
+    }
+    
+    /**
+     * Aplica nos índices as alterações de um commit.
+     * @param changes
+     * @throws IOException 
+     */
+    public static void apply(List<WriteAheadLog.Change> changes) throws IOException {
+        Set<FieldIndex> touched = new HashSet<>();
+        for(WriteAheadLog.Change change : changes) {
+            Class clazz = change.ref.recoverClass();
+            Map<String, FieldIndex> indexes = ENABLED ? of(clazz) : Collections.emptyMap();
+            Map<String, FieldIndex> uniques = uniques(clazz);
+            Map<String, TextIndex> texts = ENABLED ? texts(clazz) : Collections.emptyMap();
+            if(indexes.isEmpty() && uniques.isEmpty() && texts.isEmpty()) continue;
+            Map<String, String> fields = change.record == null ? Collections.emptyMap() : fieldsOf(change.record);
+            for(FieldIndex index : indexes.values()) {
+                if(index.put(change.ref.getKey(), IndexKeys.ofCapsule(fields.get(index.getField())))) {
+                    touched.add(index);
+                }
+            }
+            for(FieldIndex index : uniques.values()) {
+                if(index.put(change.ref.getKey(), IndexKeys.exact(fields.get(index.getField())))) {
+                    touched.add(index);
+                }
+            }
+            for(TextIndex text : texts.values()) {
+                if(text.store().put(change.ref.getKey(), TextIndex.key(fields.get(text.getField())))) {
+                    touched.add(text.store());
+                }
+            }
+        }
+        for(FieldIndex index : touched) {
+            index.flush();
+        }
+    }
+    
+    /**
+     * Força no disco os diários de todos os índices abertos: de campo, únicos
+     * e de texto. Chamado antes de o log ser zerado e nos commits sem log.
+     * @throws IOException 
+     */
+    public static void sync() throws IOException {
+        for(Map<String, FieldIndex> indexes : INDEXES.values()) {
+            for(FieldIndex index : indexes.values()) {
+                index.sync();
+            }
+        }
+        for(Map<String, FieldIndex> indexes : UNIQUES.values()) {
+            for(FieldIndex index : indexes.values()) {
+                index.sync();
+            }
+        }
+        for(Map<String, TextIndex> indexes : TEXTS.values()) {
+            for(TextIndex text : indexes.values()) {
+                text.store().sync();
+            }
+        }
+    }
+    
+    /**
+     * Campos gravados de um registro, por nome.
+     * @param record
+     * @return 
+     */
+    public static Map<String, String> fieldsOf(Properties record) {
+        String fields = record.getProperty("fields");
+        return fields == null ? Collections.emptyMap() : Reader.splitFieldsAsMap(fields);
+    }
+    
+    /**
+     * Fecha todos os índices abertos.
+     */
+    public static void close() {
+        synchronized (INDEXES) {
+            INDEXES.values().forEach(IndexManager::close);
+            UNIQUES.values().forEach(IndexManager::close);
+            for(Map<String, TextIndex> indexes : TEXTS.values()) {
+                indexes.values().forEach(text -> close(text.store()));
+            }
+            INDEXES.clear();
+            UNIQUES.clear();
+            TEXTS.clear();
+        }
+    }
+    
+    private static void close(Map<String, FieldIndex> indexes) {
+        if(indexes != null) {
+            indexes.values().forEach(IndexManager::close);
+        }
+    }
+    
+    private static void close(FieldIndex index) {
+        try {
+            index.close();
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Falha ao fechar o índice " + index.getField(), ex);
+        }
+    }
+    
+}
@@ -0,0 +1,619 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.index;
+
+import br.com.jhondbs.core.db.capsule.Bottle;
+import br.com.jhondbs.core.db.capsule.Ref;
+import br.com.jhondbs.core.db.interfaces.Entity;
+import br.com.jhondbs.core.db.storage.Storage;
+import br.com.jhondbs.core.db.storage.StorageManager;
+import br.com.jhondbs.core.db.storage.WriteAheadLog;
+import br.com.jhondbs.core.tools.ClassDictionary;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Grafo de referências entre entidades, guardado fora dos registros.
+ * Para cada entidade (alvo) mantém o conjunto das entidades relacionadas a ela
+ * (origens), o mesmo conteúdo que antes ficava na propriedade "refs" de cada
+ * registro.
+ * Os commits não gravam o conjunto inteiro: a garrafa compara as suas
+ * referências com as do grafo e deixa no registro apenas as arestas incluídas
+ * (ADDED) e retiradas (REMOVED). O VersionStore tira essas propriedades do
+ * registro antes de gravá-lo e aplica as arestas aqui depois da gravação. A
+ * exclusão de uma entidade apaga as arestas em que ela é o alvo.
+ * Em disco é um diário de apenas acréscimo em ./db/indexes/refs.graph, com os
+ * ids no formato UUID gravados em 16 bytes, reescrito em blocos por alvo
+ * quando o número de entradas mortas fica grande. O diário só é sincronizado
+ * com o disco em sync, antes de o log de escrita antecipada ser zerado ou,
+ * sem o log, a cada commit. Num banco anterior ao grafo,
+ * sem o diário, o grafo é montado uma vez a partir da propriedade "refs" dos
+ * registros.
+ * @author jhones
+ */
+public final class ReferenceGraph {
+    
+    private static final Logger LOGGER = Logger.getLogger(ReferenceGraph.class.getName());
+    
+    /**
+     * Arestas incluídas pelo commit, no registro em trânsito.
+     */
+    public static final String ADDED = "refs.added";
+    /**
+     * Arestas retiradas pelo commit, no registro em trânsito.
+     */
+    public static final String REMOVED = "refs.removed";
+    /**
+     * Conjunto completo de referências dos registros anteriores ao grafo.
+     */
+    public static final String LEGACY = "refs";
+    
+    public static final String FILE = "refs.graph";
+    
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final byte DROP = 3;
+    private static final byte BLOCK = 4;
+    
+    /**
+     * O diário é compactado quando tem mais que este fator vezes o número de
+     * arestas vivas.
+     */
+    public static int COMPACTION_FACTOR = 4;
+    
+    private static final Object LOCK = new Object();
+    private static volatile Map<Ref, Set<Ref>> edges;
+    private static DataOutputStream journal;
+    private static FileOutputStream journalFile;
+    private static long entries;
+    private static long size;
+
+    private ReferenceGraph() {
+    }
+    
+    /**
+     * Alterações de arestas de um alvo, tiradas de um registro do commit.
+     */
+    public static final class Delta {
+        private final Ref target;
+        private final boolean drop;
+        private final List<Ref> replace;
+        private final List<Ref> added;
+        private final List<Ref> removed;
+
+        private Delta(Ref target, boolean drop, List<Ref> replace, List<Ref> added, List<Ref> removed) {
+            this.target = target;
+            this.drop = drop;
+            this.replace = replace;
+            this.added = added;
+            this.removed = removed;
+        }
+    }
+    
+    /*
+    Consultas.
+    */
+    
+    /**
+     * Entidades relacionadas à entidade informada.
+     * @param target
+     * @return Cópia do conjunto de origens.
+     */
+    public static Set<Ref> sources(Ref target) {
+        Set<Ref> sources = graph().get(target);
+        return sources == null ? new HashSet<>() : new HashSet<>(sources);
+    }
+    
+    /**
+     * Entidades de uma classe relacionadas à entidade informada.
+     * @param target
+     * @param clazz Classe das origens.
+     * @return 
+     */
+    public static List<Ref> sources(Ref target, Class clazz) {
+        Set<Ref> sources = graph().get(target);
+        if(sources == null) return new ArrayList<>();
+        int index = ClassDictionary.getIndex(clazz);
+        List<Ref> list = new ArrayList<>();
+        for(Ref source : sources) {
+            if(source.getValue() == index) list.add(source);
+        }
+        return list;
+    }
+    
+    public static boolean contains(Ref target, Ref source) {
+        Set<Ref> sources = graph().get(target);
+        return sources != null && sources.contains(source);
+    }
+    
+    /**
+     * Número de entidades relacionadas à entidade informada.
+     * @param target
+     * @return 
+     */
+    public static int count(Ref target) {
+        Set<Ref> sources = graph().get(target);
+        return sources == null ? 0 : sources.size();
+    }
+    
+    /**
+     * Número total de arestas.
+     * @return 
+     */
+    public static long size() {
+        graph();
+        return size;
+    }
+    
+    /*
+    Registros em trânsito.
+    */
+    
+    /**
+     * Grava no registro as arestas que levam as origens lidas ao conjunto
+     * informado, substituindo as que o registro já tinha. A diferença é feita
+     * contra as origens lidas junto com a entidade, e não contra o grafo atual,
+     * para que arestas incluídas por outro commit nesse meio tempo não sejam
+     * retiradas.
+     * @param target
+     * @param stored Origens lidas junto com a entidade, ou nulo para usar as
+     * do grafo atual.
+     * @param wanted Conjunto completo de origens depois do commit.
+     * @param record 
+     */
+    public static void stage(Ref target, Set<Ref> stored, Set<Ref> wanted, Properties record) {
+        record.remove(LEGACY);
+        Set<Ref> current = stored != null ? stored : graph().getOrDefault(target, Collections.emptySet());
+        List<Ref> added = new ArrayList<>();
+        for(Ref source : wanted) {
+            if(!current.contains(source)) added.add(source);
+        }
+        List<Ref> removed = new ArrayList<>();
+        for(Ref source : current) {
+            if(!wanted.contains(source)) removed.add(source);
+        }
+        put(record, ADDED, added);
+        put(record, REMOVED, removed);
+    }
+    
+    /**
+     * Retira origens do registro em trânsito, ajustando as arestas que ele já
+     * tem sem consultar o grafo.
+     * @param sources
+     * @param record 
+     */
+    public static void unstage(Collection<Ref> sources, Properties record) {
+        List<Ref> added = new ArrayList<>(parse(record.getProperty(ADDED)));
+        Set<Ref> removed = new LinkedHashSet<>(parse(record.getProperty(REMOVED)));
+        for(Ref source : sources) {
+            if(!added.remove(source)) removed.add(source);
+        }
+        put(record, ADDED, added);
+        put(record, REMOVED, new ArrayList<>(removed));
+    }
+    
+    /**
+     * Origens que o alvo terá depois que o registro em trânsito for aplicado.
+     * @param target
+     * @param record
+     * @return 
+     */
+    public static Set<Ref> pending(Ref target, Properties record) {
+        Set<Ref> sources = sources(target);
+        sources.removeAll(parse(record.getProperty(REMOVED)));
+        sources.addAll(parse(record.getProperty(ADDED)));
+        return sources;
+    }
+    
+    private static void put(Properties record, String key, List<Ref> refs) {
+        if(refs.isEmpty()) {
+            record.remove(key);
+        } else {
+            record.setProperty(key, join(refs));
+        }
+    }
+    
+    public static String join(Collection<Ref> refs) {
+        StringBuilder sb = new StringBuilder();
+        for(Ref ref : refs) {
+            sb.append(ref.toString()).append("::");
+        }
+        return sb.toString();
+    }
+    
+    public static List<Ref> parse(String refs) {
+        if(refs == null || refs.isBlank()) return new ArrayList<>();
+        return Arrays.stream(refs.split("::"))
+                .filter(str -> !str.isBlank())
+                .map(Ref::new)
+                .toList();
+    }
+    
+    /*
+    Aplicação dos commits.
+    */
+    
+    /**
+     * Tira dos registros do commit as propriedades de arestas, antes de eles
+     * serem gravados.
+     * @param changes
+     * @return Alterações a aplicar com apply depois da gravação.
+     */
+    public static List<Delta> extract(List<WriteAheadLog.Change> changes) {
+        List<Delta> deltas = new ArrayList<>();
+        for(WriteAheadLog.Change change : changes) {
+            if(change.record == null) {
+                deltas.add(new Delta(change.ref, true, null, List.of(), List.of()));
+                continue;
+            }
+            Object legacy = change.record.remove(LEGACY);
+            Object added = change.record.remove(ADDED);
+            Object removed = change.record.remove(REMOVED);
+            if(legacy != null || added != null || removed != null) {
+                deltas.add(new Delta(change.ref, false,
+                        legacy == null ? null : parse(legacy.toString()),
+                        added == null ? List.of() : parse(added.toString()),
+                        removed == null ? List.of() : parse(removed.toString())));
+            }
+        }
+        return deltas;
+    }
+    
+    /**
+     * Aplica no grafo e no diário as alterações de um commit.
+     * @param deltas
+     * @throws IOException 
+     */
+    public static void apply(List<Delta> deltas) throws IOException {
+        if(deltas.isEmpty()) return;
+        Map<Ref, Set<Ref>> graph = graph();
+        synchronized (LOCK) {
+            for(Delta delta : deltas) {
+                if(delta.drop) {
+                    if(drop(graph, delta.target) && journal != null) {
+                        journal.writeByte(DROP);
+                        writeRef(journal, delta.target);
+                        entries++;
+                    }
+                    continue;
+                }
+                if(delta.replace != null) {
+                    Set<Ref> wanted = new HashSet<>(delta.replace);
+                    for(Ref source : new ArrayList<>(graph.getOrDefault(delta.target, Collections.emptySet()))) {
+                        if(!wanted.contains(source) && unlink(graph, delta.target, source)) write(REMOVE, delta.target, source);
+                    }
+                    for(Ref source : wanted) {
+                        if(link(graph, delta.target, source)) write(ADD, delta.target, source);
+                    }
+                }
+                for(Ref source : delta.removed) {
+                    if(unlink(graph, delta.target, source)) write(REMOVE, delta.target, source);
+                }
+                for(Ref source : delta.added) {
+                    if(link(graph, delta.target, source)) write(ADD, delta.target, source);
+                }
+            }
+            if(journal == null) return;
+            journal.flush();
+            if(entries > (long) COMPACTION_FACTOR * size + 1024) {
+                compact(graph);
+            }
+        }
+    }
+    
+    /**
+     * Sincroniza o diário com o disco.
+     * @throws IOException 
+     */
+    public static void sync() throws IOException {
+        synchronized (LOCK) {
+            if(journal == null) return;
+            journal.flush();
+            journalFile.getChannel().force(false);
+        }
+    }
+    
+    /**
+     * Fecha o diário. O grafo é aberto de novo no próximo uso.
+     */
+    public static void close() {
+        synchronized (LOCK) {
+            if(journal != null) {
+                try {
+                    sync();
+                    journal.close();
+                } catch (IOException ex) {
+                    LOGGER.log(Level.WARNING, "Falha ao fechar o grafo de referências", ex);
+                }
+                journal = null;
+                journalFile = null;
+            }
+            edges = null;
+            entries = 0;
+            size = 0;
+        }
+    }
+    
+    /*
+    Memória.
+    */
+    
+    private static boolean link(Map<Ref, Set<Ref>> graph, Ref target, Ref source) {
+        if(graph.computeIfAbsent(target, k -> ConcurrentHashMap.newKeySet()).add(source)) {
+            size++;
+            return true;
+        }
+        return false;
+    }
+    
+    private static boolean unlink(Map<Ref, Set<Ref>> graph, Ref target, Ref source) {
+        boolean[] removed = new boolean[1];
+        graph.computeIfPresent(target, (k, sources) -> {
+            removed[0] = sources.remove(source);
+            return sources.isEmpty() ? null : sources;
+        });
+        if(removed[0]) size--;
+        return removed[0];
+    }
+    
+    private static boolean drop(Map<Ref, Set<Ref>> graph, Ref target) {
+        Set<Ref> sources = graph.remove(target);
+        if(sources == null) return false;
+        size -= sources.size();
+        return true;
+    }
+    
+    /*
+    Disco.
+    */
+    
+    private static Map<Ref, Set<Ref>> graph() {
+        Map<Ref, Set<Ref>> graph = edges;
+        if(graph == null) {
+            synchronized (LOCK) {
+                if(edges == null) {
+                    edges = open();
+                }
+                graph = edges;
+            }
+        }
+        return graph;
+    }
+    
+    private static File file() {
+        return new File(Bottle.ROOT_DB + IndexManager.INDEX_FOLDER + FILE);
+    }
+    
+    private static Map<Ref, Set<Ref>> open() {
+        Map<Ref, Set<Ref>> graph = new ConcurrentHashMap<>();
+        entries = 0;
+        size = 0;
+        File file = file();
+        boolean rewrite = !file.exists();
+        try {
+            if(rewrite) {
+                migrate(graph);
+            } else {
+                rewrite = !load(graph, file);
+            }
+            if(rewrite || entries > (long) COMPACTION_FACTOR * size + 1024) {
+                compact(graph);
+            } else {
+                openJournal();
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Falha ao abrir o grafo de referências " + file, ex);
+        }
+        return graph;
+    }
+    
+    /**
+     * Lê o diário. Um final incompleto é descartado na compactação que vem em
+     * seguida.
+     * @return Falso se o diário estava incompleto.
+     */
+    private static boolean load(Map<Ref, Set<Ref>> graph, File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while(true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException ex) {
+                    return true;
+                }
+                Ref target = readRef(in);
+                switch (op) {
+                    case ADD -> link(graph, target, readRef(in));
+                    case REMOVE -> unlink(graph, target, readRef(in));
+                    case DROP -> drop(graph, target);
+                    case BLOCK -> {
+                        int count = readVarint(in);
+                        for(int i = 0; i < count; i++) {
+                            link(graph, target, readRef(in));
+                        }
+                        entries += count - 1;
+                    }
+                    default -> throw new IOException("Operação desconhecida no grafo: " + op);
+                }
+                entries++;
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Diário do grafo de referências incompleto: " + file, ex);
+            return false;
+        }
+    }
+    
+    /**
+     * Monta o grafo a partir da propriedade "refs" dos registros gravados.
+     */
+    private static void migrate(Map<Ref, Set<Ref>> graph) {
+        Storage storage = StorageManager.get();
+        int classes = ClassDictionary.get().size();
+        for(int index = 0; index < classes; index++) {
+            Class clazz = ClassDictionary.fromIndex(index);
+            if(clazz == null || !Entity.class.isAssignableFrom(clazz)) continue;
+            for(String id : storage.listIds(clazz)) {
+                Ref target = new Ref(id, index);
+                try {
+                    for(Ref source : parse(storage.read(target).getProperty(LEGACY))) {
+                        link(graph, target, source);
+                    }
+                } catch (IOException ex) {
+                    LOGGER.log(Level.WARNING, "Registro ignorado na montagem do grafo de referências: " + target, ex);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Reescreve o diário com um bloco por alvo.
+     */
+    private static void compact(Map<Ref, Set<Ref>> graph) throws IOException {
+        if(journal != null) {
+            journal.close();
+            journal = null;
+            journalFile = null;
+        }
+        File file = file();
+        file.getParentFile().mkdirs();
+        File tmp = new File(file.getPath() + ".tmp");
+        FileOutputStream stream = new FileOutputStream(tmp);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            for(Map.Entry<Ref, Set<Ref>> entry : graph.entrySet()) {
+                List<Ref> sources = new ArrayList<>(entry.getValue());
+                out.writeByte(BLOCK);
+                writeRef(out, entry.getKey());
+                writeVarint(out, sources.size());
+                for(Ref source : sources) {
+                    writeRef(out, source);
+                }
+            }
+            // O diário novo precisa estar no disco antes de substituir o antigo.
+            out.flush();
+            stream.getChannel().force(false);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        entries = size;
+        openJournal();
+    }
+    
+    private static void openJournal() throws IOException {
+        File file = file();
+        file.getParentFile().mkdirs();
+        journalFile = new FileOutputStream(file, true);
+        journal = new DataOutputStream(new BufferedOutputStream(journalFile));
+    }
+    
+    private static void write(byte op, Ref target, Ref source) throws IOException {
+        if(journal == null) return;
+        journal.writeByte(op);
+        writeRef(journal, target);
+        writeRef(journal, source);
+        entries++;
+    }
+    
+    /*
+    Serialização: varint(índice da classe * 2 + texto) seguido do id em 16
+    bytes, quando é um UUID, ou em texto.
+    */
+    
+    private static void writeRef(DataOutputStream out, Ref ref) throws IOException {
+        UUID uuid = uuidOf(ref.getKey());
+        writeVarint(out, ref.getValue() << 1 | (uuid == null ? 1 : 0));
+        if(uuid != null) {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        } else {
+            byte[] bytes = ref.getKey().getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length);
+            out.write(bytes);
+        }
+    }
+    
+    private static Ref readRef(DataInputStream in) throws IOException {
+        int header = readVarint(in);
+        String id;
+        if((header & 1) == 0) {
+            id = new UUID(in.readLong(), in.readLong()).toString();
+        } else {
+            byte[] bytes = new byte[readVarint(in)];
+            in.readFully(bytes);
+            id = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new Ref(id, header >>> 1);
+    }
+    
+    private static UUID uuidOf(String id) {
+        if(id.length() != 36) return null;
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+    
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+    
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for(int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Varint inválido no grafo de referências");
+    }
+    
+}
@@ -0,0 +1,121 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.index;
+
+import br.com.jhondbs.core.db.storage.StorageManager;
+import br.com.jhondbs.core.db.storage.WriteAheadLog;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estatísticas de cardinalidade usadas pelo planejador de consultas: o número
+ * de entidades de cada classe e o número de valores distintos dos campos
+ * indexados. A contagem de uma classe é feita na primeira consulta e depois
+ * mantida pelos commits; os valores distintos vêm dos próprios índices, que
+ * os commits também mantêm. São estimativas, não valores exatos.
+ * @author jhones
+ */
+public final class Statistics {
+    
+    /**
+     * Seletividade de uma condição sobre a qual nada se sabe.
+     */
+    public static double DEFAULT_SELECTIVITY = 0.5;
+    
+    /**
+     * Seletividade de uma igualdade num campo sem índice.
+     */
+    public static double EQUAL_SELECTIVITY = 0.1;
+    
+    /**
+     * Seletividade de uma comparação de intervalo.
+     */
+    public static double RANGE_SELECTIVITY = 1d / 3;
+    
+    /**
+     * Seletividade de uma busca por parte de um texto.
+     */
+    public static double TEXT_SELECTIVITY = 0.25;
+    
+    private static final ConcurrentHashMap<Class, AtomicLong> ROWS = new ConcurrentHashMap<>();
+
+    private Statistics() {
+    }
+    
+    /**
+     * Número estimado de entidades da classe.
+     * @param clazz
+     * @return 
+     */
+    public static long rows(Class clazz) {
+        return ROWS.computeIfAbsent(clazz, c -> new AtomicLong(StorageManager.get().listIds(c).size())).get();
+    }
+    
+    /**
+     * Número de valores distintos do campo, ou -1 se o campo não for indexado.
+     * @param clazz
+     * @param field
+     * @return 
+     */
+    public static int distinct(Class clazz, String field) {
+        FieldIndex index = IndexManager.get(clazz, field);
+        return index == null ? -1 : index.distinct();
+    }
+    
+    /**
+     * Fração estimada das entidades com um dado valor no campo: um sobre o
+     * número de valores distintos quando o campo é indexado.
+     * @param clazz
+     * @param field
+     * @return 
+     */
+    public static double equalSelectivity(Class clazz, String field) {
+        int distinct = distinct(clazz, field);
+        return distinct > 0 ? 1d / distinct : EQUAL_SELECTIVITY;
+    }
+    
+    /**
+     * Atualiza a contagem das classes com uma alteração de um commit. Classes
+     * ainda não contadas são ignoradas.
+     * @param change Alteração aplicada.
+     * @param existed Se a entidade existia antes do commit.
+     */
+    public static void apply(WriteAheadLog.Change change, boolean existed) {
+        boolean exists = change.record != null;
+        if(exists == existed) return;
+        Class clazz = change.ref.recoverClass();
+        AtomicLong rows = clazz == null ? null : ROWS.get(clazz);
+        if(rows != null) {
+            rows.addAndGet(exists ? 1 : -1);
+        }
+    }
+    
+    /**
+     * Descarta as contagens, para que sejam refeitas na próxima consulta.
+     */
+    public static void clear() {
+        ROWS.clear();
+    }
+    
+}
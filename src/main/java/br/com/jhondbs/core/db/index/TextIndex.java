@@ -0,0 +1,256 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.index;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Índice de texto persistente de um campo String anotado com @TextIndexed.
+ * Guarda o valor de cada entidade em maiúsculas (ver fold) num FieldIndex
+ * ordenado, que já responde igualdade e prefixo, e mantém a partir dele, em
+ * memória, os trigramas de cada valor (para contém), o mapa ordenado dos
+ * valores invertidos (para sufixo) e as palavras de cada valor.
+ * Como os valores são guardados em maiúsculas, as buscas devolvem os ids que
+ * passam no teste sem diferença de maiúsculas, que é o mesmo que ou um pouco
+ * mais que os ids que passam no teste exato; o teste completo do filtro ainda
+ * é aplicado depois.
+ * Em disco fica só o diário do FieldIndex (campo.text.idx); as estruturas
+ * derivadas são refeitas na carga.
+ * @author jhones
+ */
+public final class TextIndex implements FieldIndex.Listener {
+    
+    /**
+     * Tamanho dos trigramas.
+     */
+    public static final int GRAM = 3;
+    
+    private final FieldIndex store;
+    private final ConcurrentHashMap<String, Set<String>> grams = new ConcurrentHashMap<>();
+    private final Set<String> shorts = ConcurrentHashMap.newKeySet();
+    private final ConcurrentSkipListMap<String, Set<String>> reversed = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, Set<String>> words = new ConcurrentHashMap<>();
+
+    TextIndex(String field, File file) {
+        this.store = new FieldIndex(field, true, file, this);
+    }
+    
+    public String getField() {
+        return store.getField();
+    }
+    
+    /**
+     * Diário onde ficam os valores do índice.
+     */
+    FieldIndex store() {
+        return store;
+    }
+    
+    /**
+     * Forma sem diferença de maiúsculas de um texto, a mesma usada pelo
+     * StringFilter quando ignora maiúsculas.
+     * @param text
+     * @return 
+     */
+    public static String fold(String text) {
+        return text.toUpperCase(Locale.ROOT);
+    }
+    
+    /**
+     * Chave do índice a partir da cápsula gravada do campo.
+     * @param capsule
+     * @return Texto em maiúsculas ou nulo para campos vazios.
+     */
+    public static Comparable key(String capsule) {
+        Comparable key = IndexKeys.ofCapsule(capsule);
+        return key == null ? null : fold(key.toString());
+    }
+    
+    /**
+     * Palavras de um texto: os trechos de letras e dígitos.
+     * @param text
+     * @return 
+     */
+    public static Set<String> words(String text) {
+        Set<String> result = new HashSet<>();
+        int start = -1;
+        for(int i = 0; i <= text.length(); i++) {
+            boolean part = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if(part && start < 0) {
+                start = i;
+            } else if(!part && start >= 0) {
+                result.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public void changed(String id, Comparable old, Comparable key) {
+        if(old != null) {
+            String text = old.toString();
+            if(text.length() < GRAM) shorts.remove(id);
+            for(int i = 0; i + GRAM <= text.length(); i++) {
+                unlink(grams, text.substring(i, i + GRAM), id);
+            }
+            unlink(reversed, reverse(text), id);
+            for(String word : words(text)) {
+                unlink(words, word, id);
+            }
+        }
+        if(key != null) {
+            String text = key.toString();
+            if(text.length() < GRAM) shorts.add(id);
+            for(int i = 0; i + GRAM <= text.length(); i++) {
+                link(grams, text.substring(i, i + GRAM), id);
+            }
+            link(reversed, reverse(text), id);
+            for(String word : words(text)) {
+                link(words, word, id);
+            }
+        }
+    }
+    
+    private static void link(Map<String, Set<String>> map, String key, String id) {
+        map.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+    }
+    
+    private static void unlink(Map<String, Set<String>> map, String key, String id) {
+        map.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+    
+    private static String reverse(String text) {
+        return new StringBuilder(text).reverse().toString();
+    }
+    
+    /*
+    Consultas. Todas ignoram maiúsculas.
+    */
+    
+    /**
+     * Ids cujo texto é igual ao informado.
+     * @param text
+     * @return 
+     */
+    public Set<String> equal(String text) {
+        return store.equal(fold(text));
+    }
+    
+    /**
+     * Ids cujo texto começa com o prefixo.
+     * @param prefix
+     * @return 
+     */
+    public Set<String> startsWith(String prefix) {
+        return store.startsWith(fold(prefix));
+    }
+    
+    /**
+     * Ids cujo texto termina com o sufixo, pelo prefixo dos valores invertidos.
+     * @param suffix
+     * @return 
+     */
+    public Set<String> endsWith(String suffix) {
+        String prefix = reverse(fold(suffix));
+        Set<String> result = new HashSet<>();
+        for(Map.Entry<String, Set<String>> entry : reversed.tailMap(prefix, true).entrySet()) {
+            if(!entry.getKey().startsWith(prefix)) break;
+            result.addAll(entry.getValue());
+        }
+        return result;
+    }
+    
+    /**
+     * Ids cujo texto contém o trecho. Trechos com pelo menos GRAM caracteres
+     * cruzam as listas dos seus trigramas, da menor para a maior, e conferem
+     * os candidatos no valor guardado; trechos menores juntam as listas dos
+     * trigramas que os contêm e os valores curtos.
+     * @param part
+     * @return 
+     */
+    public Set<String> contains(String part) {
+        String text = fold(part);
+        if(text.isEmpty()) return store.ids();
+        Set<String> result = new HashSet<>();
+        if(text.length() < GRAM) {
+            for(Map.Entry<String, Set<String>> entry : grams.entrySet()) {
+                if(entry.getKey().contains(text)) result.addAll(entry.getValue());
+            }
+            for(String id : shorts) {
+                Comparable value = store.valueOf(id);
+                if(value != null && value.toString().contains(text)) result.add(id);
+            }
+            return result;
+        }
+        List<Set<String>> lists = new ArrayList<>();
+        for(int i = 0; i + GRAM <= text.length(); i++) {
+            Set<String> ids = grams.get(text.substring(i, i + GRAM));
+            if(ids == null) return result;
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        for(String id : lists.get(0)) {
+            boolean all = true;
+            for(int i = 1; i < lists.size() && all; i++) {
+                all = lists.get(i).contains(id);
+            }
+            if(!all) continue;
+            Comparable value = store.valueOf(id);
+            if(value != null && value.toString().contains(text)) result.add(id);
+        }
+        return result;
+    }
+    
+    /**
+     * Ids cujo texto tem a palavra.
+     * @param word
+     * @return 
+     */
+    public Set<String> word(String word) {
+        Set<String> ids = words.get(fold(word));
+        return ids == null ? new HashSet<>() : new HashSet<>(ids);
+    }
+    
+    /**
+     * Número de entidades no índice.
+     * @return 
+     */
+    public int size() {
+        return store.size();
+    }
+    
+}
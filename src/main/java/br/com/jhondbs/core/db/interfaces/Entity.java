@@ -23,22 +23,30 @@
  */
 package br.com.jhondbs.core.db.interfaces;
 
-import br.com.jhondbs.core.db.Mapper;
-import br.com.jhondbs.core.db.capsule.Assist;
 import br.com.jhondbs.core.db.capsule.Bottle;
-import br.com.jhondbs.core.db.capsule.Reader;
 import br.com.jhondbs.core.db.capsule.Ref;
 import br.com.jhondbs.core.tools.FieldsManager;
 import br.com.jhondbs.core.db.errors.DuplicatedUniqueFieldException;
 import br.com.jhondbs.core.db.errors.EntityIdBadImplementationException;
 import br.com.jhondbs.core.db.errors.ObjectNotDesserializebleException;
 import br.com.jhondbs.core.db.filter.Filter;
-import br.com.jhondbs.core.db.session.SessionCache;
-import br.com.jhondbs.core.db.session.SessionManager;
-import br.com.jhondbs.core.tools.ClassDictionary;
-import java.io.File;
+import br.com.jhondbs.core.db.index.FieldIndex;
+import br.com.jhondbs.core.db.index.IndexKeys;
+import br.com.jhondbs.core.db.index.IndexManager;
+import br.com.jhondbs.core.db.index.ReferenceGraph;
+import br.com.jhondbs.core.db.index.TextIndex;
+import br.com.jhondbs.core.db.query.EntityCursor;
+import br.com.jhondbs.core.db.query.ParallelScanner;
+import br.com.jhondbs.core.db.query.QueryPlan;
+import br.com.jhondbs.core.db.query.QueryPlanner;
+import br.com.jhondbs.core.db.session.EntityCache;
+import br.com.jhondbs.core.db.storage.StorageManager;
+import br.com.jhondbs.core.db.storage.VersionStore;
+import br.com.jhondbs.core.tools.EntityMetadata;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.lang.reflect.Field;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -49,8 +57,9 @@ import java.lang.reflect.InvocationTargetException;
 import java.net.URISyntaxException;
 import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Objects;
+import java.util.stream.Stream;
 
 /**
  * ENGLISH<br>
@@ -91,38 +100,13 @@ public interface Entity extends Serializable, Cloneable, Compatibility{
      */
     default String getId() throws IllegalArgumentException, IllegalAccessException, EntityIdBadImplementationException {
         
-        List<Field> ids = FieldsManager.getAllFields(this).parallelStream()
-                .filter(field -> (field.getType().getName().contains("String")))
-                .filter(field -> (field.getName().toUpperCase().contains("ID")))
-                .toList();
-        if(!ids.isEmpty()){
-            Field selected = null;
-            List<Field> toList = ids.stream().filter(field -> (field.getName().equalsIgnoreCase("enteid")))
-                    .toList();
-            if(toList.size() == 1){
-                selected = toList.get(0);
-            } else {
-                toList = ids.stream().filter(field -> (field.getName().equalsIgnoreCase("id")))
-                    .toList();
-                if(toList.size() == 1){
-                    selected = toList.get(0);
-                } else {
-                    selected = ids.get(0);
-                }
-            }
-            if(selected != null){
-                selected.setAccessible(true);
-                String id = (String) selected.get(this);
-                if(id == null || id.isBlank()) {
-                    UUID uuid = UUID.randomUUID();
-                    selected.set(this, uuid.toString());
-                    return uuid.toString();
-                } else {
-                    return id;
-                }
-            }
+        EntityMetadata.Accessor selected = EntityMetadata.of(this).id();
+        String id = selected.get(this);
+        if(id == null || id.isBlank()) {
+            id = UUID.randomUUID().toString();
+            selected.set(this, id);
         }
-        throw new EntityIdBadImplementationException("The entity does not have a String type variable for the ID.");
+        return id;
     }
     
     /**
@@ -134,17 +118,20 @@ public interface Entity extends Serializable, Cloneable, Compatibility{
      * <br><br>
      * PORTUGUÊS<br>
      * Salva essa entidade no bando de dados, garantindo que nenhum valor anotado com @unique
-     * seja duplicado.
+     * seja duplicado. Apenas a entidade e as subentidades cujo registro mudou
+     * são regravadas.
      * @return True if the entity was successfully saved.
      * False if there were errors.
      * the getId and onSetId methods.
      */
     default boolean save() throws DuplicatedUniqueFieldException, IllegalArgumentException, IllegalAccessException, EntityIdBadImplementationException, URISyntaxException, IOException, ParseException, ObjectNotDesserializebleException, ClassNotFoundException, InstantiationException, InvocationTargetException, NoSuchMethodException, FileNotFoundException, NoSuchAlgorithmException, Exception {
         Bottle bottle = new Bottle.BottleBuilder().entity(this).build();
-        bottle.engarrafar();
-        bottle.flush();
+        long version = bottle.flush();
         
-        SessionManager.add(bottle);
+        // Sem commit não há versão em que as entidades possam ser guardadas.
+        if(version > 0) {
+            EntityCache.get().putAll(bottle, version);
+        }
         
         return true;
     }
@@ -160,9 +147,9 @@ public interface Entity extends Serializable, Cloneable, Compatibility{
      * Entity encontrada no banco de dados. Nulo para não encontrada.
      */
     default <T extends Entity> T load(String id) throws Exception{
-        SessionCache contains = SessionManager.contains(id);
-        if(contains != null) {
-            return (T) contains.get(id);
+        Entity cached = EntityCache.get().get(new Ref(this.getClass(), id));
+        if(cached != null) {
+            return (T) cached;
         }
         
         Bottle bottle = new Bottle.BottleBuilder()
@@ -201,20 +188,90 @@ public interface Entity extends Serializable, Cloneable, Compatibility{
      * Lista com as entidades que passaram no teste.
      */
     default <T extends Entity> List<T> loadAll(Filter filter) throws Exception{
-        File folder = new File(Assist.getRootPath(new Ref(this))).getParentFile();
-        String[] list = folder.list();
-        List<T> enteList = new ArrayList<>();
-        for(String id : list) {
-            Entity load = load(id);
-            if(filter != null) {
-                if(filter.filter(load)) {
-                    enteList.add((T) load);
-                }
-            } else {
-                enteList.add((T) load);
-            }
+        // Todas as entidades são lidas no mesmo snapshot; as que não existem
+        // nele (criadas ou excluídas por commits posteriores) são ignoradas.
+        return QueryPlanner.plan(this.getClass(), filter).execute(this);
+    }
+    
+    /**
+     * ENGLISH<br>
+     * Describes how a search with the filter would be executed: the indexes
+     * used, the order of the tests and the estimated rows and cost.<br><br>
+     * PORTUGUÊS<br>
+     * Descreve como uma busca com o filtro seria executada: os índices usados,
+     * a ordem dos testes e as estimativas de entidades e custo.
+     * @param filter Filter of the search, or null for all entities.<br>
+     * Filtro da busca, ou nulo para todas as entidades.
+     * @return Plan description.<br>
+     * Descrição do plano.
+     */
+    default String explain(Filter filter) {
+        return QueryPlanner.plan(this.getClass(), filter).explain();
+    }
+    
+    /**
+     * ENGLISH<br>
+     * Reads only some fields of the entities that pass the filter. Simple
+     * fields are read straight from the stored records and the entities are
+     * only loaded when the filter or a requested field needs them.<br><br>
+     * PORTUGUÊS<br>
+     * Lê apenas alguns campos das entidades que passam no filtro. Campos de
+     * valores simples são lidos direto dos registros gravados e as entidades só
+     * são carregadas quando o filtro ou algum campo pedido precisa delas.
+     * @param filter Filter applied to the entities, or null for all.<br>
+     * Filtro aplicado às entidades, ou nulo para todas.
+     * @param fields Names of the requested fields.<br>
+     * Nomes dos campos pedidos.
+     * @return One map per entity, field name -> value, in the requested order.<br>
+     * Um mapa por entidade, nome do campo -> valor, na ordem pedida.
+     * @throws Exception 
+     */
+    default List<Map<String, Object>> select(Filter filter, String... fields) throws Exception {
+        QueryPlan plan = QueryPlanner.plan(this.getClass(), filter);
+        VersionStore.Snapshot snapshot = VersionStore.snapshot();
+        try {
+            return ParallelScanner.scan(plan.candidates(), plan.select(this, fields), null);
+        } finally {
+            snapshot.close();
         }
-        return enteList;
+    }
+    
+    /**
+     * ENGLISH<br>
+     * Opens a lazy cursor over the entities of the current type that pass the
+     * filter. Entities are loaded one at a time as the cursor advances.<br><br>
+     * PORTUGUÊS<br>
+     * Abre um cursor preguiçoso sobre as entidades do tipo atual que passam no
+     * filtro. As entidades são carregadas uma a uma conforme o cursor avança.
+     * @param <T> Entity type.<br>
+     * Tipo da entidade.
+     * @param filter Filter applied to the entities, or null for all.<br>
+     * Filtro aplicado às entidades, ou nulo para todas.
+     * @return Cursor that must be closed.<br>
+     * Cursor que deve ser fechado.
+     */
+    default <T extends Entity> EntityCursor<T> cursor(Filter filter) {
+        return new EntityCursor<>(this, QueryPlanner.plan(this.getClass(), filter));
+    }
+    
+    /**
+     * ENGLISH<br>
+     * Lazy stream of the entities of the current type that pass the filter.
+     * Short-circuiting operations such as findFirst and limit stop loading
+     * entities. The stream should be closed, preferably with try-with-resources.<br><br>
+     * PORTUGUÊS<br>
+     * Stream preguiçosa das entidades do tipo atual que passam no filtro.
+     * Operações que encerram cedo, como findFirst e limit, param de carregar
+     * entidades. A stream deve ser fechada, de preferência com try-with-resources.
+     * @param <T> Entity type.<br>
+     * Tipo da entidade.
+     * @param filter Filter applied to the entities, or null for all.<br>
+     * Filtro aplicado às entidades, ou nulo para todas.
+     * @return Stream of entities.<br>
+     * Stream das entidades.
+     */
+    default <T extends Entity> Stream<T> stream(Filter filter) {
+        return this.<T>cursor(filter).stream();
     }
     
     /**
@@ -223,7 +280,7 @@ public interface Entity extends Serializable, Cloneable, Compatibility{
      * @return 
      */
     default List<String> getAllIds(){
-        return Reader.listAllIds(this.getClass(), Bottle.ROOT_DB);
+        return StorageManager.get().listIds(this.getClass());
     }
     
     /**
@@ -321,57 +378,43 @@ public interface Entity extends Serializable, Cloneable, Compatibility{
     }
 
     default <T extends Entity> List<T> findByFieldValue(String fieldName, Object value) throws Exception {
-
-        List<T> result = new ArrayList<>();
-
-        Field field = null;
-
-        for (String id : getAllIds()) {
-
-            SessionCache cache = SessionManager.contains(id);
-            Entity entity = (cache != null) ? cache.get(id) : load(id);
-
-            if (entity == null) continue;
-
-            // descobre o campo apenas uma vez, baseado na classe REAL da entidade
-            if (field == null) {
-                field = FieldsManager.getAllFields(entity.getClass()).stream()
-                        .filter(f -> f.getName().equals(fieldName))
-                        .findFirst()
-                        .orElseThrow(() -> new IllegalArgumentException(fieldName + " does not exist."));
-                field.setAccessible(true);
-            }
-
-            // garante compatibilidade antes de acessar
-            if (!field.getDeclaringClass().isAssignableFrom(entity.getClass())) {
-                throw new IllegalStateException(
-                        "Field " + fieldName + " does not belong to " + entity.getClass().getName());
-            }
-
-            Object fieldValue = field.get(entity);
-
-            if (Objects.equals(fieldValue, value)) {
-                result.add((T) entity);
-            } else if (cache == null) {
-                SessionManager.remove(entity);
-            }
+        EntityMetadata.Accessor field = EntityMetadata.of(this).get(fieldName);
+        if (field == null) throw new IllegalArgumentException(fieldName + " does not exist.");
+        // As entidades lidas e descartadas entram apenas no segmento de prova
+        // do cache, sem expulsar as mais usadas.
+        return ParallelScanner.scan(indexedIds(fieldName, value), this::load, entity -> Objects.equals(field.get(entity), value));
+    }
+    
+    /**
+     * IDs que podem ter o valor informado no campo, vindos do índice do campo
+     * quando existe um, ou todos os IDs da classe caso contrário.
+     * @param fieldName Nome do campo.
+     * @param value Valor buscado.
+     * @return IDs candidatos.
+     */
+    private Collection<String> indexedIds(String fieldName, Object value) {
+        FieldIndex index = IndexManager.get(getClass(), fieldName);
+        if(index != null && value != null && IndexKeys.isExact(value.getClass())) {
+            return index.equal(value);
         }
-
-        return result;
+        return getAllIds();
     }
     
     default <T extends Entity> List<T> findByFieldValueIgnoreCase(String fieldname, Object value) throws Exception{
-        List<Field> fields = FieldsManager.getAllFields(this);
-        if(fields.stream().noneMatch(field -> field.getName().equals(fieldname))) throw new IllegalArgumentException(fieldname +" does not exists.");
-        Field field = fields.stream().filter(f -> f.getName().equals(fieldname)).findFirst().get();
-        field.setAccessible(true);
-        List<T> list = new ArrayList<>();
-        for(String id : getAllIds()) {
-            Entity load = load(id);
-            Object fValue = field.get(load);
-            if(fValue.toString().toLowerCase().equals(value.toString().toLowerCase())) list.add((T) load);
+        EntityMetadata.Accessor field = EntityMetadata.of(this).get(fieldname);
+        if(field == null) throw new IllegalArgumentException(fieldname +" does not exists.");
+        // Valor nulo encontra os campos nulos.
+        String folded = value == null ? null : TextIndex.fold(value.toString());
+        Collection<String> ids = getAllIds();
+        FieldIndex index = IndexManager.get(getClass(), fieldname);
+        if(index != null && folded != null && field.type == String.class) {
+            ids = index.matching(key -> folded.equals(TextIndex.fold(key.toString())));
         }
-        return list;
+        return ParallelScanner.scan(ids, this::load, load -> {
+            Object current = field.get(load);
+            if(current == null || folded == null) return current == folded;
+            return folded.equals(TextIndex.fold(current.toString()));
+        });
     }
     
     default boolean supEquals(Object obj) throws IllegalArgumentException, IllegalAccessException, EntityIdBadImplementationException {
@@ -390,7 +433,7 @@ public interface Entity extends Serializable, Cloneable, Compatibility{
      * @return Lista de referenciadores.
      */
     default List<Ref> refMapper() {
-        return Mapper.get(this);
+        return new ArrayList<>(ReferenceGraph.sources(selfRef()));
     }
     
     /**
@@ -400,10 +443,15 @@ public interface Entity extends Serializable, Cloneable, Compatibility{
      * @return Lista de referenciadores filtrados.
      */
     default List<Ref> refMapper(Class clazz) {
-        int index = ClassDictionary.getIndex(clazz);
-        List<Ref> map = refMapper();
-        return map.stream().filter(ref -> ref.getValue() == index)
-                .toList();
+        return ReferenceGraph.sources(selfRef(), clazz);
+    }
+    
+    private Ref selfRef() {
+        try {
+            return new Ref(this);
+        } catch (IllegalAccessException | EntityIdBadImplementationException ex) {
+            throw new IllegalStateException("Id inacessível em " + getClass().getName(), ex);
+        }
     }
     
 }
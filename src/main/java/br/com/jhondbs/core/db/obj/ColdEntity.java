@@ -24,17 +24,15 @@
 package br.com.jhondbs.core.db.obj;
 
 import br.com.jhondbs.core.db.Mapper;
-import br.com.jhondbs.core.db.capsule.Assist;
-import br.com.jhondbs.core.db.capsule.Reader;
+import br.com.jhondbs.core.db.capsule.CapsuleTokenizer;
+import br.com.jhondbs.core.db.capsule.Ref;
 import br.com.jhondbs.core.db.interfaces.Cold;
 import br.com.jhondbs.core.db.interfaces.Entity;
+import br.com.jhondbs.core.db.storage.VersionStore;
 import br.com.jhondbs.core.tools.ClassDictionary;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
@@ -84,17 +82,15 @@ public class ColdEntity {
     
     public void load() throws FileNotFoundException, IOException {
         if(map.isEmpty()) {
-            String path = Assist.getRootPath(id, index);
-            Properties p = new Properties();
-            p.load(new FileInputStream(new File(path)));
-            String fieldsStr = p.getProperty("fields");
-            List<String> capsules = Reader.splitCapsules(fieldsStr);
-            for(String str : capsules) {
-                Map<String, String> map = Reader.splitCapsuleAsKeyValueMap(str);
-                String field = map.keySet().stream().findFirst().get();
-                Map<String, String> map2 = Reader.splitCapsuleAsKeyValueMap(map.values().stream().findFirst().get());
-                String value = map2.values().stream().findFirst().get();
-                map.put(field, value);
+            Properties p = VersionStore.read(new Ref(id, index));
+            CapsuleTokenizer tokenizer = new CapsuleTokenizer(p.getProperty("fields"));
+            while(tokenizer.next() == CapsuleTokenizer.START) {
+                int level = tokenizer.depth();
+                String field = tokenizer.key();
+                if(tokenizer.next() == CapsuleTokenizer.START) {
+                    map.put(field, tokenizer.content());
+                }
+                tokenizer.exit(level);
             }
         }
     }
@@ -0,0 +1,222 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.query;
+
+import br.com.jhondbs.core.db.capsule.Ref;
+import br.com.jhondbs.core.db.interfaces.Entity;
+import br.com.jhondbs.core.db.storage.VersionStore;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * ENGLISH<br>
+ * Lazy cursor over the entities of a class. Each entity, together with its
+ * sub-entities, is only loaded when the cursor reaches it, so a search can be
+ * read without keeping every result in memory. All entities are read in the
+ * snapshot fixed when the cursor was created. The cursor must be closed, which
+ * happens on its own when it reaches the end.<br><br>
+ * PORTUGUÊS<br>
+ * Cursor preguiçoso sobre as entidades de uma classe. Cada entidade, junto com
+ * as suas sub-entidades, só é carregada quando o cursor chega nela, de modo que
+ * uma busca pode ser lida sem manter todos os resultados em memória. Todas as
+ * entidades são lidas no snapshot fixado na criação do cursor. O cursor deve
+ * ser fechado, o que acontece sozinho quando ele chega ao fim.
+ * @author jhones
+ * @param <T> Tipo das entidades.
+ */
+public final class EntityCursor<T extends Entity> implements Iterator<T>, AutoCloseable {
+    
+    private final Entity prototype;
+    private final boolean filtered;
+    private final ParallelScanner.Decoder<T> decoder;
+    private final Iterator<String> ids;
+    private final VersionStore.Snapshot snapshot;
+    
+    private long skip;
+    private long remaining = Long.MAX_VALUE;
+    private T next;
+    private boolean closed;
+
+    /**
+     * @param prototype Entidade usada para carregar as demais.
+     * @param plan Plano da consulta.
+     */
+    public EntityCursor(Entity prototype, QueryPlan plan) {
+        this.prototype = prototype;
+        this.filtered = plan.isFiltered();
+        this.decoder = plan.decoder(prototype);
+        this.snapshot = VersionStore.pin();
+        // Os candidatos são calculados no snapshot fixado.
+        VersionStore.Snapshot current = VersionStore.join(snapshot);
+        try {
+            this.ids = plan.candidates().iterator();
+        } catch (RuntimeException ex) {
+            snapshot.close();
+            throw ex;
+        } finally {
+            current.close();
+        }
+    }
+    
+    /**
+     * ENGLISH<br>
+     * Skips the next entities. Without a filter, skipped entities are not
+     * loaded.<br><br>
+     * PORTUGUÊS<br>
+     * Pula as próximas entidades. Sem filtro, as entidades puladas não são
+     * carregadas.
+     * @param count Number of entities to skip.<br>
+     * Quantidade de entidades a pular.
+     * @return This cursor.<br>
+     * Este cursor.
+     */
+    public EntityCursor<T> skip(long count) {
+        if(count < 0) throw new IllegalArgumentException("Negative skip: " + count);
+        skip += count;
+        return this;
+    }
+    
+    /**
+     * ENGLISH<br>
+     * Limits how many entities the cursor still returns. The cursor is closed
+     * as soon as the limit is reached.<br><br>
+     * PORTUGUÊS<br>
+     * Limita quantas entidades o cursor ainda devolve. O cursor é fechado
+     * assim que o limite é atingido.
+     * @param count Maximum number of entities.<br>
+     * Quantidade máxima de entidades.
+     * @return This cursor.<br>
+     * Este cursor.
+     */
+    public EntityCursor<T> limit(long count) {
+        if(count < 0) throw new IllegalArgumentException("Negative limit: " + count);
+        remaining = Math.min(remaining, count);
+        return this;
+    }
+    
+    @Override
+    public boolean hasNext() {
+        if(next != null) return true;
+        if(closed) return false;
+        try {
+            next = advance();
+        } catch (RuntimeException ex) {
+            close();
+            throw ex;
+        } catch (Exception ex) {
+            close();
+            throw new IllegalStateException(ex);
+        }
+        if(next == null) close();
+        return next != null;
+    }
+
+    @Override
+    public T next() {
+        if(!hasNext()) throw new NoSuchElementException();
+        T result = next;
+        next = null;
+        if(--remaining == 0) close();
+        return result;
+    }
+    
+    /**
+     * Próxima entidade que passa no filtro, pulando as que foram pedidas.
+     */
+    private T advance() throws Exception {
+        if(remaining <= 0) return null;
+        VersionStore.Snapshot current = VersionStore.join(snapshot);
+        try {
+            while(ids.hasNext()) {
+                String id = ids.next();
+                if(skip > 0 && !filtered) {
+                    if(exists(id)) skip--;
+                    continue;
+                }
+                T entity;
+                try {
+                    entity = decoder.decode(id);
+                } catch (FileNotFoundException ex) {
+                    continue;
+                }
+                if(entity == null) continue;
+                if(skip > 0) {
+                    skip--;
+                    continue;
+                }
+                return entity;
+            }
+        } finally {
+            current.close();
+        }
+        return null;
+    }
+    
+    /**
+     * Verifica se a entidade existe no snapshot lendo apenas o seu registro.
+     */
+    private boolean exists(String id) {
+        try {
+            VersionStore.read(new Ref(prototype.getClass(), id));
+            return true;
+        } catch (FileNotFoundException ex) {
+            return false;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+    
+    /**
+     * ENGLISH<br>
+     * Sequential stream over the rest of the cursor. Closing the stream closes
+     * the cursor.<br><br>
+     * PORTUGUÊS<br>
+     * Stream sequencial sobre o restante do cursor. Fechar a stream fecha o
+     * cursor.
+     * @return Stream of entities.<br>
+     * Stream das entidades.
+     */
+    public Stream<T> stream() {
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(this::close);
+    }
+
+    /**
+     * Libera o snapshot do cursor. Pode ser chamado mais de uma vez.
+     */
+    @Override
+    public void close() {
+        if(closed) return;
+        closed = true;
+        snapshot.close();
+    }
+    
+}
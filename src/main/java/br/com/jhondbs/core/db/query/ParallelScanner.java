@@ -0,0 +1,218 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.query;
+
+import br.com.jhondbs.core.db.storage.VersionStore;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+
+/**
+ * Varredura de uma lista de IDs que divide a lista em blocos e decodifica e
+ * filtra cada bloco numa thread de um ForkJoinPool próprio, limitado a
+ * PARALLELISM threads.
+ * Todos os blocos são lidos no snapshot da thread que chamou a varredura e com
+ * o mesmo ClassLoader de contexto, de modo que o resultado é o mesmo de uma
+ * leitura sequencial. IDs que não existem no snapshot são ignorados.
+ * Listas menores que THRESHOLD são lidas na própria thread.
+ * @author jhones
+ */
+public final class ParallelScanner {
+    
+    /**
+     * Número máximo de threads usadas pelas varreduras. Um valor menor ou
+     * igual a 1 faz todas as varreduras serem sequenciais.
+     */
+    public static int PARALLELISM = Runtime.getRuntime().availableProcessors();
+    
+    /**
+     * Tamanho mínimo da lista para que a varredura seja dividida entre threads.
+     */
+    public static int THRESHOLD = 64;
+    
+    /**
+     * Tamanho mínimo de um bloco de IDs entregue a uma thread.
+     */
+    public static int MIN_CHUNK = 16;
+    
+    /**
+     * Se as varreduras devolvem as entidades na ordem da lista de IDs quando a
+     * ordem não é informada na chamada.
+     */
+    public static boolean ORDERED = true;
+    
+    private static volatile ForkJoinPool pool;
+    
+    private ParallelScanner() {
+    }
+    
+    /**
+     * Decodifica a entidade de um ID.
+     * @param <T> Tipo decodificado.
+     */
+    @FunctionalInterface
+    public interface Decoder<T> {
+        /**
+         * @param id ID da entidade.
+         * @return Entidade, ou nulo para ignorar o ID.
+         * @throws Exception
+         */
+        T decode(String id) throws Exception;
+    }
+    
+    /**
+     * Teste aplicado a cada entidade decodificada.
+     * @param <T> Tipo testado.
+     */
+    @FunctionalInterface
+    public interface Predicate<T> {
+        boolean test(T value) throws Exception;
+    }
+    
+    /**
+     * Varre os IDs na ordem padrão (ORDERED).
+     * @param <T>
+     * @param ids IDs a serem lidos.
+     * @param decoder Leitura de cada ID.
+     * @param predicate Teste das entidades lidas, ou nulo para aceitar todas.
+     * @return Entidades que passaram no teste.
+     * @throws Exception Primeira falha de leitura ou de teste.
+     */
+    public static <T> List<T> scan(Collection<String> ids, Decoder<T> decoder, Predicate<? super T> predicate) throws Exception {
+        return scan(ids, decoder, predicate, ORDERED);
+    }
+    
+    /**
+     * Varre os IDs, em paralelo quando a lista for grande o suficiente.
+     * @param <T>
+     * @param ids IDs a serem lidos.
+     * @param decoder Leitura de cada ID.
+     * @param predicate Teste das entidades lidas, ou nulo para aceitar todas.
+     * @param ordered Verdadeiro para devolver as entidades na ordem dos IDs;
+     * falso para juntar os blocos na ordem em que terminarem.
+     * @return Entidades que passaram no teste.
+     * @throws Exception Primeira falha de leitura ou de teste.
+     */
+    public static <T> List<T> scan(Collection<String> ids, Decoder<T> decoder, Predicate<? super T> predicate, boolean ordered) throws Exception {
+        String[] array = ids.toArray(String[]::new);
+        int parallelism = PARALLELISM;
+        try (VersionStore.Snapshot snapshot = VersionStore.snapshot()) {
+            if(parallelism <= 1 || array.length < Math.max(THRESHOLD, 2) || inPool()) {
+                return scan(array, 0, array.length, decoder, predicate);
+            }
+            int chunk = Math.max(MIN_CHUNK, array.length / (parallelism * 4) + 1);
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            CompletionService<List<T>> service = new ExecutorCompletionService<>(pool(parallelism));
+            List<Future<List<T>>> futures = new ArrayList<>();
+            for(int from = 0; from < array.length; from += chunk) {
+                int start = from;
+                int end = Math.min(array.length, from + chunk);
+                futures.add(service.submit(() -> scan(array, start, end, decoder, predicate, snapshot, loader)));
+            }
+            List<T> result = new ArrayList<>();
+            try {
+                if(ordered) {
+                    for(Future<List<T>> future : futures) {
+                        result.addAll(future.get());
+                    }
+                } else {
+                    for(int i = 0; i < futures.size(); i++) {
+                        result.addAll(service.take().get());
+                    }
+                }
+            } catch (ExecutionException ex) {
+                futures.forEach(future -> future.cancel(true));
+                if(ex.getCause() instanceof Exception cause) throw cause;
+                if(ex.getCause() instanceof Error error) throw error;
+                throw ex;
+            } catch (InterruptedException ex) {
+                futures.forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                throw ex;
+            }
+            return result;
+        }
+    }
+    
+    /**
+     * Lê um bloco numa thread do pool, entrando no snapshot e no ClassLoader
+     * da thread que dividiu a varredura.
+     */
+    private static <T> List<T> scan(String[] ids, int from, int to, Decoder<T> decoder, Predicate<? super T> predicate,
+            VersionStore.Snapshot origin, ClassLoader loader) throws Exception {
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(loader);
+        VersionStore.Snapshot snapshot = VersionStore.join(origin);
+        try {
+            return scan(ids, from, to, decoder, predicate);
+        } finally {
+            snapshot.close();
+            thread.setContextClassLoader(previous);
+        }
+    }
+    
+    private static <T> List<T> scan(String[] ids, int from, int to, Decoder<T> decoder, Predicate<? super T> predicate) throws Exception {
+        List<T> result = new ArrayList<>(to - from);
+        for(int i = from; i < to; i++) {
+            T value;
+            try {
+                value = decoder.decode(ids[i]);
+            } catch (FileNotFoundException ex) {
+                continue;
+            }
+            if(value != null && (predicate == null || predicate.test(value))) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Varreduras iniciadas dentro de um bloco são sequenciais, para que as
+     * threads do pool não fiquem esperando umas pelas outras.
+     */
+    private static boolean inPool() {
+        return Thread.currentThread() instanceof ForkJoinWorkerThread worker && worker.getPool() == pool;
+    }
+    
+    /**
+     * Pool das varreduras, recriado quando PARALLELISM muda.
+     */
+    private static synchronized ForkJoinPool pool(int parallelism) {
+        if(pool == null || pool.getParallelism() != parallelism) {
+            if(pool != null) pool.shutdown();
+            pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+    
+}
@@ -0,0 +1,380 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.query;
+
+import br.com.jhondbs.core.db.capsule.Projector;
+import br.com.jhondbs.core.db.filter.Filter;
+import br.com.jhondbs.core.db.filter.FilterCondition;
+import br.com.jhondbs.core.db.interfaces.Entity;
+import br.com.jhondbs.core.db.storage.StorageManager;
+import br.com.jhondbs.core.db.storage.VersionStore;
+import br.com.jhondbs.core.tools.EntityMetadata;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ENGLISH<br>
+ * Execution plan of a query, built by the QueryPlanner: where the candidate
+ * ids come from (indexes or the whole class) and in which order the conditions
+ * are tested. explain() describes the plan with its estimates.<br><br>
+ * PORTUGUÊS<br>
+ * Plano de execução de uma consulta, montado pelo QueryPlanner: de onde vêm os
+ * IDs candidatos (índices ou a classe inteira) e em que ordem as condições são
+ * testadas. explain() descreve o plano com as suas estimativas.
+ * @author jhones
+ */
+public final class QueryPlan {
+    
+    private final Class<?> clazz;
+    private final Group root;
+    private final List<Node> access;
+    private final boolean union;
+    private final long rows;
+    private final double estimatedRows;
+    private final double cost;
+    private final Set<String> projected;
+
+    QueryPlan(Class<?> clazz, Group root, List<Node> access, boolean union, long rows, double estimatedRows, double cost) {
+        this.clazz = clazz;
+        this.root = root;
+        this.access = access;
+        this.union = union;
+        this.rows = rows;
+        this.estimatedRows = estimatedRows;
+        this.cost = cost;
+        this.projected = root == null ? Set.of() : root.projected();
+    }
+    
+    /**
+     * Condição do plano, com a seletividade estimada e o custo relativo de
+     * testá-la numa entidade.
+     */
+    abstract static class Node {
+        final double selectivity;
+        final double cost;
+        final boolean projectable;
+        final boolean indexed;
+
+        Node(double selectivity, double cost, boolean projectable, boolean indexed) {
+            this.selectivity = selectivity;
+            this.cost = cost;
+            this.projectable = projectable;
+            this.indexed = indexed;
+        }
+        
+        abstract FilterCondition condition();
+        
+        abstract boolean test(Row row) throws Exception;
+        
+        abstract Set<String> projected();
+        
+        abstract void explain(StringBuilder out, String indent);
+    }
+    
+    static final class Leaf extends Node {
+        final FilterCondition condition;
+        final Set<String> fields;
+
+        Leaf(FilterCondition condition, Set<String> fields, double selectivity, double cost, boolean projectable, boolean indexed) {
+            super(selectivity, cost, projectable, indexed);
+            this.condition = condition;
+            this.fields = fields;
+        }
+
+        @Override
+        FilterCondition condition() {
+            return condition;
+        }
+
+        @Override
+        boolean test(Row row) throws Exception {
+            return projectable ? condition.filterValues(row.values()) : condition.filter(row.entity());
+        }
+
+        @Override
+        Set<String> projected() {
+            return fields;
+        }
+
+        @Override
+        void explain(StringBuilder out, String indent) {
+            Set<String> used = condition.fields();
+            out.append(indent).append(projectable ? "record " : "entity ")
+                    .append(condition.getClass().getSimpleName()).append(used == null ? "" : used.toString())
+                    .append(String.format(Locale.ROOT, " selectivity=%.3f", selectivity))
+                    .append(indexed ? " indexed" : "").append('\n');
+        }
+    }
+    
+    static final class Group extends Node {
+        final boolean all;
+        final Filter filter;
+        final List<Node> children;
+
+        Group(Filter filter, List<Node> children, double selectivity, double cost, boolean projectable, boolean indexed) {
+            super(selectivity, cost, projectable, indexed);
+            this.all = filter.all;
+            this.filter = filter;
+            this.children = children;
+        }
+
+        @Override
+        FilterCondition condition() {
+            return filter;
+        }
+
+        /**
+         * Mesma regra do Filter.filter: um grupo vazio não aprova ninguém.
+         */
+        @Override
+        boolean test(Row row) throws Exception {
+            if(children.isEmpty()) return false;
+            for(Node child : children) {
+                if(child.test(row) != all) return !all;
+            }
+            return all;
+        }
+
+        @Override
+        Set<String> projected() {
+            Set<String> fields = new HashSet<>();
+            for(Node child : children) {
+                fields.addAll(child.projected());
+            }
+            return fields;
+        }
+
+        @Override
+        void explain(StringBuilder out, String indent) {
+            out.append(indent).append(all ? "ALL" : "ANY")
+                    .append(String.format(Locale.ROOT, " selectivity=%.3f", selectivity)).append('\n');
+            for(Node child : children) {
+                child.explain(out, indent + "  ");
+            }
+        }
+    }
+    
+    /**
+     * Entidade sendo testada: os campos do registro e a entidade inteira são
+     * lidos uma única vez, e só quando algum teste precisa deles.
+     */
+    private final class Row {
+        final Entity prototype;
+        final String id;
+        final Set<String> fields;
+        Map<String, Object> values;
+        Entity entity;
+
+        Row(Entity prototype, String id, Set<String> fields) {
+            this.prototype = prototype;
+            this.id = id;
+            this.fields = fields;
+        }
+        
+        Map<String, Object> values() throws Exception {
+            if(values == null) {
+                values = Projector.read(clazz, id, fields);
+            }
+            return values;
+        }
+        
+        Entity entity() throws Exception {
+            if(entity == null) {
+                entity = prototype.load(id);
+            }
+            return entity;
+        }
+    }
+    
+    /**
+     * ENGLISH<br>
+     * Candidate ids: from the chosen indexes, or every id of the class when no
+     * index is used or an index cannot answer.<br><br>
+     * PORTUGUÊS<br>
+     * IDs candidatos: dos índices escolhidos, ou todos os IDs da classe quando
+     * nenhum índice é usado ou um índice não consegue responder.
+     * Índices e armazenamento já podem ter recebido commits posteriores ao
+     * snapshot da thread; as entidades alteradas por eles também entram como
+     * candidatas, e o teste no snapshot decide.
+     * @return 
+     */
+    public Collection<String> candidates() {
+        Set<String> changed = VersionStore.changedAfter(VersionStore.current(), clazz);
+        Set<String> result = null;
+        for(Node node : access) {
+            Set<String> ids = node.condition().lookup(clazz);
+            if(ids == null) {
+                if(union) return all(changed);
+                continue;
+            }
+            if(result == null) {
+                result = new HashSet<>(ids);
+            } else if(union) {
+                result.addAll(ids);
+            } else {
+                result.retainAll(ids);
+            }
+        }
+        if(result == null) return all(changed);
+        result.addAll(changed);
+        return result;
+    }
+    
+    private Collection<String> all(Set<String> changed) {
+        List<String> ids = StorageManager.get().listIds(clazz);
+        if(changed.isEmpty()) return ids;
+        Set<String> result = new LinkedHashSet<>(ids);
+        result.addAll(changed);
+        return result;
+    }
+    
+    /**
+     * Indica se o plano testa as entidades, ou se todas as candidatas passam.
+     * @return 
+     */
+    public boolean isFiltered() {
+        return root != null;
+    }
+    
+    /**
+     * Leitura das entidades aprovadas pelo plano. A leitura devolve nulo para
+     * as reprovadas.
+     * @param <T>
+     * @param prototype Entidade usada para carregar as demais.
+     * @return 
+     */
+    public <T extends Entity> ParallelScanner.Decoder<T> decoder(Entity prototype) {
+        if(root == null) return prototype::load;
+        return id -> {
+            Row row = new Row(prototype, id, projected);
+            if(!root.test(row)) return null;
+            @SuppressWarnings("unchecked")
+            T entity = (T) row.entity();
+            return entity;
+        };
+    }
+    
+    /**
+     * Leitura de alguns campos das entidades aprovadas pelo plano, num mapa
+     * nome do campo -> valor na ordem pedida. A entidade só é carregada se
+     * algum teste ou campo pedido não puder ser lido direto do registro.
+     * @param prototype Entidade usada para carregar as demais.
+     * @param fields Campos pedidos.
+     * @return 
+     */
+    public ParallelScanner.Decoder<Map<String, Object>> select(Entity prototype, String... fields) {
+        EntityMetadata metadata = EntityMetadata.of(clazz);
+        for(String field : fields) {
+            if(metadata.get(field) == null) throw new IllegalArgumentException(field + " does not exist.");
+        }
+        List<String> selected = Arrays.asList(fields);
+        boolean record = Projector.supports(clazz, selected);
+        Set<String> read = new HashSet<>(projected);
+        if(record) read.addAll(selected);
+        return id -> {
+            Row row = new Row(prototype, id, read);
+            if(root != null && !root.test(row)) return null;
+            // Sem teste, a leitura confirma que a entidade existe no snapshot.
+            Object source = record ? row.values() : row.entity();
+            Map<String, Object> result = new LinkedHashMap<>();
+            for(String field : fields) {
+                result.put(field, record ? row.values.get(field) : metadata.get(field).get(source));
+            }
+            return result;
+        };
+    }
+    
+    /**
+     * Executa o plano.
+     * @param <T>
+     * @param prototype Entidade usada para carregar as demais.
+     * @return Entidades aprovadas.
+     * @throws Exception 
+     */
+    public <T extends Entity> List<T> execute(Entity prototype) throws Exception {
+        VersionStore.Snapshot snapshot = VersionStore.snapshot();
+        try {
+            return ParallelScanner.scan(candidates(), decoder(prototype), null);
+        } finally {
+            snapshot.close();
+        }
+    }
+    
+    /**
+     * Número estimado de entidades devolvidas.
+     * @return 
+     */
+    public double getEstimatedRows() {
+        return estimatedRows;
+    }
+    
+    /**
+     * Custo estimado, nas unidades do QueryPlanner.
+     * @return 
+     */
+    public double getCost() {
+        return cost;
+    }
+    
+    /**
+     * ENGLISH<br>
+     * Describes the plan: the access path, the tests in execution order and the
+     * estimates.<br><br>
+     * PORTUGUÊS<br>
+     * Descreve o plano: o caminho de acesso, os testes na ordem de execução e
+     * as estimativas.
+     * @return 
+     */
+    public String explain() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "Query %s: rows=%.1f of %d, cost=%.1f%n",
+                clazz.getSimpleName(), estimatedRows, rows, cost));
+        if(access.isEmpty()) {
+            out.append("Access: full scan\n");
+        } else {
+            out.append(union ? "Access: index union\n" : access.size() > 1 ? "Access: index intersection\n" : "Access: index\n");
+            for(Node node : access) {
+                node.explain(out, "  ");
+            }
+        }
+        if(root != null) {
+            out.append("Test:\n");
+            root.explain(out, "  ");
+        }
+        return out.toString();
+    }
+
+    @Override
+    public String toString() {
+        return explain();
+    }
+    
+}
@@ -0,0 +1,174 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.query;
+
+import br.com.jhondbs.core.db.capsule.Projector;
+import br.com.jhondbs.core.db.filter.Filter;
+import br.com.jhondbs.core.db.filter.FilterCondition;
+import br.com.jhondbs.core.db.index.IndexManager;
+import br.com.jhondbs.core.db.index.Statistics;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Transforma um Filter, com os seus filtros aninhados, num QueryPlan.
+ * O plano escolhe de onde vêm os IDs candidatos: de um índice, da interseção
+ * de vários índices ou de todos os IDs da classe. Também ordena as condições
+ * para que as mais baratas e as que mais descartam sejam testadas primeiro:
+ * as que podem ser testadas nos campos do registro vêm antes das que precisam
+ * da entidade carregada.
+ * As escolhas usam as seletividades estimadas das condições, calculadas com
+ * as estatísticas que os commits mantêm (ver Statistics), e os custos
+ * relativos abaixo.
+ * @author jhones
+ */
+public final class QueryPlanner {
+    
+    /**
+     * Custo de cada ID devolvido por um índice ou pela listagem da classe.
+     */
+    public static double KEY_COST = 0.05;
+    
+    /**
+     * Custo de ler alguns campos do registro de uma entidade.
+     */
+    public static double RECORD_COST = 1;
+    
+    /**
+     * Custo de carregar uma entidade inteira.
+     */
+    public static double LOAD_COST = 10;
+
+    private QueryPlanner() {
+    }
+    
+    /**
+     * Monta o plano de uma consulta.
+     * @param clazz Classe das entidades pesquisadas.
+     * @param filter Filtro da consulta, ou nulo para todas as entidades.
+     * @return 
+     */
+    public static QueryPlan plan(Class<?> clazz, Filter filter) {
+        long rows = Statistics.rows(clazz);
+        if(filter == null) {
+            return new QueryPlan(clazz, null, List.of(), false, rows, rows, rows * (KEY_COST + LOAD_COST));
+        }
+        QueryPlan.Group root = (QueryPlan.Group) node(clazz, filter);
+        List<QueryPlan.Node> access = new ArrayList<>();
+        boolean union = false;
+        double candidates = rows;
+        double accessCost;
+        double residual = residualCost(root);
+        if(root.all) {
+            List<QueryPlan.Node> indexed = new ArrayList<>();
+            for(QueryPlan.Node child : root.children) {
+                if(child.indexed) indexed.add(child);
+            }
+            indexed.sort(Comparator.comparingDouble(node -> node.selectivity));
+            accessCost = 0;
+            for(QueryPlan.Node node : indexed) {
+                // Cada índice custa os IDs que devolve e economiza o teste dos
+                // candidatos que descarta.
+                double lookup = rows * node.selectivity * KEY_COST;
+                double saved = candidates * (1 - node.selectivity) * residual;
+                if(!access.isEmpty() && lookup >= saved) break;
+                access.add(node);
+                accessCost += lookup;
+                candidates *= node.selectivity;
+            }
+            if(access.isEmpty()) accessCost = rows * KEY_COST;
+        } else if(root.indexed) {
+            union = true;
+            access.addAll(root.children);
+            candidates = Math.min(rows, rows * root.children.stream().mapToDouble(node -> node.selectivity).sum());
+            accessCost = candidates * KEY_COST;
+        } else {
+            accessCost = rows * KEY_COST;
+        }
+        double cost = accessCost + candidates * residual;
+        return new QueryPlan(clazz, root, access, union, rows, rows * root.selectivity, cost);
+    }
+    
+    /**
+     * Custo estimado de testar um candidato e carregar os aprovados: a leitura
+     * dos campos do registro, se alguma condição usa o registro, mais o
+     * carregamento das entidades que sobram depois dessas condições.
+     */
+    private static double residualCost(QueryPlan.Group root) {
+        boolean record = root.projected().size() > 0;
+        double loaded;
+        if(root.all) {
+            loaded = 1;
+            for(QueryPlan.Node child : root.children) {
+                if(child.projectable) loaded *= child.selectivity;
+            }
+        } else {
+            loaded = root.projectable ? root.selectivity : 1;
+        }
+        return (record ? RECORD_COST : 0) + loaded * LOAD_COST;
+    }
+    
+    /**
+     * Nó do plano para uma condição, com os filtros aninhados virando grupos
+     * com as condições já ordenadas.
+     */
+    private static QueryPlan.Node node(Class<?> clazz, FilterCondition condition) {
+        if(condition instanceof Filter filter) {
+            List<QueryPlan.Node> children = new ArrayList<>();
+            for(FilterCondition child : filter.filters) {
+                children.add(node(clazz, child));
+            }
+            boolean projectable = children.stream().allMatch(node -> node.projectable);
+            boolean indexed = filter.all
+                    ? children.stream().anyMatch(node -> node.indexed)
+                    : !children.isEmpty() && children.stream().allMatch(node -> node.indexed);
+            // Testes do E: primeiro os de menor custo por entidade descartada;
+            // do OU: primeiro os de menor custo por entidade aprovada.
+            children.sort(Comparator.comparingDouble(node -> filter.all
+                    ? rank(node.cost, 1 - node.selectivity)
+                    : rank(node.cost, node.selectivity)));
+            return new QueryPlan.Group(filter, children, clamp(filter.selectivity(clazz)),
+                    projectable ? RECORD_COST : LOAD_COST, projectable, indexed);
+        }
+        Set<String> fields = condition.fields();
+        boolean projectable = fields != null && Projector.supports(clazz, fields);
+        boolean indexed = fields != null && fields.size() == 1
+                && (IndexManager.get(clazz, fields.iterator().next()) != null
+                || IndexManager.text(clazz, fields.iterator().next()) != null);
+        return new QueryPlan.Leaf(condition, projectable ? new HashSet<>(fields) : Set.of(),
+                clamp(condition.selectivity(clazz)), projectable ? RECORD_COST : LOAD_COST, projectable, indexed);
+    }
+    
+    private static double rank(double cost, double gain) {
+        return gain <= 0 ? Double.MAX_VALUE : cost / gain;
+    }
+    
+    private static double clamp(double selectivity) {
+        return Double.isNaN(selectivity) ? Statistics.DEFAULT_SELECTIVITY : Math.max(0, Math.min(1, selectivity));
+    }
+    
+}
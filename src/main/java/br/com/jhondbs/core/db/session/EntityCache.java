@@ -0,0 +1,541 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.session;
+
+import br.com.jhondbs.core.db.capsule.Bottle;
+import br.com.jhondbs.core.db.capsule.Ref;
+import br.com.jhondbs.core.db.interfaces.Entity;
+import br.com.jhondbs.core.db.storage.VersionStore;
+import br.com.jhondbs.core.db.storage.WriteAheadLog;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache das entidades carregadas, indexado por Ref (índice da classe + id).
+ * É dividido em fatias pelo hash da Ref, cada uma com a sua própria trava e um
+ * LRU segmentado: entradas novas entram no segmento de prova e só passam para o
+ * protegido quando são lidas de novo, de modo que uma varredura de entidades
+ * lidas uma única vez não expulsa as entidades mais usadas.
+ * O tamanho é limitado por peso, uma estimativa em bytes a partir do registro
+ * gravado, e cada entrada tem o seu tempo de vida. As entradas vencidas são
+ * retiradas quando acessadas ou quando chegam ao início do seu segmento, sem
+ * thread própria.
+ * Cada entrada guarda o número do commit da versão da entidade. Os commits
+ * invalidam exatamente as entidades que alteraram, deixando no lugar uma marca
+ * com o número do commit, para que uma leitura mais antiga que termine depois
+ * não volte a guardar a versão velha; e uma entrada só é devolvida a quem lê
+ * num snapshot que já enxerga a sua versão.
+ * As instâncias pertencem às classes do ClassLoader de contexto que as
+ * carregou, então cada ClassLoader tem a sua partição. Uma partição some junto
+ * com o seu ClassLoader, sem afetar as outras, ou pode ser descartada com
+ * invalidate(ClassLoader) numa troca de versão da aplicação.
+ * @author jhones
+ */
+public final class EntityCache {
+    
+    /**
+     * Peso máximo de cada partição, em bytes estimados. Lido na criação da
+     * partição.
+     */
+    public static long MAX_WEIGHT = 64L * 1024 * 1024;
+    
+    /**
+     * Tempo de vida padrão de uma entrada, em nanossegundos.
+     */
+    public static long TTL = TimeUnit.MINUTES.toNanos(20);
+    
+    /**
+     * Número de fatias de cada partição. Lido na criação da partição.
+     */
+    public static int SHARDS = 16;
+    
+    /**
+     * Fração do peso de cada fatia reservada ao segmento protegido.
+     */
+    public static double PROTECTED_RATIO = 0.8;
+    
+    /**
+     * Peso de uma marca de invalidação.
+     */
+    private static final long TOMBSTONE_WEIGHT = 64;
+    
+    private static final EntityCache INSTANCE = new EntityCache();
+    
+    /**
+     * Partições por ClassLoader. A partição é referenciada de forma fraca pela
+     * chave e suave pelo valor, já que as entidades guardadas mantêm o seu
+     * ClassLoader vivo.
+     */
+    private final WeakHashMap<ClassLoader, SoftReference<Partition>> partitions = new WeakHashMap<>();
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private EntityCache() {
+    }
+    
+    public static EntityCache get() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Entrada do cache. Sem bottle, é uma marca de invalidação.
+     */
+    private static final class Entry {
+        final Bottle bottle;
+        final long version;
+        final long weight;
+        final long expiresAt;
+        boolean protectedSegment;
+
+        Entry(Bottle bottle, long version, long weight, long expiresAt) {
+            this.bottle = bottle;
+            this.version = version;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+        
+        boolean isExpired(long now) {
+            return now - expiresAt > 0;
+        }
+    }
+    
+    /**
+     * Conjunto de fatias de um ClassLoader.
+     */
+    private final class Partition {
+        final Shard[] shards;
+        final int mask;
+
+        Partition() {
+            int size = Integer.highestOneBit(Math.max(1, SHARDS - 1)) << 1;
+            this.shards = new Shard[size];
+            for(int i = 0; i < size; i++) {
+                this.shards[i] = new Shard(Math.max(1, MAX_WEIGHT / size));
+            }
+            this.mask = size - 1;
+        }
+        
+        Shard shard(Ref ref) {
+            int h = ref.hashCode();
+            return shards[(h ^ (h >>> 16)) & mask];
+        }
+    }
+    
+    /**
+     * Fatia do cache. Os dois segmentos são LinkedHashMap em ordem de acesso,
+     * com a entrada menos usada na cabeça.
+     */
+    private final class Shard {
+        final long maxWeight;
+        final LinkedHashMap<Ref, Entry> probation = new LinkedHashMap<>(16, 0.75f, true);
+        final LinkedHashMap<Ref, Entry> protectedEntries = new LinkedHashMap<>(16, 0.75f, true);
+        long probationWeight;
+        long protectedWeight;
+
+        Shard(long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+        
+        /**
+         * Entrada visível no commit informado, promovendo-a ao segmento
+         * protegido.
+         */
+        synchronized Entry get(Ref ref, long visible) {
+            Entry entry = protectedEntries.get(ref);
+            if(entry == null) {
+                entry = probation.get(ref);
+                if(entry == null) return null;
+            }
+            if(entry.isExpired(System.nanoTime())) {
+                remove(ref);
+                expirations.increment();
+                return null;
+            }
+            if(entry.bottle == null || entry.version > visible) return null;
+            if(!entry.protectedSegment) {
+                probation.remove(ref);
+                probationWeight -= entry.weight;
+                entry.protectedSegment = true;
+                protectedEntries.put(ref, entry);
+                protectedWeight += entry.weight;
+                demote();
+            }
+            return entry;
+        }
+        
+        /**
+         * Guarda a entrada, a não ser que já exista uma versão mais nova ou
+         * uma invalidação posterior.
+         */
+        synchronized boolean put(Ref ref, Entry entry) {
+            Entry current = peek(ref);
+            if(current != null && current.version > entry.version) return false;
+            remove(ref);
+            probation.put(ref, entry);
+            probationWeight += entry.weight;
+            evict();
+            return true;
+        }
+        
+        /**
+         * Troca a entrada por uma marca do commit que alterou a entidade.
+         */
+        synchronized void invalidate(Ref ref, long version) {
+            Entry current = peek(ref);
+            if(current != null && current.version >= version) return;
+            put(ref, new Entry(null, version, TOMBSTONE_WEIGHT, System.nanoTime() + TTL));
+        }
+        
+        private Entry peek(Ref ref) {
+            Entry entry = probation.get(ref);
+            return entry != null ? entry : protectedEntries.get(ref);
+        }
+        
+        synchronized Entry remove(Ref ref) {
+            Entry entry = probation.remove(ref);
+            if(entry != null) {
+                probationWeight -= entry.weight;
+                return entry;
+            }
+            entry = protectedEntries.remove(ref);
+            if(entry != null) {
+                protectedWeight -= entry.weight;
+            }
+            return entry;
+        }
+        
+        synchronized void clear() {
+            probation.clear();
+            protectedEntries.clear();
+            probationWeight = 0;
+            protectedWeight = 0;
+        }
+        
+        synchronized int size() {
+            return probation.size() + protectedEntries.size();
+        }
+        
+        synchronized long weight() {
+            return probationWeight + protectedWeight;
+        }
+        
+        /**
+         * Devolve ao segmento de prova as entradas protegidas menos usadas que
+         * passam da fração reservada ao segmento protegido.
+         */
+        private void demote() {
+            long limit = (long) (maxWeight * PROTECTED_RATIO);
+            Iterator<Map.Entry<Ref, Entry>> it = protectedEntries.entrySet().iterator();
+            while(protectedWeight > limit && it.hasNext()) {
+                Map.Entry<Ref, Entry> eldest = it.next();
+                it.remove();
+                Entry entry = eldest.getValue();
+                protectedWeight -= entry.weight;
+                entry.protectedSegment = false;
+                probation.put(eldest.getKey(), entry);
+                probationWeight += entry.weight;
+            }
+            evict();
+        }
+        
+        /**
+         * Retira as entradas vencidas do início de cada segmento e, enquanto a
+         * fatia passar do peso máximo, as menos usadas do segmento de prova e
+         * depois do protegido.
+         */
+        private void evict() {
+            long now = System.nanoTime();
+            probationWeight -= sweep(probation, now);
+            protectedWeight -= sweep(protectedEntries, now);
+            probationWeight -= shrink(probation, probationWeight + protectedWeight - maxWeight);
+            protectedWeight -= shrink(protectedEntries, probationWeight + protectedWeight - maxWeight);
+        }
+        
+        private long sweep(LinkedHashMap<Ref, Entry> segment, long now) {
+            long removed = 0;
+            Iterator<Entry> it = segment.values().iterator();
+            while(it.hasNext()) {
+                Entry entry = it.next();
+                if(!entry.isExpired(now)) break;
+                it.remove();
+                removed += entry.weight;
+                expirations.increment();
+            }
+            return removed;
+        }
+        
+        private long shrink(LinkedHashMap<Ref, Entry> segment, long excess) {
+            long removed = 0;
+            Iterator<Entry> it = segment.values().iterator();
+            while(removed < excess && it.hasNext()) {
+                removed += it.next().weight;
+                it.remove();
+                evictions.increment();
+            }
+            return removed;
+        }
+    }
+    
+    /**
+     * Partição do ClassLoader de contexto da thread atual.
+     */
+    private Partition partition() {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        synchronized (partitions) {
+            SoftReference<Partition> ref = partitions.get(loader);
+            Partition partition = ref == null ? null : ref.get();
+            if(partition == null) {
+                partition = new Partition();
+                partitions.put(loader, new SoftReference<>(partition));
+            }
+            return partition;
+        }
+    }
+    
+    private List<Partition> partitions() {
+        List<Partition> list = new ArrayList<>();
+        synchronized (partitions) {
+            for(SoftReference<Partition> ref : partitions.values()) {
+                Partition partition = ref.get();
+                if(partition != null) list.add(partition);
+            }
+        }
+        return list;
+    }
+    
+    /**
+     * Retorna a bottle em cache de uma entidade, se a versão guardada for
+     * visível no snapshot da thread atual.
+     * @param ref
+     * @return Bottle ou nulo se a entidade não estiver em cache.
+     */
+    public Bottle getBottle(Ref ref) {
+        Entry entry = partition().shard(ref).get(ref, VersionStore.current());
+        if(entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.bottle;
+    }
+    
+    /**
+     * Retorna a entidade em cache.
+     * @param ref
+     * @return Entidade ou nulo se não estiver em cache.
+     */
+    public Entity get(Ref ref) {
+        Bottle bottle = getBottle(ref);
+        return bottle == null ? null : bottle.entity;
+    }
+    
+    /**
+     * Retorna a entidade em cache sem contar nas métricas, para verificações
+     * repetidas de uma consulta que já foi contada.
+     * @param ref
+     * @return Entidade ou nulo se não estiver em cache.
+     */
+    public Entity peek(Ref ref) {
+        Entry entry = partition().shard(ref).get(ref, VersionStore.current());
+        return entry == null ? null : entry.bottle.entity;
+    }
+    
+    /**
+     * Guarda uma entidade lida do registro informado.
+     * @param bottle Bottle da entidade.
+     * @param record Registro lido, de onde saem a versão e o peso.
+     * @return Falso se o cache já tem uma versão mais nova.
+     * @throws Exception 
+     */
+    public boolean put(Bottle bottle, Properties record) throws Exception {
+        return put(bottle, VersionStore.versionOf(record), weigh(record), TTL);
+    }
+    
+    /**
+     * Guarda uma entidade no cache.
+     * @param bottle Bottle da entidade.
+     * @param version Commit que gravou esta versão da entidade.
+     * @param weight Peso estimado em bytes.
+     * @param ttl Tempo de vida em nanossegundos.
+     * @return Falso se o cache já tem uma versão mais nova.
+     * @throws Exception 
+     */
+    public boolean put(Bottle bottle, long version, long weight, long ttl) throws Exception {
+        Ref ref = new Ref(bottle.entity);
+        return partition().shard(ref).put(ref, new Entry(bottle, version, weight, System.nanoTime() + ttl));
+    }
+    
+    /**
+     * Guarda a entidade da bottle e todas as entidades que ela alcança, todas
+     * na versão do commit informado.
+     * @param bottle
+     * @param version
+     * @throws Exception 
+     */
+    public void putAll(Bottle bottle, long version) throws Exception {
+        for(Bottle b : bottle.bottles.values()) {
+            if(b.entity != null) put(b, version, weigh(b.props), TTL);
+        }
+        if(bottle.entity != null && bottle.bottles.get(bottle.entity.getId()) != bottle) {
+            put(bottle, version, weigh(bottle.props), TTL);
+        }
+    }
+    
+    /**
+     * Invalida em todas as partições as entidades alteradas por um commit.
+     * @param changes Alterações do commit.
+     * @param version Número do commit.
+     */
+    public void invalidate(List<WriteAheadLog.Change> changes, long version) {
+        List<Partition> list = partitions();
+        for(WriteAheadLog.Change change : changes) {
+            for(Partition partition : list) {
+                partition.shard(change.ref).invalidate(change.ref, version);
+            }
+            invalidations.increment();
+        }
+    }
+    
+    public void remove(Ref ref) {
+        for(Partition partition : partitions()) {
+            partition.shard(ref).remove(ref);
+        }
+    }
+    
+    public void remove(Entity entity) throws Exception {
+        remove(new Ref(entity));
+    }
+    
+    /**
+     * Descarta a partição de um ClassLoader, por exemplo ao trocar a versão
+     * da aplicação.
+     * @param loader 
+     */
+    public void invalidate(ClassLoader loader) {
+        synchronized (partitions) {
+            partitions.remove(loader);
+        }
+    }
+    
+    public void invalidateAll() {
+        synchronized (partitions) {
+            partitions.clear();
+        }
+    }
+    
+    /**
+     * Peso estimado de uma entidade a partir do seu registro: os caracteres
+     * dos campos e referências mais um valor fixo pelos objetos em memória.
+     * @param record
+     * @return 
+     */
+    public static long weigh(Properties record) {
+        long weight = 256;
+        if(record != null) {
+            for(Object value : record.values()) {
+                weight += 2L * value.toString().length();
+            }
+        }
+        return weight;
+    }
+    
+    /**
+     * Número de entradas em todas as partições, incluindo marcas de invalidação.
+     * @return 
+     */
+    public int size() {
+        int size = 0;
+        for(Partition partition : partitions()) {
+            for(Shard shard : partition.shards) {
+                size += shard.size();
+            }
+        }
+        return size;
+    }
+    
+    public long weight() {
+        long weight = 0;
+        for(Partition partition : partitions()) {
+            for(Shard shard : partition.shards) {
+                weight += shard.weight();
+            }
+        }
+        return weight;
+    }
+    
+    public int getPartitions() {
+        return partitions().size();
+    }
+    
+    public long getHits() {
+        return hits.sum();
+    }
+    
+    public long getMisses() {
+        return misses.sum();
+    }
+    
+    public long getEvictions() {
+        return evictions.sum();
+    }
+    
+    public long getExpirations() {
+        return expirations.sum();
+    }
+    
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+    
+    /**
+     * Proporção de consultas atendidas pelo cache.
+     * @return 
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+    
+    public void resetMetrics() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        expirations.reset();
+        invalidations.reset();
+    }
+    
+}
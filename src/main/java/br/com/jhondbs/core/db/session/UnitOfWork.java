@@ -0,0 +1,181 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.session;
+
+import br.com.jhondbs.core.db.capsule.Bottle;
+import br.com.jhondbs.core.db.capsule.Ref;
+import br.com.jhondbs.core.db.capsule.Transaction;
+import br.com.jhondbs.core.db.interfaces.Entity;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ENGLISH<br>
+ * Groups the saving of many entities: the pending entities are written in
+ * chunks, each chunk in a single transaction, with one lock acquisition, one
+ * log record and one apply pass. A chunk is written as soon as it is full, so
+ * memory stays bounded; each chunk is atomic, the unit as a whole is not.
+ * Pending entities that were not written are discarded on close.<br><br>
+ * PORTUGUÊS<br>
+ * Agrupa a gravação de muitas entidades: as entidades pendentes são gravadas
+ * em lotes, cada lote numa só transação, com uma só aquisição de travas, um só
+ * registro no log e uma só aplicação. Um lote é gravado assim que fica cheio,
+ * mantendo a memória limitada; cada lote é atômico, a unidade inteira não.
+ * Entidades pendentes que não chegaram a ser gravadas são descartadas no close.
+ * @author jhones
+ */
+public final class UnitOfWork implements AutoCloseable {
+    
+    /**
+     * Número padrão de entidades raiz por transação.
+     */
+    public static int CHUNK = 1000;
+    
+    private final int chunk;
+    private final Map<Ref, Entity> pending = new LinkedHashMap<>();
+    private long saved;
+
+    public UnitOfWork() {
+        this(CHUNK);
+    }
+    
+    /**
+     * @param chunk Número de entidades raiz por transação.
+     */
+    public UnitOfWork(int chunk) {
+        if(chunk < 1) {
+            throw new IllegalArgumentException("O tamanho do lote deve ser positivo: " + chunk);
+        }
+        this.chunk = chunk;
+    }
+    
+    /**
+     * ENGLISH<br>
+     * Adds an entity to be saved, writing the pending chunk when it is full.
+     * Adding the same entity again keeps a single entry.<br><br>
+     * PORTUGUÊS<br>
+     * Adiciona uma entidade para ser gravada, gravando o lote pendente quando
+     * ele fica cheio. Adicionar a mesma entidade de novo mantém uma só entrada.
+     * @param entity
+     * @return Esta unidade.
+     * @throws Exception 
+     */
+    public UnitOfWork add(Entity entity) throws Exception {
+        pending.put(new Ref(entity), entity);
+        if(pending.size() >= chunk) {
+            flush();
+        }
+        return this;
+    }
+    
+    /**
+     * ENGLISH<br>
+     * Adds all the entities, see add.<br><br>
+     * PORTUGUÊS<br>
+     * Adiciona todas as entidades, ver add.
+     * @param entities
+     * @return Esta unidade.
+     * @throws Exception 
+     */
+    public UnitOfWork addAll(Collection<? extends Entity> entities) throws Exception {
+        for(Entity entity : entities) {
+            add(entity);
+        }
+        return this;
+    }
+    
+    /**
+     * ENGLISH<br>
+     * Writes the pending entities in a single transaction. If it fails the
+     * entities stay pending.<br><br>
+     * PORTUGUÊS<br>
+     * Grava as entidades pendentes numa só transação. Se falhar, as entidades
+     * continuam pendentes.
+     * @throws Exception 
+     */
+    public void flush() throws Exception {
+        if(pending.isEmpty()) return;
+        // Todas as raízes compartilham o mapa de garrafas e a pasta temporária
+        // da primeira, como as subentidades de um único save.
+        Map<String, Bottle> bottles = new HashMap<>();
+        List<Bottle> roots = new ArrayList<>(pending.size());
+        Bottle first = null;
+        for(Entity entity : pending.values()) {
+            Bottle.BottleBuilder builder = new Bottle.BottleBuilder().entity(entity).bottles(bottles);
+            if(first != null) {
+                builder.tempDB(first.TEMP_DB).modoOperacional(first.modoOperacional);
+            }
+            Bottle bottle = builder.build();
+            if(first == null) first = bottle;
+            roots.add(bottle);
+        }
+        Transaction transaction = new Transaction(first, roots);
+        transaction.commit();
+        if(transaction.getVersion() > 0) {
+            EntityCache.get().putAll(first, transaction.getVersion());
+        }
+        saved += pending.size();
+        pending.clear();
+    }
+    
+    /**
+     * ENGLISH<br>
+     * Writes the entities still pending.<br><br>
+     * PORTUGUÊS<br>
+     * Grava as entidades ainda pendentes.
+     * @throws Exception 
+     */
+    public void commit() throws Exception {
+        flush();
+    }
+    
+    /**
+     * Número de entidades aguardando gravação.
+     * @return 
+     */
+    public int pending() {
+        return pending.size();
+    }
+    
+    /**
+     * Número de entidades raiz já gravadas por esta unidade.
+     * @return 
+     */
+    public long saved() {
+        return saved;
+    }
+    
+    /**
+     * Descarta as entidades pendentes.
+     */
+    @Override
+    public void close() {
+        pending.clear();
+    }
+    
+}
@@ -0,0 +1,223 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.storage;
+
+import br.com.jhondbs.core.db.capsule.Bottle;
+import br.com.jhondbs.core.db.capsule.RecordIO;
+import br.com.jhondbs.core.db.capsule.Ref;
+import br.com.jhondbs.core.db.capsule.Transaction;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Armazenamento original do JhonDBS: um arquivo por entidade em
+ * ./db/pacote/Classe/id, com backups feitos renomeando o arquivo para .bak.
+ * Arquivos a partir de MAP_THRESHOLD bytes são lidos por regiões mapeadas em
+ * memória (MappedRegions); os menores, que são a maioria, são lidos direto para
+ * o heap, sem ocupar um mapeamento cada. As gravações substituem o arquivo por
+ * renomeação, para que uma região já mapeada nunca veja um arquivo truncado.
+ * Sem o log de escrita antecipada, o commit renomeia os arquivos para .bak antes
+ * de gravar os novos. Enquanto isso o backup continua sendo o registro ativo da
+ * entidade: exists, read e listIds o enxergam, e delete o descarta.
+ * @author jhones
+ */
+public final class FileStorage implements Storage {
+    
+    /**
+     * Tamanho em bytes a partir do qual a leitura de um registro é mapeada em
+     * memória.
+     */
+    public static int MAP_THRESHOLD = 64 * 1024;
+    
+    private static final String TMP_SUFFIX = ".tmp";
+    
+    private final String root;
+    
+    /**
+     * Arquivos gravados desde a última sincronização.
+     */
+    private final Set<File> dirty = ConcurrentHashMap.newKeySet();
+
+    public FileStorage() {
+        this(Bottle.ROOT_DB);
+    }
+
+    public FileStorage(String root) {
+        this.root = root.endsWith("/") ? root : root + "/";
+    }
+    
+    /**
+     * Retorna o arquivo de produção de uma entidade.
+     * @param ref
+     * @return 
+     */
+    public File getFile(Ref ref) {
+        return new File(getFolder(ref.recoverClass()), ref.getKey());
+    }
+    
+    private File getFolder(Class clazz) {
+        return new File(root + clazz.getName().replace(".class", "").replace(".", "/"));
+    }
+    
+    private File getBackup(Ref ref) {
+        return new File(getFile(ref).getPath() + Transaction.BACKUP_SUFFIX);
+    }
+
+    @Override
+    public boolean exists(Ref ref) {
+        return getFile(ref).exists() || getBackup(ref).exists();
+    }
+
+    @Override
+    public Properties read(Ref ref) throws IOException {
+        File file = getFile(ref);
+        try {
+            if(Files.size(file.toPath()) < MAP_THRESHOLD) {
+                return RecordIO.decode(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+            }
+            return RecordIO.decode(MappedRegions.get().map(file.toPath()));
+        } catch (FileNotFoundException | NoSuchFileException ex) {
+            // No meio de um commit sem log o registro ativo é o backup. Ele é
+            // lido sem mapeamento, já que o caminho é reaproveitado a cada
+            // commit.
+            try {
+                return RecordIO.read(getBackup(ref));
+            } catch (NoSuchFileException notFound) {
+                throw new FileNotFoundException("Entidade não encontrada: " + file.getPath());
+            }
+        }
+    }
+
+    @Override
+    public void write(Ref ref, Properties record) throws IOException {
+        File file = getFile(ref);
+        file.getParentFile().mkdirs();
+        File tmp = new File(file.getPath() + TMP_SUFFIX);
+        RecordIO.write(record, tmp);
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        MappedRegions.get().invalidate(file.toPath());
+        dirty.add(file);
+    }
+
+    @Override
+    public void delete(Ref ref) throws IOException {
+        File file = getFile(ref);
+        MappedRegions.get().invalidate(file.toPath());
+        boolean deleted = Files.deleteIfExists(file.toPath());
+        if(Files.deleteIfExists(getBackup(ref).toPath()) || deleted) {
+            dirty.add(file.getParentFile());
+        }
+    }
+
+    @Override
+    public List<String> listIds(Class clazz) {
+        String[] list = getFolder(clazz).list();
+        if(list == null) return new ArrayList<>();
+        return new ArrayList<>(Arrays.stream(list)
+                .filter(id -> !id.endsWith(TMP_SUFFIX))
+                .map(id -> id.endsWith(Transaction.BACKUP_SUFFIX) ? id.substring(0, id.length() - Transaction.BACKUP_SUFFIX.length()) : id)
+                .distinct()
+                .toList());
+    }
+
+    @Override
+    public boolean export(Ref ref, File target) throws IOException {
+        File file = getFile(ref);
+        if(!file.exists()) {
+            file = getBackup(ref);
+        }
+        if(file.exists()) {
+            Files.copy(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void backup(Ref ref) throws IOException {
+        File file = getFile(ref);
+        if(file.exists()) {
+            MappedRegions.get().invalidate(file.toPath());
+            file.renameTo(getBackup(ref));
+        }
+    }
+
+    @Override
+    public void restore(Ref ref) throws IOException {
+        File backup = getBackup(ref);
+        if(backup.exists()) {
+            File file = getFile(ref);
+            MappedRegions.get().invalidate(file.toPath());
+            Files.move(backup.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Override
+    public void discardBackup(Ref ref) throws IOException {
+        Files.deleteIfExists(getBackup(ref).toPath());
+    }
+
+    @Override
+    public void sync() throws IOException {
+        Set<File> folders = new HashSet<>();
+        for(File file : dirty.toArray(new File[0])) {
+            dirty.remove(file);
+            if(file.isFile()) {
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+                folders.add(file.getParentFile());
+            } else if(file.isDirectory()) {
+                folders.add(file);
+            }
+        }
+        for(File folder : folders) {
+            // Nem todo sistema permite abrir diretórios para sincronizar.
+            try (FileChannel channel = FileChannel.open(folder.toPath(), StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch (IOException ex) {
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+    }
+    
+}
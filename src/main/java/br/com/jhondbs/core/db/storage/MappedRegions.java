@@ -0,0 +1,190 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.storage;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Conjunto limitado de regiões de arquivo mapeadas em memória, usado pelo
+ * caminho de leitura dos motores de armazenamento.
+ * Uma leitura que encontra a região já mapeada não faz nenhuma chamada ao
+ * sistema; as demais abrem o arquivo, mapeiam e fecham o canal. As regiões
+ * menos usadas são descartadas quando o limite é atingido e o sistema as
+ * desmapeia na coleta de lixo.
+ * Os motores devem invalidar a região de um arquivo sempre que ele for
+ * substituído ou apagado. Cada invalidação avança a geração do caminho, e um
+ * mapeamento feito durante uma invalidação é refeito em vez de guardado.
+ * @author jhones
+ */
+public final class MappedRegions {
+    
+    /**
+     * Número máximo de regiões mapeadas ao mesmo tempo.
+     */
+    public static int MAX_REGIONS = 4096;
+    
+    private static final MappedRegions INSTANCE = new MappedRegions();
+    
+    /**
+     * Gerações por faixa de caminhos. Caminhos que caem na mesma faixa só
+     * causam um remapeamento a mais.
+     */
+    private static final int GENERATIONS = 256;
+    
+    private final LinkedHashMap<Path, MappedByteBuffer> regions = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, MappedByteBuffer> eldest) {
+            return size() > MAX_REGIONS;
+        }
+    };
+    private final long[] generations = new long[GENERATIONS];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder remaps = new LongAdder();
+
+    private MappedRegions() {
+    }
+    
+    public static MappedRegions get() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Retorna o arquivo inteiro mapeado em memória.
+     * @param path
+     * @return Buffer somente leitura, com posição própria.
+     * @throws IOException 
+     */
+    public ByteBuffer map(Path path) throws IOException {
+        return map(path, 0);
+    }
+    
+    /**
+     * Retorna o arquivo mapeado em memória, remapeando se a região atual for
+     * menor que o tamanho mínimo, como acontece com arquivos que só crescem.
+     * @param path
+     * @param minLength
+     * @return Buffer somente leitura, com posição própria.
+     * @throws IOException 
+     */
+    public ByteBuffer map(Path path, long minLength) throws IOException {
+        int stripe = stripe(path);
+        while(true) {
+            MappedByteBuffer region;
+            long generation;
+            synchronized (regions) {
+                region = regions.get(path);
+                generation = generations[stripe];
+            }
+            if(region != null && region.capacity() >= minLength) {
+                hits.increment();
+                return region.duplicate();
+            }
+            remaps.increment();
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if(size > Integer.MAX_VALUE) throw new IOException("Arquivo grande demais para ser mapeado: " + path);
+                region = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } catch (NoSuchFileException ex) {
+                throw new FileNotFoundException(path.toString());
+            }
+            synchronized (regions) {
+                // Invalidado enquanto mapeava: a região pode ser do arquivo
+                // antigo e não pode ser guardada.
+                if(generations[stripe] == generation) {
+                    regions.put(path, region);
+                    return region.duplicate();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Descarta a região mapeada de um arquivo.
+     * @param path 
+     */
+    public void invalidate(Path path) {
+        synchronized (regions) {
+            generations[stripe(path)]++;
+            regions.remove(path);
+        }
+    }
+    
+    /**
+     * Descarta todas as regiões cujo caminho começa com o prefixo.
+     * @param prefix 
+     */
+    public void invalidateAll(Path prefix) {
+        synchronized (regions) {
+            for(int i = 0; i < GENERATIONS; i++) {
+                generations[i]++;
+            }
+            regions.keySet().removeIf(path -> path.startsWith(prefix));
+        }
+    }
+    
+    private static int stripe(Path path) {
+        int h = path.hashCode();
+        return (h ^ (h >>> 16)) & (GENERATIONS - 1);
+    }
+    
+    public int size() {
+        synchronized (regions) {
+            return regions.size();
+        }
+    }
+    
+    public long getHits() {
+        return hits.sum();
+    }
+    
+    public long getRemaps() {
+        return remaps.sum();
+    }
+    
+    /**
+     * Proporção de leituras atendidas por regiões já mapeadas.
+     * @return 
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + remaps.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+    
+    public void resetMetrics() {
+        hits.reset();
+        remaps.reset();
+    }
+    
+}
@@ -0,0 +1,696 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.storage;
+
+import br.com.jhondbs.core.db.capsule.Bottle;
+import br.com.jhondbs.core.db.capsule.RecordIO;
+import br.com.jhondbs.core.db.capsule.Ref;
+import br.com.jhondbs.core.tools.ClassDictionary;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Armazenamento em segmentos de apenas acréscimo, um conjunto por classe em
+ * ./db/segments/nome.da.Classe/.
+ * Cada gravação acrescenta um registro ao final do segmento ativo com o
+ * cabeçalho [tipo][índice da classe][tamanho do id][tamanho do conteúdo][CRC32]
+ * seguido do id e do conteúdo codificado pelo RecordIO. Exclusões gravam uma
+ * lápide no lugar do conteúdo.
+ * As leituras dos segmentos fechados vêm direto das suas regiões mapeadas
+ * (MappedRegions); as do segmento ativo, que ainda cresce, são feitas pelo
+ * canal do arquivo.
+ * A posição do registro ativo de cada id fica em um índice em memória,
+ * reconstruído na abertura a partir do arquivo de dicas (index.hint) e da
+ * varredura do que foi gravado depois dele. Segmentos fechados com muito
+ * espaço morto são compactados em segundo plano.
+ * @author jhones
+ */
+public final class SegmentStorage implements Storage {
+    
+    private static final Logger LOGGER = Logger.getLogger(SegmentStorage.class.getName());
+    
+    /**
+     * Tamanho a partir do qual um novo segmento é iniciado.
+     */
+    public static long SEGMENT_SIZE = 64L * 1024 * 1024;
+    
+    /**
+     * Proporção de espaço morto a partir da qual um segmento é compactado.
+     */
+    public static double COMPACTION_THRESHOLD = 0.5;
+    
+    /**
+     * Intervalo em segundos entre as compactações automáticas. Zero desliga.
+     */
+    public static long COMPACTION_INTERVAL = 60;
+    
+    /**
+     * Força a sincronização com o disco a cada gravação.
+     */
+    public static boolean SYNC_WRITES = false;
+    
+    static final byte PUT = 1;
+    static final byte TOMBSTONE = 2;
+    static final int HEADER_SIZE = 15;
+    private static final int CRC_OFFSET = 11;
+    private static final int HINT_MAGIC = 0x4A444248;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String HINT_FILE = "index.hint";
+    
+    private final File root;
+    private final ConcurrentHashMap<Integer, ClassSegments> classes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService compactor;
+
+    public SegmentStorage() {
+        this(Bottle.ROOT_DB + "segments/");
+    }
+
+    public SegmentStorage(String root) {
+        this.root = new File(root);
+        this.root.mkdirs();
+        if(COMPACTION_INTERVAL > 0) {
+            compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "JhonDBS-Compactor");
+                t.setDaemon(true);
+                return t;
+            });
+            compactor.scheduleWithFixedDelay(() -> {
+                try {
+                    compact();
+                } catch (IOException ex) {
+                    LOGGER.log(Level.WARNING, "Falha na compactação dos segmentos", ex);
+                }
+            }, COMPACTION_INTERVAL, COMPACTION_INTERVAL, TimeUnit.SECONDS);
+        } else {
+            compactor = null;
+        }
+    }
+    
+    private ClassSegments of(int classIndex) throws IOException {
+        ClassSegments segments = classes.get(classIndex);
+        if(segments == null) {
+            synchronized (classes) {
+                segments = classes.get(classIndex);
+                if(segments == null) {
+                    Class clazz = ClassDictionary.fromIndex(classIndex);
+                    if(clazz == null) throw new IOException("Classe não registrada no dicionário: " + classIndex);
+                    segments = new ClassSegments(classIndex, new File(root, clazz.getName()));
+                    segments.open();
+                    classes.put(classIndex, segments);
+                }
+            }
+        }
+        return segments;
+    }
+    
+    private ClassSegments ofQuietly(int classIndex) {
+        try {
+            return of(classIndex);
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Falha ao abrir os segmentos da classe " + classIndex, ex);
+            return null;
+        }
+    }
+
+    @Override
+    public boolean exists(Ref ref) {
+        ClassSegments segments = ofQuietly(ref.getValue());
+        return segments != null && segments.index.containsKey(ref.getKey());
+    }
+
+    @Override
+    public Properties read(Ref ref) throws IOException {
+        return RecordIO.decode(of(ref.getValue()).readPayload(ref.getKey(), false));
+    }
+
+    @Override
+    public void write(Ref ref, Properties record) throws IOException {
+        of(ref.getValue()).put(ref.getKey(), RecordIO.encode(record));
+    }
+
+    @Override
+    public void delete(Ref ref) throws IOException {
+        of(ref.getValue()).remove(ref.getKey());
+    }
+
+    @Override
+    public List<String> listIds(Class clazz) {
+        ClassSegments segments = ofQuietly(ClassDictionary.getIndex(clazz));
+        return segments == null ? new ArrayList<>() : new ArrayList<>(segments.index.keySet());
+    }
+
+    @Override
+    public boolean export(Ref ref, File target) throws IOException {
+        ClassSegments segments = of(ref.getValue());
+        ByteBuffer payload;
+        try {
+            payload = segments.readPayload(ref.getKey(), true);
+        } catch (FileNotFoundException ex) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while(payload.hasRemaining()) {
+                channel.write(payload);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void backup(Ref ref) throws IOException {
+        ClassSegments segments = of(ref.getValue());
+        Location location = segments.index.get(ref.getKey());
+        if(location != null) {
+            segments.backups.put(ref.getKey(), location);
+        }
+    }
+
+    @Override
+    public void restore(Ref ref) throws IOException {
+        of(ref.getValue()).restore(ref.getKey());
+    }
+
+    @Override
+    public void discardBackup(Ref ref) throws IOException {
+        of(ref.getValue()).backups.remove(ref.getKey());
+    }
+    
+    @Override
+    public void sync() throws IOException {
+        for(ClassSegments segments : classes.values()) {
+            segments.sync();
+        }
+    }
+    
+    /**
+     * Compacta todos os segmentos fechados que passaram do limite de espaço morto.
+     * @throws IOException 
+     */
+    public void compact() throws IOException {
+        for(ClassSegments segments : classes.values()) {
+            segments.compact();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(compactor != null) {
+            compactor.shutdownNow();
+        }
+        synchronized (classes) {
+            for(ClassSegments segments : classes.values()) {
+                segments.close();
+            }
+            classes.clear();
+        }
+    }
+    
+    /**
+     * Monta o registro binário completo, com cabeçalho e CRC.
+     */
+    static byte[] encodeRecord(byte type, int classIndex, String id, byte[] payload) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + idBytes.length + payload.length);
+        buffer.put(type)
+                .putInt(classIndex)
+                .putShort((short) idBytes.length)
+                .putInt(payload.length)
+                .putInt(0)
+                .put(idBytes)
+                .put(payload);
+        byte[] record = buffer.array();
+        buffer.putInt(CRC_OFFSET, checksum(record));
+        return record;
+    }
+    
+    private static int checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, CRC_OFFSET);
+        crc.update(record, HEADER_SIZE, record.length - HEADER_SIZE);
+        return (int) crc.getValue();
+    }
+    
+    /**
+     * Posição de um registro dentro dos segmentos de uma classe.
+     */
+    static final class Location {
+        final int segment;
+        final long offset;
+        final int length;
+
+        Location(int segment, long offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Location l && l.segment == segment && l.offset == offset;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(offset) * 31 + segment;
+        }
+    }
+    
+    /**
+     * Registro lido durante uma varredura de segmento.
+     */
+    private static final class Entry {
+        byte type;
+        String id;
+        byte[] payload;
+        int length;
+    }
+    
+    private static final class Segment {
+        final int number;
+        final File file;
+        final FileChannel channel;
+        long size;
+        long live;
+        boolean dirty;
+
+        Segment(int number, File file) throws IOException {
+            this.number = number;
+            this.file = file;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.size = channel.size();
+        }
+        
+        void read(ByteBuffer buffer, long position) throws IOException {
+            while(buffer.hasRemaining()) {
+                if(channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Fim inesperado do segmento: " + file);
+                }
+            }
+            buffer.flip();
+        }
+        
+        /**
+         * Lê o registro em uma posição, retornando nulo se estiver incompleto
+         * ou corrompido.
+         */
+        Entry readEntry(long position) throws IOException {
+            if(position + HEADER_SIZE > size) return null;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            read(header, position);
+            byte type = header.get();
+            header.getInt();
+            int idLength = Short.toUnsignedInt(header.getShort());
+            int payloadLength = header.getInt();
+            int length = HEADER_SIZE + idLength + payloadLength;
+            if((type != PUT && type != TOMBSTONE) || payloadLength < 0 || position + length > size) return null;
+            ByteBuffer record = ByteBuffer.allocate(length);
+            read(record, position);
+            byte[] bytes = record.array();
+            if(checksum(bytes) != ByteBuffer.wrap(bytes).getInt(CRC_OFFSET)) return null;
+            Entry entry = new Entry();
+            entry.type = type;
+            entry.id = new String(bytes, HEADER_SIZE, idLength, StandardCharsets.UTF_8);
+            entry.payload = new byte[payloadLength];
+            System.arraycopy(bytes, HEADER_SIZE + idLength, entry.payload, 0, payloadLength);
+            entry.length = length;
+            return entry;
+        }
+        
+        /**
+         * Retorna o conteúdo de um registro, conferindo o CRC e o id. Retorna
+         * nulo se não conferir. Segmentos fechados são lidos direto da região
+         * mapeada; o segmento ativo, que ainda cresce, é lido pelo canal, para
+         * não remapear o arquivo inteiro a cada registro acrescentado.
+         */
+        ByteBuffer payload(Location location, String id, boolean mapped) throws IOException {
+            ByteBuffer record;
+            if(mapped) {
+                ByteBuffer region = MappedRegions.get().map(file.toPath(), location.offset + location.length);
+                record = region.slice((int) location.offset, location.length);
+            } else {
+                record = ByteBuffer.allocate(location.length);
+                read(record, location.offset);
+            }
+            int idLength = Short.toUnsignedInt(record.getShort(5));
+            int payloadLength = record.getInt(7);
+            if(HEADER_SIZE + idLength + payloadLength != location.length) return null;
+            CRC32 crc = new CRC32();
+            crc.update(record.slice(0, CRC_OFFSET));
+            crc.update(record.slice(HEADER_SIZE, location.length - HEADER_SIZE));
+            if((int) crc.getValue() != record.getInt(CRC_OFFSET)) return null;
+            ByteBuffer expected = StandardCharsets.UTF_8.encode(id);
+            if(record.slice(HEADER_SIZE, idLength).mismatch(expected) != -1) return null;
+            return record.slice(HEADER_SIZE + idLength, payloadLength);
+        }
+        
+        long append(byte[] record) throws IOException {
+            long position = size;
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            while(buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+            size += record.length;
+            dirty = true;
+            if(SYNC_WRITES) {
+                force();
+            }
+            return position;
+        }
+        
+        void force() throws IOException {
+            if(dirty) {
+                channel.force(false);
+                dirty = false;
+            }
+        }
+    }
+    
+    /**
+     * Segmentos e índice de uma única classe.
+     */
+    private static final class ClassSegments {
+        final int classIndex;
+        final File folder;
+        final ConcurrentHashMap<String, Location> index = new ConcurrentHashMap<>();
+        final Map<String, Location> backups = new ConcurrentHashMap<>();
+        final TreeMap<Integer, Segment> segments = new TreeMap<>();
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        Segment active;
+
+        ClassSegments(int classIndex, File folder) {
+            this.classIndex = classIndex;
+            this.folder = folder;
+        }
+        
+        void open() throws IOException {
+            folder.mkdirs();
+            File[] files = folder.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+            if(files != null) {
+                for(File file : files) {
+                    String name = file.getName();
+                    int number = Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                    segments.put(number, new Segment(number, file));
+                }
+            }
+            int fromSegment = 0;
+            long fromOffset = 0;
+            long[] hinted = loadHint();
+            if(hinted != null) {
+                fromSegment = (int) hinted[0];
+                fromOffset = hinted[1];
+            } else {
+                index.clear();
+            }
+            for(Segment segment : segments.tailMap(fromSegment, true).values()) {
+                scan(segment, segment.number == fromSegment ? fromOffset : 0);
+            }
+            for(Location location : index.values()) {
+                segments.get(location.segment).live += location.length;
+            }
+            active = segments.isEmpty() ? newSegment(1) : segments.lastEntry().getValue();
+        }
+        
+        /**
+         * Carrega o índice do arquivo de dicas.
+         * @return Segmento e posição a partir dos quais a varredura deve
+         * continuar, ou nulo se as dicas não puderem ser usadas.
+         */
+        private long[] loadHint() {
+            File hint = new File(folder, HINT_FILE);
+            if(!hint.exists()) return null;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(hint)))) {
+                if(in.readInt() != HINT_MAGIC) return null;
+                int lastSegment = in.readInt();
+                long lastSize = in.readLong();
+                Segment last = segments.get(lastSegment);
+                if(last == null || last.size < lastSize) return null;
+                int count = in.readInt();
+                for(int i = 0; i < count; i++) {
+                    String id = in.readUTF();
+                    Location location = new Location(in.readInt(), in.readLong(), in.readInt());
+                    if(!segments.containsKey(location.segment)) {
+                        index.clear();
+                        return null;
+                    }
+                    index.put(id, location);
+                }
+                return new long[]{lastSegment, lastSize};
+            } catch (IOException | RuntimeException ex) {
+                LOGGER.log(Level.WARNING, "Arquivo de dicas inválido, reconstruindo o índice: " + hint, ex);
+                index.clear();
+                return null;
+            }
+        }
+        
+        private void writeHint() throws IOException {
+            File hint = new File(folder, HINT_FILE);
+            File tmp = new File(folder, HINT_FILE + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(HINT_MAGIC);
+                out.writeInt(active.number);
+                out.writeLong(active.size);
+                Map<String, Location> snapshot = Map.copyOf(index);
+                out.writeInt(snapshot.size());
+                for(Map.Entry<String, Location> entry : snapshot.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().segment);
+                    out.writeLong(entry.getValue().offset);
+                    out.writeInt(entry.getValue().length);
+                }
+            }
+            Files.move(tmp.toPath(), hint.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        
+        /**
+         * Aplica ao índice os registros de um segmento a partir de uma posição.
+         * Um final incompleto, deixado por uma queda durante a gravação, é
+         * descartado.
+         */
+        private void scan(Segment segment, long position) throws IOException {
+            while(position < segment.size) {
+                Entry entry = segment.readEntry(position);
+                if(entry == null) {
+                    LOGGER.log(Level.WARNING, "Registro incompleto descartado em {0} na posição {1}", new Object[]{segment.file, position});
+                    segment.channel.truncate(position);
+                    MappedRegions.get().invalidate(segment.file.toPath());
+                    segment.size = position;
+                    break;
+                }
+                if(entry.type == PUT) {
+                    index.put(entry.id, new Location(segment.number, position, entry.length));
+                } else {
+                    index.remove(entry.id);
+                }
+                position += entry.length;
+            }
+        }
+        
+        private Segment newSegment(int number) throws IOException {
+            Segment segment = new Segment(number, new File(folder, String.format("%06d", number) + SEGMENT_SUFFIX));
+            segments.put(number, segment);
+            return segment;
+        }
+        
+        /**
+         * Acrescenta um registro ao segmento ativo, iniciando um novo quando
+         * o atual atinge o tamanho máximo. Deve ser chamado com a trava de escrita.
+         */
+        private Location append(byte type, String id, byte[] payload) throws IOException {
+            byte[] record = encodeRecord(type, classIndex, id, payload);
+            if(active.size > 0 && active.size + record.length > SEGMENT_SIZE) {
+                active = newSegment(active.number + 1);
+            }
+            long offset = active.append(record);
+            return new Location(active.number, offset, record.length);
+        }
+        
+        private void index(String id, Location location) {
+            Location old = location == null ? index.remove(id) : index.put(id, location);
+            if(old != null) {
+                segments.get(old.segment).live -= old.length;
+            }
+            if(location != null) {
+                segments.get(location.segment).live += location.length;
+            }
+        }
+        
+        void put(String id, byte[] payload) throws IOException {
+            lock.writeLock().lock();
+            try {
+                index(id, append(PUT, id, payload));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        void remove(String id) throws IOException {
+            lock.writeLock().lock();
+            try {
+                if(index.containsKey(id)) {
+                    append(TOMBSTONE, id, new byte[0]);
+                    index(id, null);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        void restore(String id) throws IOException {
+            lock.writeLock().lock();
+            try {
+                Location backup = backups.remove(id);
+                if(backup != null && !backup.equals(index.get(id))) {
+                    Entry entry = segments.get(backup.segment).readEntry(backup.offset);
+                    if(entry == null) throw new IOException("Backup corrompido da entidade: " + id);
+                    index(id, append(PUT, id, entry.payload));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        /**
+         * Lê o conteúdo codificado do registro ativo de um id.
+         * @param fallbackToBackup Usa a posição guardada pelo backup se o id
+         * não estiver mais ativo.
+         */
+        ByteBuffer readPayload(String id, boolean fallbackToBackup) throws IOException {
+            lock.readLock().lock();
+            try {
+                Location location = index.get(id);
+                if(location == null && fallbackToBackup) {
+                    location = backups.get(id);
+                }
+                if(location == null) {
+                    throw new FileNotFoundException("Entidade não encontrada: " + folder.getName() + " -> " + id);
+                }
+                Segment segment = segments.get(location.segment);
+                ByteBuffer payload = segment.payload(location, id, segment != active);
+                if(payload == null) {
+                    throw new IOException("Registro corrompido: " + folder.getName() + " -> " + id);
+                }
+                return payload;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        
+        /**
+         * Reescreve no segmento ativo os registros vivos dos segmentos fechados
+         * com muito espaço morto e apaga os segmentos antigos. Lápides só são
+         * descartadas quando não existe segmento mais antigo que possa conter
+         * o registro que elas anulam. Segmentos com backups em uso são mantidos.
+         */
+        void compact() throws IOException {
+            lock.writeLock().lock();
+            try {
+                boolean changed = false;
+                for(Segment segment : new ArrayList<>(segments.values())) {
+                    if(segment == active || segment.size == 0) continue;
+                    if(1.0 - (double) segment.live / segment.size < COMPACTION_THRESHOLD) continue;
+                    if(backups.values().stream().anyMatch(l -> l.segment == segment.number)) continue;
+                    boolean oldest = segments.firstKey() == segment.number;
+                    long position = 0;
+                    while(position < segment.size) {
+                        Entry entry = segment.readEntry(position);
+                        if(entry == null) break;
+                        if(entry.type == PUT) {
+                            if(new Location(segment.number, position, entry.length).equals(index.get(entry.id))) {
+                                index(entry.id, append(PUT, entry.id, entry.payload));
+                            }
+                        } else if(!oldest && !index.containsKey(entry.id)) {
+                            append(TOMBSTONE, entry.id, entry.payload);
+                        }
+                        position += entry.length;
+                    }
+                    active.force();
+                    segment.channel.close();
+                    MappedRegions.get().invalidate(segment.file.toPath());
+                    segments.remove(segment.number);
+                    Files.deleteIfExists(segment.file.toPath());
+                    changed = true;
+                }
+                if(changed) {
+                    writeHint();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        void sync() throws IOException {
+            lock.writeLock().lock();
+            try {
+                for(Segment segment : segments.values()) {
+                    segment.force();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        void close() throws IOException {
+            lock.writeLock().lock();
+            try {
+                for(Segment segment : segments.values()) {
+                    segment.force();
+                }
+                writeHint();
+                for(Segment segment : segments.values()) {
+                    segment.channel.close();
+                }
+                MappedRegions.get().invalidateAll(folder.toPath());
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+    
+}
@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.storage;
+
+import br.com.jhondbs.core.db.capsule.Ref;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Motor de armazenamento da área de produção do banco de dados.
+ * Todas as leituras e gravações de registros de entidades fora da pasta
+ * temporária passam por aqui, permitindo trocar a forma como os registros são
+ * guardados em disco sem alterar o fluxo de Bottle e Transaction.
+ * O backup de uma entidade durante um commit também é responsabilidade do
+ * motor, já que cada formato tem a sua maneira de preservar o estado anterior.
+ * @author jhones
+ */
+public interface Storage {
+    
+    /**
+     * Verifica se existe um registro ativo para a referência.
+     * @param ref
+     * @return 
+     */
+    boolean exists(Ref ref);
+    
+    /**
+     * Lê o registro ativo de uma entidade.
+     * @param ref
+     * @return
+     * @throws java.io.FileNotFoundException Caso a entidade não exista.
+     * @throws IOException 
+     */
+    Properties read(Ref ref) throws IOException;
+    
+    /**
+     * Grava o registro de uma entidade, substituindo o anterior.
+     * @param ref
+     * @param record
+     * @throws IOException 
+     */
+    void write(Ref ref, Properties record) throws IOException;
+    
+    /**
+     * Remove o registro de uma entidade. Não faz nada se ela não existir.
+     * @param ref
+     * @throws IOException 
+     */
+    void delete(Ref ref) throws IOException;
+    
+    /**
+     * Lista os IDs de todas as entidades gravadas de uma classe.
+     * @param clazz
+     * @return 
+     */
+    List<String> listIds(Class clazz);
+    
+    /**
+     * Copia o registro de produção da entidade, ou o seu backup caso esteja no
+     * meio de um commit, para um arquivo da pasta temporária.
+     * @param ref
+     * @param target
+     * @return Verdadeiro se havia um registro para copiar.
+     * @throws IOException 
+     */
+    boolean export(Ref ref, File target) throws IOException;
+    
+    /**
+     * Preserva o estado atual da entidade antes de um commit.
+     * @param ref
+     * @throws IOException 
+     */
+    void backup(Ref ref) throws IOException;
+    
+    /**
+     * Devolve a entidade ao estado preservado pelo backup, em caso de erro.
+     * @param ref
+     * @throws IOException 
+     */
+    void restore(Ref ref) throws IOException;
+    
+    /**
+     * Descarta o backup da entidade após o fim do commit.
+     * @param ref
+     * @throws IOException 
+     */
+    void discardBackup(Ref ref) throws IOException;
+    
+    /**
+     * Garante que todas as gravações feitas até aqui estão no disco.
+     * @throws IOException 
+     */
+    void sync() throws IOException;
+    
+    /**
+     * Libera os recursos do motor.
+     * @throws IOException 
+     */
+    void close() throws IOException;
+    
+}
@@ -0,0 +1,153 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.storage;
+
+import br.com.jhondbs.core.db.index.IndexManager;
+import br.com.jhondbs.core.db.index.ReferenceGraph;
+import br.com.jhondbs.core.db.index.Statistics;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Mantém o motor de armazenamento em uso pelo banco de dados e o seu log de
+ * escrita antecipada.
+ * O padrão é o FileStorage, compatível com os bancos já existentes. Para usar
+ * os segmentos basta chamar StorageManager.use(StorageManager.SEGMENT) antes
+ * de qualquer operação.
+ * @author jhones
+ */
+public final class StorageManager {
+    
+    private static final Logger LOGGER = Logger.getLogger(StorageManager.class.getName());
+    
+    public static final int FILE = 0;
+    public static final int SEGMENT = 1;
+    
+    private static volatile Storage storage;
+    private static volatile WriteAheadLog wal;
+    private static boolean hooked = false;
+
+    private StorageManager() {
+    }
+    
+    /**
+     * Retorna o motor de armazenamento ativo.
+     * @return 
+     */
+    public static Storage get() {
+        Storage current = storage;
+        if(current == null) {
+            synchronized (StorageManager.class) {
+                if(storage == null) {
+                    open(new FileStorage());
+                }
+                current = storage;
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * Retorna o log de escrita antecipada do motor ativo, ou nulo se o log
+     * estiver desligado.
+     * @return 
+     */
+    public static WriteAheadLog wal() {
+        get();
+        return wal;
+    }
+    
+    /**
+     * Troca o motor de armazenamento pelo modo informado.
+     * @param mode FILE ou SEGMENT.
+     * @throws IOException 
+     */
+    public static void use(int mode) throws IOException {
+        switch (mode) {
+            case FILE -> use(new FileStorage());
+            case SEGMENT -> use(new SegmentStorage());
+            default -> throw new IllegalArgumentException("Modo de armazenamento desconhecido: " + mode);
+        }
+    }
+    
+    /**
+     * Troca o motor de armazenamento, fechando o anterior.
+     * @param newStorage
+     * @throws IOException 
+     */
+    public static synchronized void use(Storage newStorage) throws IOException {
+        Storage old = storage;
+        if(old == newStorage) return;
+        close();
+        open(newStorage);
+    }
+    
+    private static void open(Storage newStorage) {
+        // O motor precisa estar visível para a recuperação do log, que atualiza os índices.
+        storage = newStorage;
+        WriteAheadLog log = null;
+        if(WriteAheadLog.ENABLED) {
+            try {
+                log = new WriteAheadLog(newStorage);
+            } catch (IOException ex) {
+                LOGGER.log(Level.SEVERE, "Falha ao abrir o log de escrita antecipada, usando backups .bak", ex);
+            }
+        }
+        wal = log;
+        if(!hooked) {
+            hooked = true;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    close();
+                } catch (IOException ex) {
+                    LOGGER.log(Level.SEVERE, "Falha ao fechar o armazenamento", ex);
+                }
+            }, "JhonDBS-Storage-Shutdown"));
+        }
+    }
+    
+    /**
+     * Faz o checkpoint do log e fecha o motor ativo.
+     * @throws IOException 
+     */
+    public static synchronized void close() throws IOException {
+        try {
+            if(wal != null) {
+                wal.close();
+            }
+        } finally {
+            wal = null;
+            VersionStore.saveSequence();
+            IndexManager.close();
+            ReferenceGraph.close();
+            Statistics.clear();
+            if(storage != null) {
+                storage.close();
+            }
+            storage = null;
+        }
+    }
+    
+}
@@ -0,0 +1,484 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.storage;
+
+import br.com.jhondbs.core.db.capsule.Bottle;
+import br.com.jhondbs.core.db.capsule.Ref;
+import br.com.jhondbs.core.db.index.IndexManager;
+import br.com.jhondbs.core.db.index.ReferenceGraph;
+import br.com.jhondbs.core.db.index.Statistics;
+import br.com.jhondbs.core.tools.ClassDictionary;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Controle de versões das entidades (MVCC).
+ * Cada commit recebe um número de sequência, gravado na propriedade "seq" dos
+ * registros. O armazenamento guarda apenas a versão mais nova de cada entidade;
+ * ao aplicar um commit, a versão anterior de cada registro alterado é guardada
+ * em memória numa cadeia de versões, antes de o registro ser sobrescrito.
+ * As leituras acontecem dentro de um Snapshot, que fixa o último commit
+ * publicado: o registro do armazenamento é lido e, se um commit posterior ao
+ * snapshot já o alterou, a cadeia devolve a versão que valia no snapshot. Assim
+ * nenhuma leitura espera por commits nem enxerga um commit aplicado pela metade.
+ * As versões antigas são descartadas assim que nenhum snapshot aberto precisa
+ * delas.
+ * A sequência é gravada em disco a cada checkpoint do log, depois da
+ * recuperação e, sem o log, a cada commit. Se ainda assim ela ficar atrás dos
+ * registros, um commit nunca recebe número menor que o dos registros que
+ * substitui.
+ * @author jhones
+ */
+public final class VersionStore {
+    
+    private static final Logger LOGGER = Logger.getLogger(VersionStore.class.getName());
+    
+    public static final String SEQ = "seq";
+    private static final String SEQUENCE_FILE = "sequence";
+    
+    private static final Object COMMIT_LOCK = new Object();
+    private static final ConcurrentHashMap<String, Version> CHAINS = new ConcurrentHashMap<>();
+    /**
+     * Cadeias com versões antigas, na ordem dos commits, para o descarte.
+     */
+    private static final ArrayDeque<Pending> PENDING = new ArrayDeque<>();
+    /**
+     * Snapshots abertos: sequência -> quantidade.
+     */
+    private static final TreeMap<Long, Integer> SNAPSHOTS = new TreeMap<>();
+    private static final ThreadLocal<Snapshot> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<Long> LAST_COMMIT = ThreadLocal.withInitial(() -> 0L);
+    
+    private static long sequence = loadSequence();
+    private static volatile long published = sequence;
+
+    private VersionStore() {
+    }
+    
+    /**
+     * Versão de um registro que valeu até o commit "until". Registro nulo
+     * significa que a entidade não existia.
+     */
+    private static final class Version {
+        final long until;
+        final Properties record;
+        final Version older;
+
+        Version(long until, Properties record, Version older) {
+            this.until = until;
+            this.record = record;
+            this.older = older;
+        }
+    }
+    
+    private static final class Pending {
+        final long until;
+        final String key;
+        final Ref ref;
+
+        Pending(long until, String key, Ref ref) {
+            this.until = until;
+            this.key = key;
+            this.ref = ref;
+        }
+    }
+    
+    /**
+     * Leitura consistente fixada em um commit. Snapshots abertos na mesma
+     * thread enquanto outro está aberto reaproveitam o mesmo commit, de modo
+     * que o carregamento de uma entidade e das suas referências vê um único
+     * estado do banco.
+     */
+    public static final class Snapshot implements AutoCloseable {
+        
+        private final long sequence;
+        private int depth = 1;
+
+        private Snapshot(long sequence) {
+            this.sequence = sequence;
+        }
+        
+        public long getSequence() {
+            return sequence;
+        }
+        
+        @Override
+        public void close() {
+            if(depth <= 0 || --depth > 0) return;
+            if(CURRENT.get() == this) CURRENT.remove();
+            synchronized (SNAPSHOTS) {
+                SNAPSHOTS.computeIfPresent(sequence, (k, count) -> count == 1 ? null : count - 1);
+            }
+            prune();
+        }
+        
+    }
+    
+    /**
+     * Abre um snapshot no último commit publicado, ou entra no snapshot já
+     * aberto pela thread atual.
+     * @return Snapshot que deve ser fechado ao final da leitura.
+     */
+    public static Snapshot snapshot() {
+        Snapshot current = CURRENT.get();
+        if(current != null) {
+            current.depth++;
+            return current;
+        }
+        Snapshot snapshot;
+        synchronized (SNAPSHOTS) {
+            snapshot = new Snapshot(published);
+            SNAPSHOTS.merge(snapshot.sequence, 1, Integer::sum);
+        }
+        CURRENT.set(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Fixa um snapshot sem associá-lo à thread atual, para leituras que
+     * continuam depois que o método que as iniciou retorna, como um cursor.
+     * Cada leitura deve entrar nele com join. Se a thread já estiver num
+     * snapshot, o novo é fixado no mesmo commit.
+     * @return Snapshot que deve ser fechado quando as leituras terminarem.
+     */
+    public static Snapshot pin() {
+        Snapshot current = CURRENT.get();
+        synchronized (SNAPSHOTS) {
+            Snapshot snapshot = new Snapshot(current != null ? current.sequence : published);
+            SNAPSHOTS.merge(snapshot.sequence, 1, Integer::sum);
+            return snapshot;
+        }
+    }
+
+    /**
+     * Abre na thread atual um snapshot na mesma sequência de um snapshot
+     * aberto por outra thread, para que leituras feitas em paralelo vejam o
+     * mesmo estado. O snapshot de origem deve continuar aberto enquanto este
+     * estiver em uso.
+     * @param origin Snapshot aberto pela thread que dividiu o trabalho.
+     * @return Snapshot que deve ser fechado ao final da leitura.
+     */
+    public static Snapshot join(Snapshot origin) {
+        Snapshot current = CURRENT.get();
+        if(current != null && current.sequence == origin.sequence) {
+            current.depth++;
+            return current;
+        }
+        if(current != null) {
+            throw new IllegalStateException("Thread already reads snapshot " + current.sequence);
+        }
+        Snapshot snapshot;
+        synchronized (SNAPSHOTS) {
+            snapshot = new Snapshot(origin.sequence);
+            SNAPSHOTS.merge(snapshot.sequence, 1, Integer::sum);
+        }
+        CURRENT.set(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Lê a versão de uma entidade visível no snapshot da thread atual, ou a
+     * última publicada se não houver snapshot aberto.
+     * @param ref
+     * @return
+     * @throws IOException
+     * @throws FileNotFoundException Caso a entidade não exista no snapshot.
+     */
+    public static Properties read(Ref ref) throws IOException {
+        try (Snapshot snapshot = snapshot()) {
+            Storage storage = StorageManager.get();
+            Properties record;
+            try {
+                record = storage.read(ref);
+            } catch (FileNotFoundException ex) {
+                record = null;
+            }
+            // A cadeia é consultada depois do armazenamento: ela é instalada antes
+            // da escrita, então uma versão nova lida acima sempre tem a antiga aqui.
+            boolean old = false;
+            for(Version version = CHAINS.get(key(ref)); version != null && version.until > snapshot.sequence; version = version.older) {
+                record = version.record;
+                old = true;
+            }
+            if(record == null) {
+                throw new FileNotFoundException("Entidade não encontrada: " + ref);
+            }
+            // As versões da cadeia são compartilhadas entre leitores.
+            return old ? (Properties) record.clone() : record;
+        }
+    }
+    
+    /**
+     * Aplica as alterações de um commit no armazenamento, guardando as versões
+     * anteriores e publicando o commit ao final. Os commits são aplicados um
+     * por vez.
+     * @param storage
+     * @param changes
+     * @throws IOException 
+     */
+    public static void apply(Storage storage, List<WriteAheadLog.Change> changes) throws IOException {
+        apply(storage, changes, true);
+    }
+    
+    /**
+     * Aplica as alterações como apply, mas sem atualizar os índices. Usado
+     * pelas cargas em massa, que remontam os índices ao final
+     * (IndexManager.rebuild).
+     * @param storage
+     * @param changes
+     * @throws IOException 
+     */
+    public static void load(Storage storage, List<WriteAheadLog.Change> changes) throws IOException {
+        apply(storage, changes, false);
+    }
+    
+    private static void apply(Storage storage, List<WriteAheadLog.Change> changes, boolean indexes) throws IOException {
+        synchronized (COMMIT_LOCK) {
+            // As arestas saem dos registros antes da gravação e entram no
+            // grafo depois dela.
+            List<ReferenceGraph.Delta> edges = ReferenceGraph.extract(changes);
+            Properties[] olds = new Properties[changes.size()];
+            long last = sequence;
+            for(int i = 0; i < olds.length; i++) {
+                Ref ref = changes.get(i).ref;
+                try {
+                    olds[i] = storage.exists(ref) ? storage.read(ref) : null;
+                } catch (FileNotFoundException ex) {
+                    olds[i] = null;
+                }
+                // Uma sequência gravada antes de uma queda pode estar atrás
+                // dos registros; o commit nunca recebe um número menor que o
+                // dos registros que substitui.
+                last = Math.max(last, versionOf(olds[i]));
+            }
+            long seq = last + 1;
+            for(int i = 0; i < olds.length; i++) {
+                WriteAheadLog.Change change = changes.get(i);
+                String key = key(change.ref);
+                Properties previous = olds[i];
+                CHAINS.compute(key, (k, chain) -> new Version(seq, previous, chain));
+                synchronized (PENDING) {
+                    PENDING.add(new Pending(seq, key, change.ref));
+                }
+                if(change.record != null) {
+                    change.record.setProperty(SEQ, String.valueOf(seq));
+                }
+            }
+            try {
+                for(WriteAheadLog.Change change : changes) {
+                    if(change.record == null) {
+                        storage.delete(change.ref);
+                    } else {
+                        storage.write(change.ref, change.record);
+                    }
+                }
+                ReferenceGraph.apply(edges);
+                if(indexes) {
+                    IndexManager.apply(changes);
+                }
+                for(int i = 0; i < olds.length; i++) {
+                    Statistics.apply(changes.get(i), olds[i] != null);
+                }
+            } finally {
+                // Mesmo com falha o commit é publicado: o que foi escrito já está
+                // no armazenamento e as cadeias guardam o estado anterior.
+                sequence = seq;
+                published = seq;
+                LAST_COMMIT.set(seq);
+            }
+        }
+        prune();
+    }
+    
+    /**
+     * Descarta as versões que nenhum snapshot aberto pode mais ler: as que
+     * foram substituídas até o commit do snapshot mais antigo.
+     */
+    private static void prune() {
+        long oldest;
+        synchronized (SNAPSHOTS) {
+            oldest = SNAPSHOTS.isEmpty() ? published : SNAPSHOTS.firstKey();
+        }
+        while(true) {
+            Pending pending;
+            synchronized (PENDING) {
+                pending = PENDING.peek();
+                if(pending == null || pending.until > oldest) return;
+                PENDING.poll();
+            }
+            CHAINS.computeIfPresent(pending.key, (k, chain) -> trim(chain, oldest));
+        }
+    }
+    
+    /**
+     * Copia a cadeia sem as versões substituídas até o commit informado.
+     */
+    private static Version trim(Version chain, long oldest) {
+        if(chain == null || chain.until <= oldest) return null;
+        return new Version(chain.until, chain.record, trim(chain.older, oldest));
+    }
+    
+    private static String key(Ref ref) {
+        return ref.toString();
+    }
+    
+    /**
+     * Commit visível para a thread atual: o do seu snapshot aberto ou o último
+     * publicado.
+     * @return 
+     */
+    public static long current() {
+        Snapshot snapshot = CURRENT.get();
+        return snapshot != null ? snapshot.sequence : published;
+    }
+    
+    /**
+     * Número do último commit aplicado pela thread atual.
+     * @return 
+     */
+    public static long lastCommitted() {
+        return LAST_COMMIT.get();
+    }
+    
+    /**
+     * Número do commit que gravou um registro, ou zero para registros
+     * anteriores ao controle de versões.
+     * @param record
+     * @return 
+     */
+    public static long versionOf(Properties record) {
+        String seq = record == null ? null : record.getProperty(SEQ);
+        if(seq == null) return 0;
+        try {
+            return Long.parseLong(seq.trim());
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+    
+    /**
+     * Último commit publicado.
+     * @return 
+     */
+    public static long getPublished() {
+        return published;
+    }
+    
+    /**
+     * IDs das entidades de uma classe alteradas por commits posteriores ao
+     * informado. Enquanto um snapshot nesse commit estiver aberto, nenhuma
+     * delas é descartada.
+     * @param seq
+     * @param clazz
+     * @return 
+     */
+    public static Set<String> changedAfter(long seq, Class<?> clazz) {
+        int index = ClassDictionary.getIndex(clazz);
+        Set<String> ids = new HashSet<>();
+        synchronized (PENDING) {
+            for(Pending pending : PENDING) {
+                if(pending.until > seq && pending.ref.getValue() == index) {
+                    ids.add(pending.ref.getKey());
+                }
+            }
+        }
+        return ids;
+    }
+    
+    /**
+     * Número de entidades com versões antigas guardadas.
+     * @return 
+     */
+    public static int getRetained() {
+        return CHAINS.size();
+    }
+    
+    /**
+     * Número de snapshots abertos.
+     * @return 
+     */
+    public static int getOpenSnapshots() {
+        synchronized (SNAPSHOTS) {
+            return SNAPSHOTS.values().stream().mapToInt(Integer::intValue).sum();
+        }
+    }
+    
+    private static long loadSequence() {
+        Path path = Paths.get(Bottle.ROOT_DB, SEQUENCE_FILE);
+        try {
+            if(Files.exists(path)) {
+                return Long.parseLong(Files.readString(path, StandardCharsets.UTF_8).trim());
+            }
+        } catch (IOException | NumberFormatException ex) {
+            LOGGER.log(Level.WARNING, "Sequência de commits ilegível, reiniciando", ex);
+        }
+        return 0;
+    }
+    
+    /**
+     * Grava o último número de sequência, para que os commits continuem a
+     * numeração depois de reiniciar. O arquivo é escrito ao lado, sincronizado
+     * e então renomeado, de modo que uma queda nunca deixa a sequência
+     * ilegível.
+     */
+    public static void saveSequence() {
+        long current;
+        synchronized (COMMIT_LOCK) {
+            current = sequence;
+        }
+        try {
+            Path path = Paths.get(Bottle.ROOT_DB, SEQUENCE_FILE);
+            Path temp = Paths.get(Bottle.ROOT_DB, SEQUENCE_FILE + ".tmp");
+            Files.createDirectories(path.getParent());
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(String.valueOf(current).getBytes(StandardCharsets.UTF_8));
+                while(buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Falha ao gravar a sequência de commits", ex);
+        }
+    }
+    
+}
@@ -0,0 +1,454 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.db.storage;
+
+import br.com.jhondbs.core.db.capsule.Bottle;
+import br.com.jhondbs.core.db.capsule.RecordIO;
+import br.com.jhondbs.core.db.capsule.Ref;
+import br.com.jhondbs.core.db.index.IndexManager;
+import br.com.jhondbs.core.db.index.ReferenceGraph;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Log de escrita antecipada dos commits.
+ * Cada commit grava um único registro com as novas imagens de todas as
+ * entidades alteradas e as exclusões, sincroniza o log com o disco e só então
+ * aplica as alterações no armazenamento, sem sincronizá-lo. Quando o log passa
+ * de CHECKPOINT_SIZE o armazenamento é sincronizado e o log é zerado.
+ * Na abertura, os registros que restaram no log são reaplicados, recuperando
+ * commits interrompidos por uma queda. Um final incompleto é descartado.
+ * Quando a sincronização de um commit falha, o registro dele é marcado como
+ * abortado e não é reaplicado na recuperação. Depois da sincronização o
+ * commit está confirmado: uma falha ao aplicá-lo é tentada de novo e, se
+ * persistir, o log deixa de aceitar commits até ser reaberto, quando a
+ * recuperação reaplica os registros que ficaram nele.
+ * Com GROUP_COMMIT, commits concorrentes compartilham a mesma sincronização:
+ * o primeiro a chegar espera GROUP_COMMIT_WINDOW microssegundos e sincroniza
+ * todos os registros acrescentados até então.
+ * @author jhones
+ */
+public final class WriteAheadLog {
+    
+    private static final Logger LOGGER = Logger.getLogger(WriteAheadLog.class.getName());
+    
+    /**
+     * Liga o log. Desligado, os commits voltam ao protocolo de backups .bak.
+     */
+    public static boolean ENABLED = true;
+    
+    /**
+     * Agrupa a sincronização de commits concorrentes.
+     */
+    public static boolean GROUP_COMMIT = false;
+    
+    /**
+     * Tempo em microssegundos que o líder do grupo espera por outros commits.
+     */
+    public static long GROUP_COMMIT_WINDOW = 200;
+    
+    /**
+     * Tamanho do log a partir do qual é feito um checkpoint.
+     */
+    public static long CHECKPOINT_SIZE = 16L * 1024 * 1024;
+    
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int HEADER_SIZE = 8;
+    private static final int ABORTED = -1;
+    private static final int APPLY_ATTEMPTS = 2;
+    
+    private final File file;
+    private final Storage storage;
+    private volatile FileChannel channel;
+    
+    private final Object channelLock = new Object();
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+    private final Object applyLock = new Object();
+    private long position;
+    private volatile long appended;
+    private volatile long synced;
+    private long applied;
+    private volatile Exception failure;
+
+    public WriteAheadLog(Storage storage) throws IOException {
+        this(new File(Bottle.ROOT_DB + "wal.log"), storage);
+    }
+
+    public WriteAheadLog(File file, Storage storage) throws IOException {
+        this.file = file;
+        this.storage = storage;
+        file.getParentFile().mkdirs();
+        this.channel = open();
+        recover();
+    }
+    
+    /**
+     * Alteração de uma entidade dentro de um commit.
+     * Um registro nulo representa a exclusão da entidade.
+     */
+    public static final class Change {
+        public final Ref ref;
+        public final Properties record;
+
+        public Change(Ref ref, Properties record) {
+            this.ref = ref;
+            this.record = record;
+        }
+    }
+    
+    /**
+     * Grava as alterações no log, aguarda a sincronização com o disco e aplica
+     * as alterações no armazenamento, na mesma ordem do log.
+     * @param changes
+     * @throws IOException Se o commit não chegou a ser confirmado no log.
+     */
+    public void commit(List<Change> changes) throws IOException {
+        if(changes.isEmpty()) return;
+        checkFailure();
+        byte[] record = encode(changes);
+        long sequence;
+        long at;
+        boolean full;
+        synchronized (appendLock) {
+            at = position;
+            write(record, at);
+            position += record.length;
+            sequence = ++appended;
+            full = position > CHECKPOINT_SIZE;
+        }
+        try {
+            sync(sequence);
+        } catch (IOException ex) {
+            abort(record, at);
+            apply(sequence, null);
+            throw ex;
+        }
+        apply(sequence, changes);
+        if(full) {
+            checkpoint();
+        }
+    }
+    
+    /**
+     * Sincroniza o log até o registro informado. Quem entra primeiro sincroniza
+     * também os registros dos commits que chegaram depois dele.
+     */
+    private void sync(long sequence) throws IOException {
+        if(synced >= sequence) return;
+        synchronized (syncLock) {
+            if(synced >= sequence) return;
+            if(GROUP_COMMIT && GROUP_COMMIT_WINDOW > 0) {
+                LockSupport.parkNanos(GROUP_COMMIT_WINDOW * 1000);
+            }
+            long target = appended;
+            channel().force(false);
+            synced = target;
+        }
+    }
+    
+    /**
+     * Marca o registro de um commit cuja sincronização falhou como abortado,
+     * para que a recuperação não o reaplique. A marca troca a quantidade de
+     * alterações por ABORTED e recalcula o crc, mantendo o tamanho, de modo que
+     * os registros seguintes continuam legíveis.
+     */
+    private void abort(byte[] record, long at) {
+        boolean interrupted = Thread.interrupted();
+        try {
+            byte[] marked = record.clone();
+            ByteBuffer buffer = ByteBuffer.wrap(marked);
+            buffer.putInt(HEADER_SIZE, ABORTED);
+            CRC32 crc = new CRC32();
+            crc.update(marked, HEADER_SIZE, marked.length - HEADER_SIZE);
+            buffer.putInt(4, (int) crc.getValue());
+            write(Arrays.copyOf(marked, HEADER_SIZE + 4), at);
+            channel().force(false);
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Não foi possível marcar o commit abortado no log: " + file, ex);
+        } finally {
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * Aplica as alterações quando chegar a vez do registro. Alterações nulas
+     * apenas liberam a vez, para commits cuja sincronização falhou.
+     * A espera não é interrompível: um registro que já está no log precisa
+     * ocupar a vez dele, senão os commits seguintes esperariam para sempre.
+     * Uma interrupção recebida durante a espera é restaurada no final.
+     */
+    private void apply(long sequence, List<Change> changes) throws IOException {
+        boolean interrupted = false;
+        synchronized (applyLock) {
+            while(applied != sequence - 1) {
+                try {
+                    applyLock.wait();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        }
+        try {
+            if(changes != null) {
+                applyCommitted(changes);
+            }
+        } finally {
+            synchronized (applyLock) {
+                applied = sequence;
+                applyLock.notifyAll();
+            }
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * Aplica um registro que já está sincronizado no log, e portanto
+     * confirmado. A falha não chega a quem fez o commit: a aplicação é tentada
+     * de novo e, se continuar falhando, o log para. Registros que chegam à vez
+     * depois disso não são aplicados sobre o estado parcial; ficam no log para
+     * a recuperação.
+     */
+    private void applyCommitted(List<Change> changes) {
+        for(int attempt = 1; failure == null; attempt++) {
+            try {
+                applyChanges(changes);
+                return;
+            } catch (IOException | RuntimeException ex) {
+                if(attempt >= APPLY_ATTEMPTS) {
+                    failure = ex;
+                    LOGGER.log(Level.SEVERE, "Falha ao aplicar um commit confirmado; o log será reaplicado na próxima abertura: " + file, ex);
+                } else {
+                    LOGGER.log(Level.WARNING, "Falha ao aplicar um commit confirmado, tentando de novo", ex);
+                }
+            }
+        }
+    }
+    
+    private void applyChanges(List<Change> changes) throws IOException {
+        VersionStore.apply(storage, changes);
+    }
+    
+    private void checkFailure() throws IOException {
+        if(failure != null) {
+            throw new IOException("O log parou depois de uma falha de aplicação; reabra o banco para recuperá-lo: " + file, failure);
+        }
+    }
+    
+    /**
+     * Grava a sequência de commits, sincroniza o armazenamento e o grafo de
+     * referências e zera o log.
+     * Novos commits aguardam o fim do checkpoint.
+     * @throws IOException 
+     */
+    public void checkpoint() throws IOException {
+        synchronized (appendLock) {
+            synchronized (applyLock) {
+                while(applied != appended) {
+                    try {
+                        applyLock.wait();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrompido aguardando a aplicação do log", ex);
+                    }
+                }
+            }
+            checkFailure();
+            if(position == 0) return;
+            VersionStore.saveSequence();
+            storage.sync();
+            ReferenceGraph.sync();
+            IndexManager.sync();
+            channel().truncate(0);
+            channel().force(true);
+            position = 0;
+        }
+    }
+    
+    /**
+     * Reaplica os registros que ficaram no log e faz um checkpoint.
+     */
+    private void recover() throws IOException {
+        long size = channel.size();
+        long offset = 0;
+        int count = 0;
+        while(offset + HEADER_SIZE <= size) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            read(header, offset);
+            int length = header.getInt();
+            int crc = header.getInt();
+            if(length < 0 || offset + HEADER_SIZE + length > size) break;
+            ByteBuffer body = ByteBuffer.allocate(length);
+            read(body, offset + HEADER_SIZE);
+            if(checksum(body.array()) != crc) break;
+            List<Change> changes = decode(body);
+            if(changes != null) {
+                applyChanges(changes);
+            }
+            offset += HEADER_SIZE + length;
+            count++;
+        }
+        if(offset < size) {
+            LOGGER.log(Level.WARNING, "Registro incompleto descartado no final do log: {0}", file);
+        }
+        if(count > 0) {
+            LOGGER.log(Level.INFO, "{0} commits recuperados do log", count);
+        }
+        VersionStore.saveSequence();
+        storage.sync();
+        ReferenceGraph.sync();
+        IndexManager.sync();
+        channel.truncate(0);
+        channel.force(true);
+        position = 0;
+    }
+    
+    /**
+     * Faz o checkpoint e fecha o log. Um log parado é fechado sem checkpoint,
+     * mantendo os registros para a recuperação.
+     * @throws IOException 
+     */
+    public void close() throws IOException {
+        if(failure == null) {
+            checkpoint();
+        }
+        channel.close();
+    }
+    
+    private FileChannel open() throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+    
+    /**
+     * Canal do log, reaberto quando uma interrupção o fechou no meio de uma
+     * escrita ou sincronização.
+     */
+    private FileChannel channel() throws IOException {
+        FileChannel current = channel;
+        if(current.isOpen()) return current;
+        synchronized (channelLock) {
+            if(!channel.isOpen()) {
+                channel = open();
+            }
+            return channel;
+        }
+    }
+    
+    private void write(byte[] record, long at) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while(buffer.hasRemaining()) {
+            channel().write(buffer, at + buffer.position());
+        }
+    }
+    
+    private void read(ByteBuffer buffer, long at) throws IOException {
+        while(buffer.hasRemaining()) {
+            if(channel().read(buffer, at + buffer.position()) < 0) {
+                throw new IOException("Fim inesperado do log: " + file);
+            }
+        }
+        buffer.flip();
+    }
+    
+    private static int checksum(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+    
+    /**
+     * [tamanho][crc] seguido de [quantidade] e, para cada alteração,
+     * [tipo][índice da classe][id][tamanho][registro codificado].
+     * Uma quantidade ABORTED marca um commit abortado.
+     */
+    private static byte[] encode(List<Change> changes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeInt(changes.size());
+        for(Change change : changes) {
+            out.writeByte(change.record == null ? DELETE : PUT);
+            out.writeInt(change.ref.getValue());
+            byte[] id = change.ref.getKey().getBytes(StandardCharsets.UTF_8);
+            out.writeShort(id.length);
+            out.write(id);
+            if(change.record != null) {
+                byte[] payload = RecordIO.encode(change.record);
+                out.writeInt(payload.length);
+                out.write(payload);
+            }
+        }
+        out.flush();
+        byte[] record = bytes.toByteArray();
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        CRC32 crc = new CRC32();
+        crc.update(record, HEADER_SIZE, record.length - HEADER_SIZE);
+        buffer.putInt(0, record.length - HEADER_SIZE);
+        buffer.putInt(4, (int) crc.getValue());
+        return record;
+    }
+    
+    private static List<Change> decode(ByteBuffer body) throws IOException {
+        int count = body.getInt();
+        if(count == ABORTED) return null;
+        List<Change> changes = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            byte type = body.get();
+            int classIndex = body.getInt();
+            byte[] id = new byte[Short.toUnsignedInt(body.getShort())];
+            body.get(id);
+            Ref ref = new Ref(new String(id, StandardCharsets.UTF_8), classIndex);
+            Properties record = null;
+            if(type == PUT) {
+                int length = body.getInt();
+                ByteBuffer payload = body.slice(body.position(), length);
+                body.position(body.position() + length);
+                record = RecordIO.decode(payload);
+            }
+            changes.add(new Change(ref, record));
+        }
+        return changes;
+    }
+    
+}
@@ -0,0 +1,346 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.jhondbs.core.tools;
+
+import br.com.jhondbs.core.db.errors.EntityIdBadImplementationException;
+import br.com.jhondbs.core.db.interfaces.Cascate;
+import br.com.jhondbs.core.db.interfaces.Cold;
+import br.com.jhondbs.core.db.interfaces.Indexed;
+import br.com.jhondbs.core.db.interfaces.TextIndexed;
+import br.com.jhondbs.core.db.interfaces.Unique;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ENGLISH<br>
+ * Per-class field metadata, built once on the first use of each class: every
+ * field of the class and its superclasses, the serializable ones in a fixed
+ * order, the id field and the @Unique, @Indexed, @TextIndexed, @Cascate and
+ * @Cold flags, each field with a precompiled accessor.<br><br>
+ * PORTUGUÊS<br>
+ * Metadados dos campos de uma classe, montados uma única vez no primeiro uso
+ * de cada classe: todos os campos da classe e das suas superclasses, os
+ * serializáveis numa ordem fixa, o campo de ID e as marcações @Unique,
+ * @Indexed, @TextIndexed, @Cascate e @Cold, cada campo com um acessor pré-compilado.
+ * Os metadados ficam presos à própria classe e são descartados junto com o
+ * seu ClassLoader.
+ * @author jhones
+ */
+public final class EntityMetadata {
+    
+    private static final ClassValue<EntityMetadata> REGISTRY = new ClassValue<>() {
+        @Override
+        protected EntityMetadata computeValue(Class<?> type) {
+            return new EntityMetadata(type);
+        }
+    };
+    
+    private final Class<?> type;
+    private final List<Field> fields;
+    private final List<Accessor> accessors;
+    private final List<Accessor> serializable;
+    private final Map<String, Accessor> byName;
+    private final Accessor id;
+    private final List<Accessor> uniques;
+    private final List<Accessor> indexed;
+    private final List<Accessor> texts;
+    private final List<Accessor> cascates;
+    private final List<Accessor> colds;
+
+    private EntityMetadata(Class<?> type) {
+        this.type = type;
+        List<Field> all = new ArrayList<>();
+        for(Class<?> c = type; c != null; c = c.getSuperclass()) {
+            all.addAll(Arrays.asList(c.getDeclaredFields()));
+        }
+        this.fields = Collections.unmodifiableList(all);
+        
+        List<Accessor> list = new ArrayList<>(all.size());
+        List<Accessor> ser = new ArrayList<>();
+        List<Accessor> uni = new ArrayList<>();
+        List<Accessor> idx = new ArrayList<>();
+        List<Accessor> txt = new ArrayList<>();
+        List<Accessor> cas = new ArrayList<>();
+        List<Accessor> col = new ArrayList<>();
+        Map<String, Accessor> names = new HashMap<>();
+        for(Field field : all) {
+            Accessor accessor = new Accessor(field);
+            list.add(accessor);
+            names.putIfAbsent(accessor.name, accessor);
+            if(accessor.serializable) ser.add(accessor);
+            if(accessor.unique) uni.add(accessor);
+            if(accessor.indexed) idx.add(accessor);
+            if(accessor.text) txt.add(accessor);
+            if(accessor.cascate) cas.add(accessor);
+            if(accessor.cold) col.add(accessor);
+        }
+        this.accessors = Collections.unmodifiableList(list);
+        this.serializable = Collections.unmodifiableList(ser);
+        this.uniques = Collections.unmodifiableList(uni);
+        this.indexed = Collections.unmodifiableList(idx);
+        this.texts = Collections.unmodifiableList(txt);
+        this.cascates = Collections.unmodifiableList(cas);
+        this.colds = Collections.unmodifiableList(col);
+        this.byName = names;
+        this.id = resolveId(list);
+    }
+    
+    /**
+     * Metadados da classe informada.
+     * @param type
+     * @return 
+     */
+    public static EntityMetadata of(Class<?> type) {
+        return REGISTRY.get(type);
+    }
+    
+    /**
+     * Metadados da classe do objeto informado.
+     * @param object
+     * @return 
+     */
+    public static EntityMetadata of(Object object) {
+        return REGISTRY.get(object.getClass());
+    }
+    
+    /**
+     * Campo de ID: entre os campos de texto com "id" no nome, o chamado
+     * enteid, senão o chamado id, senão o primeiro encontrado.
+     */
+    private static Accessor resolveId(List<Accessor> list) {
+        List<Accessor> ids = new ArrayList<>();
+        for(Accessor accessor : list) {
+            if(accessor.type.getName().contains("String") && accessor.name.toUpperCase().contains("ID")) {
+                ids.add(accessor);
+            }
+        }
+        if(ids.isEmpty()) return null;
+        for(String preferred : new String[]{"enteid", "id"}) {
+            Accessor found = null;
+            int count = 0;
+            for(Accessor accessor : ids) {
+                if(accessor.name.equalsIgnoreCase(preferred)) {
+                    found = accessor;
+                    count++;
+                }
+            }
+            if(count == 1) return found;
+        }
+        return ids.get(0);
+    }
+    
+    public Class<?> getType() {
+        return type;
+    }
+    
+    /**
+     * Todos os campos da classe e das superclasses, da classe para a
+     * superclasse, na ordem de declaração.
+     * @return 
+     */
+    public List<Field> fields() {
+        return fields;
+    }
+    
+    public List<Accessor> accessors() {
+        return accessors;
+    }
+    
+    /**
+     * Campos que não são estáticos nem transientes, na mesma ordem de fields().
+     * @return 
+     */
+    public List<Accessor> serializable() {
+        return serializable;
+    }
+    
+    /**
+     * Campo com o nome informado. Havendo campos com o mesmo nome na classe e
+     * numa superclasse, retorna o da classe.
+     * @param name
+     * @return Acessor ou nulo se não existir.
+     */
+    public Accessor get(String name) {
+        return byName.get(name);
+    }
+    
+    public boolean has(String name) {
+        return byName.containsKey(name);
+    }
+    
+    /**
+     * Campo de ID da classe.
+     * @return 
+     * @throws EntityIdBadImplementationException Se a classe não tiver um
+     * campo de texto para o ID.
+     */
+    public Accessor id() throws EntityIdBadImplementationException {
+        if(id == null) {
+            throw new EntityIdBadImplementationException("The entity does not have a String type variable for the ID.");
+        }
+        return id;
+    }
+    
+    public List<Accessor> uniques() {
+        return uniques;
+    }
+    
+    public List<Accessor> indexed() {
+        return indexed;
+    }
+    
+    public List<Accessor> texts() {
+        return texts;
+    }
+    
+    public List<Accessor> cascates() {
+        return cascates;
+    }
+    
+    public List<Accessor> colds() {
+        return colds;
+    }
+    
+    /**
+     * Acessor de um campo. Lê e grava pelo VarHandle do campo, recorrendo à
+     * reflexão quando o campo é final, quando o VarHandle não pode ser obtido
+     * ou quando o valor precisa da conversão que a reflexão faz (por exemplo
+     * Integer num campo long).
+     */
+    public static final class Accessor {
+        public final Field field;
+        public final String name;
+        public final Class<?> type;
+        public final boolean serializable;
+        public final boolean unique;
+        public final boolean indexed;
+        public final boolean text;
+        public final boolean cascate;
+        public final boolean cold;
+        private final VarHandle handle;
+
+        private Accessor(Field field) {
+            this.field = field;
+            this.name = field.getName();
+            this.type = field.getType();
+            int modifiers = field.getModifiers();
+            this.serializable = !Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers);
+            this.unique = field.isAnnotationPresent(Unique.class);
+            this.indexed = field.isAnnotationPresent(Indexed.class);
+            this.text = field.isAnnotationPresent(TextIndexed.class) && field.getType() == String.class;
+            this.cascate = field.isAnnotationPresent(Cascate.class);
+            this.cold = field.isAnnotationPresent(Cold.class);
+            VarHandle vh = null;
+            if(!Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers)) {
+                try {
+                    vh = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup())
+                            .unreflectVarHandle(field);
+                } catch (IllegalAccessException | SecurityException ex) {
+                    vh = null;
+                }
+            }
+            this.handle = vh;
+            try {
+                field.setAccessible(true);
+            } catch (RuntimeException ex) {
+                // Sem acesso por reflexão; resta o VarHandle, se houver.
+            }
+        }
+        
+        /**
+         * Valor do campo no objeto, com primitivos encaixotados.
+         * @param <T>
+         * @param target
+         * @return
+         * @throws IllegalAccessException 
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object target) throws IllegalAccessException {
+            if(handle != null) {
+                return (T) handle.get(target);
+            }
+            return (T) field.get(target);
+        }
+        
+        /**
+         * Valor de um campo primitivo inteiro (byte, short, int ou long), sem
+         * encaixotar.
+         * @param target
+         * @return
+         * @throws IllegalAccessException 
+         */
+        public long getLong(Object target) throws IllegalAccessException {
+            if(handle != null) {
+                return (long) handle.get(target);
+            }
+            return field.getLong(target);
+        }
+        
+        /**
+         * Valor de um campo primitivo numérico, sem encaixotar.
+         * @param target
+         * @return
+         * @throws IllegalAccessException 
+         */
+        public double getDouble(Object target) throws IllegalAccessException {
+            if(handle != null) {
+                return (double) handle.get(target);
+            }
+            return field.getDouble(target);
+        }
+        
+        /**
+         * Grava o valor no campo do objeto.
+         * @param target
+         * @param value
+         * @throws IllegalAccessException 
+         */
+        public void set(Object target, Object value) throws IllegalAccessException {
+            if(handle != null && value != null) {
+                try {
+                    handle.set(target, value);
+                    return;
+                } catch (ClassCastException | WrongMethodTypeException ex) {
+                    // Tipos que dependem da conversão da reflexão.
+                }
+            }
+            field.set(target, value);
+        }
+        
+        public <A extends Annotation> A getAnnotation(Class<A> annotation) {
+            return field.getAnnotation(annotation);
+        }
+    }
+    
+}
@@ -24,6 +24,7 @@
 package br.com.jhondbs.core.tools;
 
 import br.com.jhondbs.core.db.errors.EntityIdBadImplementationException;
+import br.com.jhondbs.core.db.interfaces.Indexed;
 import br.com.jhondbs.core.db.interfaces.Unique;
 import br.com.jhondbs.core.db.obj.EntityList;
 import java.lang.reflect.Array;
@@ -32,6 +33,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -83,21 +85,12 @@ public class FieldsManager {
      */
     public static List<Field> getAllFields(Class clazz){
         if(clazz == null) return null;
-        List<Field> fields = new ArrayList<>();
-        while(clazz != null){
-            fields.addAll(Arrays.asList(clazz.getDeclaredFields()));
-            clazz = clazz.getSuperclass();
-        }
-        return fields;
+        return EntityMetadata.of(clazz).fields();
     }
     
     public static List<Field> getAllSerializebleFields(Class clazz){
-        Set<Field> fields = new HashSet<>();
-        while(clazz != null){
-            fields.addAll(Arrays.asList(clazz.getDeclaredFields()));
-            clazz = clazz.getSuperclass();
-        }
-        return fields.stream().filter(field -> !Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())).toList();
+        if(clazz == null) return Collections.emptyList();
+        return EntityMetadata.of(clazz).serializable().stream().map(accessor -> accessor.field).toList();
     }
     
     /**
@@ -107,32 +100,7 @@ public class FieldsManager {
      * @throws br.com.jhondbs.core.db.errors.EntityIdBadImplementationException 
      */
     public static Field getFieldId(Class clazz) throws EntityIdBadImplementationException {
-        List<Field> ids = FieldsManager.getAllFields(clazz).parallelStream()
-            .filter(field -> (field.getType().isAssignableFrom(String.class)))
-            .filter(field -> (field.getName().toUpperCase().contains("ID")))
-            .toList();
-        if(!ids.isEmpty()){
-            Field selected = null;
-            List<Field> toList = ids.stream().filter(field -> (field.getName().equalsIgnoreCase("enteid")))
-                    .toList();
-            if(toList.size() == 1){
-                selected = toList.get(0);
-            } else {
-                toList = ids.stream().filter(field -> (field.getName().equalsIgnoreCase("id")))
-                    .toList();
-                if(toList.size() == 1){
-                    selected = toList.get(0);
-                } else {
-                    selected = ids.get(0);
-                }
-            }
-            if(selected != null){
-                return selected;
-            } else {
-                throw new EntityIdBadImplementationException();
-            }
-        }
-        throw new EntityIdBadImplementationException();
+        return EntityMetadata.of(clazz).id().field;
     }
     
     public static List<Field> getSerializableFields(Object obj){
@@ -155,6 +123,15 @@ public class FieldsManager {
         return list.stream().filter((t) -> t.isAnnotationPresent(Unique.class)).collect(Collectors.toList());
     }
     
+    /**
+     * Retorna os campos da lista que estiverem anotados como indexados.
+     * @param list
+     * @return 
+     */
+    public static List<Field> getFieldsIndexed(List<Field> list){
+        return list.stream().filter((t) -> t.isAnnotationPresent(Indexed.class)).collect(Collectors.toList());
+    }
+    
     /**
      * ENGLISH<br>
      * Returns all fields of an entity that are annotated as unique.</br>
@@ -212,16 +189,9 @@ public class FieldsManager {
      */
     public static <T> T getValueFrom(String fieldName, Object obj) throws IllegalArgumentException, IllegalAccessException, NoSuchFieldException{
         if(obj == null) return null;
-        List<Field> fields = getAllFields(obj.getClass());
-        Field field = fields.stream()
-            .filter(f -> f.getName().equals(fieldName))
-            .findFirst().get();
-        
-        if(field != null) {
-            field.setAccessible(true);
-            return (T) field.get(obj);
-        }
-        return null;
+        EntityMetadata.Accessor accessor = EntityMetadata.of(obj).get(fieldName);
+        if(accessor == null) throw new NoSuchFieldException(fieldName);
+        return accessor.get(obj);
     }
     
     public static <T> T getValue(Field field, Object object) throws Exception {
@@ -251,42 +221,32 @@ public class FieldsManager {
      * @throws IllegalAccessException 
      */
     public static void setValue(String fieldName, Object receptor, Object value) throws IllegalArgumentException, IllegalAccessException, ClassNotFoundException, InstantiationException, InvocationTargetException, NoSuchMethodException{
-        List<Field> fields = getAllFields(receptor);
-        for(Field f : fields){
-            if(f.getName().equals(fieldName)){
-                f.setAccessible(true);
-                
-                if(Reflection.isInstance(f.getType(), Set.class)) {
-                    if(Reflection.isInstance(value.getClass(), List.class)) {
-                        Set set = new HashSet();
-                        set.addAll((List) value);
-                        f.set(receptor, set);
-                        break;
-                    }
-                } else if(Reflection.isInstance(f.getType(), EntityList.class)) {
-                    if(Reflection.isInstance(value.getClass(), List.class)) {
-                        EntityList elist = new EntityList();
-                        elist.addAll((List) value);
-                        f.set(receptor, elist);
-                        break;
-                    }
-                } else if(f.getType().getName().startsWith("[")) {
-                    Object array = createArrayFromList(f, (List) value);
-                    f.set(receptor, array);
-                    break;
-                } else if(f.getType() == Properties.class) {
-                    Properties p = new Properties();
-                    Map map = (Map) value;
-                    for(Object o : map.keySet()) {
-                        p.put(o.toString(), map.get(o).toString());
-                    }
-                    value = p;
-                }
-                
-                f.set(receptor, value);
-                break;
-           }
+        EntityMetadata.Accessor accessor = EntityMetadata.of(receptor).get(fieldName);
+        if(accessor == null) return;
+        Field f = accessor.field;
+        if(Reflection.isInstance(f.getType(), Set.class)) {
+            if(Reflection.isInstance(value.getClass(), List.class)) {
+                Set set = new HashSet();
+                set.addAll((List) value);
+                value = set;
+            }
+        } else if(Reflection.isInstance(f.getType(), EntityList.class)) {
+            if(Reflection.isInstance(value.getClass(), List.class)) {
+                EntityList elist = new EntityList();
+                elist.addAll((List) value);
+                value = elist;
+            }
+        } else if(f.getType().getName().startsWith("[")) {
+            value = createArrayFromList(f, (List) value);
+        } else if(f.getType() == Properties.class) {
+            Properties p = new Properties();
+            Map map = (Map) value;
+            for(Object o : map.keySet()) {
+                p.put(o.toString(), map.get(o).toString());
+            }
+            value = p;
         }
+        accessor.set(receptor, value);
     }
     
 
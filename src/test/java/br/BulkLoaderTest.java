@@ -0,0 +1,110 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br;
+
+import br.com.jhondbs.core.db.capsule.BulkLoader;
+import br.com.jhondbs.core.db.errors.DuplicatedUniqueFieldException;
+import br.com.jhondbs.core.db.filter.Filter;
+import br.com.jhondbs.core.db.filter.StringFilter;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.Test;
+import tests.objects.EntidadePrincipal;
+import tests.objects.Pessoa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Testes da carga em massa.
+ * @author jhones
+ */
+public class BulkLoaderTest {
+    
+    public BulkLoaderTest() {
+    }
+    
+    /**
+     * Um valor único repetido em outro lote é recusado. Os lotes anteriores
+     * continuam gravados e o lote recusado não grava nada.
+     */
+    @Test(timeout = 120000)
+    public void duplicateAcrossChunksIsRejected() throws Exception {
+        String prefix = "carga-" + System.nanoTime() + "-";
+        Stream<EntidadePrincipal> entities = Stream.of("a", "b", "c", "d", "a", "e")
+                .map(name -> new EntidadePrincipal(prefix + name));
+        
+        DuplicatedUniqueFieldException rejected = null;
+        try {
+            BulkLoader.load(entities, 2);
+        } catch (DuplicatedUniqueFieldException ex) {
+            rejected = ex;
+        }
+        
+        assertNotNull(rejected);
+        EntidadePrincipal finder = new EntidadePrincipal();
+        assertEquals(1, finder.findByFieldValue("name", prefix + "a").size());
+        assertEquals(1, finder.findByFieldValue("name", prefix + "d").size());
+        assertEquals(0, finder.findByFieldValue("name", prefix + "e").size());
+    }
+    
+    /**
+     * Um valor único que já estava gravado antes da carga é recusado.
+     */
+    @Test(timeout = 120000)
+    public void duplicateOfStoredValueIsRejected() throws Exception {
+        String name = "gravado-" + System.nanoTime();
+        new EntidadePrincipal(name).save();
+        
+        DuplicatedUniqueFieldException rejected = null;
+        try {
+            BulkLoader.load(Stream.of(new EntidadePrincipal(name + "-outro"), new EntidadePrincipal(name)), 10);
+        } catch (DuplicatedUniqueFieldException ex) {
+            rejected = ex;
+        }
+        
+        assertNotNull(rejected);
+        EntidadePrincipal finder = new EntidadePrincipal();
+        assertEquals(1, finder.findByFieldValue("name", name).size());
+        assertEquals(0, finder.findByFieldValue("name", name + "-outro").size());
+    }
+    
+    /**
+     * Todas as entidades são gravadas e os índices remontados no final
+     * respondem às consultas.
+     */
+    @Test(timeout = 120000)
+    public void loadRebuildsTheIndexes() throws Exception {
+        String prefix = "lote-" + System.nanoTime() + "-";
+        BulkLoader.Report report = BulkLoader.load(IntStream.range(0, 50)
+                .mapToObj(i -> new Pessoa(prefix + (i % 5), i, "cidade")), 7);
+        
+        assertEquals(50, report.roots);
+        assertEquals(50, report.records);
+        Filter filter = new Filter();
+        filter.addCondition(new StringFilter("nome", prefix + "3"));
+        assertEquals(10, new Pessoa().loadAll(filter).size());
+    }
+    
+}
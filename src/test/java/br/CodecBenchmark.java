@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br;
+
+import br.com.jhondbs.core.db.capsule.Bottle;
+import br.com.jhondbs.core.db.capsule.EntityCodec;
+import br.com.jhondbs.core.db.interfaces.Entity;
+import br.com.jhondbs.core.db.session.EntityCache;
+import br.com.jhondbs.core.db.storage.StorageManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compara o caminho por reflexão com os serializadores compilados
+ * (EntityCodec), encapsulando e carregando entidades só com campos simples.
+ * Executar com o banco vazio: java br.CodecBenchmark [entidades] [rodadas]
+ * @author jhones
+ */
+public class CodecBenchmark {
+    
+    public static class Medida implements Entity {
+        private String id;
+        private String nome;
+        private String unidade;
+        private int quantidade;
+        private long instante;
+        private double valor;
+        private float fator;
+        private short ordem;
+        private byte nivel;
+        private char tipo;
+        private boolean ativo;
+
+        public Medida() {
+        }
+
+        public Medida(int i) {
+            this.nome = "medida " + i;
+            this.unidade = "kg";
+            this.quantidade = i;
+            this.instante = System.currentTimeMillis() + i;
+            this.valor = i * 1.5d;
+            this.fator = i / 3f;
+            this.ordem = (short) (i % 1000);
+            this.nivel = (byte) (i % 100);
+            this.tipo = (char) ('a' + i % 26);
+            this.ativo = i % 2 == 0;
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int entities = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        
+        List<Medida> list = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for(int i = 0; i < entities; i++) {
+            Medida m = new Medida(i);
+            m.save();
+            list.add(m);
+            ids.add(m.getId());
+        }
+        
+        for(int round = 0; round < rounds; round++) {
+            for(boolean compiled : new boolean[]{false, true}) {
+                EntityCodec.ENABLED = compiled;
+                long write = System.nanoTime();
+                for(Medida m : list) {
+                    new Bottle.BottleBuilder().entity(m).build().engarrafar();
+                }
+                write = System.nanoTime() - write;
+                
+                EntityCache.get().invalidateAll();
+                long read = System.nanoTime();
+                for(String id : ids) {
+                    new Medida().load(id);
+                }
+                read = System.nanoTime() - read;
+                
+                System.out.printf("rodada %d %-9s escrita %8.1f us/entidade   leitura %8.1f us/entidade%n",
+                        round, compiled ? "compilado" : "reflexão",
+                        write / 1000.0 / entities, read / 1000.0 / entities);
+            }
+        }
+        StorageManager.close();
+    }
+    
+}
@@ -0,0 +1,162 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br;
+
+import br.com.jhondbs.core.db.capsule.Bottle;
+import br.com.jhondbs.core.db.capsule.Ref;
+import br.com.jhondbs.core.db.session.EntityCache;
+import br.com.jhondbs.core.db.storage.VersionStore;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.Callable;
+import org.junit.Test;
+import tests.objects.SubEntidade;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testes do cache de entidades.
+ * @author jhones
+ */
+public class EntityCacheTest {
+    
+    public EntityCacheTest() {
+    }
+    
+    /**
+     * Um commit invalida a entidade em todas as partições, inclusive nas de
+     * outros ClassLoaders, e a próxima leitura vê a versão nova.
+     */
+    @Test(timeout = 60000)
+    public void commitInvalidatesEveryPartition() throws Exception {
+        String id = "cache-" + System.nanoTime();
+        SubEntidade entity = new SubEntidade(id, "original");
+        entity.save();
+        Ref ref = new Ref(entity);
+        assertSame(entity, EntityCache.get().get(ref));
+        
+        withLoader(newLoader(), () -> new SubEntidade(id, "mudou").save());
+        
+        assertNull(EntityCache.get().get(ref));
+        SubEntidade loaded = new SubEntidade().load(id);
+        assertEquals("mudou", loaded.type);
+    }
+    
+    /**
+     * Uma leitura que começou antes do commit e termina depois não volta a
+     * guardar a versão velha: a marca deixada pelo commit é mais nova.
+     */
+    @Test(timeout = 60000)
+    public void staleReadIsNotCachedAfterCommit() throws Exception {
+        String id = "marca-" + System.nanoTime();
+        SubEntidade entity = new SubEntidade(id, "v1");
+        entity.save();
+        long stale = VersionStore.getPublished();
+        Ref ref = new Ref(entity);
+        
+        withLoader(newLoader(), () -> new SubEntidade(id, "v2").save());
+        
+        Bottle old = new Bottle.BottleBuilder().entity(entity).build();
+        assertFalse(EntityCache.get().put(old, stale, 1, EntityCache.TTL));
+        assertNull(EntityCache.get().get(ref));
+    }
+    
+    /**
+     * Cada ClassLoader de contexto tem a sua partição, que pode ser descartada
+     * sem afetar as outras.
+     */
+    @Test(timeout = 60000)
+    public void partitionsArePerClassLoader() throws Exception {
+        String id = "particao-" + System.nanoTime();
+        SubEntidade entity = new SubEntidade(id, "particao");
+        Ref ref = new Ref(entity);
+        ClassLoader first = newLoader();
+        ClassLoader second = newLoader();
+        
+        withLoader(first, entity::save);
+        
+        assertSame(entity, withLoader(first, () -> EntityCache.get().get(ref)));
+        assertNull(withLoader(second, () -> EntityCache.get().get(ref)));
+        
+        EntityCache.get().invalidate(first);
+        assertNull(withLoader(first, () -> EntityCache.get().get(ref)));
+    }
+    
+    /**
+     * O peso de cada partição é limitado. Uma varredura de entidades vistas
+     * uma única vez expulsa as do segmento de prova, mas não a entidade lida de
+     * novo, que passou para o segmento protegido.
+     */
+    @Test(timeout = 120000)
+    public void scanDoesNotEvictProtectedEntries() throws Exception {
+        long maxWeight = EntityCache.MAX_WEIGHT;
+        int shards = EntityCache.SHARDS;
+        EntityCache.get().invalidateAll();
+        try {
+            withLoader(newLoader(), () -> new SubEntidade("peso-" + System.nanoTime(), "peso").save());
+            long single = EntityCache.get().weight();
+            EntityCache.get().invalidateAll();
+            EntityCache.SHARDS = 1;
+            EntityCache.MAX_WEIGHT = single * 4;
+            ClassLoader loader = newLoader();
+            long evictions = EntityCache.get().getEvictions();
+            
+            SubEntidade hot = new SubEntidade("quente-" + System.nanoTime(), "quente");
+            Ref ref = new Ref(hot);
+            withLoader(loader, hot::save);
+            assertSame(hot, withLoader(loader, () -> EntityCache.get().get(ref)));
+            for(int i = 0; i < 20; i++) {
+                withLoader(loader, new SubEntidade("frio-" + i + "-" + System.nanoTime(), "frio")::save);
+            }
+            
+            assertTrue(EntityCache.get().weight() <= EntityCache.MAX_WEIGHT);
+            assertTrue(EntityCache.get().getEvictions() > evictions);
+            assertSame(hot, withLoader(loader, () -> EntityCache.get().get(ref)));
+        } finally {
+            EntityCache.MAX_WEIGHT = maxWeight;
+            EntityCache.SHARDS = shards;
+            EntityCache.get().invalidateAll();
+        }
+    }
+    
+    private ClassLoader newLoader() {
+        return new URLClassLoader(new URL[0], getClass().getClassLoader());
+    }
+    
+    private static <T> T withLoader(ClassLoader loader, Callable<T> task) throws Exception {
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(loader);
+        try {
+            return task.call();
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+    
+}
@@ -0,0 +1,194 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br;
+
+import br.com.jhondbs.core.db.capsule.LockTable;
+import br.com.jhondbs.core.db.errors.LockTimeoutException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testes da tabela de bloqueios.
+ * @author jhones
+ */
+public class LockTableTest {
+    
+    private long timeout;
+    private String prefix;
+    
+    public LockTableTest() {
+    }
+    
+    @Before
+    public void setUp() {
+        timeout = LockTable.TIMEOUT;
+        prefix = "lock-" + System.nanoTime() + "-";
+    }
+    
+    @After
+    public void tearDown() {
+        LockTable.TIMEOUT = timeout;
+    }
+    
+    /**
+     * Um bloqueio exclusivo faz a espera de outra thread terminar no tempo
+     * limite, e o bloqueio volta a ficar livre depois de liberado.
+     */
+    @Test(timeout = 30000)
+    public void exclusiveLockTimesOut() throws Exception {
+        LockTable.TIMEOUT = 100;
+        String id = prefix + "a";
+        LockTable.get().lock(id, LockTable.EXCLUSIVE);
+        try {
+            assertFalse(inOtherThread(() -> LockTable.get().tryLock(id, LockTable.SHARED, 50, TimeUnit.MILLISECONDS)));
+            assertTrue(inOtherThread(() -> {
+                try {
+                    LockTable.get().lock(id, LockTable.EXCLUSIVE);
+                    return false;
+                } catch (LockTimeoutException ex) {
+                    return true;
+                }
+            }));
+        } finally {
+            LockTable.get().unlock(id, LockTable.EXCLUSIVE);
+        }
+        assertTrue(inOtherThread(() -> tryAndRelease(id, LockTable.EXCLUSIVE)));
+    }
+    
+    /**
+     * Leituras não bloqueiam outras leituras, mas bloqueiam gravações. A
+     * thread que grava também pode ler.
+     */
+    @Test(timeout = 30000)
+    public void sharedLocksOnlyBlockWriters() throws Exception {
+        String id = prefix + "b";
+        LockTable.get().lock(id, LockTable.SHARED);
+        try {
+            assertTrue(inOtherThread(() -> tryAndRelease(id, LockTable.SHARED)));
+            assertFalse(inOtherThread(() -> tryAndRelease(id, LockTable.EXCLUSIVE)));
+        } finally {
+            LockTable.get().unlock(id, LockTable.SHARED);
+        }
+        
+        LockTable.get().lock(id, LockTable.EXCLUSIVE);
+        try {
+            assertTrue(tryAndRelease(id, LockTable.SHARED));
+            assertTrue(tryAndRelease(id, LockTable.EXCLUSIVE));
+        } finally {
+            LockTable.get().unlock(id, LockTable.EXCLUSIVE);
+        }
+    }
+    
+    /**
+     * Transações que pedem os mesmos IDs em ordens opostas não entram em
+     * deadlock, já que os IDs são sempre obtidos em ordem crescente.
+     */
+    @Test(timeout = 60000)
+    public void lockAllTakesIdsInOrder() throws Exception {
+        LockTable.TIMEOUT = 10000;
+        List<String> forward = List.of(prefix + "x", prefix + "y", prefix + "z");
+        List<String> backward = List.of(prefix + "z", prefix + "y", prefix + "x");
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread first = new Thread(() -> repeatLockAll(forward, failure));
+        Thread second = new Thread(() -> repeatLockAll(backward, failure));
+        first.start();
+        second.start();
+        first.join();
+        second.join();
+        assertNull(failure.get());
+    }
+    
+    /**
+     * Quando um dos IDs não é obtido no tempo limite, os já obtidos são
+     * liberados.
+     */
+    @Test(timeout = 30000)
+    public void lockAllReleasesOnTimeout() throws Exception {
+        LockTable.TIMEOUT = 100;
+        String free = prefix + "m1";
+        String busy = prefix + "m2";
+        LockTable.get().lock(busy, LockTable.EXCLUSIVE);
+        try {
+            Throwable timedOut = null;
+            try {
+                inOtherThread(() -> {
+                    LockTable.get().lockAll(List.of(free, busy), LockTable.EXCLUSIVE);
+                    return true;
+                });
+            } catch (LockTimeoutException ex) {
+                timedOut = ex;
+            }
+            assertNotNull(timedOut);
+            assertTrue(inOtherThread(() -> tryAndRelease(free, LockTable.EXCLUSIVE)));
+        } finally {
+            LockTable.get().unlock(busy, LockTable.EXCLUSIVE);
+        }
+    }
+    
+    private static boolean tryAndRelease(String id, int mode) throws InterruptedException {
+        if(!LockTable.get().tryLock(id, mode, 0, TimeUnit.MILLISECONDS)) return false;
+        LockTable.get().unlock(id, mode);
+        return true;
+    }
+    
+    private static void repeatLockAll(List<String> ids, AtomicReference<Throwable> failure) {
+        try {
+            for(int i = 0; i < 500; i++) {
+                LockTable.get().lockAll(ids, LockTable.EXCLUSIVE);
+                LockTable.get().unlockAll(ids, LockTable.EXCLUSIVE);
+            }
+        } catch (Throwable ex) {
+            failure.set(ex);
+        }
+    }
+    
+    /**
+     * Executa numa thread nova, que não tem nenhum bloqueio, e devolve o
+     * resultado ou lança a exceção dela.
+     */
+    private static <T> T inOtherThread(Callable<T> task) throws Exception {
+        FutureTask<T> future = new FutureTask<>(task);
+        Thread thread = new Thread(future);
+        thread.start();
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            if(ex.getCause() instanceof Exception) throw (Exception) ex.getCause();
+            throw ex;
+        }
+    }
+    
+}
@@ -0,0 +1,140 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br;
+
+import br.com.jhondbs.core.db.filter.Filter;
+import br.com.jhondbs.core.db.filter.NumberFilter;
+import br.com.jhondbs.core.db.filter.StringFilter;
+import br.com.jhondbs.core.db.query.QueryPlan;
+import br.com.jhondbs.core.db.query.QueryPlanner;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import tests.objects.Pessoa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testes do planejador de consultas.
+ * @author jhones
+ */
+public class QueryPlannerTest {
+    
+    private static final int ENTITIES = 200;
+    private static boolean populated = false;
+    
+    public QueryPlannerTest() {
+    }
+    
+    /**
+     * Grava uma vez as entidades usadas por todos os testes: 20 nomes, idades
+     * de 0 a 199 e 4 cidades.
+     */
+    @Before
+    public void setUp() throws Exception {
+        if(populated) return;
+        for(int i = 0; i < ENTITIES; i++) {
+            new Pessoa("nome" + (i % 20), i, "cidade" + (i % 4)).save();
+        }
+        populated = true;
+    }
+    
+    /**
+     * Uma igualdade num campo indexado vem do índice, e custa menos que uma
+     * condição equivalente num campo sem índice, que varre a classe.
+     */
+    @Test(timeout = 120000)
+    public void indexedEqualityUsesTheIndex() throws Exception {
+        Filter indexed = new Filter();
+        indexed.addCondition(new StringFilter("nome", "nome3"));
+        QueryPlan plan = QueryPlanner.plan(Pessoa.class, indexed);
+        assertTrue(plan.explain().contains("Access: index\n"));
+        assertEquals(ENTITIES / 20, new Pessoa().loadAll(indexed).size());
+        
+        Filter plain = new Filter();
+        plain.addCondition(new StringFilter("cidade", "cidade3"));
+        QueryPlan scan = QueryPlanner.plan(Pessoa.class, plain);
+        assertTrue(scan.explain().contains("Access: full scan"));
+        assertTrue(plan.getCost() < scan.getCost());
+        assertEquals(ENTITIES / 4, new Pessoa().loadAll(plain).size());
+    }
+    
+    /**
+     * Uma condição que só pode ser testada na entidade carregada não tem
+     * índice: o plano varre a classe.
+     */
+    @Test(timeout = 120000)
+    public void entityConditionScans() throws Exception {
+        Filter filter = new Filter();
+        filter.addCondition(entity -> ((Pessoa) entity).idade % 2 == 0);
+        String explain = new Pessoa().explain(filter);
+        assertTrue(explain.contains("Access: full scan"));
+        assertEquals(ENTITIES / 2, new Pessoa().loadAll(filter).size());
+    }
+    
+    /**
+     * No E, os índices seletivos são cruzados e a condição sem índice fica só
+     * no teste; no OU de campos indexados os índices são unidos.
+     */
+    @Test(timeout = 120000)
+    public void combinesIndexes() throws Exception {
+        Filter all = new Filter();
+        all.addCondition(new StringFilter("cidade", "cidade1"));
+        all.addCondition(new NumberFilter("idade", 10, 99));
+        all.addCondition(new StringFilter("nome", "nome5"));
+        String explain = QueryPlanner.plan(Pessoa.class, all).explain();
+        String access = explain.substring(0, explain.indexOf("Test:"));
+        assertTrue(access.contains("Access: index"));
+        assertTrue(access.contains("StringFilter[nome]"));
+        assertFalse(access.contains("cidade"));
+        List<Pessoa> found = new Pessoa().loadAll(all);
+        assertEquals(4, found.size());
+        
+        Filter any = new Filter(false);
+        any.addCondition(new StringFilter("nome", "nome3"));
+        any.addCondition(new NumberFilter("idade", NumberFilter.EQUAL, 7));
+        assertTrue(QueryPlanner.plan(Pessoa.class, any).explain().contains("Access: index union"));
+        assertEquals(ENTITIES / 20 + 1, new Pessoa().loadAll(any).size());
+    }
+    
+    /**
+     * O explain traz as estimativas e os testes na ordem de execução.
+     */
+    @Test(timeout = 120000)
+    public void explainDescribesThePlan() throws Exception {
+        Filter filter = new Filter();
+        filter.addCondition(new NumberFilter("idade", 10, 99));
+        filter.addCondition(new StringFilter("nome", "nome3"));
+        String explain = QueryPlanner.plan(Pessoa.class, filter).explain();
+        assertTrue(explain.startsWith("Query Pessoa: rows="));
+        assertTrue(explain.contains("of " + ENTITIES));
+        assertTrue(explain.contains("Test:"));
+        String test = explain.substring(explain.indexOf("Test:"));
+        assertTrue(test.indexOf("StringFilter[nome]") < test.indexOf("NumberFilter[idade]"));
+        assertEquals(explain, new Pessoa().explain(filter));
+    }
+    
+}
@@ -0,0 +1,69 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br;
+
+import br.com.jhondbs.core.db.capsule.Bottle;
+import br.com.jhondbs.core.db.capsule.RecordIO;
+import br.com.jhondbs.core.db.storage.VersionStore;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.junit.Test;
+import tests.objects.SubEntidade;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testes da conversão de registros entre codecs.
+ * @author jhones
+ */
+public class RecordIOTest {
+    
+    public RecordIOTest() {
+    }
+    
+    /**
+     * A migração só converte registros: a sequência de commits, na raiz do
+     * banco, continua legível e com o mesmo valor.
+     */
+    @Test(timeout = 60000)
+    public void migrateKeepsTheCommitSequence() throws Exception {
+        SubEntidade entity = new SubEntidade("seq-" + System.nanoTime(), "migrate");
+        entity.save();
+        VersionStore.saveSequence();
+        Path path = Paths.get(Bottle.ROOT_DB, "sequence");
+        String before = Files.readString(path, StandardCharsets.UTF_8);
+        
+        RecordIO.migrate();
+        
+        String after = Files.readString(path, StandardCharsets.UTF_8);
+        assertEquals(before, after);
+        assertTrue(Long.parseLong(after.trim()) > 0);
+        assertNotNull(new SubEntidade().load(entity.getId()));
+    }
+    
+}
@@ -0,0 +1,153 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br;
+
+import br.com.jhondbs.core.db.capsule.Ref;
+import br.com.jhondbs.core.db.capsule.StagingArea;
+import br.com.jhondbs.core.db.session.EntityCache;
+import br.com.jhondbs.core.db.storage.WriteAheadLog;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import tests.objects.SubEntidade;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testes da área de preparação dos commits.
+ * @author jhones
+ */
+public class StagingAreaTest {
+    
+    private long memoryLimit;
+    private File folder;
+    private String temp;
+    
+    public StagingAreaTest() {
+    }
+    
+    @Before
+    public void setUp() throws IOException {
+        memoryLimit = StagingArea.MEMORY_LIMIT;
+        folder = Files.createTempDirectory("stage").toFile();
+        temp = folder.getPath() + "/area/";
+    }
+    
+    @After
+    public void tearDown() {
+        StagingArea.MEMORY_LIMIT = memoryLimit;
+        StagingArea.discard(temp);
+        new File(folder, "area.stage").delete();
+        folder.delete();
+    }
+    
+    /**
+     * Passando do limite de memória, os registros vão para o rascunho e são
+     * lidos de volta iguais, inclusive depois de regravados. O rascunho some
+     * quando a área é descartada.
+     */
+    @Test(timeout = 30000)
+    public void spillsToScratchAndReadsBack() throws Exception {
+        StagingArea.MEMORY_LIMIT = 2048;
+        StagingArea area = StagingArea.of(temp);
+        List<Ref> refs = new ArrayList<>();
+        for(int i = 0; i < 20; i++) {
+            Ref ref = new Ref(SubEntidade.class, "stage-" + i);
+            refs.add(ref);
+            area.write(ref, record("valor-" + i));
+        }
+        File scratch = new File(folder, "area.stage");
+        assertTrue(scratch.length() > 0);
+        
+        for(int i = 0; i < refs.size(); i++) {
+            assertEquals(record("valor-" + i), area.read(refs.get(i)));
+        }
+        area.write(refs.get(19), record("regravado"));
+        assertEquals(record("regravado"), area.read(refs.get(19)));
+        
+        List<WriteAheadLog.Change> changes = area.changes();
+        assertEquals(refs.size(), changes.size());
+        for(int i = 0; i < refs.size(); i++) {
+            assertEquals(refs.get(i), changes.get(i).ref);
+        }
+        assertEquals(record("valor-0"), changes.get(0).record);
+        assertEquals(record("regravado"), changes.get(19).record);
+        
+        StagingArea.discard(temp);
+        assertNull(StagingArea.find(temp));
+        assertFalse(scratch.exists());
+    }
+    
+    /**
+     * Um registro marcado para exclusão vira uma alteração sem registro, esteja
+     * ele em memória ou no rascunho.
+     */
+    @Test(timeout = 30000)
+    public void exclusionsBecomeDeletes() throws Exception {
+        StagingArea.MEMORY_LIMIT = 0;
+        StagingArea area = StagingArea.of(temp);
+        Ref ref = new Ref(SubEntidade.class, "stage-excluido");
+        Properties record = record("excluido");
+        record.setProperty("exclude", "true");
+        area.write(ref, record);
+        
+        assertTrue(area.isExcluded(ref));
+        assertNull(area.changes().get(0).record);
+    }
+    
+    /**
+     * Um commit inteiro com a área indo toda para o rascunho grava as
+     * entidades como se estivessem em memória.
+     */
+    @Test(timeout = 60000)
+    public void commitThroughScratch() throws Exception {
+        StagingArea.MEMORY_LIMIT = 0;
+        String id = "rascunho-" + System.nanoTime();
+        SubEntidade entity = new SubEntidade(id, "rascunho");
+        entity.subDaSub = new SubEntidade(id + "-sub", "sub");
+        entity.save();
+        
+        EntityCache.get().invalidateAll();
+        SubEntidade loaded = new SubEntidade().load(id);
+        assertEquals("rascunho", loaded.type);
+        assertEquals("sub", loaded.subDaSub.type);
+    }
+    
+    private static Properties record(String value) {
+        Properties record = new Properties();
+        record.setProperty("fields", "{texto:{" + value + "}}" + "x".repeat(200));
+        record.setProperty("seq", "1");
+        return record;
+    }
+    
+}
@@ -0,0 +1,106 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br;
+
+import br.com.jhondbs.core.db.errors.DuplicatedUniqueFieldException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import tests.objects.EntidadePrincipal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Testes dos campos únicos (@Unique).
+ * @author jhones
+ */
+public class UniqueFieldTest {
+    
+    private static final int THREADS = 8;
+    
+    public UniqueFieldTest() {
+    }
+    
+    /**
+     * Commits concorrentes com o mesmo valor único: só um é gravado e os
+     * demais recebem DuplicatedUniqueFieldException.
+     */
+    @Test(timeout = 120000)
+    public void concurrentCommitsKeepOneValue() throws Exception {
+        String name = "unico-" + System.nanoTime();
+        // A primeira gravação abre o dicionário de classes e os índices, para
+        // que a disputa fique só no commit.
+        new EntidadePrincipal(name + "-aquecimento").save();
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger saved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicReference<Throwable> unexpected = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for(int i = 0; i < THREADS; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    new EntidadePrincipal(name).save();
+                    saved.incrementAndGet();
+                } catch (DuplicatedUniqueFieldException ex) {
+                    rejected.incrementAndGet();
+                } catch (Throwable ex) {
+                    unexpected.set(ex);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        
+        assertNull(unexpected.get());
+        assertEquals(1, saved.get());
+        assertEquals(THREADS - 1, rejected.get());
+        assertEquals(1, new EntidadePrincipal().findByFieldValue("name", name).size());
+    }
+    
+    /**
+     * Depois que a entidade muda de valor, o valor antigo fica livre para
+     * outra entidade.
+     */
+    @Test(timeout = 60000)
+    public void changedValueIsReleased() throws Exception {
+        String name = "livre-" + System.nanoTime();
+        EntidadePrincipal first = new EntidadePrincipal(name);
+        first.save();
+        first.name = name + "-novo";
+        first.save();
+        
+        new EntidadePrincipal(name).save();
+        assertEquals(1, new EntidadePrincipal().findByFieldValue("name", name).size());
+    }
+    
+}
@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br;
+
+import br.com.jhondbs.core.db.DB;
+import br.com.jhondbs.core.db.errors.DuplicatedUniqueFieldException;
+import br.com.jhondbs.core.db.filter.Filter;
+import br.com.jhondbs.core.db.filter.StringFilter;
+import br.com.jhondbs.core.db.session.UnitOfWork;
+import br.com.jhondbs.core.db.storage.VersionStore;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import tests.objects.EntidadePrincipal;
+import tests.objects.Pessoa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Testes da gravação em lotes (UnitOfWork e DB.saveAll).
+ * @author jhones
+ */
+public class UnitOfWorkTest {
+    
+    public UnitOfWorkTest() {
+    }
+    
+    /**
+     * Cada lote cheio é gravado numa só transação, e o resto no commit.
+     */
+    @Test(timeout = 60000)
+    public void writesOneCommitPerChunk() throws Exception {
+        String nome = "lote-" + System.nanoTime();
+        long before = VersionStore.getPublished();
+        try (UnitOfWork unit = new UnitOfWork(3)) {
+            for(int i = 0; i < 7; i++) {
+                unit.add(new Pessoa(nome, i, "cidade"));
+            }
+            assertEquals(6, unit.saved());
+            assertEquals(1, unit.pending());
+            unit.commit();
+            assertEquals(7, unit.saved());
+            assertEquals(0, unit.pending());
+        }
+        assertEquals(3, VersionStore.getPublished() - before);
+        assertEquals(7, new Pessoa().loadAll(byNome(nome)).size());
+    }
+    
+    /**
+     * Um lote recusado não grava nenhuma das suas entidades, que continuam
+     * pendentes.
+     */
+    @Test(timeout = 60000)
+    public void rejectedChunkStaysPending() throws Exception {
+        String name = "pendente-" + System.nanoTime();
+        try (UnitOfWork unit = new UnitOfWork(10)) {
+            unit.add(new EntidadePrincipal(name + "-outro"));
+            unit.add(new EntidadePrincipal(name));
+            unit.add(new EntidadePrincipal(name));
+            DuplicatedUniqueFieldException rejected = null;
+            try {
+                unit.commit();
+            } catch (DuplicatedUniqueFieldException ex) {
+                rejected = ex;
+            }
+            assertNotNull(rejected);
+            assertEquals(3, unit.pending());
+            assertEquals(0, unit.saved());
+        }
+        EntidadePrincipal finder = new EntidadePrincipal();
+        assertEquals(0, finder.findByFieldValue("name", name).size());
+        assertEquals(0, finder.findByFieldValue("name", name + "-outro").size());
+    }
+    
+    /**
+     * DB.saveAll grava todas as entidades.
+     */
+    @Test(timeout = 60000)
+    public void saveAllWritesEverything() throws Exception {
+        String nome = "todos-" + System.nanoTime();
+        List<Pessoa> pessoas = new ArrayList<>();
+        for(int i = 0; i < 25; i++) {
+            pessoas.add(new Pessoa(nome, i, "cidade"));
+        }
+        DB.saveAll(pessoas);
+        assertEquals(25, new Pessoa().loadAll(byNome(nome)).size());
+    }
+    
+    private static Filter byNome(String nome) {
+        Filter filter = new Filter();
+        filter.addCondition(new StringFilter("nome", nome));
+        return filter;
+    }
+    
+}
@@ -0,0 +1,296 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jhones.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br;
+
+import br.com.jhondbs.core.db.capsule.Ref;
+import br.com.jhondbs.core.db.storage.Storage;
+import br.com.jhondbs.core.db.storage.WriteAheadLog;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import tests.objects.SubEntidade;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testes do log de escrita antecipada.
+ * @author jhones
+ */
+public class WriteAheadLogTest {
+    
+    private File log;
+    private boolean groupCommit;
+    private long groupCommitWindow;
+    
+    public WriteAheadLogTest() {
+    }
+    
+    @Before
+    public void setUp() throws IOException {
+        log = File.createTempFile("wal", ".log");
+        groupCommit = WriteAheadLog.GROUP_COMMIT;
+        groupCommitWindow = WriteAheadLog.GROUP_COMMIT_WINDOW;
+    }
+    
+    @After
+    public void tearDown() {
+        WriteAheadLog.GROUP_COMMIT = groupCommit;
+        WriteAheadLog.GROUP_COMMIT_WINDOW = groupCommitWindow;
+        log.delete();
+    }
+    
+    /**
+     * Um commit interrompido enquanto espera a vez de aplicar ainda ocupa a
+     * vez dele, e os commits seguintes não ficam bloqueados.
+     */
+    @Test(timeout = 30000)
+    public void interruptedCommitDoesNotBlockTheNextOnes() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MemoryStorage storage = new MemoryStorage(writing, release);
+        WriteAheadLog wal = new WriteAheadLog(log, storage);
+        
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Thread first = new Thread(() -> commit(wal, "a", failure));
+        first.start();
+        writing.await();
+        
+        Thread second = new Thread(() -> {
+            commit(wal, "b", failure);
+            interrupted.set(Thread.currentThread().isInterrupted());
+        });
+        second.start();
+        awaitState(second, Thread.State.WAITING);
+        second.interrupt();
+        release.countDown();
+        first.join();
+        second.join();
+        
+        wal.commit(changes("c"));
+        assertNull(failure.get());
+        assertTrue(interrupted.get());
+        assertTrue(storage.exists(ref("a")));
+        assertTrue(storage.exists(ref("b")));
+        assertTrue(storage.exists(ref("c")));
+        wal.close();
+    }
+    
+    /**
+     * Um commit cuja sincronização falhou não é reaplicado na recuperação.
+     * A falha é provocada interrompendo o líder do grupo durante a janela de
+     * espera, o que fecha o canal na sincronização.
+     */
+    @Test(timeout = 30000)
+    public void commitWithFailedSyncIsNotReplayed() throws Exception {
+        WriteAheadLog.GROUP_COMMIT = true;
+        WriteAheadLog.GROUP_COMMIT_WINDOW = 10_000_000;
+        MemoryStorage storage = new MemoryStorage(null, null);
+        WriteAheadLog wal = new WriteAheadLog(log, storage);
+        
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread committer = new Thread(() -> commit(wal, "a", failure));
+        committer.start();
+        awaitState(committer, Thread.State.TIMED_WAITING);
+        committer.interrupt();
+        committer.join();
+        assertNotNull(failure.get());
+        assertFalse(storage.exists(ref("a")));
+        
+        // Reabre o log sem fechar o anterior, como depois de uma queda.
+        WriteAheadLog.GROUP_COMMIT = false;
+        WriteAheadLog reopened = new WriteAheadLog(log, storage);
+        assertFalse(storage.exists(ref("a")));
+        
+        reopened.commit(changes("b"));
+        assertTrue(storage.exists(ref("b")));
+        reopened.close();
+    }
+    
+    /**
+     * Uma falha passageira ao aplicar um commit já sincronizado é tentada de
+     * novo, sem chegar a quem fez o commit.
+     */
+    @Test(timeout = 30000)
+    public void transientApplyFailureIsRetried() throws Exception {
+        MemoryStorage storage = new MemoryStorage(null, null);
+        storage.failures.set(1);
+        WriteAheadLog wal = new WriteAheadLog(log, storage);
+        
+        wal.commit(changes("a"));
+        assertTrue(storage.exists(ref("a")));
+        wal.commit(changes("b"));
+        assertTrue(storage.exists(ref("b")));
+        wal.close();
+    }
+    
+    /**
+     * Um commit sincronizado cuja aplicação continua falhando não é informado
+     * como falho: o log para de aceitar commits e a recuperação o reaplica.
+     */
+    @Test(timeout = 30000)
+    public void persistentApplyFailureIsReplayedOnRecovery() throws Exception {
+        MemoryStorage storage = new MemoryStorage(null, null);
+        storage.failures.set(Integer.MAX_VALUE);
+        WriteAheadLog wal = new WriteAheadLog(log, storage);
+        
+        wal.commit(changes("a"));
+        assertFalse(storage.exists(ref("a")));
+        IOException refused = null;
+        try {
+            wal.commit(changes("b"));
+        } catch (IOException ex) {
+            refused = ex;
+        }
+        assertNotNull(refused);
+        wal.close();
+        
+        storage.failures.set(0);
+        WriteAheadLog reopened = new WriteAheadLog(log, storage);
+        assertTrue(storage.exists(ref("a")));
+        assertFalse(storage.exists(ref("b")));
+        reopened.close();
+    }
+    
+    private static void commit(WriteAheadLog wal, String id, AtomicReference<Throwable> failure) {
+        try {
+            wal.commit(changes(id));
+        } catch (IOException ex) {
+            failure.set(ex);
+        }
+    }
+    
+    private static void awaitState(Thread thread, Thread.State state) throws InterruptedException {
+        while(thread.getState() != state) {
+            Thread.sleep(10);
+        }
+    }
+    
+    private static Ref ref(String id) {
+        return new Ref(SubEntidade.class, "wal-" + id);
+    }
+    
+    private static List<WriteAheadLog.Change> changes(String id) {
+        Properties record = new Properties();
+        record.setProperty("type", id);
+        return List.of(new WriteAheadLog.Change(ref(id), record));
+    }
+    
+    /**
+     * Armazenamento em memória. Com as travas informadas, a primeira gravação
+     * avisa que começou e espera ser liberada. As próximas "failures"
+     * gravações falham.
+     */
+    private static final class MemoryStorage implements Storage {
+        
+        private final Map<Ref, Properties> records = new ConcurrentHashMap<>();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final CountDownLatch writing;
+        private final CountDownLatch release;
+
+        MemoryStorage(CountDownLatch writing, CountDownLatch release) {
+            this.writing = writing;
+            this.release = release;
+        }
+
+        @Override
+        public boolean exists(Ref ref) {
+            return records.containsKey(ref);
+        }
+
+        @Override
+        public Properties read(Ref ref) throws IOException {
+            Properties record = records.get(ref);
+            if(record == null) throw new FileNotFoundException(ref.toString());
+            return record;
+        }
+
+        @Override
+        public void write(Ref ref, Properties record) throws IOException {
+            if(failures.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0) {
+                throw new IOException("Falha simulada: " + ref);
+            }
+            if(writing != null && writing.getCount() > 0) {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    throw new IOException(ex);
+                }
+            }
+            records.put(ref, record);
+        }
+
+        @Override
+        public void delete(Ref ref) {
+            records.remove(ref);
+        }
+
+        @Override
+        public List<String> listIds(Class clazz) {
+            return List.of();
+        }
+
+        @Override
+        public boolean export(Ref ref, File target) {
+            return false;
+        }
+
+        @Override
+        public void backup(Ref ref) {
+        }
+
+        @Override
+        public void restore(Ref ref) {
+        }
+
+        @Override
+        public void discardBackup(Ref ref) {
+        }
+
+        @Override
+        public void sync() {
+        }
+
+        @Override
+        public void close() {
+        }
+        
+    }
+    
+}